@@ -1,5 +1,6 @@
 package com.esentri.quartz.springboot.application;
 
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
 import com.esentri.quartz.carbonaware.triggers.builders.CarbonAwareCronScheduleBuilder;
 import com.esentri.quartz.springboot.clients.rest.CarbonForecastClient;
 import lombok.RequiredArgsConstructor;
@@ -73,6 +74,8 @@ public class TriggerConfiguration {
     public Trigger triggerUsingCustomImplementedForecastRestClient(@Qualifier("secondJob") JobDetail job) {
 
         log.info("Carbon Aware Trigger configured using a Custom CarbonForecastApi Implementation");
+        // the jdbc jobstore stores the key of the registered client instead of the client and its RestTemplate
+        CarbonForecastApiRegistry.register(carbonForecastClient);
 
         return newTrigger()
                 .withIdentity("CarbonAwareTrigger-WithCustomForecastClient", GROUP_NAME)
@@ -1,6 +1,7 @@
 package com.esentri.quartz.springboot.clients.rest;
 
 import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
 import com.esentri.quartz.carbonaware.entity.EmissionForecast;
 import com.esentri.quartz.springboot.clients.rest.entity.EmissionForecastImpl;
 import com.esentri.quartz.springboot.configuration.ApplicationContextProvider;
@@ -10,6 +11,7 @@ import org.springframework.context.annotation.DependsOn;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -27,6 +29,7 @@ public class CarbonForecastClient implements CarbonForecastApi {
     private static final long serialVersionUID = 1L;
 
     private static final String URL = "https://forecast.carbon-aware-computing.com/emissions/forecasts/current" ;
+    private static final String BATCH_URL = "https://forecast.carbon-aware-computing.com/emissions/forecasts/batch";
     private static final String API_KEY= "<your api key>";
 
     private final RestTemplateConfiguration.SerializableRestTemplate restTemplate;
@@ -64,6 +67,38 @@ public class CarbonForecastClient implements CarbonForecastApi {
         return new ArrayList<>(Objects.requireNonNull(result.getBody()));
     }
 
+    /**
+     * Uses the batch endpoint of the Carbon Aware SDK. The forecasts of the response are in the order of the queries.
+     */
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        List<ForecastQuery> distinctQueries = queries.stream().distinct().toList();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-api-key", API_KEY);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        List<BatchQuery> body = distinctQueries.stream()
+                .map(query -> new BatchQuery(
+                        query.location(),
+                        query.dataStartAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                        query.dataEndAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                        query.windowSize()))
+                .toList();
+        HttpEntity<List<BatchQuery>> requestEntity = new HttpEntity<>(body, headers);
+
+        ResponseEntity<EmissionForecastResponse> result = restTemplate.exchange(BATCH_URL, HttpMethod.POST, requestEntity, EmissionForecastResponse.class);
+        EmissionForecastResponse forecasts = Objects.requireNonNull(result.getBody());
+
+        Map<ForecastQuery, List<EmissionForecast>> forecastsByQuery = new LinkedHashMap<>();
+        for (int i = 0; i < distinctQueries.size(); i++) {
+            forecastsByQuery.put(distinctQueries.get(i), i < forecasts.size() ? List.of(forecasts.get(i)) : List.of());
+        }
+        return forecastsByQuery;
+    }
+
+    private record BatchQuery(String location, String dataStartAt, String dataEndAt, Integer windowSize) {
+    }
+
     private static class EmissionForecastResponse extends ArrayList<EmissionForecastImpl> {
         // type
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProviderAccess;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the streaming parser of the co2eq responses with the regular expressions, which were applied to the
+ * response as String before. Each operation parses the responses of all countries, as the update of the forecast
+ * does. Run with {@code -prof gc} to compare the allocation.
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class Co2eqResponseParserBenchmark {
+
+    /**
+     * Days of data with a resolution of 15 minutes
+     */
+    @Param({"2", "7"})
+    public int days;
+
+    @Param({"1", "8"})
+    public int countries;
+
+    private byte[][] responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        responses = new byte[countries][];
+        for (int country = 0; country < countries; country++) {
+            responses[country] = response(days * 96, country).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        for (byte[] response : responses) {
+            blackhole.consume(EnergyChartsForecastProviderAccess.parseCo2eqResponse(new ByteArrayInputStream(response)));
+        }
+    }
+
+    @Benchmark
+    public void regularExpressions(Blackhole blackhole) {
+        for (byte[] response : responses) {
+            String json = new String(response, StandardCharsets.UTF_8);
+            blackhole.consume(extractLongArray(json));
+            blackhole.consume(extractDoubleArray(json, "co2eq"));
+            blackhole.consume(extractDoubleArray(json, "co2eq_forecast"));
+        }
+    }
+
+    /**
+     * Builds a response like the Energy-Charts API: the measured values end after three quarters of the data points,
+     * the forecast covers the whole range.
+     */
+    private static String response(int dataPoints, int country) {
+        StringBuilder unixSeconds = new StringBuilder();
+        StringBuilder co2eq = new StringBuilder();
+        StringBuilder co2eqForecast = new StringBuilder();
+        for (int i = 0; i < dataPoints; i++) {
+            String separator = i == 0 ? "" : ",";
+            double value = 250 + 20 * country + 150 * Math.sin(i / 12.0);
+            unixSeconds.append(separator).append(1_752_624_000L + i * 900L);
+            co2eq.append(separator).append(i < dataPoints * 3 / 4 ? format(value) : "null");
+            co2eqForecast.append(separator).append(format(value + 7.3));
+        }
+        return "{\"unix_seconds\":[" + unixSeconds + "],\"co2eq\":[" + co2eq + "],\"co2eq_forecast\":["
+                + co2eqForecast + "],\"substitute\":false,\"deprecated\":false}";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static List<Long> extractLongArray(String json) {
+        List<Long> result = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"unix_seconds\":\\s*\\[(.*?)]", Pattern.DOTALL).matcher(json);
+        if (matcher.find()) {
+            for (String item : matcher.group(1).split(",")) {
+                item = item.trim();
+                if (!item.isEmpty() && !item.equals("null")) {
+                    result.add(Long.parseLong(item));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Double> extractDoubleArray(String json, String arrayName) {
+        List<Double> result = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"" + arrayName + "\":\\s*\\[(.*?)]", Pattern.DOTALL).matcher(json);
+        if (matcher.find()) {
+            for (String item : matcher.group(1).split(",")) {
+                item = item.trim();
+                result.add(item.isEmpty() || item.equals("null") ? null : Double.parseDouble(item));
+            }
+        }
+        return result;
+    }
+}
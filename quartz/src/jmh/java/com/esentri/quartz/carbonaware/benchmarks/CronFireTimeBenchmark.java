@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
+import com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl;
+import com.esentri.quartz.carbonaware.triggers.impl.CronFireTimeBufferAccess;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares the lookups of the configured execution time and the deadline with {@link org.quartz.CronExpression}
+ * to the ring buffer of upcoming times, which {@link CarbonAwareCronTriggerImpl} uses. The trigger fires every
+ * minute, like the high-frequency triggers of the examples.
+ * <p>
+ * An evaluation of the trigger asks for the next configured execution time, the one after it to announce the
+ * following plan, and the deadlines of both. The next evaluation asks again for the times after the previous fire
+ * time. Run with the GC profiler to compare the allocations per operation ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * ./gradlew :quartz:jmh -Pjmh.includes=CronFireTimeBenchmark -Pjmh.profilers=gc
+ * </pre>
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CronFireTimeBenchmark {
+
+    private static final String CRON_EXPRESSION = "0 0/1 * ? * * *";
+    private static final String DEADLINE_CRON_EXPRESSION = "30 0/1 * ? * * *";
+
+    @Param({"CRON_EXPRESSION", "RING_BUFFER"})
+    public String lookup;
+
+    private UnaryOperator<Date> fireTimes;
+    private UnaryOperator<Date> deadlines;
+    private Scheduler scheduler;
+    private CarbonAwareCronTriggerImpl trigger;
+    private Date fireTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParseException, SchedulerException {
+        org.quartz.CronExpression cronExpression = new org.quartz.CronExpression(CRON_EXPRESSION);
+        org.quartz.CronExpression deadlineCronExpression = new org.quartz.CronExpression(DEADLINE_CRON_EXPRESSION);
+        if ("RING_BUFFER".equals(lookup)) {
+            fireTimes = CronFireTimeBufferAccess.buffered(cronExpression);
+            deadlines = CronFireTimeBufferAccess.buffered(deadlineCronExpression);
+        } else {
+            fireTimes = cronExpression::getTimeAfter;
+            deadlines = deadlineCronExpression::getTimeAfter;
+        }
+
+        // without planner, in the veto mode and with an executor discarding the planning of the next execution, the
+        // trigger only looks up its configured execution times
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "benchmark");
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        new SchedulerPlanning(CarbonForecastApiDecorators.none(), null, false, task -> { }).bindTo(scheduler);
+        trigger = new CarbonAwareCronTriggerImpl();
+        trigger.setSchedulerName("benchmark");
+        trigger.setName("benchmark-trigger");
+        trigger.setGroup("benchmark");
+        trigger.setCronExpression(CRON_EXPRESSION);
+        trigger.setDeadlineCronExpression(DEADLINE_CRON_EXPRESSION);
+        trigger.setLocation("de");
+        trigger.setJobDurationInMinutes(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetFireTime() {
+        fireTime = new Date();
+        trigger.setNextFireTime(fireTime);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SchedulerException {
+        scheduler.shutdown();
+    }
+
+    /**
+     * The lookups of a single trigger evaluation.
+     */
+    @Benchmark
+    public Date lookups() {
+        Date configuredTime = fireTimes.apply(fireTime);
+        Date nextConfiguredTime = fireTimes.apply(configuredTime);
+        deadlines.apply(configuredTime);
+        deadlines.apply(nextConfiguredTime);
+        fireTime = configuredTime;
+        return nextConfiguredTime;
+    }
+
+    /**
+     * A call of {@link CarbonAwareCronTriggerImpl#triggered(org.quartz.Calendar)}, which always uses the ring buffer.
+     * Independent of the parameter.
+     */
+    @Benchmark
+    public Date triggered() {
+        trigger.setCarbonAwareTriggerState(CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE);
+        trigger.triggered(null);
+        return trigger.getNextFireTime();
+    }
+}
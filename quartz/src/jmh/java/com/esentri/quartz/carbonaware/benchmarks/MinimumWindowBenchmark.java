@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sliding window scan, which was executed for every trigger evaluation, with the window index of the
+ * {@link ForecastSeries} for finding the window with the minimal average carbon intensity.
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MinimumWindowBenchmark {
+
+    /**
+     * Two days and one week with a resolution of 15 minutes
+     */
+    @Param({"192", "672"})
+    public int dataPoints;
+
+    /**
+     * Job durations of one and eight hours
+     */
+    @Param({"4", "32"})
+    public int windowLength;
+
+    private ForecastSeries series;
+    private double[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long[] epochSeconds = new long[dataPoints];
+        values = new double[dataPoints];
+        for (int i = 0; i < dataPoints; i++) {
+            epochSeconds[i] = i * 900L;
+            values[i] = 300 + 150 * Math.sin(i / 12.0);
+        }
+        series = ForecastSeries.of(epochSeconds, values, 15);
+        series.prepareWindowIndexes(List.of(windowLength));
+    }
+
+    @Benchmark
+    public int scan() {
+        double currentSum = 0;
+        for (int j = 0; j < windowLength; j++) {
+            currentSum += values[j];
+        }
+        double minimalSum = currentSum;
+        int minimumStart = 0;
+        for (int i = 1; i <= dataPoints - windowLength; i++) {
+            currentSum = currentSum - values[i - 1] + values[i + windowLength - 1];
+            if (currentSum < minimalSum) {
+                minimalSum = currentSum;
+                minimumStart = i;
+            }
+        }
+        return minimumStart;
+    }
+
+    @Benchmark
+    public int index() {
+        return series.minimumWindowStart(windowLength, 0, dataPoints - windowLength);
+    }
+}
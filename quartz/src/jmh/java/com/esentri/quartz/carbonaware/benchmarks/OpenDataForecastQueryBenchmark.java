@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProvider;
+import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProviderAccess;
+import com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single query of the {@link OpenDataForecastClient} against a cached forecast of two days with a
+ * resolution of 15 minutes. Run with {@code -prof gc} to compare the allocation per query.
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OpenDataForecastQueryBenchmark {
+
+    private static final LocalDateTime FORECAST_START = LocalDateTime.of(2025, 7, 16, 0, 0);
+    private static final int DATA_POINTS = 2 * 24 * 4;
+
+    @Param({"15", "240"})
+    public int windowSize;
+
+    private final EnergyChartsForecastProvider provider = new EnergyChartsForecastProvider();
+    private final OpenDataForecastClient client = new OpenDataForecastClient(provider, null, null);
+    private LocalDateTime dataStartAt;
+    private LocalDateTime dataEndAt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long[] epochSeconds = new long[DATA_POINTS];
+        double[] values = new double[DATA_POINTS];
+        long start = FORECAST_START.toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < DATA_POINTS; i++) {
+            epochSeconds[i] = start + i * 15L * 60;
+            values[i] = 300 + 150 * Math.sin(i / 12.0);
+        }
+        EnergyChartsForecastProviderAccess.publish(provider, "de", ForecastSeries.of(epochSeconds, values, 15));
+
+        dataStartAt = FORECAST_START.plusHours(6);
+        dataEndAt = FORECAST_START.plusHours(30);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EnergyChartsForecastProviderAccess.clear(provider);
+    }
+
+    @Benchmark
+    public List<EmissionForecast> query() {
+        return client.getEmissionForecastCurrent(List.of("de"), dataStartAt, dataEndAt, windowSize);
+    }
+}
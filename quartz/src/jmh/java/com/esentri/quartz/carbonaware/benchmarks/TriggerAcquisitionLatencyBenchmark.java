@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
+import com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time Quartz spends in {@link CarbonAwareCronTriggerImpl#triggered(org.quartz.Calendar)}, which is
+ * called on the QuartzSchedulerThread while the JobStore lock is held.
+ * <p>
+ * Without the {@link ForecastPlanner}, the trigger plans each execution once in the background and reads the plan
+ * when it is ready. With the planner running, the trigger only reads the precomputed plan. In both cases, the latency
+ * is independent of the forecast client.
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TriggerAcquisitionLatencyBenchmark {
+
+    @Param({"0", "50", "250"})
+    public long forecastLatencyInMillis;
+
+    @Param({"UNPLANNED", "PLANNED"})
+    public String planning;
+
+    private Scheduler scheduler;
+    private ForecastPlanner planner;
+    private CarbonAwareCronTriggerImpl trigger;
+    private Date firstFireTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParseException, SchedulerException {
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "benchmark");
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        if ("PLANNED".equals(planning)) {
+            planner = new ForecastPlanner(2, Duration.ofSeconds(1));
+        }
+        new SchedulerPlanning(CarbonForecastApiDecorators.none(), planner).bindTo(scheduler);
+
+        trigger = new CarbonAwareCronTriggerImpl();
+        trigger.setSchedulerName("benchmark");
+        trigger.setName("benchmark-trigger");
+        trigger.setGroup("benchmark");
+        trigger.setCronExpression("0 0/1 * ? * *");
+        trigger.setDeadlineCronExpression("30 0/1 * ? * *");
+        trigger.setLocation("de");
+        trigger.setJobDurationInMinutes(1);
+        trigger.setCarbonForecastApi(new SlowForecastApi(forecastLatencyInMillis));
+
+        // PENDING -> READY, announces the next execution to the planner or plans it in the background
+        firstFireTime = trigger.computeFirstFireTime(null);
+
+        // give the planner the chance to compute the plan before the measurement starts
+        awaitPlan();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SchedulerException {
+        if (planner != null) {
+            planner.shutdown();
+        }
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public Date triggered() {
+        trigger.setCarbonAwareTriggerState(CarbonAwareExecutionState.READY);
+        trigger.setNextFireTime(firstFireTime);
+        trigger.triggered(null);
+        return trigger.getNextFireTime();
+    }
+
+    private void awaitPlan() {
+        try {
+            Thread.sleep(forecastLatencyInMillis * 2 + 100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record SlowForecastApi(long latencyInMillis) implements CarbonForecastApi {
+
+        @Override
+        public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                                 LocalDateTime dataStartAt,
+                                                                 LocalDateTime dataEndAt,
+                                                                 Integer windowSize) {
+            try {
+                Thread.sleep(latencyInMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new Forecast(location.get(0), windowSize,
+                    List.of(new Data(dataStartAt.plusSeconds(10), 42.0))));
+        }
+    }
+
+    private record Forecast(String location, Integer windowSize, List<EmissionData> optimalDataPoints)
+            implements EmissionForecast {
+    }
+
+    private record Data(LocalDateTime timestamp, Double value) implements EmissionData {
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.benchmarks;
+
+import com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
+import com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.impl.jdbcjobstore.Constants;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.quartz.JobBuilder.newJob;
+
+/**
+ * Stores and loads a {@link CarbonAwareCronTriggerImpl} in the {@code QRTZ_BLOB_TRIGGERS} table of an in-memory H2
+ * database with the {@link StdJDBCDelegate} of the JDBC JobStore. The JobStore updates the trigger after each
+ * firing ({@code triggersFired}, {@code triggeredJobComplete}) and loads it when acquiring the next triggers.
+ * <p>
+ * {@code DEFAULT_SERIALIZATION} stores a subclass of the trigger, which is written with the default serialization
+ * like the trigger before its compact serialized form. The size of the stored row is printed on setup.
+ *
+ * @author jannisschalk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TriggerBlobBenchmark {
+
+    private static final String SCHEDULER_NAME = "benchmark";
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE QRTZ_JOB_DETAILS (
+                SCHED_NAME VARCHAR(120) NOT NULL, JOB_NAME VARCHAR(200) NOT NULL, JOB_GROUP VARCHAR(200) NOT NULL,
+                DESCRIPTION VARCHAR(250) NULL, JOB_CLASS_NAME VARCHAR(250) NOT NULL, IS_DURABLE BOOLEAN NOT NULL,
+                IS_NONCONCURRENT BOOLEAN NOT NULL, IS_UPDATE_DATA BOOLEAN NOT NULL, REQUESTS_RECOVERY BOOLEAN NOT NULL,
+                JOB_DATA BLOB NULL,
+                PRIMARY KEY (SCHED_NAME, JOB_NAME, JOB_GROUP))
+            """,
+            """
+            CREATE TABLE QRTZ_TRIGGERS (
+                SCHED_NAME VARCHAR(120) NOT NULL, TRIGGER_NAME VARCHAR(200) NOT NULL,
+                TRIGGER_GROUP VARCHAR(200) NOT NULL, JOB_NAME VARCHAR(200) NOT NULL, JOB_GROUP VARCHAR(200) NOT NULL,
+                DESCRIPTION VARCHAR(250) NULL, NEXT_FIRE_TIME BIGINT NULL, PREV_FIRE_TIME BIGINT NULL,
+                PRIORITY INTEGER NULL, TRIGGER_STATE VARCHAR(16) NOT NULL, TRIGGER_TYPE VARCHAR(8) NOT NULL,
+                START_TIME BIGINT NOT NULL, END_TIME BIGINT NULL, CALENDAR_NAME VARCHAR(200) NULL,
+                MISFIRE_INSTR SMALLINT NULL, JOB_DATA BLOB NULL,
+                PRIMARY KEY (SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP))
+            """,
+            """
+            CREATE TABLE QRTZ_BLOB_TRIGGERS (
+                SCHED_NAME VARCHAR(120) NOT NULL, TRIGGER_NAME VARCHAR(200) NOT NULL,
+                TRIGGER_GROUP VARCHAR(200) NOT NULL, BLOB_DATA BLOB NULL,
+                PRIMARY KEY (SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP))
+            """
+    };
+
+    @Param({"DEFAULT_SERIALIZATION", "SERIALIZED_CLIENT", "REGISTERED_CLIENT"})
+    public String format;
+
+    private Connection connection;
+    private StdJDBCDelegate delegate;
+    private JobDetail jobDetail;
+    private CarbonAwareCronTriggerImpl trigger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:" + format + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            for (String table : SCHEMA) {
+                statement.execute(table);
+            }
+        }
+        SimpleClassLoadHelper classLoadHelper = new SimpleClassLoadHelper();
+        classLoadHelper.initialize();
+        delegate = new StdJDBCDelegate();
+        delegate.initialize(LoggerFactory.getLogger(TriggerBlobBenchmark.class), "QRTZ_", SCHEDULER_NAME,
+                "instance", classLoadHelper, false, null);
+
+        OpenDataForecastClient client = new OpenDataForecastClient();
+        if ("REGISTERED_CLIENT".equals(format)) {
+            CarbonForecastApiRegistry.register(client);
+        }
+        trigger = "DEFAULT_SERIALIZATION".equals(format)
+                ? new DefaultSerializedTrigger()
+                : new CarbonAwareCronTriggerImpl();
+        trigger.setName("CarbonAwareTrigger-WithOpenDataClient");
+        trigger.setGroup("carbon-aware");
+        trigger.setJobName("OpenDataForecastClient-LoggingJob");
+        trigger.setJobGroup("carbon-aware");
+        trigger.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        trigger.setCronExpression("0 0/1 * ? * * *");
+        trigger.setDeadlineCronExpression("0 0 23 ? * * *");
+        trigger.setLocation("de");
+        trigger.setJobDurationInMinutes(7);
+        trigger.setCarbonForecastApi(client);
+        trigger.setCarbonAwareTriggerState(CarbonAwareExecutionState.PLANNED_AHEAD);
+        trigger.setNextFireTime(new Date());
+
+        jobDetail = newJob(BenchmarkJob.class).withIdentity(trigger.getJobKey()).storeDurably().build();
+        delegate.insertJobDetail(connection, jobDetail);
+        delegate.insertTrigger(connection, trigger, Constants.STATE_WAITING, jobDetail);
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT LENGTH(BLOB_DATA) FROM QRTZ_BLOB_TRIGGERS")) {
+            resultSet.next();
+            System.out.printf("%nSize of the QRTZ_BLOB_TRIGGERS row with %s: %d bytes%n",
+                    format, resultSet.getLong(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+        CarbonForecastApiRegistry.clear();
+    }
+
+    @Benchmark
+    public int update() throws Exception {
+        trigger.setPreviousFireTime(trigger.getNextFireTime());
+        trigger.setNextFireTime(new Date(trigger.getNextFireTime().getTime() + 60_000));
+        return delegate.updateTrigger(connection, trigger, Constants.STATE_WAITING, jobDetail);
+    }
+
+    @Benchmark
+    public OperableTrigger select() throws Exception {
+        return delegate.selectTrigger(connection, trigger.getKey());
+    }
+
+    /**
+     * Trigger written with the default serialization, because the serialized form replaces only instances of
+     * {@link CarbonAwareCronTriggerImpl} itself.
+     */
+    public static class DefaultSerializedTrigger extends CarbonAwareCronTriggerImpl {
+    }
+
+    public static class BenchmarkJob implements Job {
+
+        @Override
+        public void execute(org.quartz.JobExecutionContext context) {
+            // never executed
+        }
+    }
+}
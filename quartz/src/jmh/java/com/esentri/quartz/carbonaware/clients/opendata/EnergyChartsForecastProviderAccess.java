@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Publishes synthetic forecasts in the {@link EnergyChartsForecastProvider} for benchmarks, without requests to the
+ * Energy-Charts API.
+ *
+ * @author jannisschalk
+ */
+public final class EnergyChartsForecastProviderAccess {
+
+    private EnergyChartsForecastProviderAccess() {
+    }
+
+    public static void publish(EnergyChartsForecastProvider provider, String location, ForecastSeries series) {
+        provider.cachedForecasts.put(Location.fromCode(location), new CachedForecast(
+                LocalDateTime.now(),
+                series.timestampAt(series.size() - 1),
+                series));
+    }
+
+    /**
+     * @return the parsed arrays of a co2eq response of the Energy-Charts API
+     */
+    public static Object parseCo2eqResponse(InputStream in) throws IOException {
+        return Co2eqResponseParser.parse(in);
+    }
+
+    public static void clear(EnergyChartsForecastProvider provider) {
+        provider.cachedForecasts.clear();
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import org.quartz.CronExpression;
+
+import java.util.Date;
+import java.util.function.UnaryOperator;
+
+/**
+ * Exposes the {@link CronFireTimeBuffer} of the {@link CarbonAwareCronTriggerImpl} for benchmarks.
+ *
+ * @author jannisschalk
+ */
+public final class CronFireTimeBufferAccess {
+
+    private CronFireTimeBufferAccess() {
+    }
+
+    /**
+     * @return a function returning the time of the expression after the given time, read from a new buffer
+     */
+    public static UnaryOperator<Date> buffered(CronExpression cronExpression) {
+        return new CronFireTimeBuffer(cronExpression)::timeAfter;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decorator of a {@link CarbonForecastApi}, which caches the forecast results of the delegate.
+ * <p>
+ * Every trigger queries the forecast with a slightly different start time. Therefore, the cache key contains the
+ * start time rounded down to the resolution of the forecast data points, since a data point is part of the forecast
+ * window, if its interval overlaps the start time. The end time is the deadline of the execution and is part of the
+ * key as it is: a result for a later deadline may contain a window, which doesn't fit before an earlier one.
+ * <p>
+ * Entries are evicted, if the cache exceeds its maximum size (least recently used first), if the entry is older than
+ * the configured time-to-live, or if the version of the forecast data, e.g. the
+ * {@link com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProvider#getDataVersion() version} of the
+ * open data provider of the scheduler, has changed.
+ * Results with a data point before the requested start time (e.g. an immediate execution) depend on the time of the
+ * request and are neither cached nor served from the cache.
+ * <p>
+ * The decorator is serialized as its delegate, so a deserialized client is not cached until it is decorated again.
+ *
+ * @author jannisschalk
+ */
+public class CachingCarbonForecastApi implements CarbonForecastApi {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final CarbonForecastApi delegate;
+    private final int maximumEntries;
+    private final Duration timeToLive;
+    private final Duration bucketSize;
+
+    private final transient LongSupplier dataVersion;
+    private final transient Map<Key, Entry> entries;
+    private final transient LongAdder hitCount = new LongAdder();
+    private final transient LongAdder missCount = new LongAdder();
+    private final transient LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param delegate       The client to fetch the forecast with
+     * @param maximumEntries Maximum number of cached results
+     * @param timeToLive     Duration a result is served from the cache
+     * @param bucketSize     Resolution of the forecast data points, used to round the start time of a query
+     */
+    public CachingCarbonForecastApi(CarbonForecastApi delegate,
+                                    int maximumEntries,
+                                    Duration timeToLive,
+                                    Duration bucketSize) {
+        this(delegate, maximumEntries, timeToLive, bucketSize, () -> 0L);
+    }
+
+    /**
+     * @param delegate       The client to fetch the forecast with
+     * @param maximumEntries Maximum number of cached results
+     * @param timeToLive     Duration a result is served from the cache
+     * @param bucketSize     Resolution of the forecast data points, used to round the start time of a query
+     * @param dataVersion    Version of the forecast data, cached results of an older version are not served
+     */
+    public CachingCarbonForecastApi(CarbonForecastApi delegate,
+                                    int maximumEntries,
+                                    Duration timeToLive,
+                                    Duration bucketSize,
+                                    LongSupplier dataVersion) {
+        if (bucketSize.toSeconds() <= 0) {
+            throw new IllegalArgumentException("Bucket size must be at least one second, but was " + bucketSize);
+        }
+        this.delegate = delegate;
+        this.maximumEntries = maximumEntries;
+        this.timeToLive = timeToLive;
+        this.bucketSize = bucketSize;
+        this.dataVersion = Objects.requireNonNull(dataVersion);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > CachingCarbonForecastApi.this.maximumEntries) {
+                    evictionCount.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                             LocalDateTime dataStartAt,
+                                                             LocalDateTime dataEndAt,
+                                                             Integer windowSize) {
+        Key key = new Key(List.copyOf(location), floor(dataStartAt), epochSecond(dataEndAt), windowSize);
+        long version = dataVersion.getAsLong();
+
+        Entry cached = get(key, version);
+        if (cached != null && startsNotBefore(cached.result(), dataStartAt)) {
+            hitCount.increment();
+            return cached.result();
+        }
+
+        missCount.increment();
+        List<EmissionForecast> result = delegate.getEmissionForecastCurrent(location, dataStartAt, dataEndAt, windowSize);
+        if (result != null && !result.isEmpty() && startsNotBefore(result, dataStartAt)) {
+            put(key, new Entry(List.copyOf(result), System.nanoTime(), version));
+        }
+        return result;
+    }
+
+    /**
+     * Answers the queries from the cache and forwards all remaining queries with a single batch call to the delegate.
+     */
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        long version = dataVersion.getAsLong();
+        Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+        List<ForecastQuery> misses = new ArrayList<>();
+
+        for (ForecastQuery query : queries) {
+            if (result.containsKey(query)) {
+                continue;
+            }
+            Entry cached = get(key(query), version);
+            if (cached != null && startsNotBefore(cached.result(), query.dataStartAt())) {
+                hitCount.increment();
+                result.put(query, cached.result());
+            } else {
+                missCount.increment();
+                // reserve the position to keep the order of the queries
+                result.put(query, null);
+                misses.add(query);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<ForecastQuery, List<EmissionForecast>> fetched = delegate.getEmissionForecastsBatch(misses);
+            for (ForecastQuery query : misses) {
+                List<EmissionForecast> forecast = fetched.getOrDefault(query, List.of());
+                if (forecast != null && !forecast.isEmpty() && startsNotBefore(forecast, query.dataStartAt())) {
+                    put(key(query), new Entry(List.copyOf(forecast), System.nanoTime(), version));
+                }
+                result.put(query, forecast == null ? List.of() : forecast);
+            }
+        }
+        return result;
+    }
+
+    private Key key(ForecastQuery query) {
+        return new Key(List.of(query.location()), floor(query.dataStartAt()), epochSecond(query.dataEndAt()),
+                query.windowSize());
+    }
+
+    private synchronized Entry get(Key key, long version) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.dataVersion() != version || System.nanoTime() - entry.createdAt() > timeToLive.toNanos()) {
+            entries.remove(key);
+            evictionCount.increment();
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    private static boolean startsNotBefore(List<EmissionForecast> result, LocalDateTime dataStartAt) {
+        return result.stream()
+                .filter(Objects::nonNull)
+                .map(EmissionForecast::optimalDataPoints)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .map(EmissionData::timestamp)
+                .filter(Objects::nonNull)
+                .noneMatch(timestamp -> timestamp.isBefore(dataStartAt));
+    }
+
+    private long floor(LocalDateTime dateTime) {
+        return Math.floorDiv(epochSecond(dateTime), bucketSize.toSeconds());
+    }
+
+    private static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the number of calls, which were served from the cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of calls, which were forwarded to the delegate
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of results, which were removed because of size, age or new forecast data
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return the number of currently cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CarbonForecastApi getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * The version of the forecast data belongs to the scheduler, which has decorated the client, and can't be restored
+     * with the decorator. Therefore, the delegate is serialized in place of the decorator and the scheduler decorates
+     * it again with its own cache.
+     */
+    @Serial
+    private Object writeReplace() {
+        return delegate;
+    }
+
+    private record Key(List<String> location,
+                       long startBucket,
+                       long dataEndAt,
+                       Integer windowSize) {
+    }
+
+    private record Entry(List<EmissionForecast> result,
+                         long createdAt,
+                         long dataVersion) {
+    }
+}
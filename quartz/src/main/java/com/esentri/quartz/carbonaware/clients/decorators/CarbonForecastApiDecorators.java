@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Decorators, which are applied to every {@link CarbonForecastApi} before a carbon-aware scheduler fetches a forecast
+ * with it. Each scheduler has its own decorators, which are configured by its
+ * {@link com.esentri.quartz.carbonaware.plugins.CarbonAwarePlugin}.
+ * <p>
+ * Each client is decorated once and the decorated instance is shared by all triggers using an equal client.
+ * This way, decorators like the {@link CoalescingCarbonForecastApi} work across triggers. The number of
+ * decorated clients is bounded, because persistent JobStores create a new client instance whenever a trigger
+ * is loaded.
+ *
+ * @author jannisschalk
+ */
+public class CarbonForecastApiDecorators {
+
+    private static final int MAXIMUM_DECORATED_CLIENTS = 256;
+    private static final CarbonForecastApiDecorators NONE = new CarbonForecastApiDecorators(null);
+
+    private final UnaryOperator<CarbonForecastApi> decorator;
+    private final Map<CarbonForecastApi, CarbonForecastApi> decoratedClients =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CarbonForecastApi, CarbonForecastApi> eldest) {
+                    return size() > MAXIMUM_DECORATED_CLIENTS;
+                }
+            };
+
+    /**
+     * @param decorator function wrapping a client with all configured decorators, or null to leave clients as they are
+     */
+    public CarbonForecastApiDecorators(UnaryOperator<CarbonForecastApi> decorator) {
+        this.decorator = decorator;
+    }
+
+    /**
+     * @return decorators, which leave every client as it is
+     */
+    public static CarbonForecastApiDecorators none() {
+        return NONE;
+    }
+
+    /**
+     * @param carbonForecastApi the client to decorate
+     * @return the decorated client, shared with all equal clients
+     */
+    public synchronized CarbonForecastApi decorate(CarbonForecastApi carbonForecastApi) {
+        if (carbonForecastApi == null || decorator == null) {
+            return carbonForecastApi;
+        }
+        return decoratedClients.computeIfAbsent(carbonForecastApi, decorator);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator of a {@link CarbonForecastApi}, which coalesces identical forecast queries into a single call of the
+ * delegate (single-flight).
+ * <p>
+ * Concurrent calls with the same location, start, end and window size share the in-flight call and its result.
+ * Additionally, the result of a completed call is shared with identical calls arriving within the configured
+ * coalescing window. Many {@link com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger}s with the same
+ * location, cron and deadline are therefore served by a single remote call.
+ * <p>
+ * Failed calls are propagated to all waiting callers, but are never shared with later calls.
+ *
+ * @author jannisschalk
+ */
+public class CoalescingCarbonForecastApi implements CarbonForecastApi {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final CarbonForecastApi delegate;
+    private final Duration coalescingWindow;
+
+    private final transient Map<Query, Flight> flights = new ConcurrentHashMap<>();
+    private final transient LongAdder requestCount = new LongAdder();
+    private final transient LongAdder coalescedCount = new LongAdder();
+    private final transient LongAdder hitCount = new LongAdder();
+    private final transient LongAdder delegateCallCount = new LongAdder();
+
+    /**
+     * @param delegate         The client to fetch the forecast with
+     * @param coalescingWindow Duration a completed result is shared with identical calls. With
+     *                         {@link Duration#ZERO} only concurrent calls are coalesced.
+     */
+    public CoalescingCarbonForecastApi(CarbonForecastApi delegate, Duration coalescingWindow) {
+        this.delegate = delegate;
+        this.coalescingWindow = coalescingWindow;
+    }
+
+    @Override
+    public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                             LocalDateTime dataStartAt,
+                                                             LocalDateTime dataEndAt,
+                                                             Integer windowSize) {
+        requestCount.increment();
+        Query query = new Query(List.copyOf(location), dataStartAt, dataEndAt, windowSize);
+
+        Flight flight = joinOrStart(query);
+        if (!flight.isOwnedBy(Thread.currentThread())) {
+            return await(flight);
+        }
+        return call(query, flight);
+    }
+
+    /**
+     * Joins the identical queries in flight and forwards all remaining queries with a single batch call to the
+     * delegate. Joined queries, which fail, are answered with an empty list.
+     */
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        Map<ForecastQuery, Flight> flightsOfQueries = new LinkedHashMap<>();
+        Map<ForecastQuery, Flight> ownedFlights = new LinkedHashMap<>();
+        for (ForecastQuery forecastQuery : queries) {
+            if (flightsOfQueries.containsKey(forecastQuery)) {
+                continue;
+            }
+            requestCount.increment();
+            Flight flight = joinOrStart(toQuery(forecastQuery));
+            flightsOfQueries.put(forecastQuery, flight);
+            if (flight.isOwnedBy(Thread.currentThread())) {
+                ownedFlights.put(forecastQuery, flight);
+            }
+        }
+
+        if (!ownedFlights.isEmpty()) {
+            callBatch(ownedFlights);
+        }
+
+        Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+        flightsOfQueries.forEach((forecastQuery, flight) -> {
+            List<EmissionForecast> forecast;
+            try {
+                forecast = await(flight);
+            } catch (RuntimeException e) {
+                forecast = List.of();
+            }
+            result.put(forecastQuery, forecast == null ? List.of() : forecast);
+        });
+        return result;
+    }
+
+    /**
+     * @return the identical flight, which is in flight or completed within the coalescing window, or a new flight
+     * owned by the current thread
+     */
+    private Flight joinOrStart(Query query) {
+        while (true) {
+            long now = System.nanoTime();
+            Flight existing = flights.get(query);
+            if (existing != null) {
+                if (!existing.isExpired(now, coalescingWindow)) {
+                    (existing.future.isDone() ? hitCount : coalescedCount).increment();
+                    return existing;
+                }
+                flights.remove(query, existing);
+            }
+
+            Flight flight = new Flight(Thread.currentThread());
+            if (flights.putIfAbsent(query, flight) != null) {
+                // another caller started the same call in the meantime
+                continue;
+            }
+            evictExpiredFlights(now);
+            return flight;
+        }
+    }
+
+    private void callBatch(Map<ForecastQuery, Flight> ownedFlights) {
+        delegateCallCount.increment();
+        try {
+            Map<ForecastQuery, List<EmissionForecast>> fetched =
+                    delegate.getEmissionForecastsBatch(new ArrayList<>(ownedFlights.keySet()));
+            ownedFlights.forEach((forecastQuery, flight) ->
+                    complete(flight, fetched.getOrDefault(forecastQuery, List.of())));
+        } catch (Throwable e) {
+            ownedFlights.values().forEach(flight -> flight.future.completeExceptionally(e));
+        } finally {
+            ownedFlights.forEach((forecastQuery, flight) -> release(toQuery(forecastQuery), flight));
+        }
+    }
+
+    private List<EmissionForecast> call(Query query, Flight flight) {
+        delegateCallCount.increment();
+        try {
+            List<EmissionForecast> result = delegate.getEmissionForecastCurrent(
+                    query.location(),
+                    query.dataStartAt(),
+                    query.dataEndAt(),
+                    query.windowSize());
+            complete(flight, result);
+            return result;
+        } catch (Throwable e) {
+            flight.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            release(query, flight);
+        }
+    }
+
+    private static void complete(Flight flight, List<EmissionForecast> result) {
+        flight.completedAt = System.nanoTime();
+        flight.future.complete(result);
+    }
+
+    /**
+     * Removes the flight after its call. Failed flights are never shared, completed flights are kept for the
+     * coalescing window. A flight, which was left incomplete, is failed, so no caller waits for it forever.
+     */
+    private void release(Query query, Flight flight) {
+        if (!flight.future.isDone()) {
+            flight.future.completeExceptionally(new IllegalStateException("Call of the delegate was not completed"));
+        }
+        if (flight.future.isCompletedExceptionally() || coalescingWindow.isZero()) {
+            flights.remove(query, flight);
+        }
+    }
+
+    private static Query toQuery(ForecastQuery forecastQuery) {
+        return new Query(List.of(forecastQuery.location()),
+                forecastQuery.dataStartAt(),
+                forecastQuery.dataEndAt(),
+                forecastQuery.windowSize());
+    }
+
+    private void evictExpiredFlights(long now) {
+        flights.values().removeIf(flight -> flight.isExpired(now, coalescingWindow));
+    }
+
+    private static List<EmissionForecast> await(Flight flight) {
+        try {
+            return flight.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of calls of this client
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return the number of calls, which joined an identical call in flight
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * @return the number of calls, which were served by an identical call completed within the coalescing window
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of calls forwarded to the delegate
+     */
+    public long getDelegateCallCount() {
+        return delegateCallCount.sum();
+    }
+
+    public CarbonForecastApi getDelegate() {
+        return delegate;
+    }
+
+    @Serial
+    private Object readResolve() {
+        return new CoalescingCarbonForecastApi(delegate, coalescingWindow);
+    }
+
+    private record Query(List<String> location,
+                         LocalDateTime dataStartAt,
+                         LocalDateTime dataEndAt,
+                         Integer windowSize) {
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<List<EmissionForecast>> future = new CompletableFuture<>();
+        private final Thread owner;
+        private volatile long completedAt;
+
+        private Flight(Thread owner) {
+            this.owner = owner;
+        }
+
+        private boolean isOwnedBy(Thread thread) {
+            return owner == thread && !future.isDone();
+        }
+
+        private boolean isExpired(long now, Duration coalescingWindow) {
+            return future.isDone() && now - completedAt > coalescingWindow.toNanos();
+        }
+    }
+}
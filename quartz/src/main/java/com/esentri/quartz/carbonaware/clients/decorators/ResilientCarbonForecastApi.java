@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Decorator of a {@link CarbonForecastApi}, which bounds the time a forecast request may take, if the forecast API
+ * is degraded.
+ * <ul>
+ *     <li>Every call of the delegate has a deadline. The call runs on the bounded
+ *     {@link ForecastExecutors#deadlines() deadline executor}. If the deadline is exceeded, the call fails and the
+ *     thread running it is interrupted.</li>
+ *     <li>Calls, which exceed their deadline or fail with an exception other than {@link NoForecastException}, are
+ *     failures. A {@link NoForecastException} of the delegate is its regular answer, that it has no forecast for the
+ *     request, e.g. for an unknown location. It is passed to the caller and does not count as failure.</li>
+ *     <li>After the configured number of consecutive failures, the circuit breaker opens and rejects all calls
+ *     immediately. After the open duration, a single probe call is forwarded (half-open). If the probe succeeds,
+ *     the circuit breaker closes again, otherwise it opens for another open duration.</li>
+ *     <li>Failed and rejected calls are answered with the last good forecast of the same location and window size,
+ *     if all of its optimal data points are still within the requested time window.</li>
+ * </ul>
+ *
+ * @author jannisschalk
+ */
+public class ResilientCarbonForecastApi implements CarbonForecastApi {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResilientCarbonForecastApi.class);
+    private static final int MAXIMUM_FALLBACK_ENTRIES = 256;
+
+    /**
+     * States of the circuit breaker.
+     */
+    public enum CircuitState {
+        /** All calls are forwarded to the delegate */
+        CLOSED,
+        /** All calls are rejected */
+        OPEN,
+        /** A single probe call is forwarded to the delegate */
+        HALF_OPEN
+    }
+
+    private final CarbonForecastApi delegate;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final transient Executor executor;
+    private final transient Map<FallbackKey, List<EmissionForecast>> lastGoodForecasts =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<FallbackKey, List<EmissionForecast>> eldest) {
+                    return size() > MAXIMUM_FALLBACK_ENTRIES;
+                }
+            };
+
+    private transient CircuitState state = CircuitState.CLOSED;
+    private transient int consecutiveFailures;
+    private transient long openedAt;
+    private transient boolean probeInFlight;
+
+    private final transient LongAdder successCount = new LongAdder();
+    private final transient LongAdder failureCount = new LongAdder();
+    private final transient LongAdder timeoutCount = new LongAdder();
+    private final transient LongAdder rejectedCount = new LongAdder();
+    private final transient LongAdder fallbackCount = new LongAdder();
+    private final transient LongAdder openedCount = new LongAdder();
+
+    /**
+     * @param delegate         The client to fetch the forecast with
+     * @param timeout          Deadline of a single call of the delegate. With {@link Duration#ZERO} the delegate is
+     *                         called without deadline.
+     * @param failureThreshold Number of consecutive failures, which open the circuit breaker
+     * @param openDuration     Duration the circuit breaker rejects all calls, before a probe call is forwarded
+     */
+    public ResilientCarbonForecastApi(CarbonForecastApi delegate,
+                                      Duration timeout,
+                                      int failureThreshold,
+                                      Duration openDuration) {
+        this(delegate, timeout, failureThreshold, openDuration, ForecastExecutors.deadlines());
+    }
+
+    ResilientCarbonForecastApi(CarbonForecastApi delegate,
+                               Duration timeout,
+                               int failureThreshold,
+                               Duration openDuration,
+                               Executor executor) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                             LocalDateTime dataStartAt,
+                                                             LocalDateTime dataEndAt,
+                                                             Integer windowSize) {
+        FallbackKey key = new FallbackKey(List.copyOf(location), windowSize);
+        return execute(
+                () -> delegate.getEmissionForecastCurrent(location, dataStartAt, dataEndAt, windowSize),
+                forecast -> rememberLastGoodForecast(key, forecast),
+                () -> lastGoodForecast(key, dataStartAt, dataEndAt));
+    }
+
+    /**
+     * Forwards the batch with a single guarded call. If the call fails or is rejected, each query is answered with
+     * the last good forecast or an empty list.
+     */
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        return execute(
+                () -> delegate.getEmissionForecastsBatch(queries),
+                forecasts -> forecasts.forEach((query, forecast) -> rememberLastGoodForecast(key(query), forecast)),
+                () -> {
+                    Map<ForecastQuery, List<EmissionForecast>> fallback = new LinkedHashMap<>();
+                    for (ForecastQuery query : queries) {
+                        List<EmissionForecast> forecast = lastGoodForecast(key(query), query.dataStartAt(), query.dataEndAt());
+                        fallback.put(query, forecast == null ? List.of() : forecast);
+                    }
+                    return fallback;
+                });
+    }
+
+    /**
+     * @param fallback supplies the answer of a failed or rejected call, or null if there is none
+     */
+    private <T> T execute(Supplier<T> call, Consumer<T> onSuccess, Supplier<T> fallback) {
+        if (!tryAcquirePermission()) {
+            rejectedCount.increment();
+            return fallbackOrThrow(fallback, new NoForecastException(
+                    "Circuit breaker is open, forecast requests are rejected for " + openDuration));
+        }
+
+        T result;
+        boolean recorded = false;
+        try {
+            result = callWithDeadline(call);
+            recorded = true;
+            recordSuccess();
+        } catch (NoForecastException e) {
+            recorded = true;
+            if (!(e instanceof FailedCallException)) {
+                // the delegate has answered, it just has no forecast for the request
+                recordSuccess();
+                throw e;
+            }
+            recordFailure();
+            return fallbackOrThrow(fallback, e);
+        } catch (RuntimeException e) {
+            recorded = true;
+            recordFailure();
+            return fallbackOrThrow(fallback, e);
+        } finally {
+            if (!recorded) {
+                // e.g. an Error thrown by the delegate, the next call has to probe the delegate again
+                releaseProbe();
+            }
+        }
+        if (result != null) {
+            onSuccess.accept(result);
+        }
+        return result;
+    }
+
+    private static <T> T fallbackOrThrow(Supplier<T> fallback, RuntimeException e) {
+        T result = fallback.get();
+        if (result == null) {
+            throw e;
+        }
+        return result;
+    }
+
+    private <T> T callWithDeadline(Supplier<T> call) {
+        if (timeout.isZero() || timeout.isNegative()) {
+            return call.get();
+        }
+
+        // a FutureTask interrupts the thread running the call, when it is cancelled
+        FutureTask<T> task = new FutureTask<>(call::get);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new FailedCallException("Forecast request was rejected, too many requests are in flight");
+        }
+        try {
+            return task.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            timeoutCount.increment();
+            throw new FailedCallException("Forecast request exceeded its deadline of " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new FailedCallException("Forecast request failed: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            throw new FailedCallException("Forecast request was interrupted");
+        }
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    return false;
+                }
+                transitionTo(CircuitState.HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void recordSuccess() {
+        successCount.increment();
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != CircuitState.CLOSED) {
+            transitionTo(CircuitState.CLOSED);
+        }
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void recordFailure() {
+        failureCount.increment();
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        openedCount.increment();
+        transitionTo(CircuitState.OPEN);
+    }
+
+    private void transitionTo(CircuitState newState) {
+        if (state != newState) {
+            LOGGER.warn("Circuit breaker of forecast client {} changed from {} to {}",
+                    delegate.getClass().getSimpleName(), state, newState);
+            state = newState;
+        }
+    }
+
+    private synchronized void rememberLastGoodForecast(FallbackKey key, List<EmissionForecast> forecast) {
+        if (forecast != null && !forecast.isEmpty()) {
+            lastGoodForecasts.put(key, List.copyOf(forecast));
+        }
+    }
+
+    /**
+     * @return the last good forecast, if all of its optimal data points are within the time window, otherwise null
+     */
+    private synchronized List<EmissionForecast> lastGoodForecast(FallbackKey key,
+                                                                 LocalDateTime dataStartAt,
+                                                                 LocalDateTime dataEndAt) {
+        List<EmissionForecast> forecast = lastGoodForecasts.get(key);
+        if (forecast == null) {
+            return null;
+        }
+        boolean withinTimeWindow = forecast.stream()
+                .filter(Objects::nonNull)
+                .map(EmissionForecast::optimalDataPoints)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .map(EmissionData::timestamp)
+                .allMatch(timestamp -> timestamp != null
+                        && !timestamp.isBefore(dataStartAt)
+                        && !timestamp.isAfter(dataEndAt));
+        if (!withinTimeWindow) {
+            return null;
+        }
+        fallbackCount.increment();
+        return forecast;
+    }
+
+    private static FallbackKey key(ForecastQuery query) {
+        return new FallbackKey(List.of(query.location()), query.windowSize());
+    }
+
+    /**
+     * @return the current state of the circuit breaker
+     */
+    public synchronized CircuitState getCircuitState() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return the number of successful calls of the delegate, including the calls answered without forecast
+     */
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    /**
+     * @return the number of failed calls of the delegate, including the calls exceeding the deadline
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * @return the number of calls of the delegate exceeding the deadline
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * @return the number of calls rejected by the open circuit breaker
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return the number of calls answered with the last good forecast
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * @return how often the circuit breaker opened
+     */
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+    public CarbonForecastApi getDelegate() {
+        return delegate;
+    }
+
+    @Serial
+    private Object readResolve() {
+        return new ResilientCarbonForecastApi(delegate, timeout, failureThreshold, openDuration);
+    }
+
+    private record FallbackKey(List<String> location, Integer windowSize) {
+    }
+
+    /**
+     * Signals a call, which has not been answered by the delegate, e.g. because it exceeded its deadline.
+     */
+    private static final class FailedCallException extends NoForecastException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private FailedCallException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SchedulerListener tracking the keys of the {@link CarbonAwareCronTrigger}s of a scheduler, so the adaptive
+ * {@link OpenDataUpdateJob} only reads these triggers to collect the demand of the locations, instead of every trigger
+ * of the scheduler on each run.
+ * <p>
+ * Triggers, which have been stored before the tracker was bound, or which are scheduled by other nodes of a cluster,
+ * are not announced to the tracker. Therefore, all triggers of the scheduler are scanned on first use and again after
+ * the {@link #RESCAN_INTERVAL}.
+ *
+ * @author jannisschalk
+ */
+public class CarbonAwareTriggerTracker extends SchedulerListenerSupport {
+
+    /**
+     * Key of the tracker in the {@link SchedulerContext} of its scheduler
+     */
+    public static final String CONTEXT_KEY = CarbonAwareTriggerTracker.class.getName();
+
+    static final Duration RESCAN_INTERVAL = Duration.ofHours(1);
+
+    private final Set<TriggerKey> triggerKeys = ConcurrentHashMap.newKeySet();
+    private volatile Instant lastScan;
+
+    /**
+     * Binds the tracker to a scheduler by putting it into the {@link SchedulerContext} of the scheduler and
+     * registering it as SchedulerListener.
+     *
+     * @param scheduler The scheduler, whose triggers are tracked
+     * @throws SchedulerException if the context of the scheduler can not be accessed
+     */
+    public void bindTo(Scheduler scheduler) throws SchedulerException {
+        scheduler.getContext().put(CONTEXT_KEY, this);
+        scheduler.getListenerManager().addSchedulerListener(this);
+    }
+
+    /**
+     * @param context The context of a scheduler
+     * @return the tracker bound to the scheduler, or empty if no tracker is bound
+     */
+    public static Optional<CarbonAwareTriggerTracker> fromContext(SchedulerContext context) {
+        if (context != null && context.get(CONTEXT_KEY) instanceof CarbonAwareTriggerTracker tracker) {
+            return Optional.of(tracker);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param scheduler The scheduler of the triggers, which is scanned, if the rescan interval has passed
+     * @return the keys of the carbon-aware triggers of the scheduler
+     * @throws SchedulerException if the triggers can not be read
+     */
+    Set<TriggerKey> triggerKeys(Scheduler scheduler) throws SchedulerException {
+        Instant scannedAt = lastScan;
+        if (scannedAt == null || scannedAt.plus(RESCAN_INTERVAL).isBefore(Instant.now())) {
+            scan(scheduler);
+        }
+        return Set.copyOf(triggerKeys);
+    }
+
+    private void scan(Scheduler scheduler) throws SchedulerException {
+        Instant scannedAt = Instant.now();
+        Set<TriggerKey> scanned = new HashSet<>();
+        for (TriggerKey key : scheduler.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+            if (scheduler.getTrigger(key) instanceof CarbonAwareCronTrigger) {
+                scanned.add(key);
+            }
+        }
+        // keys of triggers scheduled during the scan are kept
+        for (TriggerKey key : Set.copyOf(triggerKeys)) {
+            if (!scanned.contains(key) && !scheduler.checkExists(key)) {
+                triggerKeys.remove(key);
+            }
+        }
+        triggerKeys.addAll(scanned);
+        lastScan = scannedAt;
+    }
+
+    @Override
+    public void jobScheduled(Trigger trigger) {
+        if (trigger instanceof CarbonAwareCronTrigger) {
+            triggerKeys.add(trigger.getKey());
+        }
+    }
+
+    @Override
+    public void triggerUnscheduled(TriggerKey triggerKey) {
+        if (triggerKey != null) {
+            triggerKeys.remove(triggerKey);
+        }
+    }
+
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        triggerKeys.remove(trigger.getKey());
+    }
+
+    @Override
+    public void schedulingDataCleared() {
+        triggerKeys.clear();
+    }
+}
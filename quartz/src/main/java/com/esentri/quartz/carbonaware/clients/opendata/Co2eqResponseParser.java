@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming parser of the co2eq response of the Energy-Charts API. The arrays {@code unix_seconds}, {@code co2eq}
+ * and {@code co2eq_forecast} are read from the byte stream into primitive arrays in a single pass, without
+ * materializing the response as a String. All other fields are skipped.
+ * <p>
+ * Like the regular expressions used before, invalid entries are tolerated: {@code null} or non-numeric timestamps
+ * (including strings) are skipped, {@code null} or non-numeric carbon intensities are stored as {@link Double#NaN}. Input, which is not
+ * a JSON object, is rejected with an {@link IOException}.
+ *
+ * @author jannisschalk
+ */
+final class Co2eqResponseParser {
+
+    private static final String UNIX_SECONDS = "unix_seconds";
+    private static final String CO2EQ = "co2eq";
+    private static final String CO2EQ_FORECAST = "co2eq_forecast";
+    private static final int MAXIMUM_NESTING_DEPTH = 64;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Parsed arrays of the response. Missing arrays are empty.
+     *
+     * @param unixSeconds   Timestamps of the data points
+     * @param co2eq         Measured carbon intensities, {@link Double#NaN} if not available
+     * @param co2eqForecast Forecasted carbon intensities, {@link Double#NaN} if not available
+     */
+    record Co2eqResponse(long[] unixSeconds, double[] co2eq, double[] co2eqForecast) {
+    }
+
+    /**
+     * Signals a response, which is not a JSON object. In contrast to other {@link IOException}s, the request itself
+     * has succeeded.
+     */
+    static final class MalformedResponseException extends IOException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private MalformedResponseException(String message) {
+            super(message);
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    private long offset;
+
+    /**
+     * Scratch space of the current token (key or number), reused for all tokens
+     */
+    private byte[] token = new byte[64];
+    private int tokenLength;
+
+    private Co2eqResponseParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @param in the response body. The stream is read to the end of the JSON object, but not closed.
+     * @return the parsed arrays
+     * @throws IOException if the stream can not be read
+     * @throws MalformedResponseException if the stream does not contain a JSON object
+     */
+    static Co2eqResponse parse(InputStream in) throws IOException {
+        return new Co2eqResponseParser(in).parseObject();
+    }
+
+    private Co2eqResponse parseObject() throws IOException {
+        long[] unixSeconds = new long[0];
+        double[] co2eq = new double[0];
+        double[] co2eqForecast = new double[0];
+
+        expect('{');
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return new Co2eqResponse(unixSeconds, co2eq, co2eqForecast);
+        }
+        while (true) {
+            if (c != '"') {
+                throw malformed("Expected a field name");
+            }
+            readFieldName();
+            expect(':');
+            int valueStart = nextNonWhitespace();
+            if (valueStart == '[' && tokenEquals(UNIX_SECONDS)) {
+                unixSeconds = readLongArray();
+            } else if (valueStart == '[' && tokenEquals(CO2EQ)) {
+                co2eq = readDoubleArray();
+            } else if (valueStart == '[' && tokenEquals(CO2EQ_FORECAST)) {
+                co2eqForecast = readDoubleArray();
+            } else {
+                skipValue(valueStart, 0);
+            }
+
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return new Co2eqResponse(unixSeconds, co2eq, co2eqForecast);
+            }
+            if (c != ',') {
+                throw malformed("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private long[] readLongArray() throws IOException {
+        long[] values = new long[256];
+        int size = 0;
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return Arrays.copyOf(values, 0);
+        }
+        while (true) {
+            if (readScalar(c)) {
+                long value = parseLong();
+                if (value != Long.MIN_VALUE) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = value;
+                }
+            }
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return Arrays.copyOf(values, size);
+            }
+            if (c != ',') {
+                throw malformed("Expected ',' or ']'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private double[] readDoubleArray() throws IOException {
+        double[] values = new double[256];
+        int size = 0;
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return new double[0];
+        }
+        while (true) {
+            double value = readScalar(c) ? parseDouble() : Double.NaN;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return Arrays.copyOf(values, size);
+            }
+            if (c != ',') {
+                throw malformed("Expected ',' or ']'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    /**
+     * Reads an array element starting with the given character into the token.
+     *
+     * @return true if the element is a number, false for null and all other values
+     */
+    private boolean readScalar(int c) throws IOException {
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            tokenLength = 0;
+            appendToken(c);
+            while (true) {
+                int next = peek();
+                if ((next >= '0' && next <= '9') || next == '.' || next == 'e' || next == 'E'
+                        || next == '+' || next == '-') {
+                    appendToken(read());
+                } else {
+                    return true;
+                }
+            }
+        }
+        skipValue(c, 0);
+        return false;
+    }
+
+    /**
+     * @return the token as long, or {@link Long#MIN_VALUE} if it is not an integer
+     */
+    private long parseLong() {
+        int i = 0;
+        boolean negative = false;
+        if (tokenLength > 0 && token[0] == '-') {
+            negative = true;
+            i++;
+        }
+        if (i == tokenLength || tokenLength - i > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the token without allocation, if the number has at most 15 significant digits and a small exponent.
+     * In this case a single division by a power of ten is correctly rounded. Otherwise, {@link Double#parseDouble}
+     * is used.
+     *
+     * @return the token as double, or {@link Double#NaN} if it is not a number
+     */
+    private double parseDouble() {
+        int i = 0;
+        boolean negative = false;
+        if (tokenLength > 0 && token[0] == '-') {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+        for (; i < tokenLength; i++) {
+            byte b = token[i];
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    if (fraction) {
+                        scale++;
+                    }
+                    continue;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return parseDoubleSlowly();
+            }
+        }
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        if (digits > 15 || scale >= POWERS_OF_TEN.length) {
+            return parseDoubleSlowly();
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private double parseDoubleSlowly() {
+        try {
+            return Double.parseDouble(new String(token, 0, tokenLength, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Reads a field name after the opening quote into the token.
+     */
+    private void readFieldName() throws IOException {
+        tokenLength = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+                // an escaped character never matches one of the parsed field names
+                appendToken(0);
+            } else {
+                appendToken(c);
+            }
+        }
+    }
+
+    private void skipValue(int c, int depth) throws IOException {
+        if (depth > MAXIMUM_NESTING_DEPTH) {
+            throw malformed("Nesting too deep");
+        }
+        switch (c) {
+            case '"' -> skipString();
+            case '{' -> skipContainer('}', depth, true);
+            case '[' -> skipContainer(']', depth, false);
+            default -> {
+                if (!isLiteral(c)) {
+                    throw malformed("Unexpected character '" + (char) c + "'");
+                }
+                while (isLiteral(peek())) {
+                    read();
+                }
+            }
+        }
+    }
+
+    private void skipContainer(char close, int depth, boolean object) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == close) {
+            return;
+        }
+        while (true) {
+            if (object) {
+                if (c != '"') {
+                    throw malformed("Expected a field name");
+                }
+                skipString();
+                expect(':');
+                c = nextNonWhitespace();
+            }
+            skipValue(c, depth + 1);
+            c = nextNonWhitespace();
+            if (c == close) {
+                return;
+            }
+            if (c != ',') {
+                throw malformed("Expected ',' or '" + close + "'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private static boolean isLiteral(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '+' || c == '.';
+    }
+
+    private boolean tokenEquals(String name) {
+        if (tokenLength != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendToken(int c) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, tokenLength * 2);
+        }
+        token[tokenLength++] = (byte) c;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextNonWhitespace() != expected) {
+            throw malformed("Expected '" + expected + "'");
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            throw malformed("Unexpected end of input");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read = in.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private MalformedResponseException malformed(String message) {
+        return new MalformedResponseException("Malformed co2eq response at byte %d: %s".formatted(offset + position, message));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * {@link ForecastSource} combining several sources of the same location. All sources are fetched in parallel, the
+ * sources are ordered by priority (highest first). A response is healthy, if the source delivered a non-empty series.
+ *
+ * @author jannisschalk
+ */
+public final class CompositeForecastSource implements ForecastSource {
+
+    /**
+     * How the responses of the sources are combined
+     */
+    public enum Strategy {
+        /**
+         * The healthy response of the source with the highest priority is used. Responses of sources with lower
+         * priority are only awaited, if all sources with higher priority have failed.
+         */
+        FIRST_HEALTHY,
+        /**
+         * The healthy response of the source with the highest priority is completed with the data points of the
+         * other healthy responses before and after its data points.
+         */
+        MERGE
+    }
+
+    private final List<ForecastSource> sources;
+    private final Strategy strategy;
+
+    /**
+     * @param sources  The sources ordered by priority, highest first
+     * @param strategy How the responses are combined
+     */
+    public CompositeForecastSource(List<ForecastSource> sources, Strategy strategy) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("At least one source is required");
+        }
+        this.sources = List.copyOf(sources);
+        this.strategy = strategy;
+    }
+
+    @Override
+    public CompletableFuture<ForecastSeries> fetch(Location location, ForecastSeries previous) {
+        List<CompletableFuture<ForecastSeries>> responses = new ArrayList<>(sources.size());
+        for (ForecastSource source : sources) {
+            CompletableFuture<ForecastSeries> response;
+            try {
+                response = source.fetch(location, previous);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            responses.add(response);
+        }
+        return strategy == Strategy.MERGE
+                ? merge(responses)
+                : firstHealthy(responses, 0, null);
+    }
+
+    private static CompletableFuture<ForecastSeries> firstHealthy(List<CompletableFuture<ForecastSeries>> responses,
+                                                                  int index,
+                                                                  Result fallback) {
+        return responses.get(index).handle((series, e) -> {
+            Result result = Result.of(series, e);
+            if (result.isHealthy()) {
+                return CompletableFuture.completedFuture(series);
+            }
+            Result next = fallback == null ? result : fallback.combine(result);
+            return index + 1 < responses.size()
+                    ? firstHealthy(responses, index + 1, next)
+                    : next.toFuture();
+        }).thenCompose(Function.identity());
+    }
+
+    private static CompletableFuture<ForecastSeries> merge(List<CompletableFuture<ForecastSeries>> responses) {
+        return CompletableFuture.allOf(responses.stream()
+                        .map(response -> response.handle((series, e) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenCompose(ignored -> {
+                    ForecastSeries merged = null;
+                    Result unhealthy = null;
+                    for (CompletableFuture<ForecastSeries> response : responses) {
+                        Result result = Result.of(response);
+                        if (!result.isHealthy()) {
+                            unhealthy = unhealthy == null ? result : unhealthy.combine(result);
+                        } else {
+                            merged = merged == null ? result.series() : merged.fillFrom(result.series());
+                        }
+                    }
+                    // the previous series is kept, if no source has modified data
+                    return merged == null ? unhealthy.toFuture() : CompletableFuture.completedFuture(merged);
+                });
+    }
+
+    public List<ForecastSource> getSources() {
+        return sources;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Response of a single source. Combining unhealthy responses keeps the first empty series and collects the
+     * failures.
+     */
+    private record Result(ForecastSeries series, IOException failure) {
+
+        static Result of(CompletableFuture<ForecastSeries> response) {
+            try {
+                return new Result(response.join(), null);
+            } catch (CompletionException | CancellationException e) {
+                return of(null, e);
+            }
+        }
+
+        static Result of(ForecastSeries series, Throwable failure) {
+            if (failure == null) {
+                return new Result(series, null);
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            return new Result(null, cause instanceof IOException io ? io : new IOException(cause));
+        }
+
+        boolean isHealthy() {
+            return failure == null && series != null && !series.isEmpty();
+        }
+
+        Result combine(Result other) {
+            if (failure == null) {
+                return this;
+            }
+            if (other.failure == null) {
+                return other;
+            }
+            failure.addSuppressed(other.failure);
+            return this;
+        }
+
+        CompletableFuture<ForecastSeries> toFuture() {
+            return failure == null
+                    ? CompletableFuture.completedFuture(series)
+                    : CompletableFuture.failedFuture(failure);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ForecastSource} reading the forecasts from local CSV files, e.g. for offline and test environments.
+ * <p>
+ * The forecast of a location is read from the file {@code <code of the location>.csv} (e.g. {@code de.csv}) of the
+ * directory. Each line contains the timestamp of a data point, either as ISO-8601 instant or in epoch seconds, and
+ * its carbon intensity separated by a comma or semicolon. Empty lines, lines starting with {@code #} and a header
+ * line are ignored. The data points must have a regular step of whole minutes.
+ * <p>
+ * The directory is given by the system property {@value #DIRECTORY_PROPERTY} and defaults to {@code forecasts}. A
+ * file is only read again, when it has been modified.
+ *
+ * @author jannisschalk
+ */
+public class CsvForecastSource implements ForecastSource {
+
+    public static final String DIRECTORY_PROPERTY = "com.esentri.quartz.carbonaware.csvForecastDirectory";
+
+    private final Path directory;
+    private final Map<Location, FileTime> readVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a source reading the directory given by the system property {@value #DIRECTORY_PROPERTY}.
+     */
+    public CsvForecastSource() {
+        this(Path.of(System.getProperty(DIRECTORY_PROPERTY, "forecasts")));
+    }
+
+    /**
+     * @param directory the directory containing the CSV file of each location
+     */
+    public CsvForecastSource(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public CompletableFuture<ForecastSeries> fetch(Location location, ForecastSeries previous) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(location, previous);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ForecastExecutors.fetch());
+    }
+
+    private ForecastSeries read(Location location, ForecastSeries previous) throws IOException {
+        Path file = directory.resolve(location.getCode() + ".csv");
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (previous != null && modified.equals(readVersions.get(location))) {
+            return previous;
+        }
+        ForecastSeries series = parse(file);
+        readVersions.put(location, modified);
+        return series;
+    }
+
+    /**
+     * @param file CSV file of a forecast
+     * @return the series of the data points of the file
+     * @throws IOException if the file can not be read, contains an invalid line, or its data points have no regular
+     *                     step of whole minutes
+     */
+    static ForecastSeries parse(Path file) throws IOException {
+        long[] epochSeconds = new long[64];
+        double[] values = new double[64];
+        int size = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            boolean firstRow = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                boolean header = firstRow;
+                firstRow = false;
+                String[] columns = line.split("[,;]");
+                if (columns.length < 2) {
+                    throw new IOException("Invalid line %d of %s: %s".formatted(lineNumber, file, line));
+                }
+                try {
+                    long epochSecond = parseTimestamp(columns[0].strip());
+                    double value = Double.parseDouble(columns[1].strip());
+                    if (size == epochSeconds.length) {
+                        epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    epochSeconds[size] = epochSecond;
+                    values[size] = value;
+                    size++;
+                } catch (NumberFormatException | DateTimeException e) {
+                    if (!header) {
+                        throw new IOException("Invalid line %d of %s: %s".formatted(lineNumber, file, line), e);
+                    }
+                }
+            }
+        }
+        return toSeries(Arrays.copyOf(epochSeconds, size), Arrays.copyOf(values, size), file);
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        if (!timestamp.isEmpty() && timestamp.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(timestamp);
+        }
+        return Instant.parse(timestamp).getEpochSecond();
+    }
+
+    private static ForecastSeries toSeries(long[] epochSeconds, double[] values, Path file) throws IOException {
+        if (epochSeconds.length == 0) {
+            return ForecastSeries.empty();
+        }
+        // sort the data points by timestamp, as the rows may be in any order
+        Integer[] order = new Integer[epochSeconds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Long.compare(epochSeconds[first], epochSeconds[second]));
+        long[] sortedEpochSeconds = new long[order.length];
+        double[] sortedValues = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedEpochSeconds[i] = epochSeconds[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        return ForecastSeries.of(sortedEpochSeconds, sortedValues, stepInMinutes(sortedEpochSeconds, file));
+    }
+
+    /**
+     * The windows of the forecast are computed in steps of the series, so the data points must be evenly spaced.
+     */
+    private static long stepInMinutes(long[] sortedEpochSeconds, Path file) throws IOException {
+        if (sortedEpochSeconds.length < 2) {
+            throw new IOException("%s has a single data point, the step of the forecast is unknown".formatted(file));
+        }
+        long stepInSeconds = sortedEpochSeconds[1] - sortedEpochSeconds[0];
+        if (stepInSeconds <= 0 || stepInSeconds % 60 != 0) {
+            throw new IOException("Step of %d seconds of %s is not a positive number of minutes"
+                    .formatted(stepInSeconds, file));
+        }
+        for (int i = 2; i < sortedEpochSeconds.length; i++) {
+            if (sortedEpochSeconds[i] - sortedEpochSeconds[i - 1] != stepInSeconds) {
+                throw new IOException("Data points of %s have an irregular step at %s, expected %d seconds"
+                        .formatted(file, Instant.ofEpochSecond(sortedEpochSeconds[i]), stepInSeconds));
+            }
+        }
+        return stepInSeconds / 60;
+    }
+}
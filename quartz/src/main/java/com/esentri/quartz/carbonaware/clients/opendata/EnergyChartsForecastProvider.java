@@ -6,20 +6,45 @@
 package com.esentri.quartz.carbonaware.clients.opendata;
 
 import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
 import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.clients.opendata.model.RefreshStatistics;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerException;
+import org.quartz.impl.SchedulerRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 
 /**
@@ -28,46 +53,210 @@ import java.util.stream.Collectors;
  * This class interacts with an external API to fetch data and processes it into
  * a structured format for later use.
  * <p>
- * The class is designed to be used as a singleton and requires initialization
+ * Each scheduler owns its own instance, which requires initialization
  * with a list of locations before usage. Once initialized, it fetches data from
  * the <a href="https://api.energy-charts.info/">Energy-Charts Open Data API</a> 
  * and populates its cache, which can be queried to access the latest data.
  * <p>
+ * The instance is {@link #bindTo(Scheduler) bound} to its scheduler with the {@link SchedulerContext}, from which the
+ * {@link OpenDataUpdateJob} and the {@link OpenDataForecastClient}s of the scheduler resolve it. Several schedulers
+ * in the same JVM therefore have isolated locations and caches. Instances created with the same fetch executor share
+ * its threads.
+ * <p>
  * Thread safety and reusability are handled internally to ensure consistent behavior
- * during the lifecycle of this provider.
+ * during the lifecycle of this provider. The cache is published as an immutable {@link ForecastSnapshot}, which is
+ * replaced with a single atomic swap per update. Readers never block and never see a partially updated cache.
  *
  * @author jannisschalk
  */
-public class EnergyChartsForecastProvider implements Serializable {
+public class EnergyChartsForecastProvider {
+
+    /**
+     * Key of the provider in the {@link SchedulerContext} of its scheduler
+     */
+    public static final String CONTEXT_KEY = EnergyChartsForecastProvider.class.getName();
 
-    @Serial
-    private static final long serialVersionUID = 1L;
     private static final String DEFAULT_API_URL_TEMPLATE = "https://api.energy-charts.info/co2eq?country=%s";
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+    private static final int DEFAULT_PARALLEL_REQUESTS = 8;
+    private static final int DEFAULT_RETRY_ATTEMPTS = 3;
+    private static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_ON_DEMAND_IDLE_TIMEOUT = Duration.ofDays(1);
+    private static final Duration DEFAULT_RETENTION_LOOKBACK = Duration.ofDays(1);
+    private static final int DEFAULT_RETENTION_CAPACITY = 1024;
+    /**
+     * Data before the requested range, which is kept when an incremental refresh is merged into the cached series
+     */
+    private static final Duration RETAINED_HISTORY = Duration.ofDays(1);
     private static final Logger LOGGER = LoggerFactory.getLogger(EnergyChartsForecastProvider.class);
 
+    private final AtomicReference<ForecastSnapshot> snapshot = new AtomicReference<>(ForecastSnapshot.empty());
+    private final Map<Location, RefreshState> refreshStates = new ConcurrentHashMap<>();
+    private final Map<Location, RefreshMetrics> refreshMetrics = new ConcurrentHashMap<>();
+    private final Object snapshotFileLock = new Object();
+    private final Set<Location> onDemandLocations = ConcurrentHashMap.newKeySet();
+    private final Map<Location, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Map<Location, CompletableFuture<CachedForecast>> pendingLoads = new ConcurrentHashMap<>();
+
     /**
      * Access level is "package private" for a better Unit-Test experience
      * Shouldn't be accessed or modified from outside of this class!
+     * Every modification publishes a new {@link ForecastSnapshot}.
      * */
-    static final Map<Location, CachedForecast> cachedForecasts = new EnumMap<>(Location.class);
+    final Map<Location, CachedForecast> cachedForecasts = new SnapshotView();
     /**
      * Access level is "package private" for a better Unit-Test experience
      * Shouldn't be accessed or modified from outside of this class!
      * */
-    static String apiUrlTemplate;
+    String apiUrlTemplate;
     /**
      * Access level is "package private" for a better Unit-Test experience
      * Shouldn't be accessed or modified from outside of this class!
      * */
-    static List<Location> locations = new ArrayList<>();
+    volatile List<Location> locations = new ArrayList<>();
     /**
      * Access level is "package private" for a better Unit-Test experience
      * Shouldn't be accessed or modified from outside of this class!
      * */
-    static boolean initialized = false;
+    volatile boolean initialized = false;
+
+    private volatile Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile Duration readTimeout = DEFAULT_READ_TIMEOUT;
+    private volatile int parallelRequests = DEFAULT_PARALLEL_REQUESTS;
+    private volatile boolean incrementalRefresh = true;
+    private volatile int retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+    private volatile Duration retryBackoff = DEFAULT_RETRY_BACKOFF;
+    private volatile Duration maximumStaleness;
+    private volatile Path snapshotFile;
+    private volatile RefreshSchedule refreshSchedule = RefreshSchedule.defaultSchedule();
+    private volatile boolean onDemandLoading = false;
+    private volatile Duration onDemandIdleTimeout = DEFAULT_ON_DEMAND_IDLE_TIMEOUT;
+    private volatile ForecastSourceRegistry forecastSources;
+    private volatile Duration retentionLookback = DEFAULT_RETENTION_LOOKBACK;
+    private volatile int retentionCapacity = DEFAULT_RETENTION_CAPACITY;
+    private volatile ForecastArchive archive;
+    private volatile boolean shutdown = false;
+    private long persistedVersion = -1;
+    private HttpClient httpClient;
+    private final Executor fetchExecutor;
+
+    /**
+     * Creates a provider, which fetches with the {@link ForecastExecutors#fetch() fetch executor}.
+     */
+    public EnergyChartsForecastProvider() {
+        this(ForecastExecutors.fetch());
+    }
+
+    /**
+     * @param fetchExecutor Executor, which parses the responses. It can be shared by the providers of several
+     *                      schedulers, but must not run tasks waiting for a refresh of a provider, since a refresh
+     *                      waits for the parsing.
+     */
+    public EnergyChartsForecastProvider(Executor fetchExecutor) {
+        this.fetchExecutor = Objects.requireNonNull(fetchExecutor);
+        this.forecastSources = ForecastSourceRegistry.energyChartsOnly().boundTo(this);
+    }
+
+    /**
+     * Binds the provider to a scheduler by putting it into the {@link SchedulerContext} of the scheduler.
+     *
+     * @param scheduler The scheduler, whose jobs and triggers use the provider
+     * @throws SchedulerException if the context of the scheduler can not be accessed
+     */
+    public void bindTo(Scheduler scheduler) throws SchedulerException {
+        scheduler.getContext().put(CONTEXT_KEY, this);
+    }
+
+    /**
+     * Marks the provider as shut down together with its scheduler. {@link OpenDataForecastClient}s, which have
+     * resolved the provider, resolve the provider of the scheduler again.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * @return true if the scheduler of the provider has been shut down
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
 
-    private EnergyChartsForecastProvider() {
-        // hide default public constructor
+    /**
+     * @param context The context of a scheduler
+     * @return the provider bound to the scheduler
+     * @throws IllegalStateException if no provider is bound to the scheduler
+     */
+    public static EnergyChartsForecastProvider fromContext(SchedulerContext context) {
+        if (context != null && context.get(CONTEXT_KEY) instanceof EnergyChartsForecastProvider provider) {
+            return provider;
+        }
+        throw new IllegalStateException("No EnergyChartsForecastProvider is bound to the scheduler");
+    }
+
+    /**
+     * Resolves the provider of a scheduler from the {@link SchedulerRepository}. Without a scheduler name, the
+     * provider of the only scheduler of the JVM, which has one, is resolved.
+     *
+     * @param schedulerName The name of the scheduler, or null
+     * @return the provider bound to the scheduler
+     * @throws IllegalStateException if the scheduler does not exist, no provider is bound to it, or no scheduler name
+     *                               is given and several schedulers have a provider
+     */
+    public static EnergyChartsForecastProvider ofScheduler(String schedulerName) {
+        try {
+            if (schedulerName != null) {
+                Scheduler scheduler = SchedulerRepository.getInstance().lookup(schedulerName);
+                if (scheduler == null) {
+                    throw new IllegalStateException("Scheduler " + schedulerName + " does not exist");
+                }
+                return fromContext(scheduler.getContext());
+            }
+            List<EnergyChartsForecastProvider> providers = new ArrayList<>();
+            for (Scheduler scheduler : SchedulerRepository.getInstance().lookupAll()) {
+                if (scheduler.getContext().get(CONTEXT_KEY) instanceof EnergyChartsForecastProvider provider) {
+                    providers.add(provider);
+                }
+            }
+            if (providers.size() != 1) {
+                throw new IllegalStateException(providers.isEmpty()
+                        ? "No EnergyChartsForecastProvider is bound to a scheduler"
+                        : "Several schedulers have an EnergyChartsForecastProvider, the scheduler name is required");
+            }
+            return providers.get(0);
+        } catch (SchedulerException e) {
+            throw new IllegalStateException("Context of scheduler " + schedulerName + " can not be accessed", e);
+        }
+    }
+
+    /**
+     * Resolves the provider of a location for a client without scheduler name. If several schedulers of the JVM have a
+     * provider, the provider of the first scheduler by name, which has a forecast of the location, is resolved. If
+     * none has one, the provider of the first scheduler is resolved, which loads the location on demand.
+     *
+     * @param location The location to serve
+     * @return the provider serving the location
+     * @throws IllegalStateException if no scheduler has a provider
+     */
+    public static EnergyChartsForecastProvider serving(Location location) {
+        try {
+            SortedMap<String, EnergyChartsForecastProvider> providers = new TreeMap<>();
+            for (Scheduler scheduler : SchedulerRepository.getInstance().lookupAll()) {
+                if (scheduler.getContext().get(CONTEXT_KEY) instanceof EnergyChartsForecastProvider provider) {
+                    providers.put(scheduler.getSchedulerName(), provider);
+                }
+            }
+            if (providers.isEmpty()) {
+                throw new IllegalStateException("No EnergyChartsForecastProvider is bound to a scheduler");
+            }
+            return providers.values().stream()
+                    .filter(provider -> provider.getForecast(location) != null)
+                    .findFirst()
+                    .orElse(providers.get(providers.firstKey()));
+        } catch (SchedulerException e) {
+            throw new IllegalStateException("Context of a scheduler can not be accessed", e);
+        }
     }
 
     /**
@@ -76,18 +265,244 @@ public class EnergyChartsForecastProvider implements Serializable {
      * @param location The location identifier for which to retrieve the forecast
      * @return The cached forecast data for the specified location, or null if not found
      */
-    public static CachedForecast getForecast(Location location) {
-        return cachedForecasts.get(location);
+    public CachedForecast getForecast(Location location) {
+        return snapshot.get().getForecast(location);
+    }
+
+    /**
+     * Reads the forecast of a location for a query. If {@link #configureOnDemandLoading(boolean, Duration) on-demand
+     * loading} is enabled, a location, which has not been initialized, is fetched on first use and joins the
+     * refreshes of the initialized locations. Concurrent first requests of the same location share one fetch.
+     *
+     * @param from     The snapshot to read the cached forecasts from, e.g. {@link #getSnapshot()}
+     * @param location The location of the forecast
+     * @return the forecast of the snapshot, the loaded forecast, or null if there is none
+     */
+    public CachedForecast requestForecast(ForecastSnapshot from, Location location) {
+        CachedForecast forecast = from.getForecast(location);
+        if (onDemandLocations.contains(location)) {
+            lastAccess.put(location, System.nanoTime());
+        }
+        if (forecast != null || !onDemandLoading || !initialized || locations.contains(location)) {
+            return forecast;
+        }
+        return loadOnDemand(location);
+    }
+
+    /**
+     * Pins the current state of the cache. All forecasts read from the snapshot belong to the same update, even if
+     * the cache is updated meanwhile.
+     *
+     * @return the current snapshot of the cached forecasts
+     */
+    public ForecastSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * The staleness is the time since the forecast of the location has last been confirmed by a successful refresh.
+     * If a refresh fails, the last good forecast is kept and its staleness grows until the next successful refresh.
+     *
+     * @param location The location of the forecast
+     * @return the staleness of the cached forecast, or null if there is no cached forecast
+     */
+    public Duration getStaleness(Location location) {
+        CachedForecast forecast = getForecast(location);
+        if (forecast == null) {
+            return null;
+        }
+        LocalDateTime lastSuccessfulRefresh = getRefreshStatistics(location).lastSuccessfulRefresh();
+        LocalDateTime confirmedAt = lastSuccessfulRefresh != null ? lastSuccessfulRefresh : forecast.lastUpdated();
+        return confirmedAt == null ? null : Duration.between(confirmedAt, LocalDateTime.now());
+    }
+
+    /**
+     * @param location The location of the forecast
+     * @return the counters and latencies of the refreshes of the location
+     */
+    public RefreshStatistics getRefreshStatistics(Location location) {
+        RefreshMetrics metrics = refreshMetrics.get(location);
+        return metrics == null ? RefreshStatistics.neverRefreshed() : metrics.statistics();
+    }
+
+    /**
+     * @return the maximum staleness of a forecast, which the {@link OpenDataForecastClient} serves, or null if
+     * forecasts of any age are served
+     */
+    public Duration getMaximumStaleness() {
+        return maximumStaleness;
+    }
+
+    /**
+     * The version is incremented whenever new forecast data has been published to the cache. It can be used
+     * to invalidate results, which have been computed with outdated forecast data.
+     *
+     * @return the version of the cached forecast data
+     */
+    public long getDataVersion() {
+        return snapshot.get().version();
+    }
+
+    /**
+     * Configures the timeouts of the requests to the Energy-Charts API. Without timeouts, a degraded API would block
+     * the update of the forecast indefinitely.
+     *
+     * @param connectTimeout Timeout to establish the connection
+     * @param readTimeout    Timeout to receive and read the whole response of a request, retries are not included
+     */
+    public void configureTimeouts(Duration connectTimeout, Duration readTimeout) {
+        synchronized (this) {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            // the connect timeout is part of the client
+            httpClient = null;
+        }
+    }
+
+    /**
+     * Configures how many locations are fetched in parallel, when the forecast is updated.
+     *
+     * @param parallelRequests Maximum number of requests in flight
+     */
+    public void configureParallelRequests(int parallelRequests) {
+        if (parallelRequests < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed, but was " + parallelRequests);
+        }
+        this.parallelRequests = parallelRequests;
+    }
+
+    /**
+     * Configures whether an update only requests the data after the last measured value of each location and merges
+     * it into the cached forecast. Otherwise, the complete data is requested on every update. In both cases, the
+     * requests are conditional, so data which has not been modified is neither transferred nor parsed.
+     *
+     * @param incrementalRefresh true to request only the new data
+     */
+    public void configureIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+
+    /**
+     * Configures how often the request of a location is attempted, before the refresh of the location fails. The
+     * backoff between the attempts starts with the given duration and is doubled after each attempt. Responses,
+     * which are malformed or rejected by the API (HTTP 4xx except 429), are not retried.
+     *
+     * @param attempts       Maximum number of attempts per location and update
+     * @param initialBackoff Backoff before the second attempt
+     */
+    public void configureRetries(int attempts, Duration initialBackoff) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("At least one attempt must be allowed, but was " + attempts);
+        }
+        this.retryAttempts = attempts;
+        this.retryBackoff = initialBackoff;
+    }
+
+    /**
+     * Configures the maximum staleness of a forecast, which the {@link OpenDataForecastClient} serves. A client can
+     * override it with {@link OpenDataForecastClient#OpenDataForecastClient(ForecastSnapshot, Duration)}.
+     *
+     * @param maximumStaleness Maximum time since the last successful refresh, or null to serve forecasts of any age
+     */
+    public void configureMaximumStaleness(Duration maximumStaleness) {
+        this.maximumStaleness = maximumStaleness;
+    }
+
+    /**
+     * Configures a file, to which every refreshed snapshot is written. On initialization, the cache is restored from
+     * the file, so the forecasts are available immediately and without network. They are refreshed in the
+     * background.
+     *
+     * @param snapshotFile the file of the snapshot, or null to disable the persistence
+     */
+    public void configureSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Configures when the {@link OpenDataUpdateJob} refreshes each location, if it runs in adaptive mode.
+     *
+     * @param refreshSchedule the schedule of the refreshes
+     */
+    public void configureRefreshSchedule(RefreshSchedule refreshSchedule) {
+        this.refreshSchedule = Objects.requireNonNull(refreshSchedule);
+    }
+
+    /**
+     * @param location The location of the forecast
+     * @param demand   The demand of the triggers using the location, or null if no trigger uses it
+     * @return the time of the next refresh of the location according to the configured {@link RefreshSchedule}
+     */
+    public Instant getNextRefresh(Location location, RefreshSchedule.Demand demand) {
+        return refreshSchedule.nextRefresh(getRefreshStatistics(location), getForecast(location), demand);
+    }
+
+    /**
+     * Configures the sources, from which the forecast of each location is fetched. By default, all locations are
+     * fetched from the Energy-Charts API.
+     *
+     * @param forecastSources the sources of the locations
+     */
+    public void configureForecastSources(ForecastSourceRegistry forecastSources) {
+        this.forecastSources = forecastSources.boundTo(this);
+    }
+
+    /**
+     * Configures whether locations, which have not been initialized, are fetched on first use by
+     * {@link #requestForecast(ForecastSnapshot, Location)}. Such locations are evicted again, if they have not been
+     * requested for the given idle timeout.
+     *
+     * @param enabled     true to fetch locations on first use
+     * @param idleTimeout Time without requests, after which a location fetched on first use is evicted
+     */
+    public void configureOnDemandLoading(boolean enabled, Duration idleTimeout) {
+        if (idleTimeout == null || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("The idle timeout must not be negative, but was " + idleTimeout);
+        }
+        this.onDemandLoading = enabled;
+        this.onDemandIdleTimeout = idleTimeout;
+    }
+
+    /**
+     * Configures how much data of each location is kept. When a forecast is refreshed, data points older than the
+     * lookback are dropped, and at most the given number of the newest data points is kept. So the memory of a
+     * location stays bounded, no matter how much past data its source returns.
+     *
+     * @param lookback Time before the refresh, from which on data points are kept, or null to keep all past data points
+     * @param capacity Maximum number of data points of a location
+     */
+    public void configureRetention(Duration lookback, int capacity) {
+        if (lookback != null && lookback.isNegative()) {
+            throw new IllegalArgumentException("The retention lookback must not be negative, but was " + lookback);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The retention capacity must be positive, but was " + capacity);
+        }
+        this.retentionLookback = lookback;
+        this.retentionCapacity = capacity;
+    }
+
+    /**
+     * Configures an archive, to which the measured values and the forecast of every response of the Energy-Charts
+     * API are appended. The archive is not closed by the provider.
+     *
+     * @param archive the archive, or null to disable archiving
+     */
+    public void configureArchive(ForecastArchive archive) {
+        this.archive = archive;
     }
 
     /**
      * Initializes the EnergyChartsForecastProvider with a list of locations.
      * This method must be called before using the provider.
      * If the provider is already initialized, later calls will be ignored.
+     * <p>
+     * If a {@link #configureSnapshotFile(Path) snapshot file} with forecasts of the locations exists, the cache is
+     * restored from it and refreshed in the background. Otherwise, the data is fetched before this method returns.
      *
      * @param locationsList List of location identifiers to initialize the provider with
      */
-    public static void initialize(List<String> locationsList) {
+    public void initialize(List<String> locationsList) {
         if (initialized) {
             LOGGER.warn("EnergyChartsForecastProvider is already initialized.");
             return;
@@ -100,8 +515,13 @@ public class EnergyChartsForecastProvider implements Serializable {
             apiUrlTemplate = DEFAULT_API_URL_TEMPLATE;
         }
         
-        updateCachedData();
-        initialized = true;
+        if (restoreSnapshot()) {
+            initialized = true;
+            refreshInBackground();
+        } else {
+            updateCachedData();
+            initialized = true;
+        }
 
         LOGGER.info("EnergyChartsForecastProvider initialized with locations: {}",
                 locations.isEmpty()
@@ -113,227 +533,784 @@ public class EnergyChartsForecastProvider implements Serializable {
      * Updates the cached forecast data for all initialized locations.
      * This method fetches fresh data from the API and updates the internal cache.
      * It is called during initialization and should only be called afterward by the {@link OpenDataUpdateJob}.
+     * <p>
+     * Locations, whose data has not been modified since the last update, are skipped. If no location has been
+     * modified or every refresh has failed, no new snapshot is published.
+     * <p>
+     * The locations are refreshed independently. If the refresh of a location fails after all retries, the last good
+     * forecast of the location is kept and served with a growing {@link #getStaleness(Location) staleness}.
      *
-     * @throws IllegalStateException if there is an error, fetching or processing the data
+     * @throws IllegalStateException if the refresh of every location has failed
      */
-    static void updateCachedData() {
-        for (Location location : locations) {
+    void updateCachedData() {
+        evictIdleLocations();
+        updateCachedData(locations);
+    }
+
+    /**
+     * Updates the cached forecast data of the locations, which are due according to the configured
+     * {@link RefreshSchedule}. It is called by the {@link OpenDataUpdateJob} in adaptive mode.
+     *
+     * @param demands The demand of the triggers per location. Locations without demand are not used by any trigger.
+     * @throws IllegalStateException if the refresh of every due location has failed
+     */
+    void updateDueLocations(Map<Location, RefreshSchedule.Demand> demands) {
+        evictIdleLocations();
+        Instant now = Instant.now();
+        List<Location> dueLocations = locations.stream()
+                .filter(location -> !getNextRefresh(location, demands.get(location)).isAfter(now))
+                .toList();
+        if (dueLocations.isEmpty()) {
+            LOGGER.debug("No forecast is due for a refresh");
+            return;
+        }
+        LOGGER.debug("Refreshing the forecasts of {}", dueLocations);
+        updateCachedData(dueLocations);
+    }
+
+    private void updateCachedData(List<Location> locationsToUpdate) {
+        Map<Location, CachedForecast> updates = new EnumMap<>(Location.class);
+        Set<Location> notModified = EnumSet.noneOf(Location.class);
+        try {
+            updateCachedDataOfLocations(locationsToUpdate, updates, notModified);
+        } finally {
+            if (!updates.isEmpty()) {
+                persist(publish(updates));
+            }
+        }
+    }
+
+    /**
+     * Fetches a location on first use. The first caller fetches the location, concurrent callers wait for its
+     * result. A location, whose fetch has failed, is not fetched again before the minimum interval of the
+     * {@link RefreshSchedule}.
+     */
+    private CachedForecast loadOnDemand(Location location) {
+        CompletableFuture<CachedForecast> load = new CompletableFuture<>();
+        CompletableFuture<CachedForecast> pending = pendingLoads.putIfAbsent(location, load);
+        if (pending != null) {
             try {
-                // Make the HTTP request for each location
-                String jsonData = fetchDataFromApi(location);
-                
-                // Parse the JSON data
-                List<CachedForecast.CachedEmissionData> cachedEmissionData = parseJsonToEmissionForecast(jsonData, location);
-                
-                // Check if the list is empty before trying to access its elements
-                if (cachedEmissionData.isEmpty()) {
-                    LOGGER.warn("No valid emission data found for location: {}", location);
-                    // Don't continue, still update the cache with an empty forecast
-                    cachedForecasts.put(location, new CachedForecast(
-                            LocalDateTime.now(),
-                            LocalDateTime.now(), // Use current time as maximum forecast timestamp
-                            Collections.emptyList()
-                    ));
-                } else {
-                    // Update the cache with the parsed data
-                    LocalDateTime maximumForecastTimestamp = cachedEmissionData.get(cachedEmissionData.size() - 1).timestamp();
-                    cachedForecasts.put(location, new CachedForecast(
-                            LocalDateTime.now(),
-                            maximumForecastTimestamp,
-                            Collections.unmodifiableList(cachedEmissionData)
-                    ));
-                }
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
+                return pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Fetch of location " + location + " was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Fetch of location " + location + " failed", e.getCause());
             }
         }
+        try {
+            load.complete(getNextRefresh(location, null).isAfter(Instant.now()) ? null : load(location));
+        } catch (RuntimeException e) {
+            load.complete(null);
+            throw e;
+        } finally {
+            pendingLoads.remove(location, load);
+        }
+        return load.join();
+    }
+
+    private CachedForecast load(Location location) {
+        LOGGER.info("Fetching forecast of location {} on first use", location);
+        try {
+            updateCachedData(List.of(location));
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Forecast of location {} can not be fetched on first use: {}", location, e.getMessage());
+            return null;
+        }
+        synchronized (this) {
+            if (!locations.contains(location)) {
+                List<Location> joined = new ArrayList<>(locations);
+                joined.add(location);
+                locations = List.copyOf(joined);
+                onDemandLocations.add(location);
+                lastAccess.put(location, System.nanoTime());
+            }
+        }
+        return getForecast(location);
     }
 
     /**
-     * Fetches forecast data from the API for a specific location.
+     * Evicts the locations fetched on first use, which have not been requested for the idle timeout.
+     */
+    private void evictIdleLocations() {
+        long now = System.nanoTime();
+        long idleTimeoutInNanos = onDemandIdleTimeout.toNanos();
+        Set<Location> idle = EnumSet.noneOf(Location.class);
+        for (Location location : onDemandLocations) {
+            Long accessedAt = lastAccess.get(location);
+            if (accessedAt == null || now - accessedAt > idleTimeoutInNanos) {
+                idle.add(location);
+            }
+        }
+        if (idle.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            locations = locations.stream().filter(location -> !idle.contains(location)).toList();
+        }
+        onDemandLocations.removeAll(idle);
+        lastAccess.keySet().removeAll(idle);
+        refreshStates.keySet().removeAll(idle);
+        refreshMetrics.keySet().removeAll(idle);
+        persist(snapshot.updateAndGet(current -> current.without(idle)));
+        LOGGER.info("Evicted forecasts of idle locations {}", idle);
+    }
+
+    /**
+     * Restores the cache from the snapshot file, if it contains forecasts of the configured locations.
      *
-     * @param location The location identifier for which to fetch data
-     * @return The raw JSON response from the API
-     * @throws IOException if there is an error connecting to or reading from the API
+     * @return true if the cache has been restored
      */
-    private static String fetchDataFromApi(Location location) throws IOException {
-        URL url = new URL(apiUrlTemplate.formatted(location.getCode()));
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setRequestProperty("Accept", "application/json");
+    private boolean restoreSnapshot() {
+        Path file = snapshotFile;
+        if (file == null || !Files.isReadable(file)) {
+            return false;
+        }
+        try {
+            ForecastSnapshot restored = SnapshotFile.read(file);
+            Map<Location, CachedForecast> forecasts = new EnumMap<>(Location.class);
+            for (Location location : locations) {
+                CachedForecast forecast = restored.getForecast(location);
+                if (forecast != null) {
+                    forecasts.put(location, forecast);
+                }
+            }
+            if (forecasts.isEmpty()) {
+                return false;
+            }
+            publish(forecasts);
+            LOGGER.info("Restored forecasts of {} locations from {}", forecasts.size(), file);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Can not restore forecasts from {}, fetching them instead: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private void refreshInBackground() {
+        Thread refresh = new Thread(() -> {
+            try {
+                updateCachedData();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Refresh of the restored forecasts failed, they are kept until the next update", e);
+            }
+        }, "carbon-aware-open-data-refresh");
+        refresh.setDaemon(true);
+        refresh.start();
+    }
 
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("HTTP-Fehler: " + responseCode);
+    private void persist(ForecastSnapshot published) {
+        Path file = snapshotFile;
+        if (file == null) {
+            return;
+        }
+        synchronized (snapshotFileLock) {
+            // concurrent updates must not replace a newer snapshot
+            if (published.version() <= persistedVersion) {
+                return;
+            }
+            try {
+                SnapshotFile.write(file, published);
+                persistedVersion = published.version();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Can not write forecasts to {}: {}", file, e.toString());
+            }
         }
+    }
+
+    /**
+     * Publishes a new snapshot containing the updated forecasts with a single atomic swap.
+     */
+    ForecastSnapshot publish(Map<Location, CachedForecast> updates) {
+        return snapshot.updateAndGet(current -> current.with(updates));
+    }
+
+    private void updateCachedDataOfLocations(List<Location> locationsToUpdate,
+                                             Map<Location, CachedForecast> updates,
+                                             Set<Location> notModified) {
+        ForecastSnapshot previousSnapshot = snapshot.get();
+        // Make the HTTP requests of all locations in parallel
+        Map<Location, CompletableFuture<ForecastSeries>> responses = fetchDataOfLocations(locationsToUpdate, previousSnapshot);
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+        IllegalStateException failure = null;
+        int failedLocations = 0;
+        for (Location location : locationsToUpdate) {
+            try {
+                CachedForecast previousForecast = previousSnapshot.getForecast(location);
+                ForecastSeries series = parsedOrEmpty(responses.get(location), location);
+                // the sources return the previous series itself, if the data has not been modified
+                boolean modified = previousForecast == null || series != previousForecast.series() || series.isEmpty();
+                metricsOf(location).succeeded(modified);
+                if (!modified) {
+                    LOGGER.debug("Forecast of location {} has not been modified", location);
+                    notModified.add(location);
+                    continue;
+                }
+                updates.put(location, toCachedForecast(retain(series), previousForecast, location));
+            } catch (IOException e) {
+                metricsOf(location).failed();
+                LOGGER.warn("Refresh of location {} failed, the last forecast is kept (staleness {}): {}",
+                        location, getStaleness(location), e.toString());
+                failedLocations++;
+                if (failure == null) {
+                    failure = new IllegalStateException(e);
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
-            return response.toString();
-        } finally {
-            connection.disconnect();
+        }
+        if (failedLocations > 0 && failedLocations == locationsToUpdate.size()) {
+            throw failure;
         }
     }
 
     /**
-     * Parses the raw JSON data into a list of emission forecast data points.
+     * Applies the {@link #configureRetention(Duration, int) retention} to a refreshed series.
+     */
+    private ForecastSeries retain(ForecastSeries series) {
+        Duration lookback = retentionLookback;
+        long earliestEpochSecond = lookback == null
+                ? Long.MIN_VALUE
+                : Instant.now().minus(lookback).getEpochSecond();
+        return series.retain(earliestEpochSecond, retentionCapacity);
+    }
+
+    private static CachedForecast toCachedForecast(ForecastSeries series,
+                                                   CachedForecast previousForecast,
+                                                   Location location) {
+        // Check if the series is empty before trying to access its elements
+        if (series.isEmpty()) {
+            LOGGER.warn("No valid emission data found for location: {}", location);
+            // Still update the cache with an empty forecast
+            return new CachedForecast(
+                    LocalDateTime.now(),
+                    LocalDateTime.now(), // Use current time as maximum forecast timestamp
+                    ForecastSeries.empty()
+            );
+        }
+        // Update the cache with the parsed data
+        LocalDateTime maximumForecastTimestamp = series.timestampAt(series.size() - 1);
+        // index the window lengths in use before the new forecast is published
+        if (previousForecast != null && previousForecast.series() != null) {
+            series.prepareWindowIndexes(previousForecast.series().windowLengthsInUse());
+        }
+        return new CachedForecast(
+                LocalDateTime.now(),
+                maximumForecastTimestamp,
+                series
+        );
+    }
+
+    /**
+     * Starts the requests of the locations from their {@link #configureForecastSources(ForecastSourceRegistry)
+     * sources}. At most {@link #configureParallelRequests(int) parallelRequests} locations are in flight at the same
+     * time. The caller is blocked until the last request has been started.
      *
-     * @param jsonData The raw JSON response from the API
-     * @param location The location identifier for error logging purposes
-     * @return List of parsed emission data points, or empty list if parsing fails
+     * @param locationsToUpdate the locations to request
+     * @param previousSnapshot  the cached forecasts, which are refreshed
+     * @return the pending refresh of each location
      */
-    private static List<CachedForecast.CachedEmissionData> parseJsonToEmissionForecast(String jsonData,
-                                                                                       Location location) {
-        try {
-            // Extracting arrays using regular expressions
-            List<Long> timestamps = extractLongArrayFromJson(jsonData);
-            List<Double> co2eqValues = extractDoubleArrayFromJson(jsonData, "co2eq");
-            List<Double> co2eqForecastValues = extractDoubleArrayFromJson(jsonData, "co2eq_forecast");
+    private Map<Location, CompletableFuture<ForecastSeries>> fetchDataOfLocations(List<Location> locationsToUpdate,
+                                                                                 ForecastSnapshot previousSnapshot) {
+        ForecastSourceRegistry sources = forecastSources;
+        Semaphore permits = new Semaphore(parallelRequests);
+        Map<Location, CompletableFuture<ForecastSeries>> responses = new EnumMap<>(Location.class);
+        for (Location location : locationsToUpdate) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                responses.values().forEach(response -> response.cancel(true));
+                throw new IllegalStateException("Update of the forecast was interrupted", e);
+            }
+            long start = System.nanoTime();
+            CompletableFuture<ForecastSeries> refresh = fetchFromSource(sources, location, previousSnapshot.getForecast(location));
+            responses.put(location, refresh.whenComplete((result, e) -> {
+                metricsOf(location).completed(Duration.ofNanos(System.nanoTime() - start));
+                permits.release();
+            }));
+        }
+        return responses;
+    }
 
+    private CompletableFuture<ForecastSeries> fetchFromSource(ForecastSourceRegistry sources,
+                                                              Location location,
+                                                              CachedForecast previousForecast) {
+        try {
+            return sources.sourceOf(location).fetch(location, previousForecast == null ? null : previousForecast.series());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new IOException("Forecast source of location " + location + " failed", e));
+        }
+    }
 
-            if (timestamps.isEmpty()
-                    || co2eqValues.isEmpty()
-                    || co2eqForecastValues.isEmpty()
-                    || timestamps.size() != co2eqValues.size()
-                    || timestamps.size() != co2eqForecastValues.size()) {
+    /**
+     * Requests the data of a location from the Energy-Charts API, which has been modified since the last update. If
+     * the location has been fetched before, the request is conditional. If incremental refresh is enabled, only the
+     * data after the last measured value is requested and merged into the cached series.
+     *
+     * @param location       The location to refresh
+     * @param previousSeries The cached series of the location, or null
+     * @return the pending refresh, completed with the previous series itself if it has not been modified
+     */
+    CompletableFuture<ForecastSeries> refreshAsync(Location location, ForecastSeries previousSeries) {
+        RefreshState previous = previousSeries == null || previousSeries.isEmpty() ? null : refreshStates.get(location);
+        boolean incremental = incrementalRefresh && previous != null
+                && previous.lastActualEpochSecond() != Long.MIN_VALUE;
+        String url = apiUrlTemplate.formatted(location.getCode());
+        if (incremental) {
+            url += (url.contains("?") ? "&" : "?") + "start=" + previous.lastActualEpochSecond();
+        }
 
-                LOGGER.error("Invalid JSON format or empty arrays for location {}", location);
-                return Collections.emptyList();
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL of location " + location, e));
+        }
+        // validators are only valid for the same resource
+        RefreshState validators = previous != null && previous.uri().equals(uri) ? previous : null;
+        return withRetries(() -> fetchDataFromApiAsync(uri, validators), location, 1, retryBackoff).thenApply(response -> {
+            if (response.body() == null) {
+                return previousSeries;
+            }
+            archive(location, response.body());
+            ForecastSeries series = buildForecastSeries(response.body(), location);
+            long lastActualEpochSecond = lastActualEpochSecond(response.body());
+            if (incremental) {
+                if (series.isEmpty()) {
+                    LOGGER.warn("No new emission data found for location: {}", location);
+                    series = previousSeries;
+                } else {
+                    series = previousSeries.merge(series,
+                            series.epochSecondAt(0) - RETAINED_HISTORY.toSeconds());
+                }
+                lastActualEpochSecond = Math.max(lastActualEpochSecond, previous.lastActualEpochSecond());
             }
+            refreshStates.put(location,
+                    new RefreshState(uri, response.eTag(), response.lastModified(), lastActualEpochSecond));
+            return series;
+        });
+    }
 
-            List<CachedForecast.CachedEmissionData> dataPoints = buildEmissionDataRecords(
-                    timestamps,
-                    co2eqValues,
-                    co2eqForecastValues);
+    /**
+     * Appends the measured values and the forecast of a response to the {@link #configureArchive(ForecastArchive)
+     * archive}. A failure is logged and does not fail the refresh.
+     */
+    private void archive(Location location, Co2eqResponseParser.Co2eqResponse response) {
+        ForecastArchive target = archive;
+        if (target == null) {
+            return;
+        }
+        try {
+            target.appendActuals(location, response.unixSeconds(), response.co2eq());
+            target.appendForecast(location, Instant.now(), response.unixSeconds(), response.co2eqForecast());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Response of location {} could not be archived: {}", location, e.toString());
+        }
+    }
 
-            if (dataPoints.isEmpty()) {
-                LOGGER.warn("No valid data points for location {}", location);
-                return Collections.emptyList();
+    /**
+     * Repeats a failed request with exponential backoff, until it succeeds, fails permanently or the configured
+     * number of attempts is exhausted.
+     */
+    private <T> CompletableFuture<T> withRetries(Supplier<CompletableFuture<T>> request,
+                                                 Location location,
+                                                 int attempt,
+                                                 Duration backoff) {
+        return request.get().handle((result, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (attempt >= retryAttempts || !isRetryable(cause)) {
+                return CompletableFuture.<T>failedFuture(cause);
             }
+            LOGGER.info("Request of location {} failed, attempt {} of {} in {}: {}",
+                    location, attempt + 1, retryAttempts, backoff, cause.toString());
+            metricsOf(location).retried();
+            Executor delayed = CompletableFuture.delayedExecutor(
+                    backoff.toMillis(), TimeUnit.MILLISECONDS, fetchExecutor);
+            return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(ignored -> withRetries(request, location, attempt + 1, backoff.multipliedBy(2)));
+        }).thenCompose(Function.identity());
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof UnexpectedStatusException e) {
+            return e.getStatusCode() == 429 || e.getStatusCode() >= 500;
+        }
+        return failure instanceof IOException && !(failure instanceof Co2eqResponseParser.MalformedResponseException);
+    }
+
+    private RefreshMetrics metricsOf(Location location) {
+        return refreshMetrics.computeIfAbsent(location, key -> new RefreshMetrics());
+    }
 
-            return dataPoints;
+    /**
+     * @return the timestamp of the last measured value of the response, or {@link Long#MIN_VALUE} if there is none
+     */
+    private static long lastActualEpochSecond(Co2eqResponseParser.Co2eqResponse response) {
+        long[] timestamps = response.unixSeconds();
+        double[] co2eqValues = response.co2eq();
+        for (int i = Math.min(timestamps.length, co2eqValues.length) - 1; i >= 0; i--) {
+            if (!Double.isNaN(co2eqValues[i])) {
+                return timestamps[i];
+            }
+        }
+        return Long.MIN_VALUE;
+    }
 
-        } catch (Exception e) {
+    private ForecastSeries parsedOrEmpty(CompletableFuture<ForecastSeries> response,
+                                         Location location) throws IOException {
+        try {
+            return await(response);
+        } catch (Co2eqResponseParser.MalformedResponseException e) {
             LOGGER.error("Error parsing JSON for location {}: {}", location, e.getMessage());
-            return Collections.emptyList();
+            // fetch the complete data next time
+            refreshStates.remove(location);
+            return ForecastSeries.empty();
         }
     }
 
     /**
-     * Builds a list of emission data records from parsed timestamp and value arrays.
+     * Waits for a response. The wait can be interrupted, e.g. when the forecast request of a client exceeds its
+     * deadline.
      *
-     * @param timestamps          List of Unix timestamps for the data points
-     * @param co2eqValues         List of CO2 equivalent values
-     * @param co2eqForecastValues List of forecasted CO2 equivalent values
-     * @return List of constructed emission data records
+     * @throws IllegalStateException if the waiting thread is interrupted
      */
-    private static List<CachedForecast.CachedEmissionData> buildEmissionDataRecords(
-            List<Long> timestamps,
-            List<Double> co2eqValues,
-            List<Double> co2eqForecastValues) {
-
-        // Handle edge case: if there's only one timestamp, we can't calculate duration
-        if (timestamps.size() <= 1) {
-            return Collections.emptyList(); // Return empty list
-        }
-
-        List<CachedForecast.CachedEmissionData> dataPoints = new ArrayList<>();
-        // Merging the arrays into EmissionData objects
-        for (int i = 0; i < timestamps.size(); i++) {
-            // Calculate duration based on adjacent timestamps
-            long durationMinutes;
-            if (i == timestamps.size() - 1) {
-                // For the last element, calculate duration from the previous timestamp
-                durationMinutes = Math.abs(Duration.between(
-                        LocalDateTime.ofEpochSecond(timestamps.get(i - 1), 0, ZoneOffset.UTC),
-                        LocalDateTime.ofEpochSecond(timestamps.get(i), 0, ZoneOffset.UTC))
-                        .toMinutes());
-            } else {
-                // For other elements, calculate duration to the next timestamp
-                durationMinutes = Math.abs(Duration.between(
-                        LocalDateTime.ofEpochSecond(timestamps.get(i), 0, ZoneOffset.UTC),
-                        LocalDateTime.ofEpochSecond(timestamps.get(i + 1), 0, ZoneOffset.UTC))
-                        .toMinutes());
+    private static <T> T await(CompletableFuture<T> response) throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Update of the forecast was interrupted", e);
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause()
+                    : e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
             }
+            throw new IOException(cause != null ? cause : e);
+        }
+    }
 
-            CachedForecast.CachedEmissionData data = new CachedForecast.CachedEmissionData(
-                    LocalDateTime.ofEpochSecond(timestamps.get(i), 0, ZoneOffset.UTC),
-                    co2eqValues.get(i) != null ? co2eqValues.get(i) : co2eqForecastValues.get(i),
-                    durationMinutes
-            );
+    /**
+     * Fetches forecast data from the API with the shared {@link HttpClient}. The connection is reused for the
+     * requests of all locations, and the response is compressed with gzip.
+     * <p>
+     * The body is parsed while it is streamed, on a thread of the fetch executor. It is never
+     * materialized as a String. The {@link HttpClient} streams the body with its own executor, so a parsing thread
+     * never waits for a thread, which is itself busy with parsing. If the data has not been modified since the given validators were received, the
+     * response has no body to parse.
+     *
+     * <p>
+     * The timeout of the request only bounds the time until the headers are received. The read timeout therefore
+     * bounds the whole exchange: when it is exceeded, the request is cancelled and the body is closed, which releases
+     * the thread parsing a stalled body.
+     *
+     * @param uri        The URI of the data of a location
+     * @param validators The state of the last response of the same URI, or null for an unconditional request
+     * @return The parsed response. Completes exceptionally with an {@link IOException}, if there is an error
+     * connecting to or reading from the API, a timeout is exceeded or the response is malformed
+     */
+    private CompletableFuture<ApiResponse> fetchDataFromApiAsync(URI uri, RefreshState validators) {
+        Duration timeout = readTimeout;
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (validators != null && validators.eTag() != null) {
+            request.header("If-None-Match", validators.eTag());
+        }
+        if (validators != null && validators.lastModified() != null) {
+            request.header("If-Modified-Since", validators.lastModified());
+        }
+
+        CompletableFuture<HttpResponse<InputStream>> sent =
+                httpClient().sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        AtomicReference<InputStream> body = new AtomicReference<>();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        return sent
+                .thenApplyAsync(response -> {
+                    body.set(response.body());
+                    if (timedOut.get()) {
+                        closeQuietly(response.body());
+                    }
+                    return parse(response, validators);
+                }, fetchExecutor)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    if (!(e instanceof TimeoutException)) {
+                        throw e instanceof CompletionException completionException
+                                ? completionException
+                                : new CompletionException(e);
+                    }
+                    timedOut.set(true);
+                    sent.cancel(true);
+                    closeQuietly(body.get());
+                    throw new CompletionException(new HttpTimeoutException(
+                            "Response of " + uri + " has not been read within " + timeout));
+                });
+    }
 
-            if (data.value() != null) {
-                dataPoints.add(data);
+    private static void closeQuietly(InputStream body) {
+        if (body == null) {
+            return;
+        }
+        try {
+            body.close();
+        } catch (IOException e) {
+            LOGGER.debug("Body of the response could not be closed: {}", e.toString());
+        }
+    }
+
+    private static ApiResponse parse(HttpResponse<InputStream> response, RefreshState validators) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304 && validators != null) {
+                return new ApiResponse(null, validators.eTag(), validators.lastModified());
             }
+            if (response.statusCode() != 200) {
+                throw new UnexpectedStatusException(response.statusCode());
+            }
+            boolean gzip = response.headers().firstValue("Content-Encoding")
+                    .filter(encoding -> encoding.equalsIgnoreCase("gzip"))
+                    .isPresent();
+            return new ApiResponse(
+                    Co2eqResponseParser.parse(gzip ? new GZIPInputStream(body) : body),
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            throw new CompletionException(e);
         }
-        return dataPoints;
+    }
+
+    private synchronized HttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        return httpClient;
     }
 
     /**
-     * Extracts an array of unix timestamp values from a JSON string.
+     * Builds the forecast series of a location from the parsed arrays of the response.
      *
-     * @param json The JSON string to parse
-     * @return List of extracted Long values
+     * @param response The parsed arrays of the response
+     * @param location The location identifier for error logging purposes
+     * @return the series of valid data points, or an empty series if the arrays are invalid
      */
-    private static List<Long> extractLongArrayFromJson(String json) {
-        List<Long> result = new ArrayList<>();
-        Pattern pattern = Pattern.compile("\"unix_seconds\":\\s*\\[(.*?)]", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(json);
+    private static ForecastSeries buildForecastSeries(Co2eqResponseParser.Co2eqResponse response, Location location) {
+        long[] timestamps = response.unixSeconds();
+        double[] co2eqValues = response.co2eq();
+        double[] co2eqForecastValues = response.co2eqForecast();
 
-        if (matcher.find()) {
-            String arrayContent = matcher.group(1);
-            String[] items = arrayContent.split(",");
+        if (timestamps.length == 0
+                || co2eqValues.length == 0
+                || co2eqForecastValues.length == 0
+                || timestamps.length != co2eqValues.length
+                || timestamps.length != co2eqForecastValues.length) {
 
-            for (String item : items) {
-                item = item.trim();
-                if (!item.isEmpty() && !item.equals("null")) {
-                    try {
-                        result.add(Long.parseLong(item));
-                    } catch (NumberFormatException e) {
-                        LOGGER.warn("Can not parse unix timestamp from string to long: {}", item);
-                    }
-                }
+            LOGGER.error("Invalid JSON format or empty arrays for location {}", location);
+            return ForecastSeries.empty();
+        }
+        if (timestamps.length > 1 && stepInSeconds(timestamps) < 0) {
+            LOGGER.error("Data points of location {} are not evenly spaced by a number of minutes, the response is "
+                    + "rejected", location);
+            return ForecastSeries.empty();
+        }
+
+        ForecastSeries series = buildForecastSeries(timestamps, co2eqValues, co2eqForecastValues);
+        if (series.isEmpty()) {
+            LOGGER.warn("No valid data points for location {}", location);
+        }
+        return series;
+    }
+
+    /**
+     * Merges the arrays of the response into a series. A missing measured value is replaced by the forecasted
+     * value, data points without both values are skipped. The step of the series is the step of the timestamps, an
+     * empty series is returned, if they are not evenly spaced.
+     *
+     * @param timestamps          Unix timestamps of the data points
+     * @param co2eqValues         CO2 equivalent values, {@link Double#NaN} if missing
+     * @param co2eqForecastValues Forecasted CO2 equivalent values, {@link Double#NaN} if missing
+     * @return the series of valid data points
+     */
+    private static ForecastSeries buildForecastSeries(long[] timestamps,
+                                                      double[] co2eqValues,
+                                                      double[] co2eqForecastValues) {
+        // Handle edge case: if there's only one timestamp, we can't calculate duration
+        if (timestamps.length <= 1) {
+            return ForecastSeries.empty();
+        }
+
+        long stepInSeconds = stepInSeconds(timestamps);
+        if (stepInSeconds < 0) {
+            return ForecastSeries.empty();
+        }
+
+        long[] epochSeconds = new long[timestamps.length];
+        double[] values = new double[timestamps.length];
+        int size = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            double value = Double.isNaN(co2eqValues[i]) ? co2eqForecastValues[i] : co2eqValues[i];
+            if (Double.isNaN(value)) {
+                continue;
             }
+            epochSeconds[size] = timestamps[i];
+            values[size] = value;
+            size++;
         }
+        return ForecastSeries.of(Arrays.copyOf(epochSeconds, size), Arrays.copyOf(values, size), stepInSeconds / 60);
+    }
 
-        return result;
+    /**
+     * The windows of the forecast are computed in steps of the series, so the data points must be evenly spaced.
+     *
+     * @param timestamps Unix timestamps of at least two data points
+     * @return the step between the timestamps in seconds, or -1 if it is not a constant, positive number of minutes
+     */
+    private static long stepInSeconds(long[] timestamps) {
+        long stepInSeconds = timestamps[1] - timestamps[0];
+        if (stepInSeconds <= 0 || stepInSeconds % 60 != 0) {
+            return -1;
+        }
+        for (int i = 2; i < timestamps.length; i++) {
+            if (timestamps[i] - timestamps[i - 1] != stepInSeconds) {
+                return -1;
+            }
+        }
+        return stepInSeconds;
     }
 
     /**
-     * Extracts an array of Double values from a JSON string.
+     * Validators and position of the last response of a location, used by the next refresh.
      *
-     * @param json      The JSON string to parse
-     * @param arrayName The name of the array to extract
-     * @return List of extracted Double values, with null for invalid or missing values
+     * @param uri                   URI of the last request
+     * @param eTag                  ETag of the last response, or null
+     * @param lastModified          Last-Modified date of the last response, or null
+     * @param lastActualEpochSecond Timestamp of the last measured value, or {@link Long#MIN_VALUE} if unknown
      */
-    private static List<Double> extractDoubleArrayFromJson(String json, String arrayName) {
-        List<Double> result = new ArrayList<>();
-        Pattern pattern = Pattern.compile("\"" + arrayName + "\":\\s*\\[(.*?)]", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(json);
+    private record RefreshState(URI uri, String eTag, String lastModified, long lastActualEpochSecond) {
+    }
 
-        if (matcher.find()) {
-            String arrayContent = matcher.group(1);
-            String[] items = arrayContent.split(",");
+    /**
+     * @param body         The parsed body, or null if the data has not been modified
+     * @param eTag         ETag of the response, or null
+     * @param lastModified Last-Modified date of the response, or null
+     */
+    private record ApiResponse(Co2eqResponseParser.Co2eqResponse body, String eTag, String lastModified) {
+    }
 
-            for (String item : items) {
-                item = item.trim();
-                if (item.isEmpty() || item.equals("null")) {
-                    result.add(null);
-                } else {
-                    try {
-                        result.add(Double.parseDouble(item));
-                    } catch (NumberFormatException e) {
-                        LOGGER.warn("Can not parse double value from string: {}", item);
-                        result.add(null);
-                    }
-                }
+    /**
+     * Signals a response with a status other than 200 or 304.
+     */
+    private static final class UnexpectedStatusException extends IOException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        private UnexpectedStatusException(int statusCode) {
+            super("Unexpected HTTP status: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    /**
+     * Mutable counters of the refreshes of a location
+     */
+    private static final class RefreshMetrics {
+
+        private long successCount;
+        private long failureCount;
+        private long retryCount;
+        private Duration lastLatency;
+        private Duration maximumLatency;
+        private LocalDateTime lastSuccessfulRefresh;
+        private LocalDateTime lastFailedRefresh;
+        private long unmodifiedCount;
+        private LocalDateTime lastModification;
+
+        synchronized void succeeded(boolean modified) {
+            successCount++;
+            lastSuccessfulRefresh = LocalDateTime.now();
+            if (modified) {
+                unmodifiedCount = 0;
+                lastModification = lastSuccessfulRefresh;
+            } else {
+                unmodifiedCount++;
             }
         }
 
-        return result;
+        synchronized void failed() {
+            failureCount++;
+            lastFailedRefresh = LocalDateTime.now();
+        }
+
+        synchronized void retried() {
+            retryCount++;
+        }
+
+        synchronized void completed(Duration latency) {
+            lastLatency = latency;
+            if (maximumLatency == null || latency.compareTo(maximumLatency) > 0) {
+                maximumLatency = latency;
+            }
+        }
+
+        synchronized RefreshStatistics statistics() {
+            return new RefreshStatistics(successCount, failureCount, retryCount, lastLatency, maximumLatency,
+                    lastSuccessfulRefresh, lastFailedRefresh, unmodifiedCount, lastModification);
+        }
+    }
+
+    /**
+     * Map view of the current snapshot. Modifications publish a new snapshot.
+     */
+    private final class SnapshotView extends AbstractMap<Location, CachedForecast> {
+
+        @Override
+        public CachedForecast get(Object key) {
+            return snapshot.get().forecasts().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return snapshot.get().forecasts().containsKey(key);
+        }
+
+        @Override
+        public CachedForecast put(Location key, CachedForecast value) {
+            Map<Location, CachedForecast> update = new EnumMap<>(Location.class);
+            update.put(key, value);
+            CachedForecast previous = get(key);
+            publish(update);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            refreshStates.clear();
+            refreshMetrics.clear();
+            onDemandLocations.clear();
+            lastAccess.clear();
+            snapshot.updateAndGet(ForecastSnapshot::cleared);
+        }
+
+        @Override
+        public Set<Entry<Location, CachedForecast>> entrySet() {
+            return snapshot.get().forecasts().entrySet();
+        }
     }
 }
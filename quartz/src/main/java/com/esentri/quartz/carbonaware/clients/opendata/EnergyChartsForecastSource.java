@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The <a href="https://api.energy-charts.info/">Energy-Charts Open Data API</a> as {@link ForecastSource}. The
+ * requests are configured with the {@link EnergyChartsForecastProvider}, to which the source is bound: they are
+ * conditional, incremental and retried as configured there.
+ *
+ * @author jannisschalk
+ */
+public class EnergyChartsForecastSource implements ForecastSource {
+
+    private final EnergyChartsForecastProvider provider;
+
+    /**
+     * Creates an unbound source, e.g. by the {@link java.util.ServiceLoader}.
+     */
+    public EnergyChartsForecastSource() {
+        this(null);
+    }
+
+    private EnergyChartsForecastSource(EnergyChartsForecastProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public CompletableFuture<ForecastSeries> fetch(Location location, ForecastSeries previous) {
+        if (provider == null) {
+            throw new IllegalStateException("The source is not bound to an EnergyChartsForecastProvider");
+        }
+        return provider.refreshAsync(location, previous);
+    }
+
+    @Override
+    public ForecastSource boundTo(EnergyChartsForecastProvider provider) {
+        return provider == this.provider ? this : new EnergyChartsForecastSource(provider);
+    }
+}
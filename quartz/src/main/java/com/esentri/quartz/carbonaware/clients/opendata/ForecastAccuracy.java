@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Errors of the archived forecasts of a location compared to the measured values, grouped by the horizon of the
+ * forecast and the hour of day of the forecasted data point. The error of a data point is the forecasted minus the
+ * measured value, so a positive mean error means the forecast overestimates the emissions.
+ *
+ * @author jannisschalk
+ * @see ForecastArchive#accuracy(Location, java.time.Instant, java.time.Instant, java.time.ZoneId)
+ */
+public final class ForecastAccuracy {
+
+    private static final int HOURS_OF_DAY = 24;
+
+    private final Location location;
+    private final SortedMap<Integer, Accumulator[]> accumulators = new TreeMap<>();
+
+    ForecastAccuracy(Location location) {
+        this.location = location;
+    }
+
+    /**
+     * Adds the error of a forecasted data point.
+     *
+     * @param horizonInHours Full hours between the issue of the forecast and the data point
+     * @param hourOfDay      Hour of day of the data point
+     * @param error          Forecasted minus measured value
+     */
+    void add(int horizonInHours, int hourOfDay, double error) {
+        Accumulator[] hours = accumulators.computeIfAbsent(horizonInHours, key -> new Accumulator[HOURS_OF_DAY]);
+        if (hours[hourOfDay] == null) {
+            hours[hourOfDay] = new Accumulator();
+        }
+        hours[hourOfDay].add(error);
+    }
+
+    public Location location() {
+        return location;
+    }
+
+    /**
+     * @return the errors of all forecasted data points
+     */
+    public ErrorStatistics overall() {
+        Accumulator total = new Accumulator();
+        accumulators.values().forEach(hours -> addAll(total, hours));
+        return total.statistics();
+    }
+
+    /**
+     * @return the errors by the full hours between the issue of the forecast and the data point
+     */
+    public SortedMap<Integer, ErrorStatistics> byHorizon() {
+        SortedMap<Integer, ErrorStatistics> statistics = new TreeMap<>();
+        accumulators.forEach((horizon, hours) -> {
+            Accumulator total = new Accumulator();
+            addAll(total, hours);
+            statistics.put(horizon, total.statistics());
+        });
+        return Collections.unmodifiableSortedMap(statistics);
+    }
+
+    /**
+     * @return the errors by the hour of day of the data point, only hours with data points are contained
+     */
+    public SortedMap<Integer, ErrorStatistics> byHourOfDay() {
+        Accumulator[] totals = new Accumulator[HOURS_OF_DAY];
+        for (Accumulator[] hours : accumulators.values()) {
+            for (int hour = 0; hour < HOURS_OF_DAY; hour++) {
+                if (hours[hour] != null) {
+                    if (totals[hour] == null) {
+                        totals[hour] = new Accumulator();
+                    }
+                    totals[hour].add(hours[hour]);
+                }
+            }
+        }
+        SortedMap<Integer, ErrorStatistics> statistics = new TreeMap<>();
+        for (int hour = 0; hour < HOURS_OF_DAY; hour++) {
+            if (totals[hour] != null) {
+                statistics.put(hour, totals[hour].statistics());
+            }
+        }
+        return Collections.unmodifiableSortedMap(statistics);
+    }
+
+    /**
+     * @param horizonInHours Full hours between the issue of the forecast and the data point
+     * @param hourOfDay      Hour of day of the data point
+     * @return the errors of the data points with the horizon and hour of day, with a count of 0 if there are none
+     */
+    public ErrorStatistics of(int horizonInHours, int hourOfDay) {
+        Accumulator[] hours = accumulators.get(horizonInHours);
+        Accumulator accumulator = hours == null || hourOfDay < 0 || hourOfDay >= HOURS_OF_DAY
+                ? null
+                : hours[hourOfDay];
+        return accumulator == null ? ErrorStatistics.NONE : accumulator.statistics();
+    }
+
+    private static void addAll(Accumulator total, Accumulator[] hours) {
+        for (Accumulator accumulator : hours) {
+            if (accumulator != null) {
+                total.add(accumulator);
+            }
+        }
+    }
+
+    /**
+     * @param count               Number of forecasted data points with a measured value
+     * @param meanError           Mean of the forecasted minus the measured values, the bias of the forecast
+     * @param meanAbsoluteError   Mean of the absolute errors
+     * @param rootMeanSquareError Root of the mean of the squared errors
+     */
+    public record ErrorStatistics(long count, double meanError, double meanAbsoluteError, double rootMeanSquareError) {
+
+        static final ErrorStatistics NONE = new ErrorStatistics(0, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    private static final class Accumulator {
+
+        private long count;
+        private double sum;
+        private double absoluteSum;
+        private double squareSum;
+
+        void add(double error) {
+            count++;
+            sum += error;
+            absoluteSum += Math.abs(error);
+            squareSum += error * error;
+        }
+
+        void add(Accumulator other) {
+            count += other.count;
+            sum += other.sum;
+            absoluteSum += other.absoluteSum;
+            squareSum += other.squareSum;
+        }
+
+        ErrorStatistics statistics() {
+            if (count == 0) {
+                return ErrorStatistics.NONE;
+            }
+            return new ErrorStatistics(count, sum / count, absoluteSum / count, Math.sqrt(squareSum / count));
+        }
+    }
+}
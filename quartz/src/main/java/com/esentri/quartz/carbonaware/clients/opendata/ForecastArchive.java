@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only archive of every refreshed forecast next to the measured values, which arrive later. It keeps years of
+ * history to judge the accuracy of the forecasts by location, horizon and hour of day, see
+ * {@link #accuracy(Location, Instant, Instant, ZoneId)}.
+ * <p>
+ * The archive is a directory of memory mapped segment files with a fixed size. Each segment starts with a magic and
+ * a format version, followed by records of little endian fields: the length of the record, a CRC32 checksum, the
+ * kind of the record (forecast or measured values), the location code, the issue time of the forecast, the number of
+ * data points and the data points compressed by the {@link GorillaCodec}. The length is written last, so a record
+ * interrupted by a crash is ignored and overwritten by the next record. A full segment is continued by a new one.
+ * <p>
+ * A forecast, which adds no new or changed data point to the last archived forecast of its location, is not archived
+ * again. Measured values are archived once, later corrections of archived values are ignored.
+ *
+ * @author jannisschalk
+ */
+public final class ForecastArchive implements Closeable {
+
+    /**
+     * Default size of a segment file, which holds months of forecasts of a location
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForecastArchive.class);
+    private static final int MAGIC = 0x43414641; // "CAFA"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "forecast-archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final byte FORECAST = 0;
+    private static final byte ACTUAL = 1;
+    private static final long SECONDS_PER_HOUR = 3600;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Path> segments = new ArrayList<>();
+    private final Map<Location, Long> lastActualEpochSeconds = new EnumMap<>(Location.class);
+    private final Map<Location, DataPoints> lastForecasts = new EnumMap<>(Location.class);
+    private FileChannel channel;
+    private MappedByteBuffer current;
+    private boolean closed;
+
+    private ForecastArchive(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the archive in the given directory with segments of the {@link #DEFAULT_SEGMENT_SIZE default size}.
+     *
+     * @param directory the directory of the segment files, which is created if it does not exist
+     * @return the opened archive
+     * @throws IOException if the directory or its segments can not be opened
+     */
+    public static ForecastArchive open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the archive in the given directory. New records are appended to the last segment.
+     *
+     * @param directory   the directory of the segment files, which is created if it does not exist
+     * @param segmentSize the size of new segment files in bytes
+     * @return the opened archive
+     * @throws IOException if the directory or its segments can not be opened
+     */
+    public static ForecastArchive open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("The segment size is too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        ForecastArchive archive = new ForecastArchive(directory, segmentSize);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(archive.segments::add);
+        }
+        int end = 0;
+        for (Path segment : archive.segments) {
+            end = archive.scan(segment, Integer.MAX_VALUE, archive::recover);
+        }
+        if (archive.segments.isEmpty()) {
+            archive.startSegment(0);
+        } else {
+            Path last = archive.segments.get(archive.segments.size() - 1);
+            archive.channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            archive.current = archive.channel.map(FileChannel.MapMode.READ_WRITE, 0, archive.channel.size());
+            archive.current.order(ByteOrder.LITTLE_ENDIAN).position(end);
+        }
+        return archive;
+    }
+
+    /**
+     * Archives the measured values of a location, which are newer than the last archived measured value.
+     *
+     * @param location     The location of the values
+     * @param epochSeconds Timestamps of the data points
+     * @param values       Measured values, {@link Double#NaN} if missing
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void appendActuals(Location location, long[] epochSeconds, double[] values) throws IOException {
+        long after = lastActualEpochSeconds.getOrDefault(location, Long.MIN_VALUE);
+        DataPoints points = DataPoints.of(epochSeconds, values, after);
+        if (points.size() == 0) {
+            return;
+        }
+        append(ACTUAL, location, Long.MIN_VALUE, points);
+        lastActualEpochSeconds.put(location, points.epochSeconds()[points.size() - 1]);
+    }
+
+    /**
+     * Archives a forecast of a location. Data points before the issue time are not part of the forecast and
+     * skipped.
+     *
+     * @param location     The location of the forecast
+     * @param issuedAt     Time, when the forecast has been fetched
+     * @param epochSeconds Timestamps of the data points
+     * @param values       Forecasted values, {@link Double#NaN} if missing
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void appendForecast(Location location,
+                                            Instant issuedAt,
+                                            long[] epochSeconds,
+                                            double[] values) throws IOException {
+        DataPoints points = DataPoints.of(epochSeconds, values, issuedAt.getEpochSecond() - 1);
+        if (points.size() == 0) {
+            return;
+        }
+        DataPoints last = lastForecasts.get(location);
+        if (last != null && last.contains(points)) {
+            LOGGER.debug("Forecast of location {} has not changed and is not archived again", location);
+            return;
+        }
+        append(FORECAST, location, issuedAt.getEpochSecond(), points);
+        lastForecasts.put(location, points);
+    }
+
+    /**
+     * Compares the archived forecasts of a location with the archived measured values. Only data points with a
+     * measured value are compared.
+     *
+     * @param location The location
+     * @param from     Start of the forecasted data points, inclusive
+     * @param to       End of the forecasted data points, exclusive
+     * @param zone     Time zone of the hour of day
+     * @return the errors of the forecasts
+     * @throws IOException if a segment can not be read
+     */
+    public ForecastAccuracy accuracy(Location location, Instant from, Instant to, ZoneId zone) throws IOException {
+        List<Path> readable;
+        int currentEnd;
+        synchronized (this) {
+            ensureOpen();
+            readable = List.copyOf(segments);
+            currentEnd = current.position();
+        }
+        long fromEpochSecond = from.getEpochSecond();
+        long toEpochSecond = to.getEpochSecond();
+
+        Map<Long, Double> actuals = new HashMap<>();
+        forEachRecord(readable, currentEnd, (kind, recordLocation, issuedEpochSecond, points) -> {
+            if (kind == ACTUAL && recordLocation == location) {
+                for (int i = 0; i < points.size(); i++) {
+                    long epochSecond = points.epochSeconds()[i];
+                    if (epochSecond >= fromEpochSecond && epochSecond < toEpochSecond) {
+                        actuals.put(epochSecond, points.values()[i]);
+                    }
+                }
+            }
+        });
+
+        ForecastAccuracy accuracy = new ForecastAccuracy(location);
+        forEachRecord(readable, currentEnd, (kind, recordLocation, issuedEpochSecond, points) -> {
+            if (kind != FORECAST || recordLocation != location) {
+                return;
+            }
+            for (int i = 0; i < points.size(); i++) {
+                long epochSecond = points.epochSeconds()[i];
+                Double actual = actuals.get(epochSecond);
+                if (actual == null || epochSecond < issuedEpochSecond) {
+                    continue;
+                }
+                int horizon = (int) ((epochSecond - issuedEpochSecond) / SECONDS_PER_HOUR);
+                int hourOfDay = Instant.ofEpochSecond(epochSecond).atZone(zone).getHour();
+                accuracy.add(horizon, hourOfDay, points.values()[i] - actual);
+            }
+        });
+        return accuracy;
+    }
+
+    /**
+     * @return the segment files of the archive, oldest first
+     */
+    public synchronized List<Path> getSegments() {
+        return List.copyOf(segments);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current.force();
+        channel.close();
+    }
+
+    private void append(byte kind, Location location, long issuedEpochSecond, DataPoints points) throws IOException {
+        ensureOpen();
+        byte[] payload = GorillaCodec.encode(points.epochSeconds(), points.values(), points.size());
+        byte[] code = location.getCode().getBytes(StandardCharsets.US_ASCII);
+        int bodyLength = 1 + 1 + code.length + 8 + 4 + payload.length;
+        if (current.remaining() < RECORD_HEADER_SIZE + bodyLength) {
+            current.force();
+            channel.close();
+            startSegment(RECORD_HEADER_SIZE + bodyLength);
+        }
+        int position = current.position();
+        ByteBuffer body = current.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                .position(position + RECORD_HEADER_SIZE);
+        body.put(kind).put((byte) code.length).put(code).putLong(issuedEpochSecond).putInt(points.size()).put(payload);
+        current.putInt(position + 4, (int) checksum(body.flip().position(position + RECORD_HEADER_SIZE)));
+        // the length commits the record
+        current.putInt(position, bodyLength);
+        current.position(position + RECORD_HEADER_SIZE + bodyLength);
+    }
+
+    private void startSegment(int minimumRecordSize) throws IOException {
+        int number = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        Path segment = directory.resolve("%s%08d%s".formatted(SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        current = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(segmentSize, SEGMENT_HEADER_SIZE + minimumRecordSize));
+        current.order(ByteOrder.LITTLE_ENDIAN);
+        current.putInt(MAGIC).putInt(FORMAT_VERSION);
+        segments.add(segment);
+    }
+
+    /**
+     * Restores the state of the appends from a record of an existing segment.
+     */
+    private void recover(byte kind, Location location, long issuedEpochSecond, DataPoints points) {
+        if (location == null || points.size() == 0) {
+            return;
+        }
+        if (kind == ACTUAL) {
+            lastActualEpochSeconds.merge(location, points.epochSeconds()[points.size() - 1], Math::max);
+        } else {
+            lastForecasts.put(location, points);
+        }
+    }
+
+    private void forEachRecord(List<Path> readable, int currentEnd, RecordVisitor visitor) throws IOException {
+        for (int i = 0; i < readable.size(); i++) {
+            scan(readable.get(i), i == readable.size() - 1 ? currentEnd : Integer.MAX_VALUE, visitor);
+        }
+    }
+
+    /**
+     * Visits the valid records of a segment up to the given end.
+     *
+     * @return the end of the last valid record
+     */
+    private int scan(Path segment, int end, RecordVisitor visitor) throws IOException {
+        try (FileChannel reader = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(Math.min(buffer.limit(), end));
+            if (buffer.remaining() < SEGMENT_HEADER_SIZE
+                    || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format of forecast archive segment " + segment);
+            }
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int position = buffer.position();
+                int bodyLength = buffer.getInt(position);
+                if (bodyLength <= 0 || bodyLength > buffer.remaining() - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                        .position(position + RECORD_HEADER_SIZE)
+                        .limit(position + RECORD_HEADER_SIZE + bodyLength);
+                if ((int) checksum(body) != buffer.getInt(position + 4)) {
+                    LOGGER.warn("Forecast archive segment {} is corrupted at position {}, the rest of it is ignored",
+                            segment, position);
+                    break;
+                }
+                try {
+                    visitRecord(body, visitor);
+                } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                    throw new IOException("Corrupted record in forecast archive segment " + segment, e);
+                }
+                buffer.position(position + RECORD_HEADER_SIZE + bodyLength);
+            }
+            return buffer.position();
+        }
+    }
+
+    private static void visitRecord(ByteBuffer body, RecordVisitor visitor) {
+        byte kind = body.get();
+        byte[] code = new byte[body.get() & 0xFF];
+        body.get(code);
+        long issuedEpochSecond = body.getLong();
+        int size = body.getInt();
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid number of data points: " + size);
+        }
+        Location location;
+        try {
+            location = Location.fromCode(new String(code, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            // written by a version supporting more locations
+            location = null;
+        }
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        GorillaCodec.decode(body, size, epochSeconds, values);
+        visitor.visit(kind, location, issuedEpochSecond, new DataPoints(epochSeconds, values, size));
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The forecast archive in " + directory + " is closed");
+        }
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte kind, Location location, long issuedEpochSecond, DataPoints points);
+    }
+
+    /**
+     * Data points of a record, the arrays may be longer than the number of data points.
+     */
+    private record DataPoints(long[] epochSeconds, double[] values, int size) {
+
+        /**
+         * @return the data points after the given time with a value
+         */
+        static DataPoints of(long[] epochSeconds, double[] values, long afterEpochSecond) {
+            int length = Math.min(epochSeconds.length, values.length);
+            long[] keptEpochSeconds = new long[length];
+            double[] keptValues = new double[length];
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                if (epochSeconds[i] > afterEpochSecond && !Double.isNaN(values[i])) {
+                    keptEpochSeconds[size] = epochSeconds[i];
+                    keptValues[size] = values[i];
+                    size++;
+                }
+            }
+            return new DataPoints(keptEpochSeconds, keptValues, size);
+        }
+
+        /**
+         * @return true if each of the other data points is one of these data points
+         */
+        boolean contains(DataPoints other) {
+            int i = 0;
+            for (int j = 0; j < other.size; j++) {
+                while (i < size && epochSeconds[i] < other.epochSeconds[j]) {
+                    i++;
+                }
+                if (i == size || epochSeconds[i] != other.epochSeconds[j]
+                        || Double.doubleToLongBits(values[i]) != Double.doubleToLongBits(other.values[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service provider interface of an upstream source of carbon intensity forecasts. The
+ * {@link EnergyChartsForecastProvider} fetches the forecast of each location from the sources registered for it in
+ * the {@link ForecastSourceRegistry} and fills its cache with the result.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} and have to be registered under
+ * {@code META-INF/services/com.esentri.quartz.carbonaware.clients.opendata.ForecastSource}. They are referenced in
+ * the configuration by their simple or fully qualified class name.
+ *
+ * @author jannisschalk
+ */
+public interface ForecastSource {
+
+    /**
+     * Fetches the forecast of a location. The fetch must not block the calling thread.
+     *
+     * @param location The location of the forecast
+     * @param previous The cached series of the location, or null if there is none
+     * @return the series of the location, or the previous series itself if the data has not been modified since.
+     * Completes exceptionally with an {@link java.io.IOException}, if the forecast can not be fetched.
+     */
+    CompletableFuture<ForecastSeries> fetch(Location location, ForecastSeries previous);
+
+    /**
+     * Binds the source to the provider, which fetches from it. Sources, which depend on the state of the provider,
+     * return a copy bound to it.
+     *
+     * @param provider The provider fetching from the source
+     * @return the source bound to the provider, by default this source
+     */
+    default ForecastSource boundTo(EnergyChartsForecastProvider provider) {
+        return this;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.util.ServiceProviders;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Registers the {@link ForecastSource}s of each location with a priority. A source registered for all locations is
+ * used for every location in addition to the sources registered for the location. The sources of a location are
+ * ordered by priority, a lower number has a higher priority. If a location has several sources, they are combined
+ * with a {@link CompositeForecastSource}.
+ *
+ * @author jannisschalk
+ */
+public final class ForecastSourceRegistry {
+
+    private static final String ALL_LOCATIONS = "*";
+
+    private final CompositeForecastSource.Strategy strategy;
+    private final List<Registration> defaultRegistrations = new CopyOnWriteArrayList<>();
+    private final Map<Location, List<Registration>> locationRegistrations = new ConcurrentHashMap<>();
+    private final Map<Location, ForecastSource> resolvedSources = new ConcurrentHashMap<>();
+
+    /**
+     * @param strategy How the responses of several sources of a location are combined
+     */
+    public ForecastSourceRegistry(CompositeForecastSource.Strategy strategy) {
+        this.strategy = Objects.requireNonNull(strategy);
+    }
+
+    /**
+     * @return a registry, which fetches all locations from the Energy-Charts API
+     */
+    public static ForecastSourceRegistry energyChartsOnly() {
+        return new ForecastSourceRegistry(CompositeForecastSource.Strategy.FIRST_HEALTHY)
+                .register(new EnergyChartsForecastSource(), 0);
+    }
+
+    /**
+     * Creates a registry from a configuration like {@code de=CsvForecastSource,EnergyChartsForecastSource;*=EnergyChartsForecastSource}.
+     * Each entry assigns sources to a location, {@code *} assigns them to all locations. The sources are referenced by
+     * the simple or fully qualified name of their class and discovered with {@link ServiceLoader}. The position of a
+     * source in its entry is its priority. Without an entry for all locations, the Energy-Charts API is used for all
+     * locations with the lowest priority.
+     *
+     * @param configuration The sources of the locations
+     * @param strategy      How the responses of several sources of a location are combined
+     * @return the registry of the configured sources
+     * @throws IllegalArgumentException if the configuration is invalid
+     * @throws IllegalStateException    if a source is not registered as service provider
+     */
+    public static ForecastSourceRegistry fromConfiguration(String configuration,
+                                                           CompositeForecastSource.Strategy strategy) {
+        ForecastSourceRegistry registry = new ForecastSourceRegistry(strategy);
+        Map<String, ForecastSource> sources = new HashMap<>();
+        boolean allLocationsConfigured = false;
+        for (String entry : configuration.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] keyAndSources = entry.split("=", 2);
+            if (keyAndSources.length != 2) {
+                throw new IllegalArgumentException("Invalid forecast source entry '%s', expected <location>=<sources>"
+                        .formatted(entry.strip()));
+            }
+            String key = keyAndSources[0].strip();
+            Location location = ALL_LOCATIONS.equals(key) ? null : Location.fromCode(key);
+            allLocationsConfigured |= location == null;
+            int priority = 0;
+            for (String name : keyAndSources[1].split(",")) {
+                if (name.isBlank()) {
+                    continue;
+                }
+                ForecastSource source = sources.computeIfAbsent(name.strip(),
+                        sourceName -> ServiceProviders.load(ForecastSource.class, sourceName));
+                if (location == null) {
+                    registry.register(source, priority++);
+                } else {
+                    registry.register(location, source, priority++);
+                }
+            }
+        }
+        if (!allLocationsConfigured) {
+            registry.register(sources.computeIfAbsent(EnergyChartsForecastSource.class.getSimpleName(),
+                    name -> new EnergyChartsForecastSource()), Integer.MAX_VALUE);
+        }
+        return registry;
+    }
+
+    /**
+     * Registers a source for all locations.
+     *
+     * @param source   The source
+     * @param priority The priority, a lower number has a higher priority
+     * @return this registry
+     */
+    public ForecastSourceRegistry register(ForecastSource source, int priority) {
+        defaultRegistrations.add(new Registration(Objects.requireNonNull(source), priority));
+        resolvedSources.clear();
+        return this;
+    }
+
+    /**
+     * Registers a source for a single location.
+     *
+     * @param location The location
+     * @param source   The source
+     * @param priority The priority, a lower number has a higher priority
+     * @return this registry
+     */
+    public ForecastSourceRegistry register(Location location, ForecastSource source, int priority) {
+        locationRegistrations.computeIfAbsent(location, key -> new CopyOnWriteArrayList<>())
+                .add(new Registration(Objects.requireNonNull(source), priority));
+        resolvedSources.clear();
+        return this;
+    }
+
+    /**
+     * @param location The location
+     * @return the sources of the location ordered by priority, highest first. Sources with the same priority are
+     * ordered by registration, sources of the location first.
+     */
+    public List<ForecastSource> sourcesOf(Location location) {
+        List<Registration> registrations = new ArrayList<>(locationRegistrations.getOrDefault(location, List.of()));
+        registrations.addAll(defaultRegistrations);
+        registrations.sort(Comparator.comparingInt(Registration::priority));
+        return registrations.stream().map(Registration::source).distinct().toList();
+    }
+
+    /**
+     * @param location The location
+     * @return the source to fetch the location from, combining several sources
+     * @throws IllegalStateException if no source is registered for the location
+     */
+    public ForecastSource sourceOf(Location location) {
+        return resolvedSources.computeIfAbsent(location, key -> {
+            List<ForecastSource> sources = sourcesOf(key);
+            if (sources.isEmpty()) {
+                throw new IllegalStateException("No forecast source is registered for location " + key);
+            }
+            return sources.size() == 1 ? sources.get(0) : new CompositeForecastSource(sources, strategy);
+        });
+    }
+
+    /**
+     * @param provider The provider fetching from the sources
+     * @return a copy of this registry with all sources {@link ForecastSource#boundTo(EnergyChartsForecastProvider)
+     * bound} to the provider
+     */
+    public ForecastSourceRegistry boundTo(EnergyChartsForecastProvider provider) {
+        ForecastSourceRegistry bound = new ForecastSourceRegistry(strategy);
+        // a source registered several times stays a single source
+        Map<ForecastSource, ForecastSource> boundSources = new IdentityHashMap<>();
+        Function<Registration, Registration> bind = registration -> new Registration(
+                boundSources.computeIfAbsent(registration.source(), source -> source.boundTo(provider)),
+                registration.priority());
+        defaultRegistrations.stream().map(bind).forEach(bound.defaultRegistrations::add);
+        locationRegistrations.forEach((location, registrations) -> bound.locationRegistrations.put(location,
+                registrations.stream().map(bind).collect(Collectors.toCollection(CopyOnWriteArrayList::new))));
+        return bound;
+    }
+
+    public CompositeForecastSource.Strategy getStrategy() {
+        return strategy;
+    }
+
+    private record Registration(ForecastSource source, int priority) {
+    }
+}
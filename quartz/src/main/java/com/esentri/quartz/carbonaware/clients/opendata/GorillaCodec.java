@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses data points like the Gorilla time series database: the first timestamp and value are stored raw, every
+ * following timestamp as the difference of its delta to the previous delta, every following value as XOR with the
+ * previous value. A series with a constant step takes a single bit per timestamp, a repeated value a single bit, so
+ * a forecast takes a few bytes per data point.
+ * <p>
+ * Delta of deltas are stored with a variable length prefix:
+ * <ul>
+ *     <li>{@code 0}: zero</li>
+ *     <li>{@code 10} and 7 bits: [-63, 64]</li>
+ *     <li>{@code 110} and 9 bits: [-255, 256]</li>
+ *     <li>{@code 1110} and 12 bits: [-2047, 2048]</li>
+ *     <li>{@code 1111} and 64 bits: any other</li>
+ * </ul>
+ * A XOR of zero is stored as {@code 0}. Otherwise, {@code 10} stores the meaningful bits within the leading and
+ * trailing zeros of the previous value, {@code 11} stores 5 bits of leading zeros, 6 bits of the number of
+ * meaningful bits and the meaningful bits.
+ *
+ * @author jannisschalk
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+        // hide default public constructor
+    }
+
+    /**
+     * @param epochSeconds Timestamps of the data points
+     * @param values       Values of the data points
+     * @param size         Number of data points to encode
+     * @return the encoded data points
+     */
+    static byte[] encode(long[] epochSeconds, double[] values, int size) {
+        BitWriter out = new BitWriter(size * 2 + 16);
+        if (size == 0) {
+            return out.toByteArray();
+        }
+        long previousEpochSecond = epochSeconds[0];
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        out.writeBits(previousEpochSecond, 64);
+        out.writeBits(previousBits, 64);
+
+        long previousDelta = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < size; i++) {
+            long delta = epochSeconds[i] - previousEpochSecond;
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previousDelta = delta;
+            previousEpochSecond = epochSeconds[i];
+
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+            previousBits = bits;
+            if (xor == 0) {
+                out.writeBit(0);
+                continue;
+            }
+            out.writeBit(1);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                out.writeBit(0);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                out.writeBit(1);
+                out.writeBits(leading, 5);
+                // 64 meaningful bits do not fit into 6 bits and are stored as 0
+                out.writeBits(meaningful & 63, 6);
+                out.writeBits(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes data points encoded by {@link #encode(long[], double[], int)}.
+     *
+     * @param buffer       The buffer of the encoded data points, starting at its position
+     * @param size         Number of encoded data points
+     * @param epochSeconds Receives the timestamps of the data points
+     * @param values       Receives the values of the data points
+     * @throws IndexOutOfBoundsException if the buffer holds less data points
+     */
+    static void decode(ByteBuffer buffer, int size, long[] epochSeconds, double[] values) {
+        if (size == 0) {
+            return;
+        }
+        BitReader in = new BitReader(buffer);
+        long epochSecond = in.readBits(64);
+        long bits = in.readBits(64);
+        epochSeconds[0] = epochSecond;
+        values[0] = Double.longBitsToDouble(bits);
+
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < size; i++) {
+            delta += readDeltaOfDelta(in);
+            epochSecond += delta;
+            epochSeconds[i] = epochSecond;
+
+            if (in.readBit() == 1) {
+                if (in.readBit() == 1) {
+                    leading = (int) in.readBits(5);
+                    int meaningful = (int) in.readBits(6);
+                    trailing = 64 - leading - (meaningful == 0 ? 64 : meaningful);
+                }
+                bits ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(bits);
+        }
+    }
+
+    private static void writeDeltaOfDelta(BitWriter out, long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            out.writeBit(0);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(deltaOfDelta + 2047, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (in.readBit() == 0) {
+            return 0;
+        }
+        if (in.readBit() == 0) {
+            return in.readBits(7) - 63;
+        }
+        if (in.readBit() == 0) {
+            return in.readBits(9) - 255;
+        }
+        if (in.readBit() == 0) {
+            return in.readBits(12) - 2047;
+        }
+        return in.readBits(64);
+    }
+
+    /**
+     * Appends bits to a growing byte array, most significant bit first.
+     */
+    private static final class BitWriter {
+
+        private byte[] bytes;
+        private int bitLength;
+
+        BitWriter(int initialCapacity) {
+            bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        void writeBit(int bit) {
+            writeBits(bit, 1);
+        }
+
+        /**
+         * Writes the given number of low bits of the value.
+         */
+        void writeBits(long value, int count) {
+            while (count > 0) {
+                int index = bitLength >>> 3;
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                int free = 8 - (bitLength & 7);
+                int written = Math.min(free, count);
+                int chunk = (int) (value >>> (count - written)) & ((1 << written) - 1);
+                bytes[index] |= (byte) (chunk << (free - written));
+                count -= written;
+                bitLength += written;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (bitLength + 7) >>> 3);
+        }
+    }
+
+    /**
+     * Reads bits from a buffer, most significant bit first, without moving its position.
+     */
+    private static final class BitReader {
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private int bitPosition;
+
+        BitReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.start = buffer.position();
+        }
+
+        int readBit() {
+            return (int) readBits(1);
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            while (count > 0) {
+                int available = 8 - (bitPosition & 7);
+                int read = Math.min(available, count);
+                int current = buffer.get(start + (bitPosition >>> 3)) & 0xFF;
+                value = (value << read) | ((current >>> (available - read)) & ((1 << read) - 1));
+                count -= read;
+                bitPosition += read;
+            }
+            return value;
+        }
+    }
+}
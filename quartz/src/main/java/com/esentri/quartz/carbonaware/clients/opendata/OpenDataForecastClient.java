@@ -6,20 +6,20 @@
 package com.esentri.quartz.carbonaware.clients.opendata;
 
 import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
 import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
 import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
 import com.esentri.quartz.carbonaware.entity.EmissionData;
 import com.esentri.quartz.carbonaware.entity.EmissionForecast;
 import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.*;
 
 /**
  * Default Client implementation of the interface {@link CarbonForecastApi} for retrieving carbon
@@ -28,6 +28,24 @@ import java.util.stream.Collectors;
  * and time windows. Uses cached forecast data from {@link EnergyChartsForecastProvider}
  * to reduce rest-calls during execution. This reduces the carbon intensity of carbon-aware-scheduler.
  * Precondition to use this class is that the {@link EnergyChartsForecastProvider} is initialized
+ * <p>
+ * The provider is resolved from the {@link org.quartz.SchedulerContext} of the scheduler, whose name the client has
+ * been created with by {@link #forScheduler(String)}. A client without scheduler name uses the provider of the only
+ * scheduler of the JVM, which has one, or if several schedulers have one, the provider serving the requested location
+ * (see {@link EnergyChartsForecastProvider#serving(Location)}). The provider is resolved on the first request of a
+ * location and again after it has been {@link EnergyChartsForecastProvider#shutdown() shut down} with its scheduler.
+ * It is never serialized with the client.
+ * <p>
+ * Each request reads all locations from the same {@link ForecastSnapshot}. A client created with
+ * {@link #OpenDataForecastClient(ForecastSnapshot)} answers all requests with the pinned snapshot, so plans computed
+ * across several requests are consistent.
+ * <p>
+ * Forecasts, which have not been confirmed by a successful refresh for longer than the maximum staleness, are
+ * rejected like missing forecasts. Without a maximum staleness of the client, the one configured with
+ * {@link EnergyChartsForecastProvider#configureMaximumStaleness(Duration)} applies.
+ * <p>
+ * A client without pinned snapshot requests locations, which the provider has not been initialized with, from the
+ * provider on first use, if its on-demand loading is enabled.
  *
  * @author jannisschalk
  */
@@ -36,6 +54,78 @@ public class OpenDataForecastClient implements CarbonForecastApi {
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenDataForecastClient.class);
     public static final String MSG_NO_FORECAST_AVAILABLE = "No forecast available for location [%s]";
 
+    private final String schedulerName;
+    private final transient EnergyChartsForecastProvider provider;
+    private final transient ForecastSnapshot pinnedSnapshot;
+    private final Duration maximumStaleness;
+
+    // providers of the scheduler by location, resolved on first use and again after the scheduler has been shut down
+    private transient volatile Map<Location, EnergyChartsForecastProvider> resolvedProviders;
+
+    /**
+     * Creates a client reading the latest forecasts of the {@link EnergyChartsForecastProvider}.
+     */
+    public OpenDataForecastClient() {
+        this((ForecastSnapshot) null);
+    }
+
+    /**
+     * Creates a client reading the forecasts of a pinned snapshot.
+     *
+     * @param pinnedSnapshot the snapshot to read, e.g. {@link EnergyChartsForecastProvider#getSnapshot()}, or null
+     *                       to read the latest forecasts
+     */
+    public OpenDataForecastClient(ForecastSnapshot pinnedSnapshot) {
+        this(pinnedSnapshot, null);
+    }
+
+    /**
+     * Creates a client with its own staleness policy.
+     *
+     * @param pinnedSnapshot   the snapshot to read, or null to read the latest forecasts
+     * @param maximumStaleness the maximum time since the last successful refresh of a served forecast, or null to
+     *                         apply the maximum staleness of the {@link EnergyChartsForecastProvider}
+     */
+    public OpenDataForecastClient(ForecastSnapshot pinnedSnapshot, Duration maximumStaleness) {
+        this(null, null, pinnedSnapshot, maximumStaleness);
+    }
+
+    /**
+     * Creates a client reading the forecasts of the given provider instead of the one of a scheduler. The provider is
+     * not serialized with the client.
+     *
+     * @param provider         the provider to read
+     * @param pinnedSnapshot   the snapshot of the provider to read, or null to read the latest forecasts
+     * @param maximumStaleness the maximum time since the last successful refresh of a served forecast, or null to
+     *                         apply the maximum staleness of the provider
+     */
+    public OpenDataForecastClient(EnergyChartsForecastProvider provider,
+                                  ForecastSnapshot pinnedSnapshot,
+                                  Duration maximumStaleness) {
+        this(null, Objects.requireNonNull(provider), pinnedSnapshot, maximumStaleness);
+    }
+
+    private OpenDataForecastClient(String schedulerName,
+                                   EnergyChartsForecastProvider provider,
+                                   ForecastSnapshot pinnedSnapshot,
+                                   Duration maximumStaleness) {
+        this.schedulerName = schedulerName;
+        this.provider = provider;
+        this.pinnedSnapshot = pinnedSnapshot;
+        this.maximumStaleness = maximumStaleness;
+    }
+
+    /**
+     * Creates a client reading the latest forecasts of the {@link EnergyChartsForecastProvider} bound to a scheduler.
+     * It is required, if several schedulers of the JVM have a provider.
+     *
+     * @param schedulerName the name of the scheduler
+     * @return the client of the scheduler
+     */
+    public static OpenDataForecastClient forScheduler(String schedulerName) {
+        return new OpenDataForecastClient(Objects.requireNonNull(schedulerName), null, null, null);
+    }
+
     /**
      * Retrieves emission forecasts for specified locations and time window.
      *
@@ -53,40 +143,177 @@ public class OpenDataForecastClient implements CarbonForecastApi {
             LocalDateTime dataEndAt,
             Integer windowSize) {
         var result = new ArrayList<EmissionForecast>();
+        Map<EnergyChartsForecastProvider, ForecastSnapshot> snapshots = new IdentityHashMap<>();
 
         for (String locationCode : locations) {
             Location location = Location.fromCode(locationCode);
+            EnergyChartsForecastProvider provider = provider(location);
+            ForecastSnapshot snapshot = snapshots.computeIfAbsent(provider, this::snapshot);
+            CachedForecast forecast = forecastOf(provider, snapshot, location);
+            rejectStaleForecast(provider, location);
+            result.add(computeEmissionForecast(location, forecast, dataStartAt, dataEndAt, windowSize));
+        }
+        return result;
+    }
+
+    /**
+     * Answers all queries from the same snapshot of the cached forecasts, even if the
+     * {@link EnergyChartsForecastProvider} updates its cache meanwhile.
+     *
+     * @param queries the queries to answer
+     * @return the forecast of each distinct query, or an empty list if no forecast is available for the query
+     */
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+        Map<EnergyChartsForecastProvider, ForecastSnapshot> snapshots = new IdentityHashMap<>();
 
-            CachedForecast forecast = EnergyChartsForecastProvider.getForecast(location);
-            rejectInvalidForecastData(dataStartAt, location, forecast);
+        for (ForecastQuery query : queries) {
+            if (result.containsKey(query)) {
+                continue;
+            }
+            try {
+                Location location = Location.fromCode(query.location());
+                EnergyChartsForecastProvider provider = provider(location);
+                ForecastSnapshot snapshot = snapshots.computeIfAbsent(provider, this::snapshot);
+                CachedForecast forecast = forecastOf(provider, snapshot, location);
+                rejectStaleForecast(provider, location);
+                result.put(query, List.of(computeEmissionForecast(
+                        location,
+                        forecast,
+                        query.dataStartAt(),
+                        query.dataEndAt(),
+                        query.windowSize())));
+            } catch (RuntimeException e) {
+                LOGGER.warn("No forecast for query {}: {}", query, e.getMessage());
+                result.put(query, List.of());
+            }
+        }
+        return result;
+    }
 
-            final LocalDateTime finalDataEndAt = determineEndDateBasedOnMaximumForcastDateTime(dataEndAt, forecast);
-            List<CachedForecast.CachedEmissionData> emissionDataRage = trimDataRangeToGivenTimeWindow(
-                    dataStartAt,
-                    finalDataEndAt,
-                    forecast);
+    private static EmissionForecast computeEmissionForecast(Location location,
+                                                            CachedForecast forecast,
+                                                            LocalDateTime dataStartAt,
+                                                            LocalDateTime dataEndAt,
+                                                            Integer windowSize) {
+        rejectInvalidForecastData(dataStartAt, location, forecast);
 
-            EmissionDataImpl optimalEmissionData = findAbsoluteOrAverageMinimalCarbonIntensityWindow(
-                    windowSize,
-                    forecast.emissionData().get(0).duration(), //all durations are equal
-                    emissionDataRage)
+        final LocalDateTime finalDataEndAt = determineEndDateBasedOnMaximumForcastDateTime(dataEndAt, forecast);
+        ForecastSeries series = forecast.series();
+        int from = series.firstIndexAfter(dataStartAt.minusMinutes(series.stepInMinutes())); // start in the current active time window
+        int to = series.firstIndexNotBefore(finalDataEndAt);
 
-                    .orElseThrow(() -> new NoForecastException(MSG_NO_FORECAST_AVAILABLE.formatted(location.getDisplayName())));
+        EmissionDataImpl optimalEmissionData = findAbsoluteOrAverageMinimalCarbonIntensityWindow(
+                windowSize,
+                series.stepInMinutes(), //all durations are equal
+                series,
+                from,
+                Math.max(from, to))
 
+                .orElseThrow(() -> new NoForecastException(MSG_NO_FORECAST_AVAILABLE.formatted(location.getDisplayName())));
 
-            EmissionForecast emissionForecast = buildEmissionForcastObject(dataStartAt, windowSize, location, optimalEmissionData);
+        return buildEmissionForcastObject(dataStartAt, windowSize, location, optimalEmissionData);
+    }
 
-            result.add(emissionForecast);
+    private void rejectStaleForecast(EnergyChartsForecastProvider provider, Location location) {
+        Duration limit = maximumStaleness != null ? maximumStaleness : provider.getMaximumStaleness();
+        if (limit == null) {
+            return;
+        }
+        Duration staleness = provider.getStaleness(location);
+        if (staleness != null && staleness.compareTo(limit) > 0) {
+            throw new NoForecastException("Forecast of location [%s] is stale for %s, which exceeds %s"
+                    .formatted(location.getDisplayName(), staleness, limit));
         }
-        return result;
+    }
+
+    /**
+     * A pinned snapshot is answered as it is. Otherwise, the provider may fetch a location on first use.
+     */
+    private CachedForecast forecastOf(EnergyChartsForecastProvider provider,
+                                      ForecastSnapshot snapshot,
+                                      Location location) {
+        return pinnedSnapshot != null
+                ? snapshot.getForecast(location)
+                : provider.requestForecast(snapshot, location);
+    }
+
+    private ForecastSnapshot snapshot(EnergyChartsForecastProvider provider) {
+        return pinnedSnapshot != null ? pinnedSnapshot : provider.getSnapshot();
+    }
+
+    private EnergyChartsForecastProvider provider(Location location) {
+        if (provider != null) {
+            return provider;
+        }
+        Map<Location, EnergyChartsForecastProvider> resolved = resolvedProviders;
+        if (resolved == null) {
+            resolved = Collections.synchronizedMap(new EnumMap<>(Location.class));
+            resolvedProviders = resolved;
+        }
+        EnergyChartsForecastProvider cached = resolved.get(location);
+        if (cached != null && !cached.isShutdown()) {
+            return cached;
+        }
+        try {
+            EnergyChartsForecastProvider resolvedProvider = schedulerName != null
+                    ? EnergyChartsForecastProvider.ofScheduler(schedulerName)
+                    : EnergyChartsForecastProvider.serving(location);
+            resolved.put(location, resolvedProvider);
+            return resolvedProvider;
+        } catch (IllegalStateException e) {
+            throw new NoForecastException("No forecast provider available: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the name of the scheduler, whose provider the client reads, or null
+     */
+    public String getSchedulerName() {
+        return schedulerName;
+    }
+
+    /**
+     * @return the pinned snapshot, or null if the client reads the latest forecasts
+     */
+    public ForecastSnapshot getPinnedSnapshot() {
+        return pinnedSnapshot;
+    }
+
+    /**
+     * @return the maximum staleness of served forecasts, or null if the one of the
+     * {@link EnergyChartsForecastProvider} applies
+     */
+    public Duration getMaximumStaleness() {
+        return maximumStaleness;
+    }
+
+    /**
+     * All instances reading the latest forecast of the same {@link EnergyChartsForecastProvider} share it and are
+     * therefore equal. Instances with a pinned snapshot are equal, if they pinned the same snapshot. In addition,
+     * equal instances apply the same staleness policy.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && getClass() == o.getClass()
+                && Objects.equals(schedulerName, ((OpenDataForecastClient) o).schedulerName)
+                && provider == ((OpenDataForecastClient) o).provider
+                && pinnedSnapshot == ((OpenDataForecastClient) o).pinnedSnapshot
+                && Objects.equals(maximumStaleness, ((OpenDataForecastClient) o).maximumStaleness);
+    }
+
+    @Override
+    public int hashCode() {
+        return pinnedSnapshot == null ? Objects.hash(getClass(), schedulerName) : Long.hashCode(pinnedSnapshot.version());
     }
 
     private static void rejectInvalidForecastData(LocalDateTime dataStartAt,
                                                   Location location,
                                                   CachedForecast forecast) {
         if (forecast == null
-                || forecast.emissionData() == null
-                || forecast.emissionData().isEmpty()) {
+                || forecast.series() == null
+                || forecast.series().isEmpty()) {
             throw new NoForecastException(MSG_NO_FORECAST_AVAILABLE.formatted(location.getDisplayName()));
         }
         //check start date boundaries
@@ -110,24 +337,16 @@ public class OpenDataForecastClient implements CarbonForecastApi {
         }
     }
 
-    private static List<CachedForecast.CachedEmissionData> trimDataRangeToGivenTimeWindow(LocalDateTime dataStartAt,
-                                                                                          LocalDateTime finalDataEndAt,
-                                                                                          CachedForecast forecast
-    ) {
-        return forecast.emissionData().stream()
-                .filter(data -> data.timestamp().isAfter(dataStartAt.minusMinutes(data.duration()))) // start in the current active time window
-                .filter(data -> data.timestamp().isBefore(finalDataEndAt))
-                .collect(Collectors.toList());
-    }
-
     private static Optional<EmissionDataImpl> findAbsoluteOrAverageMinimalCarbonIntensityWindow(
             Integer windowSize,
             double averageDuration,
-            List<CachedForecast.CachedEmissionData> emissionDataRage) {
+            ForecastSeries series,
+            int from,
+            int to) {
 
         return averageDuration >= windowSize
-                ? findAbsoluteMinimumCarbonIntensity(emissionDataRage)
-                : computeAverageMinimumCarbonIntensityOverMultipleDatapoints(emissionDataRage, windowSize, averageDuration);
+                ? findAbsoluteMinimumCarbonIntensity(series, from, to)
+                : computeAverageMinimumCarbonIntensityOverMultipleDatapoints(series, from, to, windowSize, averageDuration);
 
     }
 
@@ -154,74 +373,55 @@ public class OpenDataForecastClient implements CarbonForecastApi {
     /**
      * Finds the data point with the absolute minimum carbon intensity within the given range.
      *
-     * @param emissionDataRange List of emission data points to search through
+     * @param series The forecast to search through
+     * @param from   Index of the first data point of the range
+     * @param to     Index after the last data point of the range
      * @return Optional containing the data point with minimum carbon intensity, or empty if no data available
      */
-    private static Optional<EmissionDataImpl> findAbsoluteMinimumCarbonIntensity(
-            List<CachedForecast.CachedEmissionData> emissionDataRange
-    ) {
-        Optional<EmissionDataImpl> optimalEmissionData;
-        optimalEmissionData = emissionDataRange.stream()
-                .min(Comparator.comparing(CachedForecast.CachedEmissionData::value))
-                .map(data -> new EmissionDataImpl(data.timestamp(), data.value()));
-        return optimalEmissionData;
+    private static Optional<EmissionDataImpl> findAbsoluteMinimumCarbonIntensity(ForecastSeries series,
+                                                                                 int from,
+                                                                                 int to) {
+        if (from >= to) {
+            return Optional.empty();
+        }
+        int optimalIndex = series.minimumWindowStart(1, from, to - 1);
+        return Optional.of(new EmissionDataImpl(series.timestampAt(optimalIndex), series.valueAt(optimalIndex)));
     }
 
     /**
      * Computes the optimal starting point for execution based on average carbon intensity over multiple data points.
-     * Uses a sliding window approach to find the window with minimum average carbon intensity.
+     * The window with the minimum average carbon intensity is looked up in the index of the {@link ForecastSeries}.
      *
-     * @param data            List of emission data points to analyze
+     * @param series          The forecast to analyze
+     * @param from            Index of the first data point of the range
+     * @param to              Index after the last data point of the range
      * @param windowSize      Size of the time window in minutes
      * @param averageDuration Average duration between data points in minutes
      * @return Optional containing the optimal start point with averaged carbon intensity, or empty if insufficient data
      */
     private static Optional<EmissionDataImpl> computeAverageMinimumCarbonIntensityOverMultipleDatapoints(
-            List<CachedForecast.CachedEmissionData> data,
+            ForecastSeries series,
+            int from,
+            int to,
             long windowSize,
             double averageDuration) {
         double value = windowSize / averageDuration;
         int amountOfDataPoints = (int) Math.floor(value) + (value > Math.floor(value) ? 1 : 0);
+        int size = to - from;
 
         // Check if enough data points are available
-        if (data.size() < amountOfDataPoints) {
+        if (size < amountOfDataPoints) {
             return Optional.empty();
         }
 
-        // Calculate the sum for the first window
-        double currentSum = 0;
-        for (int j = 0; j < amountOfDataPoints; j++) {
-            currentSum += data.get(j).value();
-        }
-
-        // The first window sum is the initial minimum
-        double minimalSum = currentSum;
-        CachedForecast.CachedEmissionData optimalExecutionPoint = data.get(0);
-
         // Trim the possible rage, so the job with the duration of the "windowSize" can be executed before the end date
-        int newSize = data.size() - amountOfDataPoints;
-        if (newSize >= 0) {
-            data = new ArrayList<>(data.subList(0, newSize));
-        }
-
-
-        // Sliding Window Algorithm for the next Data-Points
-        for (int i = 1; i <= data.size() - amountOfDataPoints; i++) {
-            // Subtract the value that leaves the window and add the new value
-            currentSum = currentSum - data.get(i - 1).value() + data.get(i + amountOfDataPoints - 1).value();
+        int lastStart = from + Math.max(0, size - 2 * amountOfDataPoints);
 
-            if (currentSum < minimalSum) {
-                minimalSum = currentSum;
-                optimalExecutionPoint = data.get(i);
-            }
-        }
-        return optimalExecutionPoint == null
-                ? Optional.empty()
-                : Optional.of(new EmissionDataImpl(
-                        optimalExecutionPoint.timestamp(),
-                        minimalSum / amountOfDataPoints
-                )
-        );
+        int optimalExecutionIndex = series.minimumWindowStart(amountOfDataPoints, from, lastStart);
+        return Optional.of(new EmissionDataImpl(
+                series.timestampAt(optimalExecutionIndex),
+                series.windowSum(optimalExecutionIndex, amountOfDataPoints) / amountOfDataPoints
+        ));
 
     }
 
@@ -5,19 +5,32 @@
  */
 package com.esentri.quartz.carbonaware.clients.opendata;
 
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
+import org.quartz.*;
+import org.quartz.impl.matchers.GroupMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.text.ParseException;
+import java.util.*;
+
 /**
  * A Quartz job that periodically updates cached forecast data from OpenData source.
  * This job is scheduled to run multiple times per day at specific hours (8:20, 12:20, 16:20, 18:20, 19:20, 20:20)
  * as defined by {@link #UPDATE_INTERVAL_CRON_PATTERN}.
+ * <p>
+ * In adaptive mode ({@link #ADAPTIVE_REFRESH} in the job data), the job runs every few minutes as defined by
+ * {@link #ADAPTIVE_REFRESH_CRON_PATTERN} and only refreshes the locations, which are due according to the
+ * {@link RefreshSchedule}. The demand of each location is collected from the {@link CarbonAwareCronTrigger}s of the
+ * scheduler, which are tracked by its {@link CarbonAwareTriggerTracker}.
+ * <p>
+ * An update may take longer than the interval of the job, e.g. if the API is slow and requests are retried. The
+ * executions of the job therefore never overlap, so a location is not fetched by several updates at once.
  *
  * @author jannisschalk
  */
+@DisallowConcurrentExecution
 public class OpenDataUpdateJob implements Job {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenDataUpdateJob.class);
@@ -25,17 +38,86 @@ public class OpenDataUpdateJob implements Job {
     public static final String JOB_GROUP_NAME = "carbon-aware-scheduler-core";
     public static final String JOB_NAME = "opendata-update-job";
     public static final String UPDATE_INTERVAL_CRON_PATTERN = "0 20 8,12,16,18,19,20 ? * * *";
+    public static final String ADAPTIVE_REFRESH_CRON_PATTERN = "0 0/5 * ? * * *";
+    /**
+     * Key of the job data, which enables the adaptive mode
+     */
+    public static final String ADAPTIVE_REFRESH = "adaptiveRefresh";
 
     /**
      * Executes the job to update cached forecast data.
-     * Triggers an update of the cached data in {@link EnergyChartsForecastProvider} and logs the completion.
+     * Triggers an update of the cached data in the {@link EnergyChartsForecastProvider} bound to the scheduler and
+     * logs the completion.
      *
      * @param context the JobExecutionContext that contains information about the job's execution
      * @throws JobExecutionException if an error occurs during job execution
      */
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
-        EnergyChartsForecastProvider.updateCachedData();
+        JobDataMap jobData = context.getMergedJobDataMap();
+        EnergyChartsForecastProvider provider;
+        try {
+            provider = EnergyChartsForecastProvider.fromContext(context.getScheduler().getContext());
+        } catch (SchedulerException | IllegalStateException e) {
+            throw new JobExecutionException("Forecast provider of the scheduler can not be resolved", e);
+        }
+        if (jobData.containsKey(ADAPTIVE_REFRESH) && jobData.getBooleanValue(ADAPTIVE_REFRESH)) {
+            try {
+                provider.updateDueLocations(collectDemands(context.getScheduler()));
+            } catch (SchedulerException e) {
+                throw new JobExecutionException("Triggers of the scheduler can not be read", e);
+            }
+            return;
+        }
+        provider.updateCachedData();
         LOGGER.info("EnergyChartsForecastProvider update performed");
     }
+
+    /**
+     * Collects the demand of all {@link CarbonAwareCronTrigger}s of the scheduler per location. A trigger plans its
+     * next execution, when it fires next, and needs the forecast until the deadline of that execution.
+     * <p>
+     * Only the triggers tracked by the {@link CarbonAwareTriggerTracker} of the scheduler are read. Without tracker,
+     * every trigger of the scheduler is read.
+     *
+     * @param scheduler the scheduler of the triggers
+     * @return the demand per location, containing only locations used by a trigger
+     * @throws SchedulerException if the triggers can not be read
+     */
+    static Map<Location, RefreshSchedule.Demand> collectDemands(Scheduler scheduler) throws SchedulerException {
+        Optional<CarbonAwareTriggerTracker> tracker = CarbonAwareTriggerTracker.fromContext(scheduler.getContext());
+        Collection<TriggerKey> keys = tracker.isPresent()
+                ? tracker.get().triggerKeys(scheduler)
+                : scheduler.getTriggerKeys(GroupMatcher.anyTriggerGroup());
+        Map<Location, RefreshSchedule.Demand> demands = new EnumMap<>(Location.class);
+        for (TriggerKey key : keys) {
+            if (scheduler.getTrigger(key) instanceof CarbonAwareCronTrigger trigger) {
+                demandOf(trigger).ifPresent(demand -> demands.merge(
+                        Location.fromCode(trigger.getLocation()), demand, RefreshSchedule.Demand::merge));
+            }
+        }
+        return demands;
+    }
+
+    private static Optional<RefreshSchedule.Demand> demandOf(CarbonAwareCronTrigger trigger) {
+        Date nextFireTime = trigger.getNextFireTime();
+        if (nextFireTime == null || trigger.getLocation() == null || trigger.getDeadlineCronExpression() == null) {
+            return Optional.empty();
+        }
+        try {
+            Location.fromCode(trigger.getLocation());
+            CronExpression cronExpression = new CronExpression(trigger.getCronExpression());
+            cronExpression.setTimeZone(trigger.getTimeZone());
+            Date plannedExecutionTime = cronExpression.getTimeAfter(nextFireTime);
+            Date deadline = plannedExecutionTime == null
+                    ? null
+                    : trigger.getDeadlineCronExpression().getTimeAfter(plannedExecutionTime);
+            return Optional.of(new RefreshSchedule.Demand(
+                    nextFireTime.toInstant(),
+                    (deadline != null ? deadline : nextFireTime).toInstant()));
+        } catch (ParseException | IllegalArgumentException e) {
+            LOGGER.debug("Trigger {} does not use an open data location: {}", trigger.getKey(), e.getMessage());
+            return Optional.empty();
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.RefreshStatistics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Decides per location, when its forecast is refreshed next. The decision is based on
+ * <ul>
+ *     <li>the demand of the triggers: forecasts of locations without triggers are refreshed with the maximum
+ *     interval,</li>
+ *     <li>the forecast horizon left past the furthest deadline of the triggers: the shorter it is, the more often
+ *     the forecast is refreshed, until new data covers the deadline,</li>
+ *     <li>the modifications of the data: the interval starts with the minimum interval and is doubled with every
+ *     refresh without modified data, up to the maximum interval,</li>
+ *     <li>the next planning of a trigger: the forecast is refreshed shortly before it, so the plan is computed with
+ *     fresh data.</li>
+ * </ul>
+ * Failed refreshes are repeated after the minimum interval.
+ *
+ * @author jannisschalk
+ */
+public final class RefreshSchedule {
+
+    public static final Duration DEFAULT_MINIMUM_INTERVAL = Duration.ofMinutes(15);
+    public static final Duration DEFAULT_MAXIMUM_INTERVAL = Duration.ofHours(6);
+    /**
+     * How long before a planning the forecast is refreshed
+     */
+    static final Duration PLANNING_LEAD = Duration.ofMinutes(15);
+
+    private static final RefreshSchedule DEFAULT = new RefreshSchedule(DEFAULT_MINIMUM_INTERVAL, DEFAULT_MAXIMUM_INTERVAL);
+
+    private final Duration minimumInterval;
+    private final Duration maximumInterval;
+
+    /**
+     * @param minimumInterval Shortest time between two refreshes of a location
+     * @param maximumInterval Longest time between two refreshes of a location
+     */
+    public RefreshSchedule(Duration minimumInterval, Duration maximumInterval) {
+        if (minimumInterval == null || minimumInterval.isNegative() || minimumInterval.isZero()) {
+            throw new IllegalArgumentException("The minimum interval must be positive, but was " + minimumInterval);
+        }
+        if (maximumInterval == null || maximumInterval.compareTo(minimumInterval) < 0) {
+            throw new IllegalArgumentException("The maximum interval %s must not be shorter than the minimum interval %s"
+                    .formatted(maximumInterval, minimumInterval));
+        }
+        this.minimumInterval = minimumInterval;
+        this.maximumInterval = maximumInterval;
+    }
+
+    public static RefreshSchedule defaultSchedule() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param statistics The refresh history of the location
+     * @param forecast   The cached forecast of the location, or null
+     * @param demand     The demand of the triggers using the location, or null if no trigger uses it
+     * @return the time of the next refresh of the location, which may be in the past
+     */
+    public Instant nextRefresh(RefreshStatistics statistics, CachedForecast forecast, Demand demand) {
+        Instant lastRefresh = toInstant(statistics.lastRefresh());
+        if (lastRefresh == null) {
+            return Instant.EPOCH;
+        }
+        if (statistics.hasLastRefreshFailed()
+                || forecast == null || forecast.series() == null || forecast.series().isEmpty()) {
+            return lastRefresh.plus(minimumInterval);
+        }
+        if (demand == null) {
+            return lastRefresh.plus(maximumInterval);
+        }
+
+        Duration interval = backoff(statistics.unmodifiedCount());
+        Instant horizon = Instant.ofEpochSecond(forecast.series().epochSecondAt(forecast.series().size() - 1));
+        Duration horizonLeft = Duration.between(demand.furthestDeadline(), horizon);
+        if (horizonLeft.isNegative()) {
+            // the forecast does not cover the deadline yet
+            interval = minimumInterval;
+        } else {
+            interval = min(interval, max(minimumInterval, horizonLeft.dividedBy(2)));
+        }
+
+        Instant next = lastRefresh.plus(interval);
+        Instant beforePlanning = demand.nextPlanning().minus(PLANNING_LEAD);
+        if (lastRefresh.isBefore(beforePlanning) && next.isAfter(beforePlanning)) {
+            next = max(beforePlanning, lastRefresh.plus(minimumInterval));
+        }
+        return next;
+    }
+
+    public Duration getMinimumInterval() {
+        return minimumInterval;
+    }
+
+    public Duration getMaximumInterval() {
+        return maximumInterval;
+    }
+
+    private Duration backoff(long unmodifiedCount) {
+        Duration interval = minimumInterval;
+        for (long i = 0; i < unmodifiedCount && interval.compareTo(maximumInterval) < 0; i++) {
+            interval = interval.multipliedBy(2);
+        }
+        return min(interval, maximumInterval);
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        // the refresh statistics are recorded in the default time zone
+        return dateTime == null ? null : dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static Duration min(Duration first, Duration second) {
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    private static Duration max(Duration first, Duration second) {
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
+    private static Instant max(Instant first, Instant second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    /**
+     * The demand of all triggers using a location.
+     *
+     * @param nextPlanning     The earliest time, at which a trigger plans an execution with the forecast
+     * @param furthestDeadline The latest deadline of an execution, which is planned next
+     */
+    public record Demand(Instant nextPlanning, Instant furthestDeadline) {
+
+        /**
+         * @return the demand of both, which plans first and needs the forecast the longest
+         */
+        public Demand merge(Demand other) {
+            return new Demand(
+                    nextPlanning.isBefore(other.nextPlanning) ? nextPlanning : other.nextPlanning,
+                    furthestDeadline.isAfter(other.furthestDeadline) ? furthestDeadline : other.furthestDeadline);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary file of a {@link ForecastSnapshot}, used to start with the forecasts of the last run.
+ * <p>
+ * Layout (little endian): magic, format version, snapshot version and number of forecasts, followed by each
+ * forecast with its location code, timestamps, step and the columns of its {@link ForecastSeries}. A CRC32 checksum
+ * of all preceding bytes closes the file. The file is written to a temporary file and moved into place, so readers
+ * never see a partially written snapshot. It is read with a memory mapping, which copies the columns with bulk
+ * transfers.
+ *
+ * @author jannisschalk
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x43414653; // "CAFS"
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private SnapshotFile() {
+        // hide default public constructor
+    }
+
+    /**
+     * Writes the snapshot atomically. Forecasts without series are skipped.
+     *
+     * @param file     the file to replace
+     * @param snapshot the snapshot to write
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path file, ForecastSnapshot snapshot) throws IOException {
+        Map<Location, CachedForecast> forecasts = new EnumMap<>(Location.class);
+        snapshot.forecasts().forEach((location, forecast) -> {
+            if (forecast.series() != null) {
+                forecasts.put(location, forecast);
+            }
+        });
+
+        int size = 4 + 4 + 8 + 4;
+        for (Map.Entry<Location, CachedForecast> entry : forecasts.entrySet()) {
+            size += 1 + entry.getKey().getCode().length() + 8 + 8 + 8 + 4 + entry.getValue().series().size() * 16;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.version()).putInt(forecasts.size());
+        for (Map.Entry<Location, CachedForecast> entry : forecasts.entrySet()) {
+            byte[] code = entry.getKey().getCode().getBytes(StandardCharsets.US_ASCII);
+            CachedForecast forecast = entry.getValue();
+            ForecastSeries series = forecast.series();
+            buffer.put((byte) code.length).put(code)
+                    .putLong(toEpochSecond(forecast.lastUpdated()))
+                    .putLong(toEpochSecond(forecast.maximumForecastTimestamp()))
+                    .putLong(series.stepInMinutes())
+                    .putInt(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                buffer.putLong(series.epochSecondAt(i));
+            }
+            for (int i = 0; i < series.size(); i++) {
+                buffer.putDouble(series.valueAt(i));
+            }
+        }
+        buffer.putInt((int) checksum(buffer.array(), size));
+        buffer.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(Path, ForecastSnapshot)}. Locations unknown to this version are
+     * skipped.
+     *
+     * @param file the file to read
+     * @return the snapshot of the file
+     * @throws IOException if the file can not be read, is corrupted or has an unknown format
+     */
+    static ForecastSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 4 + 4 + 8 + 4 + 4 || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid size of forecast snapshot file " + file + ": " + fileSize);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            int payloadSize = (int) fileSize - 4;
+            if (buffer.getInt(payloadSize) != (int) checksum(buffer, payloadSize)) {
+                throw new IOException("Checksum of forecast snapshot file " + file + " does not match");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format of forecast snapshot file " + file);
+            }
+            return readSnapshot(buffer.limit(payloadSize));
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IOException("Corrupted forecast snapshot file " + file, e);
+        }
+    }
+
+    private static ForecastSnapshot readSnapshot(ByteBuffer buffer) {
+        long version = buffer.getLong();
+        int count = buffer.getInt();
+        Map<Location, CachedForecast> forecasts = new EnumMap<>(Location.class);
+        for (int n = 0; n < count; n++) {
+            byte[] code = new byte[buffer.get() & 0xFF];
+            buffer.get(code);
+            LocalDateTime lastUpdated = toLocalDateTime(buffer.getLong());
+            LocalDateTime maximumForecastTimestamp = toLocalDateTime(buffer.getLong());
+            long stepInMinutes = buffer.getLong();
+            int size = buffer.getInt();
+            if (size < 0 || (long) size * 16 > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid number of data points: " + size);
+            }
+            long[] epochSeconds = new long[size];
+            double[] values = new double[size];
+            buffer.asLongBuffer().get(epochSeconds);
+            buffer.position(buffer.position() + size * 8);
+            buffer.asDoubleBuffer().get(values);
+            buffer.position(buffer.position() + size * 8);
+
+            Location location;
+            try {
+                location = Location.fromCode(new String(code, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                // written by a version supporting more locations
+                continue;
+            }
+            forecasts.put(location, new CachedForecast(lastUpdated, maximumForecastTimestamp,
+                    ForecastSeries.of(epochSeconds, values, stepInMinutes)));
+        }
+        return new ForecastSnapshot(version, forecasts);
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return crc.getValue();
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime == null ? NO_TIMESTAMP : dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return epochSecond == NO_TIMESTAMP ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
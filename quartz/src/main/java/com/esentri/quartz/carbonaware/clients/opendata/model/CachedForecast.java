@@ -16,13 +16,31 @@ import java.util.List;
  *
  * @param lastUpdated              The timestamp when the forecast was last updated
  * @param maximumForecastTimestamp The maximum timestamp for which forecast data is available
- * @param emissionData             List of emission data points containing the actual forecast values
+ * @param series                   The forecast values in columnar representation
  *
  * @author jannisschalk
  */
 public record CachedForecast(LocalDateTime lastUpdated,
                              LocalDateTime maximumForecastTimestamp,
-                             List<CachedEmissionData> emissionData) {
+                             ForecastSeries series) {
+
+    /**
+     * @param lastUpdated              The timestamp when the forecast was last updated
+     * @param maximumForecastTimestamp The maximum timestamp for which forecast data is available
+     * @param emissionData             List of emission data points containing the actual forecast values
+     */
+    public CachedForecast(LocalDateTime lastUpdated,
+                          LocalDateTime maximumForecastTimestamp,
+                          List<CachedEmissionData> emissionData) {
+        this(lastUpdated, maximumForecastTimestamp, emissionData == null ? null : ForecastSeries.of(emissionData));
+    }
+
+    /**
+     * @return a view of the emission data points, or null if the forecast has no data
+     */
+    public List<CachedEmissionData> emissionData() {
+        return series == null ? null : series.asEmissionData();
+    }
 
     /**
      * Record representing a single emission data point in the forecast.
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Columnar representation of a forecast. The timestamps (epoch seconds in UTC) and the carbon intensities of the
+ * data points are stored in primitive arrays, sorted by timestamp. All data points are valid for the same duration
+ * (step).
+ * <p>
+ * Queries select the data points of a time window by binary search and read the values by index, without copying
+ * or boxing the data points.
+ * <p>
+ * The window with the minimal average carbon intensity is answered in constant time by an index: the sums of all
+ * windows of a length are computed with prefix sums, and a sparse table stores the position of the minimal sum of
+ * each range of 2^j windows. The index of a window length is built on first use, or in advance with
+ * {@link #prepareWindowIndexes(Collection)} when the forecast is refreshed.
+ *
+ * @author jannisschalk
+ */
+public final class ForecastSeries {
+
+    private static final ForecastSeries EMPTY = new ForecastSeries(new long[0], new double[0], 0);
+
+    private final long[] epochSeconds;
+    private final double[] values;
+    private final long stepInMinutes;
+    private final double[] prefixSums;
+    private final Map<Integer, WindowIndex> windowIndexes = new ConcurrentHashMap<>();
+
+    private ForecastSeries(long[] epochSeconds, double[] values, long stepInMinutes) {
+        this.epochSeconds = epochSeconds;
+        this.values = values;
+        this.stepInMinutes = stepInMinutes;
+        this.prefixSums = new double[values.length + 1];
+        for (int i = 0; i < values.length; i++) {
+            prefixSums[i + 1] = prefixSums[i] + values[i];
+        }
+    }
+
+    /**
+     * @param epochSeconds  Timestamps of the data points in epoch seconds (UTC), sorted ascending
+     * @param values        Carbon intensities of the data points
+     * @param stepInMinutes Duration in minutes, for which each data point is valid
+     * @return the series, which takes ownership of the given arrays
+     */
+    public static ForecastSeries of(long[] epochSeconds, double[] values, long stepInMinutes) {
+        if (epochSeconds.length != values.length) {
+            throw new IllegalArgumentException("Timestamps and values must have the same length, but were %d and %d"
+                    .formatted(epochSeconds.length, values.length));
+        }
+        return epochSeconds.length == 0 ? EMPTY : new ForecastSeries(epochSeconds, values, stepInMinutes);
+    }
+
+    /**
+     * Converts a list of data points. The duration of the first data point is used as step of the series.
+     *
+     * @param emissionData data points sorted by timestamp
+     * @return the series containing the data points
+     */
+    public static ForecastSeries of(List<CachedForecast.CachedEmissionData> emissionData) {
+        if (emissionData.isEmpty()) {
+            return EMPTY;
+        }
+        long[] epochSeconds = new long[emissionData.size()];
+        double[] values = new double[emissionData.size()];
+        for (int i = 0; i < emissionData.size(); i++) {
+            CachedForecast.CachedEmissionData data = emissionData.get(i);
+            epochSeconds[i] = data.timestamp().toEpochSecond(ZoneOffset.UTC);
+            values[i] = data.value();
+        }
+        Long duration = emissionData.get(0).duration();
+        return new ForecastSeries(epochSeconds, values, duration == null ? 0 : duration);
+    }
+
+    public static ForecastSeries empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return epochSeconds.length;
+    }
+
+    public boolean isEmpty() {
+        return epochSeconds.length == 0;
+    }
+
+    /**
+     * @return the duration in minutes, for which each data point is valid
+     */
+    public long stepInMinutes() {
+        return stepInMinutes;
+    }
+
+    public long epochSecondAt(int index) {
+        return epochSeconds[index];
+    }
+
+    public LocalDateTime timestampAt(int index) {
+        return LocalDateTime.ofEpochSecond(epochSeconds[index], 0, ZoneOffset.UTC);
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the index of the first data point with a timestamp after the given time, or {@link #size()} if there
+     * is none
+     */
+    public int firstIndexAfter(LocalDateTime dateTime) {
+        // a data point is after a time with fractional seconds, if it is after the whole second
+        return firstIndexNotBefore(dateTime.toEpochSecond(ZoneOffset.UTC) + 1);
+    }
+
+    /**
+     * @return the index of the first data point with a timestamp at or after the given time, or {@link #size()} if
+     * there is none
+     */
+    public int firstIndexNotBefore(LocalDateTime dateTime) {
+        long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+        return firstIndexNotBefore(dateTime.getNano() > 0 ? epochSecond + 1 : epochSecond);
+    }
+
+    private int firstIndexNotBefore(long epochSecond) {
+        int low = 0;
+        int high = epochSeconds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochSeconds[mid] < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Merges newer data into this series. The data points of this series before the first data point of the newer
+     * series are kept, starting at the given time. All later data points are replaced by the newer series.
+     *
+     * @param newer               Series starting after the first data point to keep
+     * @param earliestEpochSecond Timestamp in epoch seconds (UTC) of the earliest data point to keep
+     * @return the merged series, or the newer series if the steps of both series differ
+     */
+    public ForecastSeries merge(ForecastSeries newer, long earliestEpochSecond) {
+        if (newer.isEmpty()) {
+            return this;
+        }
+        if (isEmpty() || newer.stepInMinutes != stepInMinutes) {
+            return newer;
+        }
+        int from = firstIndexNotBefore(earliestEpochSecond);
+        int to = Math.max(from, firstIndexNotBefore(newer.epochSeconds[0]));
+        int kept = to - from;
+        long[] mergedEpochSeconds = new long[kept + newer.size()];
+        double[] mergedValues = new double[kept + newer.size()];
+        System.arraycopy(epochSeconds, from, mergedEpochSeconds, 0, kept);
+        System.arraycopy(values, from, mergedValues, 0, kept);
+        System.arraycopy(newer.epochSeconds, 0, mergedEpochSeconds, kept, newer.size());
+        System.arraycopy(newer.values, 0, mergedValues, kept, newer.size());
+        return new ForecastSeries(mergedEpochSeconds, mergedValues, stepInMinutes);
+    }
+
+    /**
+     * Drops the data points before the given time and the oldest data points exceeding the capacity, so the retained
+     * series never holds more than {@code capacity} data points.
+     *
+     * @param earliestEpochSecond Data points before this time are dropped
+     * @param capacity            Maximum number of data points, the newest data points are kept
+     * @return the retained series, or this series if no data point is dropped
+     */
+    public ForecastSeries retain(long earliestEpochSecond, int capacity) {
+        int from = Math.max(firstIndexNotBefore(earliestEpochSecond), size() - capacity);
+        if (from <= 0) {
+            return this;
+        }
+        return new ForecastSeries(Arrays.copyOfRange(epochSeconds, from, size()),
+                Arrays.copyOfRange(values, from, size()), stepInMinutes);
+    }
+
+    /**
+     * Completes this series with the data points of another series, which are before the first or after the last
+     * data point of this series. The data points of this series take precedence.
+     *
+     * @param other Series of another source with the same step
+     * @return the completed series, or this series if the other series adds no data point or has another step
+     */
+    public ForecastSeries fillFrom(ForecastSeries other) {
+        if (isEmpty()) {
+            return other.isEmpty() ? this : other;
+        }
+        if (other.isEmpty() || other.stepInMinutes != stepInMinutes) {
+            return this;
+        }
+        int before = other.firstIndexNotBefore(epochSeconds[0]);
+        int after = other.firstIndexNotBefore(epochSeconds[size() - 1] + 1);
+        int appended = other.size() - after;
+        if (before == 0 && appended == 0) {
+            return this;
+        }
+        long[] filledEpochSeconds = new long[before + size() + appended];
+        double[] filledValues = new double[filledEpochSeconds.length];
+        System.arraycopy(other.epochSeconds, 0, filledEpochSeconds, 0, before);
+        System.arraycopy(other.values, 0, filledValues, 0, before);
+        System.arraycopy(epochSeconds, 0, filledEpochSeconds, before, size());
+        System.arraycopy(values, 0, filledValues, before, size());
+        System.arraycopy(other.epochSeconds, after, filledEpochSeconds, before + size(), appended);
+        System.arraycopy(other.values, after, filledValues, before + size(), appended);
+        return new ForecastSeries(filledEpochSeconds, filledValues, stepInMinutes);
+    }
+
+    /**
+     * @param start        Index of the first data point of the window
+     * @param windowLength Number of data points of the window
+     * @return the sum of the carbon intensities of the window
+     */
+    public double windowSum(int start, int windowLength) {
+        return prefixSums[start + windowLength] - prefixSums[start];
+    }
+
+    /**
+     * Finds the window with the minimal sum of carbon intensities among all windows starting within the given range.
+     * If several windows have the minimal sum, the earliest window is returned.
+     *
+     * @param windowLength Number of data points of the window
+     * @param firstStart   Index of the first possible start of the window
+     * @param lastStart    Index of the last possible start of the window (inclusive)
+     * @return the start index of the window with the minimal sum
+     */
+    public int minimumWindowStart(int windowLength, int firstStart, int lastStart) {
+        if (windowLength < 1 || firstStart < 0 || firstStart > lastStart || lastStart + windowLength > size()) {
+            throw new IndexOutOfBoundsException("No window of %d data points starts within [%d, %d] of %d data points"
+                    .formatted(windowLength, firstStart, lastStart, size()));
+        }
+        return windowIndexes.computeIfAbsent(windowLength, WindowIndex::new).minimum(firstStart, lastStart);
+    }
+
+    /**
+     * Builds the indexes of the given window lengths, so the first query of each length does not pay for it.
+     *
+     * @param windowLengths numbers of data points of the windows in use
+     */
+    public void prepareWindowIndexes(Collection<Integer> windowLengths) {
+        for (Integer windowLength : windowLengths) {
+            if (windowLength >= 1 && windowLength <= size()) {
+                windowIndexes.computeIfAbsent(windowLength, WindowIndex::new);
+            }
+        }
+    }
+
+    /**
+     * @return the window lengths, for which an index has been built
+     */
+    public Set<Integer> windowLengthsInUse() {
+        return Collections.unmodifiableSet(windowIndexes.keySet());
+    }
+
+    /**
+     * @return a view of the data points. The elements are created on access.
+     */
+    public List<CachedForecast.CachedEmissionData> asEmissionData() {
+        return new EmissionDataView();
+    }
+
+    /**
+     * Sparse table over the sums of all windows of one length. Row j holds for each window i the start of the window
+     * with the minimal sum among the windows [i, i + 2^j).
+     */
+    private final class WindowIndex {
+
+        private final int windowLength;
+        private final int[][] minimumStarts;
+
+        private WindowIndex(int windowLength) {
+            this.windowLength = windowLength;
+            int windowCount = size() - windowLength + 1;
+            int levels = 32 - Integer.numberOfLeadingZeros(windowCount);
+            minimumStarts = new int[levels][];
+            minimumStarts[0] = new int[windowCount];
+            for (int i = 0; i < windowCount; i++) {
+                minimumStarts[0][i] = i;
+            }
+            for (int j = 1; j < levels; j++) {
+                int half = 1 << (j - 1);
+                int[] previous = minimumStarts[j - 1];
+                int[] current = new int[windowCount - (1 << j) + 1];
+                for (int i = 0; i < current.length; i++) {
+                    current[i] = earlier(previous[i], previous[i + half]);
+                }
+                minimumStarts[j] = current;
+            }
+        }
+
+        private int minimum(int firstStart, int lastStart) {
+            int level = 31 - Integer.numberOfLeadingZeros(lastStart - firstStart + 1);
+            int[] row = minimumStarts[level];
+            return earlier(row[firstStart], row[lastStart - (1 << level) + 1]);
+        }
+
+        /**
+         * @return the window with the smaller sum, or the first window if both sums are equal
+         */
+        private int earlier(int first, int second) {
+            return windowSum(second, windowLength) < windowSum(first, windowLength) ? second : first;
+        }
+    }
+
+    private final class EmissionDataView extends AbstractList<CachedForecast.CachedEmissionData> implements RandomAccess {
+
+        @Override
+        public CachedForecast.CachedEmissionData get(int index) {
+            return new CachedForecast.CachedEmissionData(timestampAt(index), valueAt(index), stepInMinutes);
+        }
+
+        @Override
+        public int size() {
+            return epochSeconds.length;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable state of the cached forecasts of all locations. A new snapshot with an incremented version is published
+ * for every update of the cache, so all forecasts read from the same snapshot belong to the same update.
+ *
+ * @param version   The version of the snapshot, incremented for every published update
+ * @param forecasts The cached forecast of each location
+ *
+ * @author jannisschalk
+ */
+public record ForecastSnapshot(long version,
+                               Map<Location, CachedForecast> forecasts) {
+
+    private static final ForecastSnapshot EMPTY = new ForecastSnapshot(0, Map.of());
+
+    public ForecastSnapshot {
+        EnumMap<Location, CachedForecast> copy = new EnumMap<>(Location.class);
+        copy.putAll(forecasts);
+        forecasts = Collections.unmodifiableMap(copy);
+    }
+
+    public static ForecastSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param location The location for which to retrieve the forecast
+     * @return the cached forecast of the location, or null if not found
+     */
+    public CachedForecast getForecast(Location location) {
+        return forecasts.get(location);
+    }
+
+    /**
+     * @param updates forecasts replacing the forecasts of their locations
+     * @return the next version of this snapshot containing the updates
+     */
+    public ForecastSnapshot with(Map<Location, CachedForecast> updates) {
+        EnumMap<Location, CachedForecast> next = new EnumMap<>(Location.class);
+        next.putAll(forecasts);
+        next.putAll(updates);
+        return new ForecastSnapshot(version + 1, next);
+    }
+
+    /**
+     * @param removed locations, whose forecasts are removed
+     * @return the next version of this snapshot without the forecasts of the locations
+     */
+    public ForecastSnapshot without(Set<Location> removed) {
+        EnumMap<Location, CachedForecast> next = new EnumMap<>(Location.class);
+        next.putAll(forecasts);
+        next.keySet().removeAll(removed);
+        return new ForecastSnapshot(version + 1, next);
+    }
+
+    /**
+     * @return the next version of this snapshot without any forecast
+     */
+    public ForecastSnapshot cleared() {
+        return new ForecastSnapshot(version + 1, Map.of());
+    }
+}
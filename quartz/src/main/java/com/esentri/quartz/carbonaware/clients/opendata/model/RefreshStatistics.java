@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.opendata.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Record representing the refresh history of the forecast of a single location.
+ *
+ * @param successCount          Number of successful refreshes, including refreshes without modified data
+ * @param failureCount          Number of refreshes, which failed after all retries
+ * @param retryCount            Number of retried requests
+ * @param lastLatency           Duration of the last refresh including retries, or null if never refreshed
+ * @param maximumLatency        Longest duration of a refresh including retries, or null if never refreshed
+ * @param lastSuccessfulRefresh The timestamp of the last successful refresh, or null if never refreshed successfully
+ * @param lastFailedRefresh     The timestamp of the last failed refresh, or null if no refresh has failed
+ * @param unmodifiedCount       Number of successful refreshes since the data of the location has last been modified
+ * @param lastModification      The timestamp of the last refresh with modified data, or null if never refreshed
+ *
+ * @author jannisschalk
+ */
+public record RefreshStatistics(long successCount,
+                                long failureCount,
+                                long retryCount,
+                                Duration lastLatency,
+                                Duration maximumLatency,
+                                LocalDateTime lastSuccessfulRefresh,
+                                LocalDateTime lastFailedRefresh,
+                                long unmodifiedCount,
+                                LocalDateTime lastModification) {
+
+    private static final RefreshStatistics NEVER_REFRESHED =
+            new RefreshStatistics(0, 0, 0, null, null, null, null, 0, null);
+
+    public static RefreshStatistics neverRefreshed() {
+        return NEVER_REFRESHED;
+    }
+
+    /**
+     * @return the timestamp of the last refresh, whether it succeeded or failed, or null if never refreshed
+     */
+    public LocalDateTime lastRefresh() {
+        if (lastFailedRefresh == null) {
+            return lastSuccessfulRefresh;
+        }
+        return lastSuccessfulRefresh == null || lastFailedRefresh.isAfter(lastSuccessfulRefresh)
+                ? lastFailedRefresh
+                : lastSuccessfulRefresh;
+    }
+
+    /**
+     * @return true if the last refresh has failed
+     */
+    public boolean hasLastRefreshFailed() {
+        return lastFailedRefresh != null && lastFailedRefresh.equals(lastRefresh());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Non-blocking variant of the {@link CarbonForecastApi}. The returned futures complete as soon as the forecast is
+ * available, so no thread has to wait for the response of the forecast API.
+ * <br>
+ * Use {@link #fromBlocking(CarbonForecastApi, Executor)} to run a blocking client on a dedicated executor and
+ * {@link #toBlocking(AsyncCarbonForecastApi)} to configure a non-blocking client at a trigger.
+ *
+ * @author jannisschalk
+ * */
+public interface AsyncCarbonForecastApi extends Serializable {
+
+    /**
+     * Get the best execution time with minimal grid carbon intensity.
+     *
+     * @param location    list of named locations like (de,fr).
+     * @param dataStartAt Start time boundary of forecasted data points.
+     * @param dataEndAt   End time boundary of forecasted data points.
+     * @param windowSize  The estimated duration (in minutes) of the workload.
+     * @return future of the forecast, which completes exceptionally if the forecast can not be retrieved
+     * @see CarbonForecastApi#getEmissionForecastCurrent(List, LocalDateTime, LocalDateTime, Integer)
+     * */
+    CompletableFuture<List<EmissionForecast>> getEmissionForecastCurrentAsync(
+            List<String> location,
+            LocalDateTime dataStartAt,
+            LocalDateTime dataEndAt,
+            Integer windowSize
+    );
+
+    /**
+     * Get the best execution times for many queries at once. The default implementation requests all distinct
+     * queries concurrently.
+     *
+     * @param queries the queries to answer
+     * @return future of the forecast of each distinct query. If there is no forecast for a query, its forecast is an
+     * empty list. If a query fails for another reason than a {@link NoForecastException}, the future completes
+     * exceptionally with its failure.
+     * @see CarbonForecastApi#getEmissionForecastsBatch(List)
+     * */
+    default CompletableFuture<Map<ForecastQuery, List<EmissionForecast>>> getEmissionForecastsBatchAsync(
+            List<ForecastQuery> queries) {
+        Map<ForecastQuery, CompletableFuture<List<EmissionForecast>>> futures = new LinkedHashMap<>();
+        for (ForecastQuery query : queries) {
+            futures.computeIfAbsent(query, q -> getEmissionForecastCurrentAsync(
+                    List.of(q.location()),
+                    q.dataStartAt(),
+                    q.dataEndAt(),
+                    q.windowSize())
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (!(cause instanceof NoForecastException)) {
+                            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                        }
+                        LoggerFactory.getLogger(getClass()).warn("No forecast for query {}: {}", q, cause.getMessage());
+                        return List.of();
+                    }));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+                    futures.forEach((query, future) -> {
+                        List<EmissionForecast> forecast = future.join();
+                        result.put(query, forecast == null ? List.of() : forecast);
+                    });
+                    return result;
+                });
+    }
+
+    /**
+     * @param carbonForecastApi blocking client
+     * @param executor          executor to call the blocking client on
+     * @return non-blocking client, which calls the blocking client on the executor. If the blocking client is an
+     * adapter of a non-blocking client, the non-blocking client is returned.
+     */
+    static AsyncCarbonForecastApi fromBlocking(CarbonForecastApi carbonForecastApi, Executor executor) {
+        if (carbonForecastApi instanceof BlockingCarbonForecastApiAdapter adapter) {
+            return adapter.getDelegate();
+        }
+        return new AsyncCarbonForecastApiAdapter(carbonForecastApi, executor);
+    }
+
+    /**
+     * @param asyncCarbonForecastApi non-blocking client
+     * @return blocking client, which waits for the non-blocking client. If the non-blocking client is an adapter of
+     * a blocking client, the blocking client is returned.
+     */
+    static CarbonForecastApi toBlocking(AsyncCarbonForecastApi asyncCarbonForecastApi) {
+        if (asyncCarbonForecastApi instanceof AsyncCarbonForecastApiAdapter adapter) {
+            return adapter.getDelegate();
+        }
+        return new BlockingCarbonForecastApiAdapter(asyncCarbonForecastApi);
+    }
+}
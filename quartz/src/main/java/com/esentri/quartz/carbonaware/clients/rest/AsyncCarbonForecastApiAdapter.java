@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapter, which calls a blocking {@link CarbonForecastApi} on a dedicated executor.
+ * Created with {@link AsyncCarbonForecastApi#fromBlocking(CarbonForecastApi, Executor)}.
+ * <br>
+ * The executor is not serialized. A deserialized adapter calls the blocking client on the
+ * {@link ForecastExecutors#shared() shared executor}.
+ *
+ * @author jannisschalk
+ */
+class AsyncCarbonForecastApiAdapter implements AsyncCarbonForecastApi {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final CarbonForecastApi delegate;
+    private final transient Executor executor;
+
+    AsyncCarbonForecastApiAdapter(CarbonForecastApi delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<EmissionForecast>> getEmissionForecastCurrentAsync(List<String> location,
+                                                                                    LocalDateTime dataStartAt,
+                                                                                    LocalDateTime dataEndAt,
+                                                                                    Integer windowSize) {
+        return CompletableFuture.supplyAsync(
+                () -> delegate.getEmissionForecastCurrent(location, dataStartAt, dataEndAt, windowSize),
+                executor);
+    }
+
+    /**
+     * Calls the batch method of the blocking client once, instead of every query on its own.
+     */
+    @Override
+    public CompletableFuture<Map<ForecastQuery, List<EmissionForecast>>> getEmissionForecastsBatchAsync(
+            List<ForecastQuery> queries) {
+        return CompletableFuture.supplyAsync(() -> delegate.getEmissionForecastsBatch(queries), executor);
+    }
+
+    CarbonForecastApi getDelegate() {
+        return delegate;
+    }
+
+    @Serial
+    private Object readResolve() {
+        return new AsyncCarbonForecastApiAdapter(delegate, ForecastExecutors.shared());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Adapter, which waits for the result of a non-blocking {@link AsyncCarbonForecastApi}.
+ * Created with {@link AsyncCarbonForecastApi#toBlocking(AsyncCarbonForecastApi)}.
+ *
+ * @author jannisschalk
+ */
+class BlockingCarbonForecastApiAdapter implements CarbonForecastApi {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final AsyncCarbonForecastApi delegate;
+
+    BlockingCarbonForecastApiAdapter(AsyncCarbonForecastApi delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                             LocalDateTime dataStartAt,
+                                                             LocalDateTime dataEndAt,
+                                                             Integer windowSize) {
+        return join(delegate.getEmissionForecastCurrentAsync(location, dataStartAt, dataEndAt, windowSize));
+    }
+
+    @Override
+    public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        return join(delegate.getEmissionForecastsBatchAsync(queries));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BlockingCarbonForecastApiAdapter other && delegate.equals(other.delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    AsyncCarbonForecastApi getDelegate() {
+        return delegate;
+    }
+}
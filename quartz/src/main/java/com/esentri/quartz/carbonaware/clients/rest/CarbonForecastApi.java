@@ -6,10 +6,14 @@
 package com.esentri.quartz.carbonaware.clients.rest;
 
 import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -43,4 +47,40 @@ public interface CarbonForecastApi extends Serializable {
             LocalDateTime dataEndAt,
             Integer windowSize
     );
+
+    /**
+     * Get the best execution times for many queries at once. The GSF CarbonAware SDK offers a batch endpoint
+     * for this purpose, which avoids a round trip per query.
+     * <br>
+     * The default implementation calls {@link #getEmissionForecastCurrent} for every distinct query.
+     * Implementations should override this method, if the forecast can be retrieved more efficiently.
+     *
+     * @param queries the queries to answer
+     * @return the forecast of each distinct query, in the order of the queries. If there is no forecast for a query,
+     * its forecast is an empty list.
+     * @throws RuntimeException if a query fails for another reason than a {@link NoForecastException}, e.g. because
+     * the forecast API is not reachable. Decorators like the circuit breaker can tell such a failure from an empty
+     * answer.
+     * */
+    default Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+        Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+        for (ForecastQuery query : queries) {
+            if (result.containsKey(query)) {
+                continue;
+            }
+            List<EmissionForecast> forecast;
+            try {
+                forecast = getEmissionForecastCurrent(
+                        List.of(query.location()),
+                        query.dataStartAt(),
+                        query.dataEndAt(),
+                        query.windowSize());
+            } catch (NoForecastException e) {
+                LoggerFactory.getLogger(getClass()).warn("No forecast for query {}: {}", query, e.getMessage());
+                forecast = List.of();
+            }
+            result.put(query, forecast == null ? List.of() : forecast);
+        }
+        return result;
+    }
 }
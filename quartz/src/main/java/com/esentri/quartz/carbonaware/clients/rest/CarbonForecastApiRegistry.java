@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link CarbonForecastApi} clients of the JVM by key.
+ * <p>
+ * A {@link com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl}, whose client is registered,
+ * is stored with the key of the client instead of the serialized client, e.g. in the {@code QRTZ_BLOB_TRIGGERS}
+ * table of a JDBC JobStore. When the trigger is loaded, it is bound to the client registered with the key. A client
+ * is found by the key of an equal registered client, so clients with value semantics like the
+ * {@link com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient} have not to be the registered
+ * instance. Triggers with a client, which is not registered, serialize the client.
+ * <p>
+ * The {@link com.esentri.quartz.carbonaware.plugins.CarbonAwarePlugin} registers the clients of the open data
+ * provider. Custom clients are registered by the application before it schedules and loads its triggers.
+ *
+ * @author jannisschalk
+ */
+public final class CarbonForecastApiRegistry {
+
+    private static final Map<String, CarbonForecastApi> clientsByKey = new ConcurrentHashMap<>();
+    private static final Map<CarbonForecastApi, String> keysByClient = new ConcurrentHashMap<>();
+
+    private CarbonForecastApiRegistry() {
+        // hide default public constructor
+    }
+
+    /**
+     * Registers the client with the name of its class as key.
+     *
+     * @param carbonForecastApi the client to register
+     * @return the key of the client
+     */
+    public static String register(CarbonForecastApi carbonForecastApi) {
+        String key = carbonForecastApi.getClass().getName();
+        register(key, carbonForecastApi);
+        return key;
+    }
+
+    /**
+     * Registers the client with the given key. A client registered before with the key is replaced.
+     *
+     * @param key               the key, which is stored with the triggers. It has to be stable across restarts.
+     * @param carbonForecastApi the client to register
+     */
+    public static synchronized void register(String key, CarbonForecastApi carbonForecastApi) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(carbonForecastApi);
+        CarbonForecastApi previous = clientsByKey.put(key, carbonForecastApi);
+        if (previous != null) {
+            keysByClient.remove(previous, key);
+        }
+        keysByClient.put(carbonForecastApi, key);
+    }
+
+    /**
+     * Removes the client registered with the key, if it is the given instance. An equal client, which has been
+     * registered with the key by someone else in the meantime, is kept.
+     *
+     * @param key               the key of the client
+     * @param carbonForecastApi the registered client
+     */
+    public static synchronized void unregister(String key, CarbonForecastApi carbonForecastApi) {
+        if (clientsByKey.get(key) == carbonForecastApi) {
+            clientsByKey.remove(key);
+            keysByClient.remove(carbonForecastApi, key);
+        }
+    }
+
+    /**
+     * @param key the key of a client
+     * @return the client registered with the key, or null if no client is registered with the key
+     */
+    public static CarbonForecastApi lookup(String key) {
+        return clientsByKey.get(key);
+    }
+
+    /**
+     * @param carbonForecastApi a client
+     * @return the key of the registered client, which is equal to the given client, or null if the client is not
+     * registered
+     */
+    public static String keyOf(CarbonForecastApi carbonForecastApi) {
+        return carbonForecastApi == null ? null : keysByClient.get(carbonForecastApi);
+    }
+
+    /**
+     * Removes all registered clients.
+     */
+    public static synchronized void clear() {
+        clientsByKey.clear();
+        keysByClient.clear();
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Single query of a {@link CarbonForecastApi#getEmissionForecastsBatch(java.util.List) batch request}.
+ * The parameters correspond to the parameters of {@link CarbonForecastApi#getEmissionForecastCurrent}.
+ *
+ * @param location    named location like de
+ * @param dataStartAt Start time boundary of forecasted data points
+ * @param dataEndAt   End time boundary of forecasted data points
+ * @param windowSize  The estimated duration (in minutes) of the workload
+ *
+ * @author jannisschalk
+ */
+public record ForecastQuery(String location,
+                            LocalDateTime dataStartAt,
+                            LocalDateTime dataEndAt,
+                            Integer windowSize) implements Serializable {
+}
@@ -20,4 +20,15 @@ public interface EmissionForecast extends Serializable {
     Integer windowSize();
 
     List<EmissionData> optimalDataPoints();
+
+    /**
+     * The forecasted data points of the requested time range. Each data point is the average carbon intensity of the
+     * window of {@link #windowSize()} minutes starting at its timestamp. Clients, which only receive the optimal data
+     * points, keep the default.
+     *
+     * @return the data points in chronological order, or an empty list if the client does not provide them
+     */
+    default List<EmissionData> forecastData() {
+        return List.of();
+    }
 }
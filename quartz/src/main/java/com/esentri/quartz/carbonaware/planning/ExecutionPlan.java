@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Result of planning a single execution of a {@link com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger}.
+ *
+ * @param configuredExecutionTime The execution time given by the cron expression of the trigger
+ * @param optimalExecutionTime    The execution time with the minimal carbon intensity, or null if no forecast
+ *                                was available
+ * @param emissionData            The forecasted emission data of the optimal execution time, or null if no
+ *                                forecast was available
+ * @param plannedAt               The time the plan was computed
+ *
+ * @author jannisschalk
+ */
+public record ExecutionPlan(Date configuredExecutionTime,
+                            Date optimalExecutionTime,
+                            EmissionData emissionData,
+                            Instant plannedAt) {
+
+    /**
+     * Creates a plan for an execution, which can not be time shifted because of a missing carbon forecast.
+     *
+     * @param configuredExecutionTime The execution time given by the cron expression of the trigger
+     * @return plan without an optimal execution time
+     */
+    public static ExecutionPlan unavailable(Date configuredExecutionTime) {
+        return new ExecutionPlan(configuredExecutionTime, null, null, Instant.now());
+    }
+
+    /**
+     * @return true, if a better execution time was determined
+     */
+    public boolean isDetermined() {
+        return optimalExecutionTime != null && emissionData != null;
+    }
+
+    /**
+     * @return the optimal execution time, if it was determined, otherwise the configured execution time
+     */
+    public Date fireTime() {
+        return isDetermined() ? optimalExecutionTime : configuredExecutionTime;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
+import org.quartz.Calendar;
+import org.quartz.CronExpression;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.SchedulerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Computes the carbon-aware fire times of {@link CarbonAwareCronTrigger}s over a horizon, e.g. to render the
+ * upcoming schedule in a dashboard.
+ * <p>
+ * Unlike {@link org.quartz.TriggerUtils#computeFireTimesBetween}, which calls
+ * {@link CarbonAwareCronTrigger#getFireTimeAfter(Date)} for every fire time, the preview does not change the state of
+ * the triggers. The forecasts of all fire times of all triggers using the same client are fetched with a single
+ * {@link CarbonForecastApi#getEmissionForecastsBatch(List) batch request}. If the client is an
+ * {@link com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient}, the batch request reads a single
+ * snapshot of the cached forecasts. Pass a client with a pinned snapshot to compute several previews from the same
+ * forecast. The clients are decorated with the {@link SchedulerPlanning} of the scheduler of each trigger.
+ * <p>
+ * A client, which does not override the batch request, sends a request per fire time. For such a client, the forecast
+ * of the whole horizon is requested once per location and the forecast of each fire time is sliced from its
+ * {@link EmissionForecast#forecastData() forecast data}. If the client does not provide the forecast data, the
+ * forecast is requested per fire time after all.
+ * <p>
+ * Like the trigger itself, the preview skips configured execution times excluded by the calendar of the trigger and
+ * only shifts executions to times the calendar includes. The calendar is resolved from the scheduler of the trigger.
+ *
+ * @author jannisschalk
+ */
+public final class FireTimePreview {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FireTimePreview.class);
+
+    private FireTimePreview() {
+    }
+
+    /**
+     * Computes the fire times of a trigger with its own forecast client. The calendar of the trigger is resolved from
+     * the scheduler registered under the {@link CarbonAwareCronTrigger#getSchedulerName() scheduler name} of the
+     * trigger.
+     *
+     * @param trigger the trigger to preview
+     * @param from    the time after which the configured execution times are previewed
+     * @param to      the latest configured execution time to preview
+     * @return the plans of the configured execution times in chronological order. The trigger fires at the
+     * {@link ExecutionPlan#fireTime() fire time} of each plan.
+     */
+    public static List<ExecutionPlan> preview(CarbonAwareCronTrigger trigger, Date from, Date to) {
+        return preview(List.of(trigger), from, to, CarbonAwareCronTrigger::getCarbonForecastApi,
+                FireTimePreview::lookupScheduler).get(0);
+    }
+
+    /**
+     * Computes the fire times of a trigger with its own forecast client and the calendar and planning of the given
+     * scheduler.
+     *
+     * @param trigger   the trigger to preview
+     * @param from      the time after which the configured execution times are previewed
+     * @param to        the latest configured execution time to preview
+     * @param scheduler the scheduler of the trigger, which holds its calendar
+     * @return the plans of the configured execution times in chronological order
+     */
+    public static List<ExecutionPlan> preview(CarbonAwareCronTrigger trigger, Date from, Date to, Scheduler scheduler) {
+        return preview(List.of(trigger), from, to, CarbonAwareCronTrigger::getCarbonForecastApi,
+                ignored -> scheduler).get(0);
+    }
+
+    /**
+     * Computes the fire times of a trigger with the given forecast client.
+     *
+     * @param trigger     the trigger to preview
+     * @param from        the time after which the configured execution times are previewed
+     * @param to          the latest configured execution time to preview
+     * @param forecastApi the client to fetch the forecast with, e.g. a client with a pinned snapshot
+     * @return the plans of the configured execution times in chronological order
+     */
+    public static List<ExecutionPlan> preview(CarbonAwareCronTrigger trigger,
+                                              Date from,
+                                              Date to,
+                                              CarbonForecastApi forecastApi) {
+        return preview(List.of(trigger), from, to, ignored -> forecastApi, FireTimePreview::lookupScheduler).get(0);
+    }
+
+    /**
+     * Computes the fire times of many triggers with the given forecast client. The forecasts are fetched with a
+     * single batch request.
+     *
+     * @param triggers    the triggers to preview
+     * @param from        the time after which the configured execution times are previewed
+     * @param to          the latest configured execution time to preview
+     * @param forecastApi the client to fetch the forecasts with, e.g. a client with a pinned snapshot
+     * @return the plans of the configured execution times of each trigger in chronological order, by the key of the
+     * trigger
+     */
+    public static Map<TriggerKey, List<ExecutionPlan>> preview(Collection<? extends CarbonAwareCronTrigger> triggers,
+                                                               Date from,
+                                                               Date to,
+                                                               CarbonForecastApi forecastApi) {
+        return preview(triggers, from, to, forecastApi, null);
+    }
+
+    /**
+     * Computes the fire times of many triggers of the given scheduler with the given forecast client.
+     *
+     * @param triggers    the triggers to preview
+     * @param from        the time after which the configured execution times are previewed
+     * @param to          the latest configured execution time to preview
+     * @param forecastApi the client to fetch the forecasts with, e.g. a client with a pinned snapshot
+     * @param scheduler   the scheduler of the triggers, which holds their calendars, or null to look up the scheduler
+     *                    of each trigger by its scheduler name
+     * @return the plans of the configured execution times of each trigger in chronological order, by the key of the
+     * trigger
+     */
+    public static Map<TriggerKey, List<ExecutionPlan>> preview(Collection<? extends CarbonAwareCronTrigger> triggers,
+                                                               Date from,
+                                                               Date to,
+                                                               CarbonForecastApi forecastApi,
+                                                               Scheduler scheduler) {
+        List<CarbonAwareCronTrigger> orderedTriggers = List.copyOf(triggers);
+        List<List<ExecutionPlan>> plans = preview(orderedTriggers, from, to, ignored -> forecastApi,
+                scheduler == null ? FireTimePreview::lookupScheduler : ignored -> scheduler);
+
+        Map<TriggerKey, List<ExecutionPlan>> result = new LinkedHashMap<>();
+        for (int i = 0; i < orderedTriggers.size(); i++) {
+            result.put(orderedTriggers.get(i).getKey(), plans.get(i));
+        }
+        return result;
+    }
+
+    private static List<List<ExecutionPlan>> preview(List<CarbonAwareCronTrigger> triggers,
+                                                     Date from,
+                                                     Date to,
+                                                     Function<CarbonAwareCronTrigger, CarbonForecastApi> clientOf,
+                                                     Function<CarbonAwareCronTrigger, Scheduler> schedulerOf) {
+        List<List<PlanningRequest>> requests = new ArrayList<>();
+        Map<CarbonForecastApi, List<ForecastQuery>> queriesByClient = new LinkedHashMap<>();
+        Set<CarbonForecastApi> clientsFetchingPerQuery = new HashSet<>();
+        for (CarbonAwareCronTrigger trigger : triggers) {
+            Scheduler scheduler = schedulerOf.apply(trigger);
+            CarbonForecastApi undecoratedClient = clientOf.apply(trigger);
+            CarbonForecastApi client = planningOf(trigger, scheduler).decorate(undecoratedClient);
+            List<PlanningRequest> requestsOfTrigger =
+                    createPlanningRequests(trigger, client, calendarOf(trigger, scheduler), from, to);
+            requests.add(requestsOfTrigger);
+            if (client != null) {
+                if (fetchesPerQuery(undecoratedClient)) {
+                    clientsFetchingPerQuery.add(client);
+                }
+                requestsOfTrigger.stream()
+                        .filter(request -> request.deadline() != null)
+                        .map(ForecastPlanner::toForecastQuery)
+                        .forEach(queriesByClient.computeIfAbsent(client, key -> new ArrayList<>())::add);
+            }
+        }
+
+        Map<CarbonForecastApi, Map<ForecastQuery, List<EmissionForecast>>> forecasts = new HashMap<>();
+        queriesByClient.forEach((client, queries) -> forecasts.put(client,
+                fetchForecasts(client, queries, clientsFetchingPerQuery.contains(client))));
+
+        Instant plannedAt = Instant.now();
+        Map<PlanningRequest, ExecutionPlan> plans = new HashMap<>();
+        Map<CarbonForecastApi, Map<PlanningRequest, List<ForecastQuery>>> excludedByCalendar = new LinkedHashMap<>();
+        for (List<PlanningRequest> requestsOfTrigger : requests) {
+            for (PlanningRequest request : requestsOfTrigger) {
+                Map<ForecastQuery, List<EmissionForecast>> forecastsOfClient =
+                        forecasts.getOrDefault(request.carbonForecastApi(), Map.of());
+                ExecutionPlan plan = toPlan(request, forecastsOfClient, plannedAt);
+                plans.put(request, plan);
+                if (isExcludedByCalendar(request, plan, forecastsOfClient)) {
+                    excludedByCalendar.computeIfAbsent(request.carbonForecastApi(), key -> new LinkedHashMap<>())
+                            .put(request, ForecastPlanner.toIncludedForecastQueries(request));
+                }
+            }
+        }
+
+        // like the trigger, fetch the forecasts of the intervals included by the calendar with a second request
+        excludedByCalendar.forEach((client, includedQueries) -> {
+            List<ForecastQuery> queries = includedQueries.values().stream().flatMap(Collection::stream).toList();
+            if (queries.isEmpty()) {
+                return;
+            }
+            Map<ForecastQuery, List<EmissionForecast>> included =
+                    fetchForecasts(client, queries, clientsFetchingPerQuery.contains(client));
+            includedQueries.forEach((request, queriesOfRequest) -> plans.put(request,
+                    ForecastPlanner.optimalExecutionPlan(request, queriesOfRequest, included, plannedAt)));
+        });
+
+        return requests.stream()
+                .map(requestsOfTrigger -> requestsOfTrigger.stream().map(plans::get).toList())
+                .toList();
+    }
+
+    /**
+     * Creates a request for every configured execution time of the trigger within the horizon. The deadline of a
+     * request is null, if the deadline cron expression has no time after the execution time.
+     */
+    private static List<PlanningRequest> createPlanningRequests(CarbonAwareCronTrigger trigger,
+                                                                CarbonForecastApi client,
+                                                                Calendar calendar,
+                                                                Date from,
+                                                                Date to) {
+        List<PlanningRequest> requests = new ArrayList<>();
+        for (Date configuredTime : configuredExecutionTimes(trigger, calendar, from, to)) {
+            requests.add(new PlanningRequest(
+                    trigger.getKey(),
+                    client,
+                    trigger.getLocation(),
+                    configuredTime,
+                    trigger.getDeadlineCronExpression().getTimeAfter(configuredTime),
+                    trigger.getJobDuration(),
+                    trigger.getTimeZone(),
+                    calendar));
+        }
+        return requests;
+    }
+
+    /**
+     * Computes the configured execution times of the trigger within the horizon like
+     * {@link CarbonAwareCronTrigger#getFireTimeAfter(Date)}, but on a copy of its cron expression. Times excluded by
+     * the calendar are skipped.
+     */
+    static List<Date> configuredExecutionTimes(CarbonAwareCronTrigger trigger, Calendar calendar, Date from, Date to) {
+        CronExpression cronExpression;
+        try {
+            cronExpression = new CronExpression(trigger.getCronExpression());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("CronExpression '%s' is invalid!".formatted(trigger.getCronExpression()), e);
+        }
+        cronExpression.setTimeZone(trigger.getTimeZone());
+
+        Date afterTime = from;
+        if (trigger.getStartTime() != null && trigger.getStartTime().after(afterTime)) {
+            afterTime = new Date(trigger.getStartTime().getTime() - 1000L);
+        }
+        Date lastTime = trigger.getEndTime() != null && trigger.getEndTime().before(to) ? trigger.getEndTime() : to;
+
+        List<Date> times = new ArrayList<>();
+        for (Date time = cronExpression.getTimeAfter(afterTime);
+             time != null && !time.after(lastTime);
+             time = cronExpression.getTimeAfter(time)) {
+            if (calendar == null || calendar.isTimeIncluded(time.getTime())) {
+                times.add(time);
+            }
+        }
+        return times;
+    }
+
+    private static Scheduler lookupScheduler(CarbonAwareCronTrigger trigger) {
+        String schedulerName = trigger.getSchedulerName();
+        return schedulerName == null ? null : SchedulerRepository.getInstance().lookup(schedulerName);
+    }
+
+    private static SchedulerPlanning planningOf(CarbonAwareCronTrigger trigger, Scheduler scheduler) {
+        if (scheduler == null) {
+            return SchedulerPlanning.ofScheduler(trigger.getSchedulerName());
+        }
+        try {
+            return SchedulerPlanning.fromContext(scheduler.getContext());
+        } catch (SchedulerException e) {
+            LOGGER.debug("Context of scheduler {} can not be accessed: {}", trigger.getSchedulerName(), e.toString());
+            return SchedulerPlanning.ofScheduler(trigger.getSchedulerName());
+        }
+    }
+
+    private static Calendar calendarOf(CarbonAwareCronTrigger trigger, Scheduler scheduler) {
+        String calendarName = trigger.getCalendarName();
+        if (calendarName == null) {
+            return null;
+        }
+        Calendar calendar = null;
+        if (scheduler != null) {
+            try {
+                calendar = scheduler.getCalendar(calendarName);
+            } catch (SchedulerException e) {
+                LOGGER.debug("Calendar {} can not be read: {}", calendarName, e.toString());
+            }
+        }
+        if (calendar == null) {
+            LOGGER.warn("Calendar {} of {} can not be resolved, the preview ignores it", calendarName, trigger.getKey());
+        }
+        return calendar;
+    }
+
+    /**
+     * @return true, if the client sends a request per query, because it does not override the batch request
+     */
+    private static boolean fetchesPerQuery(CarbonForecastApi client) {
+        if (client == null) {
+            return false;
+        }
+        try {
+            return client.getClass().getMethod("getEmissionForecastsBatch", List.class).getDeclaringClass()
+                    == CarbonForecastApi.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isExcludedByCalendar(PlanningRequest request,
+                                                ExecutionPlan plan,
+                                                Map<ForecastQuery, List<EmissionForecast>> forecasts) {
+        if (request.calendar() == null || request.deadline() == null || plan.isDetermined()) {
+            return false;
+        }
+        List<EmissionForecast> forecast = forecasts.get(ForecastPlanner.toForecastQuery(request));
+        return forecast != null && !forecast.isEmpty();
+    }
+
+    private static Map<ForecastQuery, List<EmissionForecast>> fetchForecasts(CarbonForecastApi client,
+                                                                             List<ForecastQuery> queries,
+                                                                             boolean fetchesPerQuery) {
+        if (fetchesPerQuery && queries.size() > 1) {
+            Optional<Map<ForecastQuery, List<EmissionForecast>>> sliced = fetchHorizon(client, queries);
+            if (sliced.isPresent()) {
+                return sliced.get();
+            }
+            LOGGER.debug("Forecast of the horizon has no forecast data, the forecast is fetched per execution");
+        }
+        try {
+            Map<ForecastQuery, List<EmissionForecast>> forecasts = client.getEmissionForecastsBatch(queries);
+            return forecasts == null ? Map.of() : forecasts;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Forecast of the preview could not be fetched. Continue without emission forecast!: ", e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Fetches the forecast of the horizon of the queries once per location and window size, and slices the forecast
+     * of each query from its forecast data. Every data point of the execution window of a query is a candidate of the
+     * sliced forecast, so the best data point included by the calendar is found without another request.
+     *
+     * @return the forecast of each query, or empty if a forecast of the horizon has no forecast data
+     */
+    private static Optional<Map<ForecastQuery, List<EmissionForecast>>> fetchHorizon(CarbonForecastApi client,
+                                                                                     List<ForecastQuery> queries) {
+        Map<ForecastQuery, ForecastQuery> horizons = new LinkedHashMap<>();
+        for (ForecastQuery query : queries) {
+            horizons.merge(horizonKey(query), query, (horizon, other) -> new ForecastQuery(
+                    horizon.location(),
+                    horizon.dataStartAt().isBefore(other.dataStartAt()) ? horizon.dataStartAt() : other.dataStartAt(),
+                    horizon.dataEndAt().isAfter(other.dataEndAt()) ? horizon.dataEndAt() : other.dataEndAt(),
+                    horizon.windowSize()));
+        }
+
+        Map<ForecastQuery, List<EmissionForecast>> horizonForecasts;
+        try {
+            horizonForecasts = client.getEmissionForecastsBatch(List.copyOf(horizons.values()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Forecast of the preview could not be fetched. Continue without emission forecast!: ", e);
+            return Optional.of(Map.of());
+        }
+
+        Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+        for (ForecastQuery query : queries) {
+            List<EmissionForecast> horizon = horizonForecasts == null
+                    ? null
+                    : horizonForecasts.get(horizons.get(horizonKey(query)));
+            if (horizon == null || horizon.isEmpty()) {
+                result.put(query, List.of());
+                continue;
+            }
+            if (horizon.stream().anyMatch(forecast -> forecast.forecastData() == null
+                    || forecast.forecastData().isEmpty())) {
+                return Optional.empty();
+            }
+            result.put(query, horizon.stream().map(forecast -> slice(forecast, query)).toList());
+        }
+        return Optional.of(result);
+    }
+
+    private static ForecastQuery horizonKey(ForecastQuery query) {
+        return new ForecastQuery(query.location(), null, null, query.windowSize());
+    }
+
+    /**
+     * @return the forecast of the data points, whose window lies within the execution window of the query
+     */
+    private static EmissionForecast slice(EmissionForecast forecast, ForecastQuery query) {
+        long windowSize = query.windowSize() == null ? 0 : query.windowSize();
+        List<EmissionData> dataPoints = forecast.forecastData().stream()
+                .filter(Objects::nonNull)
+                .filter(data -> data.timestamp() != null
+                        && !data.timestamp().isBefore(query.dataStartAt())
+                        && !data.timestamp().plusMinutes(windowSize).isAfter(query.dataEndAt()))
+                .toList();
+        return new SlicedForecast(forecast.location(), forecast.windowSize(), dataPoints);
+    }
+
+    private static ExecutionPlan toPlan(PlanningRequest request,
+                                        Map<ForecastQuery, List<EmissionForecast>> forecasts,
+                                        Instant plannedAt) {
+        if (request.deadline() == null) {
+            return new ExecutionPlan(request.configuredExecutionTime(), null, null, plannedAt);
+        }
+        return ForecastPlanner.optimalExecutionPlan(request, forecasts, plannedAt);
+    }
+
+    private record SlicedForecast(String location,
+                                  Integer windowSize,
+                                  List<EmissionData> optimalDataPoints) implements EmissionForecast {
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.rest.AsyncCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+import com.esentri.quartz.carbonaware.util.Functions;
+import org.quartz.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background service, which resolves the optimal execution times of
+ * {@link com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger}s ahead of time.
+ * <p>
+ * Quartz evaluates triggers on the QuartzSchedulerThread while holding the JobStore lock. Fetching a forecast
+ * at this point blocks the firing of every other trigger until the forecast client returns. Therefore, triggers
+ * only {@link #prepare(PlanningRequest) announce} their upcoming executions. The planner fetches the forecast on
+ * its own executor (virtual threads, if available) and re-plans all pending executions periodically with one batch
+ * request per client, so the plan reflects the latest forecast when the trigger {@link #getPlan(PlanningRequest)
+ * reads} it. If the forecast is temporarily unavailable, the last good plan is kept.
+ * <p>
+ * Each scheduler has its own planner, which is started and stopped by its
+ * {@link com.esentri.quartz.carbonaware.plugins.CarbonAwarePlugin} and provided by its {@link SchedulerPlanning}.
+ * Without planner, triggers plan each execution once with {@link #planAsync(PlanningRequest, Executor)} on the
+ * {@link SchedulerPlanning#getExecutor() executor} of their scheduler, but the plans are not refreshed. The planner
+ * fetches the forecasts with the {@link PlanningRequest#carbonForecastApi() client of the request} as it is, the
+ * client is decorated by the trigger.
+ *
+ * @author jannisschalk
+ */
+public class ForecastPlanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForecastPlanner.class);
+
+    private static final long CALENDAR_RESOLUTION_IN_MILLIS = 60_000L;
+
+    private final Map<PlanningRequest.Key, PlanEntry> entries = new ConcurrentHashMap<>();
+    private final Duration refreshInterval;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * Starts a planner.
+     *
+     * @param threadCount     Number of threads fetching forecasts concurrently, if virtual threads are not available
+     * @param refreshInterval Interval to re-plan all pending executions with the latest forecast
+     */
+    public ForecastPlanner(int threadCount, Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        this.workers = ForecastExecutors.newForecastExecutor("carbon-aware-planner", threadCount);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(
+                ForecastExecutors.daemonThreadFactory("carbon-aware-planner-refresh"));
+        this.refresher.scheduleWithFixedDelay(this::refreshPlans,
+                refreshInterval.toMillis(),
+                refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("ForecastPlanner started with {} threads and a refresh interval of {}", threadCount, refreshInterval);
+    }
+
+    /**
+     * Stops the planner and discards all pending plans.
+     */
+    public void shutdown() {
+        refresher.shutdownNow();
+        workers.shutdownNow();
+        entries.clear();
+        LOGGER.info("ForecastPlanner stopped");
+    }
+
+    /**
+     * @return true, if the planner has not been shut down
+     */
+    public boolean isRunning() {
+        return !workers.isShutdown();
+    }
+
+    /**
+     * Announces an upcoming execution. The plan will be computed in the background and refreshed until the
+     * deadline of the execution has passed. This method never blocks.
+     * <p>
+     * The forecast is only fetched, if the execution is announced for the first time, it has changed since it was
+     * announced (e.g. the trigger has been rescheduled with another location or deadline), or its plan is older than
+     * the refresh interval. Executions of unnamed triggers are not planned, because they can't be told apart from each
+     * other.
+     *
+     * @param request the execution to plan
+     */
+    public void prepare(PlanningRequest request) {
+        if (!request.isIdentifiable()) {
+            LOGGER.debug("Execution at {} belongs to an unnamed trigger and is not planned ahead",
+                    request.configuredExecutionTime());
+            return;
+        }
+        PlanEntry entry = entries.compute(request.key(), (key, existing) ->
+                existing == null || !existing.request.equals(request) ? new PlanEntry(request) : existing);
+        if (entry.isDue(refreshInterval)) {
+            submit(entry);
+        }
+    }
+
+    /**
+     * Discards the plans of all executions of a trigger, e.g. after the trigger has been unscheduled.
+     *
+     * @param triggerKey the key of the trigger
+     */
+    public void discard(TriggerKey triggerKey) {
+        entries.keySet().removeIf(key -> key.triggerKey().equals(triggerKey));
+    }
+
+    /**
+     * Reads the plan of an execution, which has already been computed. This method never blocks.
+     *
+     * @param request the planned execution
+     * @return the computed plan, or empty if no plan is ready or the trigger is unnamed
+     */
+    public Optional<ExecutionPlan> getPlan(PlanningRequest request) {
+        if (!request.isIdentifiable()) {
+            return Optional.empty();
+        }
+        PlanEntry entry = entries.get(request.key());
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.plan);
+    }
+
+    /**
+     * @return the number of executions, which are currently planned
+     */
+    public int getPendingPlanCount() {
+        return entries.size();
+    }
+
+    private void submit(PlanEntry entry) {
+        if (!entry.inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            planAsync(entry.request, workers).whenComplete((plan, e) -> {
+                entry.update(plan);
+                entry.inFlight.set(false);
+            });
+        } catch (RejectedExecutionException e) {
+            entry.inFlight.set(false);
+            LOGGER.debug("ForecastPlanner is shutting down, planning of {} is skipped", entry.request.key());
+        }
+    }
+
+    /**
+     * Re-plans all pending executions. The forecasts of all executions using the same client are fetched with a
+     * single {@link CarbonForecastApi#getEmissionForecastsBatch(List) batch request}.
+     */
+    private void refreshPlans() {
+        Date now = new Date();
+        entries.values().removeIf(entry -> entry.request.deadline().before(now));
+
+        Map<CarbonForecastApi, List<PlanEntry>> entriesByClient = new HashMap<>();
+        for (PlanEntry entry : entries.values()) {
+            if (entry.inFlight.compareAndSet(false, true)) {
+                entriesByClient.computeIfAbsent(entry.request.carbonForecastApi(), client -> new ArrayList<>()).add(entry);
+            }
+        }
+        entriesByClient.values().forEach(this::submitBatch);
+    }
+
+    private void submitBatch(List<PlanEntry> batch) {
+        try {
+            planAllAsync(batch.stream().map(entry -> entry.request).toList(), workers).whenComplete((plans, e) -> {
+                for (int i = 0; plans != null && i < batch.size(); i++) {
+                    batch.get(i).update(plans.get(i));
+                }
+                batch.forEach(entry -> entry.inFlight.set(false));
+            });
+        } catch (RejectedExecutionException e) {
+            batch.forEach(entry -> entry.inFlight.set(false));
+            LOGGER.debug("ForecastPlanner is shutting down, refresh of {} plans is skipped", batch.size());
+        }
+    }
+
+    /**
+     * Plans an execution synchronously, by fetching the forecast with the {@link PlanningRequest#carbonForecastApi()}
+     * and determining the data point with the minimal carbon intensity.
+     *
+     * @param request the execution to plan
+     * @return the plan, which has no optimal execution time if the forecast is not available
+     */
+    public static ExecutionPlan planNow(PlanningRequest request) {
+        return planAsync(request, Runnable::run).join();
+    }
+
+    /**
+     * Plans an execution without blocking the caller. The forecast of the whole execution window is fetched on the
+     * given executor. Only if the request has a calendar, which excludes every execution time of the forecast, the
+     * forecasts of the intervals included by the calendar are fetched with a single
+     * {@link CarbonForecastApi#getEmissionForecastsBatch(List) batch request}.
+     *
+     * @param request  the execution to plan
+     * @param executor executor performing the forecast request
+     * @return future of the plan, which has no optimal execution time if the forecast is not available
+     * @throws RejectedExecutionException if the executor does not accept the forecast request
+     */
+    public static CompletableFuture<ExecutionPlan> planAsync(PlanningRequest request, Executor executor) {
+        LOGGER.info("--- {} is about to determine better execution time... ---", request.triggerKey());
+
+        ForecastQuery query = toForecastQuery(request);
+        return fetchCurrentForecast(request.carbonForecastApi(), query, executor)
+                .thenApply(forecast -> Map.of(query, forecast == null ? List.<EmissionForecast>of() : forecast))
+                .thenCompose(forecasts -> {
+                    if (!isExcludedByCalendar(request, forecasts)) {
+                        return CompletableFuture.completedFuture(
+                                selectOptimalExecutionTime(request, List.of(query), forecasts));
+                    }
+                    List<ForecastQuery> includedQueries = toIncludedForecastQueries(request);
+                    return fetchCurrentForecasts(request.carbonForecastApi(), includedQueries, executor)
+                            .thenApply(included -> selectOptimalExecutionTime(request, includedQueries, included));
+                });
+    }
+
+    /**
+     * Plans many executions synchronously. The forecasts of all executions using the same client are fetched with
+     * a single {@link CarbonForecastApi#getEmissionForecastsBatch(List) batch request}.
+     *
+     * @param requests the executions to plan
+     * @return the plans in the order of the requests
+     */
+    public static List<ExecutionPlan> planAll(List<PlanningRequest> requests) {
+        return planAllAsync(requests, Runnable::run).join();
+    }
+
+    /**
+     * Plans many executions without blocking the caller. The forecasts are fetched on the given executor. The
+     * forecasts of the included intervals of executions, whose calendar excludes every execution time of the forecast
+     * of the whole window, are fetched with a second batch request per client.
+     *
+     * @param requests the executions to plan
+     * @param executor executor performing the forecast requests
+     * @return future of the plans in the order of the requests
+     * @throws RejectedExecutionException if the executor does not accept the forecast requests
+     */
+    public static CompletableFuture<List<ExecutionPlan>> planAllAsync(List<PlanningRequest> requests,
+                                                                      Executor executor) {
+        Map<CarbonForecastApi, List<PlanningRequest>> requestsByClient = new HashMap<>();
+        requests.forEach(request -> requestsByClient
+                .computeIfAbsent(request.carbonForecastApi(), client -> new ArrayList<>())
+                .add(request));
+
+        Map<PlanningRequest, ExecutionPlan> plans = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        requestsByClient.forEach((client, requestsOfClient) -> {
+            List<ForecastQuery> queries = requestsOfClient.stream()
+                    .map(ForecastPlanner::toForecastQuery)
+                    .toList();
+            futures.add(fetchCurrentForecasts(client, queries, executor).thenCompose(forecasts -> {
+                List<PlanningRequest> excludedByCalendar = new ArrayList<>();
+                for (PlanningRequest request : requestsOfClient) {
+                    LOGGER.debug("--- {} is about to determine better execution time... ---", request.triggerKey());
+                    if (isExcludedByCalendar(request, forecasts)) {
+                        excludedByCalendar.add(request);
+                    } else {
+                        plans.put(request, selectOptimalExecutionTime(request, List.of(toForecastQuery(request)),
+                                forecasts));
+                    }
+                }
+                if (excludedByCalendar.isEmpty()) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+
+                Map<PlanningRequest, List<ForecastQuery>> includedQueries = new HashMap<>();
+                excludedByCalendar.forEach(request -> includedQueries.put(request, toIncludedForecastQueries(request)));
+                List<ForecastQuery> fallbackQueries = includedQueries.values().stream()
+                        .flatMap(Collection::stream)
+                        .toList();
+                return fetchCurrentForecasts(client, fallbackQueries, executor).thenAccept(included -> {
+                    for (PlanningRequest request : excludedByCalendar) {
+                        plans.put(request, selectOptimalExecutionTime(request, includedQueries.get(request), included));
+                    }
+                });
+            }));
+        });
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> requests.stream().map(plans::get).toList());
+    }
+
+    /**
+     * @return true if the request has a calendar, which excludes every execution time of the available forecast of the
+     * whole execution window
+     */
+    private static boolean isExcludedByCalendar(PlanningRequest request,
+                                                Map<ForecastQuery, List<EmissionForecast>> forecasts) {
+        List<ForecastQuery> queries = List.of(toForecastQuery(request));
+        return request.calendar() != null
+                && isForecastAvailable(queries, forecasts)
+                && !optimalExecutionPlan(request, queries, forecasts, Instant.now()).isDetermined();
+    }
+
+    private static boolean isForecastAvailable(List<ForecastQuery> queries,
+                                               Map<ForecastQuery, List<EmissionForecast>> forecasts) {
+        return queries.stream()
+                .map(forecasts::get)
+                .anyMatch(emissionForecasts -> emissionForecasts != null && !emissionForecasts.isEmpty());
+    }
+
+    private static ExecutionPlan selectOptimalExecutionTime(PlanningRequest request,
+                                                            List<ForecastQuery> queries,
+                                                            Map<ForecastQuery, List<EmissionForecast>> forecasts) {
+        if (!isForecastAvailable(queries, forecasts)) {
+            LOGGER.warn("Execution of Job won't be time shifted, because of missing carbon forecast.");
+            return ExecutionPlan.unavailable(request.configuredExecutionTime());
+        }
+
+        ExecutionPlan plan = optimalExecutionPlan(request, queries, forecasts, Instant.now());
+        if (!plan.isDetermined()) {
+            LOGGER.warn("Execution of Job won't be time shifted. " +
+                    "Either the current forecast received from the API does not match the configured location {}," +
+                    " or there is no optimal data point.", request.location());
+            return plan;
+        }
+
+        LOGGER.info("--- {} determined better execution time at {} ---", request.triggerKey(), plan.optimalExecutionTime());
+        return plan;
+    }
+
+    /**
+     * Selects the data point with the minimal carbon intensity of the forecast of the whole execution window of the
+     * request.
+     *
+     * @param request   the execution to plan
+     * @param forecasts the forecasts containing the forecast of the {@link #toForecastQuery(PlanningRequest) query}
+     *                  of the request
+     * @param plannedAt the time the plan is computed
+     * @return the plan, which has no optimal execution time if no data point is found
+     * @see #optimalExecutionPlan(PlanningRequest, List, Map, Instant)
+     */
+    static ExecutionPlan optimalExecutionPlan(PlanningRequest request,
+                                              Map<ForecastQuery, List<EmissionForecast>> forecasts,
+                                              Instant plannedAt) {
+        return optimalExecutionPlan(request, List.of(toForecastQuery(request)), forecasts, plannedAt);
+    }
+
+    /**
+     * Selects the data point with the minimal carbon intensity of the forecasts of the given queries. An execution
+     * time before the start of its query, e.g. the time window already active at the start or the current time, is
+     * moved to the start of the query, so an execution is never planned before its configured execution time.
+     * Execution times excluded by the calendar are skipped in favour of the next best data point of the query.
+     *
+     * @param request   the execution to plan
+     * @param queries   the queries of the request, either the whole window or the intervals included by the calendar
+     * @param forecasts the forecasts of the queries
+     * @param plannedAt the time the plan is computed
+     * @return the plan, which has no optimal execution time if no data point is found
+     */
+    static ExecutionPlan optimalExecutionPlan(PlanningRequest request,
+                                              List<ForecastQuery> queries,
+                                              Map<ForecastQuery, List<EmissionForecast>> forecasts,
+                                              Instant plannedAt) {
+        Date optimalExecutionTime = null;
+        EmissionData optimalEmissionData = null;
+        for (ForecastQuery query : queries) {
+            for (EmissionData emissionData : emissionDataByValue(request, forecasts.get(query))) {
+                if (optimalEmissionData != null && emissionData.value() >= optimalEmissionData.value()) {
+                    break;
+                }
+                Date executionTime = Functions.convertLocalDateToDate(
+                        emissionData.timestamp().isBefore(query.dataStartAt())
+                                ? query.dataStartAt()
+                                : emissionData.timestamp(),
+                        request.timeZone());
+                if (request.calendar() == null || request.calendar().isTimeIncluded(executionTime.getTime())) {
+                    optimalExecutionTime = executionTime;
+                    optimalEmissionData = emissionData;
+                    break;
+                }
+            }
+        }
+
+        return optimalEmissionData == null
+                ? new ExecutionPlan(request.configuredExecutionTime(), null, null, plannedAt)
+                : new ExecutionPlan(request.configuredExecutionTime(), optimalExecutionTime, optimalEmissionData, plannedAt);
+    }
+
+    /**
+     * @return the data points of the location of the request in ascending order of their carbon intensity
+     */
+    private static List<EmissionData> emissionDataByValue(PlanningRequest request,
+                                                          List<EmissionForecast> emissionForecasts) {
+        if (emissionForecasts == null) {
+            return List.of();
+        }
+        return emissionForecasts.stream()
+                .filter(forecast -> request.location().equals(forecast.location()))
+                .map(EmissionForecast::optimalDataPoints)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .filter(Objects::nonNull)
+                .filter(data -> data.value() != null && data.timestamp() != null)
+                .sorted(Comparator.comparingDouble(EmissionData::value))
+                .toList();
+    }
+
+    private static CompletableFuture<List<EmissionForecast>> fetchCurrentForecast(CarbonForecastApi client,
+                                                                                 ForecastQuery query,
+                                                                                 Executor executor) {
+        CompletableFuture<List<EmissionForecast>> future;
+        try {
+            future = asyncClient(client, executor).getEmissionForecastCurrentAsync(
+                    List.of(query.location()),
+                    query.dataStartAt(),
+                    query.dataEndAt(),
+                    query.windowSize());
+        } catch (RejectedExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.exceptionally(e -> {
+            LOGGER.warn("Exception was thrown during getEmissionForecast. Continue without emission forecast!: ", e);
+            return List.of();
+        });
+    }
+
+    private static CompletableFuture<Map<ForecastQuery, List<EmissionForecast>>> fetchCurrentForecasts(
+            CarbonForecastApi client,
+            List<ForecastQuery> queries,
+            Executor executor) {
+        if (queries.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        CompletableFuture<Map<ForecastQuery, List<EmissionForecast>>> future;
+        try {
+            future = asyncClient(client, executor).getEmissionForecastsBatchAsync(queries);
+        } catch (RejectedExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.exceptionally(e -> {
+            LOGGER.warn("Exception was thrown during getEmissionForecastsBatch. Continue without emission forecast!: ", e);
+            return Map.of();
+        });
+    }
+
+    private static AsyncCarbonForecastApi asyncClient(CarbonForecastApi client, Executor executor) {
+        return AsyncCarbonForecastApi.fromBlocking(client, executor);
+    }
+
+    /**
+     * @param request the execution to plan
+     * @return the forecast query of the execution window between the configured execution time and the deadline
+     */
+    static ForecastQuery toForecastQuery(PlanningRequest request) {
+        return toForecastQuery(request, request.configuredExecutionTime(), request.deadline());
+    }
+
+    /**
+     * Creates the forecast queries of the intervals of the execution window, which are included by the calendar of the
+     * request. They are used, if the calendar excludes every execution time of the forecast of the whole window, so
+     * the job is only shifted to times the calendar includes. Without calendar, the whole window is a single interval.
+     * The intervals are determined with a resolution of one minute.
+     *
+     * @param request the execution to plan
+     * @return the queries in chronological order, which are empty if the calendar excludes the whole window
+     */
+    static List<ForecastQuery> toIncludedForecastQueries(PlanningRequest request) {
+        org.quartz.Calendar calendar = request.calendar();
+        if (calendar == null) {
+            return List.of(toForecastQuery(request));
+        }
+
+        List<ForecastQuery> queries = new ArrayList<>();
+        long deadline = request.deadline().getTime();
+        long time = request.configuredExecutionTime().getTime();
+        while (time < deadline) {
+            if (!calendar.isTimeIncluded(time)) {
+                long nextIncludedTime = calendar.getNextIncludedTime(time);
+                if (nextIncludedTime <= time) {
+                    break;
+                }
+                time = nextIncludedTime;
+                continue;
+            }
+            long end = time;
+            while (end < deadline && calendar.isTimeIncluded(end)) {
+                end += CALENDAR_RESOLUTION_IN_MILLIS;
+            }
+            end = Math.min(end, deadline);
+            queries.add(toForecastQuery(request, new Date(time), new Date(end)));
+            time = end;
+        }
+        return queries;
+    }
+
+    private static ForecastQuery toForecastQuery(PlanningRequest request, Date start, Date end) {
+        LocalDateTime startDate = Functions.convertDateToLocalDate(start, request.timeZone());
+        LocalDateTime endDate = Functions.convertDateToLocalDate(end, request.timeZone());
+        return new ForecastQuery(request.location(), startDate, endDate, request.jobDurationInMinutes());
+    }
+
+    private static final class PlanEntry {
+        private final PlanningRequest request;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private volatile ExecutionPlan plan;
+
+        private PlanEntry(PlanningRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * @return true if the plan has not been computed yet, or it is older than the given refresh interval
+         */
+        private boolean isDue(Duration refreshInterval) {
+            ExecutionPlan lastPlan = plan;
+            return lastPlan == null || lastPlan.plannedAt().isBefore(Instant.now().minus(refreshInterval));
+        }
+
+        /**
+         * Keeps the last good plan, if the forecast is temporarily unavailable and the optimal execution time
+         * of the last good plan is still ahead.
+         */
+        private void update(ExecutionPlan newPlan) {
+            if (newPlan == null) {
+                return;
+            }
+            ExecutionPlan lastPlan = plan;
+            if (!newPlan.isDetermined()
+                    && lastPlan != null
+                    && lastPlan.isDetermined()
+                    && lastPlan.optimalExecutionTime().after(new Date())) {
+                LOGGER.info("Forecast of {} is unavailable, keeping the plan from {}",
+                        request.triggerKey(), lastPlan.plannedAt());
+                return;
+            }
+            plan = newPlan;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import org.quartz.Calendar;
+import org.quartz.TriggerKey;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * All information required to plan a single execution of a
+ * {@link com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger}.
+ *
+ * @param triggerKey              Key of the trigger the execution belongs to, may be null for unnamed triggers
+ * @param carbonForecastApi       Client to fetch the carbon forecast with
+ * @param location                The location of the forecast
+ * @param configuredExecutionTime The execution time given by the cron expression of the trigger
+ * @param deadline                The latest time the job has to be finished
+ * @param jobDurationInMinutes    The estimated duration of the job
+ * @param timeZone                The time zone of the trigger
+ * @param calendar                The calendar of the trigger, the execution is only shifted to times it includes.
+ *                                May be null
+ *
+ * @author jannisschalk
+ */
+public record PlanningRequest(TriggerKey triggerKey,
+                              CarbonForecastApi carbonForecastApi,
+                              String location,
+                              Date configuredExecutionTime,
+                              Date deadline,
+                              int jobDurationInMinutes,
+                              TimeZone timeZone,
+                              Calendar calendar) {
+
+    /**
+     * Creates a request without calendar.
+     */
+    public PlanningRequest(TriggerKey triggerKey,
+                           CarbonForecastApi carbonForecastApi,
+                           String location,
+                           Date configuredExecutionTime,
+                           Date deadline,
+                           int jobDurationInMinutes,
+                           TimeZone timeZone) {
+        this(triggerKey, carbonForecastApi, location, configuredExecutionTime, deadline, jobDurationInMinutes,
+                timeZone, null);
+    }
+
+    /**
+     * @return true, if the execution can be identified by its {@link #key()}. Executions of unnamed triggers share
+     * a key with each other and must not be cached by it
+     */
+    public boolean isIdentifiable() {
+        return triggerKey != null;
+    }
+
+    /**
+     * @return the key, identifying the planned execution
+     */
+    public Key key() {
+        return new Key(triggerKey, configuredExecutionTime.getTime());
+    }
+
+    /**
+     * Identifies a planned execution. The key is independent of the {@link CarbonForecastApi} instance, because
+     * persistent JobStores deserialize a new trigger (and client) instance on every acquisition.
+     *
+     * @param triggerKey              Key of the trigger the execution belongs to
+     * @param configuredExecutionTime The execution time given by the cron expression in epoch milliseconds
+     */
+    public record Key(TriggerKey triggerKey, long configuredExecutionTime) {
+    }
+}
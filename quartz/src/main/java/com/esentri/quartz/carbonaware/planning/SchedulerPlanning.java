@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerException;
+import org.quartz.impl.SchedulerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Planning configuration of a scheduler: the decorators of the forecast clients, the {@link ForecastPlanner} and
+ * whether executions are planned ahead or vetoed.
+ * <p>
+ * The {@link com.esentri.quartz.carbonaware.plugins.CarbonAwarePlugin} {@link #bindTo(Scheduler) binds} the planning
+ * to its scheduler with the {@link SchedulerContext}, from which the
+ * {@link com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger}s of the scheduler resolve it. Several
+ * schedulers in the same JVM therefore have isolated planners and decorators.
+ * <p>
+ * A trigger without scheduler name uses the planning of the only scheduler of the JVM, which has one. If the planning
+ * can't be resolved, the {@link #defaults() defaults} apply: the clients are not decorated and executions are vetoed
+ * like before planning ahead was introduced. Planning ahead is only enabled by a scheduler, whose plugin allows it,
+ * since a dryrun scheduler vetoes every execution, which is not shifted.
+ *
+ * @author jannisschalk
+ */
+public class SchedulerPlanning {
+
+    /**
+     * Key of the planning in the {@link SchedulerContext} of its scheduler
+     */
+    public static final String CONTEXT_KEY = SchedulerPlanning.class.getName();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerPlanning.class);
+    private static final SchedulerPlanning DEFAULTS = new SchedulerPlanning(CarbonForecastApiDecorators.none(), null, false);
+    private static final AtomicLong BINDINGS = new AtomicLong();
+
+    private final CarbonForecastApiDecorators decorators;
+    private final ForecastPlanner planner;
+    private final boolean planAhead;
+    private final Executor executor;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a planning, which plans executions ahead.
+     *
+     * @param decorators The decorators of the forecast clients
+     * @param planner    The planner, or null to plan each execution once on the shared forecast executor
+     */
+    public SchedulerPlanning(CarbonForecastApiDecorators decorators, ForecastPlanner planner) {
+        this(decorators, planner, true);
+    }
+
+    /**
+     * @param decorators The decorators of the forecast clients
+     * @param planner    The planner, or null to plan each execution once on the shared forecast executor
+     * @param planAhead  true to plan executions ahead, false to veto executions (see {@link #isPlanAhead()})
+     */
+    public SchedulerPlanning(CarbonForecastApiDecorators decorators, ForecastPlanner planner, boolean planAhead) {
+        this(decorators, planner, planAhead, null);
+    }
+
+    /**
+     * @param decorators The decorators of the forecast clients
+     * @param planner    The planner, or null to plan each execution once on the given executor
+     * @param planAhead  true to plan executions ahead, false to veto executions (see {@link #isPlanAhead()})
+     * @param executor   The executor planning the executions, which are not planned by the planner, or null to use
+     *                   the {@link ForecastExecutors#shared() shared forecast executor}
+     */
+    public SchedulerPlanning(CarbonForecastApiDecorators decorators,
+                             ForecastPlanner planner,
+                             boolean planAhead,
+                             Executor executor) {
+        this.decorators = Objects.requireNonNull(decorators);
+        this.planner = planner;
+        this.planAhead = planAhead;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the planning, which applies if the planning of a scheduler can't be resolved
+     */
+    public static SchedulerPlanning defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Binds the planning to a scheduler by putting it into the {@link SchedulerContext} of the scheduler.
+     *
+     * @param scheduler The scheduler, whose triggers use the planning
+     * @throws SchedulerException if the context of the scheduler can not be accessed
+     */
+    public void bindTo(Scheduler scheduler) throws SchedulerException {
+        scheduler.getContext().put(CONTEXT_KEY, this);
+        BINDINGS.incrementAndGet();
+    }
+
+    /**
+     * Counts the plannings bound to a scheduler, so a trigger, which has resolved the defaults, only resolves the
+     * planning of its scheduler again, if a planning has been bound since.
+     *
+     * @return the number of plannings bound to a scheduler of the JVM so far
+     */
+    public static long bindings() {
+        return BINDINGS.get();
+    }
+
+    /**
+     * @param context The context of a scheduler
+     * @return the planning bound to the scheduler, or the defaults if no planning is bound
+     */
+    public static SchedulerPlanning fromContext(SchedulerContext context) {
+        if (context != null && context.get(CONTEXT_KEY) instanceof SchedulerPlanning planning) {
+            return planning;
+        }
+        return DEFAULTS;
+    }
+
+    /**
+     * Resolves the planning of a scheduler from the {@link SchedulerRepository}. Without a scheduler name, the planning
+     * of the only scheduler of the JVM, which has one, is resolved.
+     *
+     * @param schedulerName The name of the scheduler, or null
+     * @return the planning bound to the scheduler, or the defaults if the scheduler does not exist, no planning is
+     * bound to it, or no scheduler name is given and several schedulers have a planning
+     */
+    public static SchedulerPlanning ofScheduler(String schedulerName) {
+        try {
+            if (schedulerName != null) {
+                Scheduler scheduler = SchedulerRepository.getInstance().lookup(schedulerName);
+                return scheduler == null ? DEFAULTS : fromContext(scheduler.getContext());
+            }
+            List<SchedulerPlanning> plannings = new ArrayList<>();
+            for (Scheduler scheduler : SchedulerRepository.getInstance().lookupAll()) {
+                if (scheduler.getContext().get(CONTEXT_KEY) instanceof SchedulerPlanning planning) {
+                    plannings.add(planning);
+                }
+            }
+            if (plannings.size() > 1) {
+                LOGGER.debug("Several schedulers have a planning, the defaults apply to triggers without scheduler name");
+            }
+            return plannings.size() == 1 ? plannings.get(0) : DEFAULTS;
+        } catch (SchedulerException e) {
+            LOGGER.debug("Context of scheduler {} can not be accessed: {}", schedulerName, e.toString());
+            return DEFAULTS;
+        }
+    }
+
+    /**
+     * @param carbonForecastApi the client to decorate
+     * @return the client decorated with the decorators of the scheduler
+     */
+    public CarbonForecastApi decorate(CarbonForecastApi carbonForecastApi) {
+        return decorators.decorate(carbonForecastApi);
+    }
+
+    public CarbonForecastApiDecorators getDecorators() {
+        return decorators;
+    }
+
+    /**
+     * @return the planner of the scheduler, or empty if each execution is planned once on the
+     * {@link #getExecutor() executor}
+     */
+    public Optional<ForecastPlanner> getPlanner() {
+        return Optional.ofNullable(planner);
+    }
+
+    /**
+     * The forecast is never fetched on the QuartzSchedulerThread. Executions, which are not planned by the planner,
+     * because the scheduler has none or the trigger is unnamed, are planned once on this executor.
+     *
+     * @return the executor planning the executions, which are not planned by the planner
+     */
+    public Executor getExecutor() {
+        return executor != null ? executor : ForecastExecutors.shared();
+    }
+
+    /**
+     * If executions are planned ahead, the next fire time of a trigger is the optimal execution time of its next
+     * configured execution, so the trigger only fires when the job is executed. Otherwise, a trigger fires at each
+     * configured execution time, plans the following execution and the
+     * {@link com.esentri.quartz.carbonaware.plugins.listeners.TimeShiftingTriggerListener} vetoes the execution.
+     *
+     * @return true if the triggers of the scheduler plan their executions ahead, false if executions are vetoed
+     */
+    public boolean isPlanAhead() {
+        return planAhead;
+    }
+
+    /**
+     * Stops the planner of the scheduler. Triggers, which have resolved the planning, resolve the planning of their
+     * scheduler again. The defaults can't be shut down.
+     */
+    public void shutdown() {
+        if (this == DEFAULTS) {
+            return;
+        }
+        shutdown = true;
+        if (planner != null) {
+            planner.shutdown();
+        }
+    }
+
+    /**
+     * @return true if the scheduler of the planning has been shut down
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+}
@@ -5,19 +5,42 @@
  */
 package com.esentri.quartz.carbonaware.plugins;
 
+import com.esentri.quartz.carbonaware.clients.decorators.CachingCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
+import com.esentri.quartz.carbonaware.clients.decorators.CoalescingCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.decorators.ResilientCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.opendata.CarbonAwareTriggerTracker;
+import com.esentri.quartz.carbonaware.clients.opendata.CompositeForecastSource;
 import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProvider;
+import com.esentri.quartz.carbonaware.clients.opendata.ForecastArchive;
+import com.esentri.quartz.carbonaware.clients.opendata.ForecastSourceRegistry;
+import com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient;
 import com.esentri.quartz.carbonaware.clients.opendata.OpenDataUpdateJob;
+import com.esentri.quartz.carbonaware.clients.opendata.RefreshSchedule;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
 import com.esentri.quartz.carbonaware.plugins.listeners.CarbonStatisticsTriggerListener;
+import com.esentri.quartz.carbonaware.plugins.listeners.PlanDiscardingSchedulerListener;
 import com.esentri.quartz.carbonaware.plugins.listeners.TimeShiftingTriggerListener;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
 import org.quartz.*;
 import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.SchedulerPlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
@@ -27,7 +50,17 @@ import static org.quartz.TriggerBuilder.newTrigger;
  * quartz.properties the {@link CarbonStatisticsTriggerListener}
  * If configured using the OpenData Provider, the OpenDataProvider will be initialized with the configured locations
  * from quartz.properties.
- * Also, the {@link OpenDataUpdateJob} will be scheduled to ensure the cached forecast is up to date
+ * Also, the {@link OpenDataUpdateJob} will be scheduled to ensure the cached forecast is up to date.
+ * If asynchronous planning is enabled, the {@link ForecastPlanner} is started to resolve the optimal execution
+ * times in the background instead of on the QuartzSchedulerThread.
+ * If planning ahead is enabled, the triggers fire at the optimal execution times instead of being vetoed at the
+ * configured execution times.
+ * The configured decorators (e.g. circuit breaker, request coalescing and caching) are applied to all forecast clients
+ * of the scheduler. The planner and the decorators are bound to the scheduler as its {@link SchedulerPlanning}, so
+ * several schedulers of the JVM don't share them.
+ * The client of the OpenDataProvider of the scheduler is registered in the {@link CarbonForecastApiRegistry} with
+ * the name of the scheduler, so triggers using it are stored with the key of the client instead of the serialized
+ * client.
  * @author jannisschalk
  * */
 public class CarbonAwarePlugin implements SchedulerPlugin {
@@ -41,41 +74,192 @@ public class CarbonAwarePlugin implements SchedulerPlugin {
     private boolean enableStatistics;
     private boolean dryrun;
     private boolean useOpenDataProvider;
+    private boolean asyncPlanning = true;
+    private boolean planAhead = true;
+    private int plannerThreadCount = 2;
+    private long plannerRefreshIntervalInSeconds = 300;
+    private boolean enableForecastCoalescing = true;
+    private long forecastCoalescingWindowInMillis = 1000;
+    private boolean enableForecastCache = true;
+    private int forecastCacheMaxEntries = 1024;
+    private long forecastCacheTtlInSeconds = 120;
+    private long forecastCacheBucketInMinutes = 15;
+    private boolean enableForecastResilience = true;
+    private long forecastTimeoutInMillis = 5000;
+    private int circuitBreakerFailureThreshold = 5;
+    private long circuitBreakerOpenDurationInSeconds = 60;
+    private long openDataConnectTimeoutInMillis = 10000;
+    private long openDataReadTimeoutInMillis = 30000;
+    private int openDataParallelRequests = 8;
+    private boolean openDataIncrementalRefresh = true;
+    private int openDataRetryAttempts = 3;
+    private long openDataRetryBackoffInMillis = 1000;
+    private long openDataMaximumStalenessInMinutes = 0;
+    private String openDataSnapshotFile;
+    private boolean openDataAdaptiveRefresh = true;
+    private long openDataMinimumRefreshIntervalInMinutes = 15;
+    private long openDataMaximumRefreshIntervalInMinutes = 360;
+    private boolean openDataOnDemandLoading = true;
+    private long openDataOnDemandIdleTimeoutInMinutes = 1440;
+    private String openDataSources;
+    private String openDataSourceStrategy = CompositeForecastSource.Strategy.FIRST_HEALTHY.name();
+    private long openDataRetentionLookbackInMinutes = 1440;
+    private int openDataRetentionCapacity = 1024;
+    private String openDataArchiveDirectory;
 
     private Runnable openDataUpdateJobRegisterer;
+    private EnergyChartsForecastProvider openDataProvider;
+    private ForecastArchive openDataArchive;
+    private SchedulerPlanning planning;
+    private final Map<String, CarbonForecastApi> registeredClients = new LinkedHashMap<>();
 
     @Override
     public void initialize(String name, Scheduler scheduler, ClassLoadHelper loadHelper) throws SchedulerException {
         initOpenDataProviderJobRegistratorIfConfigured(scheduler);
+        // the dry run relies on the veto of the configured execution times
+        planning = new SchedulerPlanning(
+                createForecastClientDecorators(),
+                createForecastPlannerIfConfigured(),
+                planAhead && !dryrun);
+        planning.bindTo(scheduler);
+        planning.getPlanner().ifPresent(planner -> scheduler.getListenerManager()
+                .addSchedulerListener(new PlanDiscardingSchedulerListener(planner)));
         initCarbonStatisticsTriggerListenerIfConfigured(scheduler);
 
         scheduler.getListenerManager().addTriggerListener(new TimeShiftingTriggerListener(dryrun));
     }
 
+    private CarbonForecastApiDecorators createForecastClientDecorators() {
+        UnaryOperator<CarbonForecastApi> decorator = UnaryOperator.identity();
+        if (enableForecastResilience) {
+            LOGGER.info("Enabled deadline and circuit breaker of forecast requests...");
+            decorator = chain(decorator, client -> new ResilientCarbonForecastApi(
+                    client,
+                    Duration.ofMillis(forecastTimeoutInMillis),
+                    circuitBreakerFailureThreshold,
+                    Duration.ofSeconds(circuitBreakerOpenDurationInSeconds)));
+        }
+        if (enableForecastCoalescing) {
+            LOGGER.info("Enabled coalescing of forecast requests...");
+            decorator = chain(decorator, client -> new CoalescingCarbonForecastApi(
+                    client,
+                    Duration.ofMillis(forecastCoalescingWindowInMillis)));
+        }
+        if (enableForecastCache) {
+            LOGGER.info("Enabled caching of forecast results...");
+            decorator = chain(decorator, client -> new CachingCarbonForecastApi(
+                    client,
+                    forecastCacheMaxEntries,
+                    Duration.ofSeconds(forecastCacheTtlInSeconds),
+                    Duration.ofMinutes(forecastCacheBucketInMinutes),
+                    forecastDataVersion()));
+        }
+        return new CarbonForecastApiDecorators(decorator);
+    }
+
+    /**
+     * @return the version of the forecast data of the open data provider of the scheduler, which invalidates the
+     * cached forecast results whenever the provider publishes new data
+     */
+    private LongSupplier forecastDataVersion() {
+        EnergyChartsForecastProvider provider = openDataProvider;
+        return provider == null ? () -> 0L : provider::getDataVersion;
+    }
+
+    /**
+     * @return decorator, applying the inner decorator first and wrapping the result with the outer decorator
+     */
+    private static UnaryOperator<CarbonForecastApi> chain(UnaryOperator<CarbonForecastApi> inner,
+                                                          UnaryOperator<CarbonForecastApi> outer) {
+        return client -> outer.apply(inner.apply(client));
+    }
+
+    private ForecastPlanner createForecastPlannerIfConfigured() {
+        if (!asyncPlanning) {
+            return null;
+        }
+        LOGGER.info("Enabled asynchronous forecast planning...");
+        return new ForecastPlanner(plannerThreadCount, Duration.ofSeconds(plannerRefreshIntervalInSeconds));
+    }
+
     private void initCarbonStatisticsTriggerListenerIfConfigured(Scheduler scheduler) throws SchedulerException {
         if (enableStatistics) {
             LOGGER.info("Enabled statistics plugin...");
             scheduler.getListenerManager().addTriggerListener(new CarbonStatisticsTriggerListener(
                     persistenceClientImplementationClass,
                     restClientImplementationClass,
-                    dryrun));
+                    dryrun,
+                    ForecastExecutors.shared(),
+                    planning.getDecorators()));
         }
     }
 
-    private void initOpenDataProviderJobRegistratorIfConfigured(Scheduler scheduler) {
+    private void initOpenDataProviderJobRegistratorIfConfigured(Scheduler scheduler) throws SchedulerException {
         if (useOpenDataProvider) {
             LOGGER.info("Enabled Default OpenDataProvider ...");
+            // each scheduler has its own provider, which its jobs and clients resolve from the scheduler context
+            openDataProvider = new EnergyChartsForecastProvider();
+            openDataProvider.bindTo(scheduler);
+            if (openDataAdaptiveRefresh) {
+                // the adaptive update job only reads the carbon-aware triggers to collect the demand of the locations
+                new CarbonAwareTriggerTracker().bindTo(scheduler);
+            }
+            String schedulerName = scheduler.getSchedulerName();
+            if (schedulerName != null) {
+                registerClient(OpenDataForecastClient.class.getName() + "@" + schedulerName,
+                        OpenDataForecastClient.forScheduler(schedulerName));
+            }
             openDataUpdateJobRegisterer = () -> {
                 List<String> locations = Arrays.asList(openDataLocations.split(","));
-                EnergyChartsForecastProvider.initialize(locations);
+                openDataProvider.configureTimeouts(
+                        Duration.ofMillis(openDataConnectTimeoutInMillis),
+                        Duration.ofMillis(openDataReadTimeoutInMillis));
+                openDataProvider.configureParallelRequests(openDataParallelRequests);
+                openDataProvider.configureIncrementalRefresh(openDataIncrementalRefresh);
+                openDataProvider.configureRetries(
+                        openDataRetryAttempts,
+                        Duration.ofMillis(openDataRetryBackoffInMillis));
+                openDataProvider.configureMaximumStaleness(openDataMaximumStalenessInMinutes > 0
+                        ? Duration.ofMinutes(openDataMaximumStalenessInMinutes)
+                        : null);
+                openDataProvider.configureSnapshotFile(openDataSnapshotFile == null || openDataSnapshotFile.isBlank()
+                        ? null
+                        : Path.of(openDataSnapshotFile.trim()));
+                openDataProvider.configureRefreshSchedule(new RefreshSchedule(
+                        Duration.ofMinutes(openDataMinimumRefreshIntervalInMinutes),
+                        Duration.ofMinutes(openDataMaximumRefreshIntervalInMinutes)));
+                openDataProvider.configureOnDemandLoading(
+                        openDataOnDemandLoading,
+                        Duration.ofMinutes(openDataOnDemandIdleTimeoutInMinutes));
+                openDataProvider.configureForecastSources(openDataSources == null || openDataSources.isBlank()
+                        ? ForecastSourceRegistry.energyChartsOnly()
+                        : ForecastSourceRegistry.fromConfiguration(openDataSources,
+                        CompositeForecastSource.Strategy.valueOf(openDataSourceStrategy.trim().toUpperCase())));
+                openDataProvider.configureRetention(openDataRetentionLookbackInMinutes > 0
+                                ? Duration.ofMinutes(openDataRetentionLookbackInMinutes)
+                                : null,
+                        openDataRetentionCapacity);
+                if (openDataArchiveDirectory != null && !openDataArchiveDirectory.isBlank()) {
+                    try {
+                        openDataArchive = ForecastArchive.open(Path.of(openDataArchiveDirectory.trim()));
+                    } catch (IOException e) {
+                        throw new IllegalStateException(
+                                "Forecast archive %s can not be opened.".formatted(openDataArchiveDirectory), e);
+                    }
+                    openDataProvider.configureArchive(openDataArchive);
+                }
+                openDataProvider.initialize(locations);
 
                 JobDetail openDataUpdateJob = newJob(OpenDataUpdateJob.class)
                         .withIdentity(OpenDataUpdateJob.JOB_NAME, OpenDataUpdateJob.JOB_GROUP_NAME)
+                        .usingJobData(OpenDataUpdateJob.ADAPTIVE_REFRESH, openDataAdaptiveRefresh)
                         .build();
                 CronTrigger openDataUpdateTrigger = newTrigger()
                         .withIdentity("OpenDataProviderUpdateTrigger", OpenDataUpdateJob.JOB_GROUP_NAME)
                         .forJob(OpenDataUpdateJob.JOB_NAME, OpenDataUpdateJob.JOB_GROUP_NAME)
-                        .withSchedule(CronScheduleBuilder.cronSchedule(OpenDataUpdateJob.UPDATE_INTERVAL_CRON_PATTERN))
+                        .withSchedule(CronScheduleBuilder.cronSchedule(openDataAdaptiveRefresh
+                                ? OpenDataUpdateJob.ADAPTIVE_REFRESH_CRON_PATTERN
+                                : OpenDataUpdateJob.UPDATE_INTERVAL_CRON_PATTERN))
                         .build();
                 try {
                     scheduler.scheduleJob(openDataUpdateJob, Set.of(openDataUpdateTrigger), true);
@@ -88,6 +272,11 @@ public class CarbonAwarePlugin implements SchedulerPlugin {
         }
     }
 
+    private void registerClient(String key, CarbonForecastApi client) {
+        CarbonForecastApiRegistry.register(key, client);
+        registeredClients.put(key, client);
+    }
+
     @Override
     public void start() {
         // start the update job when scheduler is started
@@ -98,7 +287,21 @@ public class CarbonAwarePlugin implements SchedulerPlugin {
 
     @Override
     public void shutdown() {
-        // do nothing
+        if (planning != null) {
+            planning.shutdown();
+        }
+        registeredClients.forEach(CarbonForecastApiRegistry::unregister);
+        registeredClients.clear();
+        if (openDataProvider != null) {
+            openDataProvider.shutdown();
+        }
+        if (openDataArchive != null) {
+            try {
+                openDataArchive.close();
+            } catch (IOException e) {
+                LOGGER.warn("Forecast archive could not be closed: {}", e.toString());
+            }
+        }
     }
 
     public String getPersistenceClientImplementationClass() {
@@ -148,4 +351,260 @@ public class CarbonAwarePlugin implements SchedulerPlugin {
     public void setUseOpenDataProvider(boolean useOpenDataProvider) {
         this.useOpenDataProvider = useOpenDataProvider;
     }
+
+    public boolean isAsyncPlanning() {
+        return asyncPlanning;
+    }
+
+    public void setAsyncPlanning(boolean asyncPlanning) {
+        this.asyncPlanning = asyncPlanning;
+    }
+
+    public boolean isPlanAhead() {
+        return planAhead;
+    }
+
+    public void setPlanAhead(boolean planAhead) {
+        this.planAhead = planAhead;
+    }
+
+    public int getPlannerThreadCount() {
+        return plannerThreadCount;
+    }
+
+    public void setPlannerThreadCount(int plannerThreadCount) {
+        this.plannerThreadCount = plannerThreadCount;
+    }
+
+    public long getPlannerRefreshIntervalInSeconds() {
+        return plannerRefreshIntervalInSeconds;
+    }
+
+    public void setPlannerRefreshIntervalInSeconds(long plannerRefreshIntervalInSeconds) {
+        this.plannerRefreshIntervalInSeconds = plannerRefreshIntervalInSeconds;
+    }
+
+    public boolean isEnableForecastCoalescing() {
+        return enableForecastCoalescing;
+    }
+
+    public void setEnableForecastCoalescing(boolean enableForecastCoalescing) {
+        this.enableForecastCoalescing = enableForecastCoalescing;
+    }
+
+    public long getForecastCoalescingWindowInMillis() {
+        return forecastCoalescingWindowInMillis;
+    }
+
+    public void setForecastCoalescingWindowInMillis(long forecastCoalescingWindowInMillis) {
+        this.forecastCoalescingWindowInMillis = forecastCoalescingWindowInMillis;
+    }
+
+    public boolean isEnableForecastCache() {
+        return enableForecastCache;
+    }
+
+    public void setEnableForecastCache(boolean enableForecastCache) {
+        this.enableForecastCache = enableForecastCache;
+    }
+
+    public int getForecastCacheMaxEntries() {
+        return forecastCacheMaxEntries;
+    }
+
+    public void setForecastCacheMaxEntries(int forecastCacheMaxEntries) {
+        this.forecastCacheMaxEntries = forecastCacheMaxEntries;
+    }
+
+    public long getForecastCacheTtlInSeconds() {
+        return forecastCacheTtlInSeconds;
+    }
+
+    public void setForecastCacheTtlInSeconds(long forecastCacheTtlInSeconds) {
+        this.forecastCacheTtlInSeconds = forecastCacheTtlInSeconds;
+    }
+
+    public long getForecastCacheBucketInMinutes() {
+        return forecastCacheBucketInMinutes;
+    }
+
+    public void setForecastCacheBucketInMinutes(long forecastCacheBucketInMinutes) {
+        this.forecastCacheBucketInMinutes = forecastCacheBucketInMinutes;
+    }
+
+    public boolean isEnableForecastResilience() {
+        return enableForecastResilience;
+    }
+
+    public void setEnableForecastResilience(boolean enableForecastResilience) {
+        this.enableForecastResilience = enableForecastResilience;
+    }
+
+    public long getForecastTimeoutInMillis() {
+        return forecastTimeoutInMillis;
+    }
+
+    public void setForecastTimeoutInMillis(long forecastTimeoutInMillis) {
+        this.forecastTimeoutInMillis = forecastTimeoutInMillis;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenDurationInSeconds() {
+        return circuitBreakerOpenDurationInSeconds;
+    }
+
+    public void setCircuitBreakerOpenDurationInSeconds(long circuitBreakerOpenDurationInSeconds) {
+        this.circuitBreakerOpenDurationInSeconds = circuitBreakerOpenDurationInSeconds;
+    }
+
+    public long getOpenDataConnectTimeoutInMillis() {
+        return openDataConnectTimeoutInMillis;
+    }
+
+    public void setOpenDataConnectTimeoutInMillis(long openDataConnectTimeoutInMillis) {
+        this.openDataConnectTimeoutInMillis = openDataConnectTimeoutInMillis;
+    }
+
+    public long getOpenDataReadTimeoutInMillis() {
+        return openDataReadTimeoutInMillis;
+    }
+
+    public void setOpenDataReadTimeoutInMillis(long openDataReadTimeoutInMillis) {
+        this.openDataReadTimeoutInMillis = openDataReadTimeoutInMillis;
+    }
+
+    public int getOpenDataParallelRequests() {
+        return openDataParallelRequests;
+    }
+
+    public void setOpenDataParallelRequests(int openDataParallelRequests) {
+        this.openDataParallelRequests = openDataParallelRequests;
+    }
+
+    public boolean isOpenDataIncrementalRefresh() {
+        return openDataIncrementalRefresh;
+    }
+
+    public void setOpenDataIncrementalRefresh(boolean openDataIncrementalRefresh) {
+        this.openDataIncrementalRefresh = openDataIncrementalRefresh;
+    }
+
+    public int getOpenDataRetryAttempts() {
+        return openDataRetryAttempts;
+    }
+
+    public void setOpenDataRetryAttempts(int openDataRetryAttempts) {
+        this.openDataRetryAttempts = openDataRetryAttempts;
+    }
+
+    public long getOpenDataRetryBackoffInMillis() {
+        return openDataRetryBackoffInMillis;
+    }
+
+    public void setOpenDataRetryBackoffInMillis(long openDataRetryBackoffInMillis) {
+        this.openDataRetryBackoffInMillis = openDataRetryBackoffInMillis;
+    }
+
+    public long getOpenDataMaximumStalenessInMinutes() {
+        return openDataMaximumStalenessInMinutes;
+    }
+
+    public void setOpenDataMaximumStalenessInMinutes(long openDataMaximumStalenessInMinutes) {
+        this.openDataMaximumStalenessInMinutes = openDataMaximumStalenessInMinutes;
+    }
+
+    public String getOpenDataSnapshotFile() {
+        return openDataSnapshotFile;
+    }
+
+    public void setOpenDataSnapshotFile(String openDataSnapshotFile) {
+        this.openDataSnapshotFile = openDataSnapshotFile;
+    }
+
+    public boolean isOpenDataAdaptiveRefresh() {
+        return openDataAdaptiveRefresh;
+    }
+
+    public void setOpenDataAdaptiveRefresh(boolean openDataAdaptiveRefresh) {
+        this.openDataAdaptiveRefresh = openDataAdaptiveRefresh;
+    }
+
+    public long getOpenDataMinimumRefreshIntervalInMinutes() {
+        return openDataMinimumRefreshIntervalInMinutes;
+    }
+
+    public void setOpenDataMinimumRefreshIntervalInMinutes(long openDataMinimumRefreshIntervalInMinutes) {
+        this.openDataMinimumRefreshIntervalInMinutes = openDataMinimumRefreshIntervalInMinutes;
+    }
+
+    public long getOpenDataMaximumRefreshIntervalInMinutes() {
+        return openDataMaximumRefreshIntervalInMinutes;
+    }
+
+    public void setOpenDataMaximumRefreshIntervalInMinutes(long openDataMaximumRefreshIntervalInMinutes) {
+        this.openDataMaximumRefreshIntervalInMinutes = openDataMaximumRefreshIntervalInMinutes;
+    }
+
+    public boolean isOpenDataOnDemandLoading() {
+        return openDataOnDemandLoading;
+    }
+
+    public void setOpenDataOnDemandLoading(boolean openDataOnDemandLoading) {
+        this.openDataOnDemandLoading = openDataOnDemandLoading;
+    }
+
+    public long getOpenDataOnDemandIdleTimeoutInMinutes() {
+        return openDataOnDemandIdleTimeoutInMinutes;
+    }
+
+    public void setOpenDataOnDemandIdleTimeoutInMinutes(long openDataOnDemandIdleTimeoutInMinutes) {
+        this.openDataOnDemandIdleTimeoutInMinutes = openDataOnDemandIdleTimeoutInMinutes;
+    }
+
+    public String getOpenDataSources() {
+        return openDataSources;
+    }
+
+    public void setOpenDataSources(String openDataSources) {
+        this.openDataSources = openDataSources;
+    }
+
+    public String getOpenDataSourceStrategy() {
+        return openDataSourceStrategy;
+    }
+
+    public void setOpenDataSourceStrategy(String openDataSourceStrategy) {
+        this.openDataSourceStrategy = openDataSourceStrategy;
+    }
+
+    public long getOpenDataRetentionLookbackInMinutes() {
+        return openDataRetentionLookbackInMinutes;
+    }
+
+    public void setOpenDataRetentionLookbackInMinutes(long openDataRetentionLookbackInMinutes) {
+        this.openDataRetentionLookbackInMinutes = openDataRetentionLookbackInMinutes;
+    }
+
+    public int getOpenDataRetentionCapacity() {
+        return openDataRetentionCapacity;
+    }
+
+    public void setOpenDataRetentionCapacity(int openDataRetentionCapacity) {
+        this.openDataRetentionCapacity = openDataRetentionCapacity;
+    }
+
+    public String getOpenDataArchiveDirectory() {
+        return openDataArchiveDirectory;
+    }
+
+    public void setOpenDataArchiveDirectory(String openDataArchiveDirectory) {
+        this.openDataArchiveDirectory = openDataArchiveDirectory;
+    }
 }
@@ -5,7 +5,9 @@
  */
 package com.esentri.quartz.carbonaware.plugins.listeners;
 
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
 import com.esentri.quartz.carbonaware.clients.persistence.PersistenceApi;
+import com.esentri.quartz.carbonaware.clients.rest.AsyncCarbonForecastApi;
 import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
 import com.esentri.quartz.carbonaware.entity.CarbonStatisticDto;
 import com.esentri.quartz.carbonaware.entity.EmissionData;
@@ -13,101 +15,142 @@ import com.esentri.quartz.carbonaware.entity.EmissionForecast;
 import com.esentri.quartz.carbonaware.exceptions.ForecastUnavailableException;
 import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
 import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import com.esentri.quartz.carbonaware.util.ForecastExecutors;
 import com.esentri.quartz.carbonaware.util.Functions;
+import com.esentri.quartz.carbonaware.util.ServiceProviders;
 import org.quartz.JobExecutionContext;
 import org.quartz.Trigger;
 import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Date;
 import java.util.List;
-import java.util.ServiceLoader;
 import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 
 /**
  * TriggerListener to listen on triggerFired events to store all determined carbon intensity values with a provided
  * {@link PersistenceApi}. To determine current carbon forecast an instance of {@link CarbonForecastApi} is required.
+ * The forecast is fetched and the statistic is persisted on a dedicated executor, so the Quartz worker thread can
+ * execute the job immediately.
  *
  * @author jannisschalk
  * */
 public class CarbonStatisticsTriggerListener extends TriggerListenerSupport {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CarbonStatisticsTriggerListener.class);
+
     private final PersistenceApi persistenceClient;
     private final CarbonForecastApi restClient;
+    private final AsyncCarbonForecastApi asyncRestClient;
     private final Boolean dryRun;
 
     public CarbonStatisticsTriggerListener(
             String persistenceClientImplementationClass,
             String restClientImplementationClass,
             Boolean dryRun) {
+        this(persistenceClientImplementationClass, restClientImplementationClass, dryRun, ForecastExecutors.shared());
+    }
+
+    /**
+     * @param executor executor to fetch the forecast and persist the statistics on
+     */
+    public CarbonStatisticsTriggerListener(
+            String persistenceClientImplementationClass,
+            String restClientImplementationClass,
+            Boolean dryRun,
+            Executor executor) {
+        this(persistenceClientImplementationClass, restClientImplementationClass, dryRun, executor,
+                CarbonForecastApiDecorators.none());
+    }
+
+    /**
+     * @param executor   executor to fetch the forecast and persist the statistics on
+     * @param decorators decorators of the forecast clients of the scheduler
+     */
+    public CarbonStatisticsTriggerListener(
+            String persistenceClientImplementationClass,
+            String restClientImplementationClass,
+            Boolean dryRun,
+            Executor executor,
+            CarbonForecastApiDecorators decorators) {
 
-        this.persistenceClient = loadProvider(
+        this.persistenceClient = ServiceProviders.load(
                 com.esentri.quartz.carbonaware.clients.persistence.PersistenceApi.class,
                 persistenceClientImplementationClass);
-        this.restClient = loadProvider(
+        this.restClient = ServiceProviders.load(
                 com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi.class,
                 restClientImplementationClass);
+        this.asyncRestClient = AsyncCarbonForecastApi.fromBlocking(decorators.decorate(restClient), executor);
         this.dryRun = dryRun;
-
     }
 
-    private static <T> T loadProvider(Class<T> apiType, String nameOrFqcn) {
-        // Discover implementations via Java SPI (ServiceLoader) only — no reflection instantiation.
-        for (T impl : ServiceLoader.load(apiType, Thread.currentThread().getContextClassLoader())) {
-            Class<?> c = impl.getClass();
-            if (c.getName().equals(nameOrFqcn) || c.getSimpleName().equals(nameOrFqcn)) {
-                return impl;
-            }
-        }
-        // If not found by an exact / simple name, but only one provider exists, return it to keep the default behavior.
-        T single = null;
-        int count = 0;
-        for (T impl : ServiceLoader.load(apiType, Thread.currentThread().getContextClassLoader())) {
-            single = impl;
-            count++;
-            if (count > 1) break;
+    /**
+     * Persists the plan of a time-shifted execution. In veto mode, the trigger fires in state
+     * {@link CarbonAwareExecutionState#DETERMINED_BETTER_EXECUTION_TIME} at the vetoed execution time with the plan
+     * of the shifted execution. When planning ahead, the trigger has already planned its next execution, when the
+     * listener is called. The plan of the execution, which has been {@link CarbonAwareExecutionState#PLANNED_AHEAD},
+     * is therefore read from the fired plan of the trigger.
+     */
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        if (!(trigger instanceof CarbonAwareCronTrigger carbonAwareTrigger)) {
+            return;
         }
-        if (count == 1 && (nameOrFqcn == null || nameOrFqcn.isBlank())) {
-            return single;
+        if (carbonAwareTrigger.getTriggerState() == CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME) {
+            persistStatistics(carbonAwareTrigger, context,
+                    carbonAwareTrigger.getConfiguredExecutionTime(),
+                    carbonAwareTrigger.getOptimalExecutionTime(),
+                    carbonAwareTrigger.getEmissionData());
+        } else if (carbonAwareTrigger.getFiredTriggerState() == CarbonAwareExecutionState.PLANNED_AHEAD) {
+            persistStatistics(carbonAwareTrigger, context,
+                    carbonAwareTrigger.getFiredConfiguredExecutionTime(),
+                    carbonAwareTrigger.getFiredOptimalExecutionTime(),
+                    carbonAwareTrigger.getFiredEmissionData());
         }
-        throw new IllegalStateException(
-                "No SPI provider for %s matching '%s'. Ensure an implementation is registered under META-INF/services/%s"
-                        .formatted(apiType.getName(), nameOrFqcn, apiType.getName()));
     }
 
-    @Override
-    public void triggerFired(Trigger trigger, JobExecutionContext context) {
-        if (trigger instanceof CarbonAwareCronTrigger carbonAwareTrigger
-                && carbonAwareTrigger.getTriggerState() == CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME) {
-
-            TimeZone timeZone = carbonAwareTrigger.getTimeZone();
-            String location = carbonAwareTrigger.getLocation();
-            int jobDuration = carbonAwareTrigger.getJobDuration();
-            Date configuredExecutionTime = carbonAwareTrigger.getConfiguredExecutionTime();
-
-            List<EmissionForecast> currentEmisions = restClient.getEmissionForecastCurrent(
-                    List.of(location),
-                    Functions.convertDateToLocalDate(configuredExecutionTime, timeZone),
-                    Functions.convertDateToLocalDate(configuredExecutionTime, timeZone)
-                            .plusMinutes(jobDuration)
-                            .plusMinutes(1),
-                    jobDuration);
-
-            Double currentCarbonIntensity = extractCurrentCarbonIntensity(currentEmisions, location);
-
-            persistenceClient.persist(
+    /**
+     * The plan is passed as snapshot, since the trigger is updated by the scheduler while the forecast is fetched.
+     */
+    private void persistStatistics(CarbonAwareCronTrigger carbonAwareTrigger,
+                                   JobExecutionContext context,
+                                   Date configuredExecutionTime,
+                                   Date optimalExecutionTime,
+                                   EmissionData rescheduledEmissionData) {
+        TimeZone timeZone = carbonAwareTrigger.getTimeZone();
+        String location = carbonAwareTrigger.getLocation();
+        int jobDuration = carbonAwareTrigger.getJobDuration();
+        Double rescheduledCarbonIntensity = rescheduledEmissionData.value();
+        String fireInstanceId = context.getFireInstanceId();
+        String jobName = context.getJobDetail().getKey().getName();
+        String jobGroup = context.getJobDetail().getKey().getGroup();
+
+        asyncRestClient.getEmissionForecastCurrentAsync(
+                List.of(location),
+                Functions.convertDateToLocalDate(configuredExecutionTime, timeZone),
+                Functions.convertDateToLocalDate(configuredExecutionTime, timeZone)
+                        .plusMinutes(jobDuration)
+                        .plusMinutes(1),
+                jobDuration)
+            .thenAccept(currentEmisions -> persistenceClient.persist(
                     new CarbonStatisticDto(
-                            context.getFireInstanceId(),
-                            context.getJobDetail().getKey().getName(),
-                            context.getJobDetail().getKey().getGroup(),
+                            fireInstanceId,
+                            jobName,
+                            jobGroup,
                             configuredExecutionTime.toInstant(),
-                            carbonAwareTrigger.getOptimalExecutionTime().toInstant(),
+                            optimalExecutionTime.toInstant(),
                             jobDuration,
-                            currentCarbonIntensity,
-                            carbonAwareTrigger.getEmissionData().value(),
+                            extractCurrentCarbonIntensity(currentEmisions, location),
+                            rescheduledCarbonIntensity,
                             location,
-                            dryRun));
-        }
+                            dryRun)))
+            .exceptionally(e -> {
+                LOGGER.warn("Carbon statistics of {} could not be persisted: ", fireInstanceId, e);
+                return null;
+            });
     }
 
     private static Double extractCurrentCarbonIntensity(List<EmissionForecast> currentEmissions, String location) {
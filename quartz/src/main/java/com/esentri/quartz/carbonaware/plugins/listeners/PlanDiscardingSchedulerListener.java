@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.plugins.listeners;
+
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+import java.util.Objects;
+
+/**
+ * SchedulerListener to discard the pending plans of a trigger from the {@link ForecastPlanner} of the scheduler, when
+ * the trigger is unscheduled (also if its job is deleted or it is rescheduled) or won't fire again. Otherwise, the
+ * planner would refresh the plans of the removed trigger until their deadlines have passed.
+ *
+ * @author jannisschalk
+ */
+public class PlanDiscardingSchedulerListener extends SchedulerListenerSupport {
+
+    private final ForecastPlanner planner;
+
+    public PlanDiscardingSchedulerListener(ForecastPlanner planner) {
+        this.planner = Objects.requireNonNull(planner);
+    }
+
+    @Override
+    public void triggerUnscheduled(TriggerKey triggerKey) {
+        if (triggerKey != null) {
+            planner.discard(triggerKey);
+        }
+    }
+
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        planner.discard(trigger.getKey());
+    }
+}
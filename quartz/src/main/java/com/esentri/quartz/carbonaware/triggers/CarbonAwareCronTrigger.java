@@ -155,6 +155,13 @@ public interface CarbonAwareCronTrigger extends Trigger {
 
     void setCarbonForecastApi(CarbonForecastApi carbonForecastApi);
 
+    /**
+     * @return the client, the trigger fetches its forecast with, or null if the implementation does not expose it
+     */
+    default CarbonForecastApi getCarbonForecastApi() {
+        return null;
+    }
+
     CronExpression getDeadlineCronExpression();
 
     int getJobDuration();
@@ -163,9 +170,56 @@ public interface CarbonAwareCronTrigger extends Trigger {
 
     String getLocation();
 
+    /**
+     * Binds the trigger to the scheduler, whose {@link com.esentri.quartz.carbonaware.planning.SchedulerPlanning
+     * planning} it uses. Implementations, which are not bound to a scheduler, ignore the name.
+     *
+     * @param schedulerName the name of the scheduler, the trigger is scheduled with
+     */
+    default void setSchedulerName(String schedulerName) {
+    }
+
+    /**
+     * @return the name of the scheduler, the trigger is bound to, or null
+     */
+    default String getSchedulerName() {
+        return null;
+    }
+
     EmissionData getEmissionData();
 
     Date getOptimalExecutionTime();
 
     Date getConfiguredExecutionTime();
+
+    /**
+     * Quartz calls {@link org.quartz.spi.OperableTrigger#triggered(org.quartz.Calendar)} before the trigger
+     * listeners, so the state and the plan of the fired execution are kept separately from the next execution.
+     *
+     * @return the state, in which the trigger fired last, or null if it has not fired yet
+     */
+    default CarbonAwareExecutionState getFiredTriggerState() {
+        return null;
+    }
+
+    /**
+     * @return the configured execution time of the execution, at which the trigger fired last, or null
+     */
+    default Date getFiredConfiguredExecutionTime() {
+        return null;
+    }
+
+    /**
+     * @return the optimal execution time of the execution, at which the trigger fired last, or null
+     */
+    default Date getFiredOptimalExecutionTime() {
+        return null;
+    }
+
+    /**
+     * @return the forecasted emission data of the execution, at which the trigger fired last, or null
+     */
+    default EmissionData getFiredEmissionData() {
+        return null;
+    }
 }
@@ -82,6 +82,7 @@ public class CarbonAwareCronScheduleBuilder extends ScheduleBuilder<CarbonAwareC
 
     private final CronExpression cronExpression;
     private CarbonForecastApi carbonForecastApi;
+    private String schedulerName;
     private int duration;
     private String deadlineCronExpression;
     private String location;
@@ -111,6 +112,7 @@ public class CarbonAwareCronScheduleBuilder extends ScheduleBuilder<CarbonAwareC
         ct.setTimeZone(cronExpression.getTimeZone());
         ct.setMisfireInstruction(misfireInstruction);
         ct.setCarbonForecastApi(carbonForecastApi);
+        ct.setSchedulerName(schedulerName);
         ct.setDeadlineCronExpression(deadlineCronExpression);
         ct.setJobDurationInMinutes(duration);
         ct.setLocation(location);
@@ -143,6 +145,30 @@ public class CarbonAwareCronScheduleBuilder extends ScheduleBuilder<CarbonAwareC
         return this;
     }
 
+    /**
+     * Use the {@link OpenDataForecastClient} of the {@link EnergyChartsForecastProvider} of the given scheduler. It is
+     * required, if several schedulers of the JVM use the open data provider. The trigger uses the planning of the
+     * scheduler as well, see {@link #withSchedulerName(String)}.
+     *
+     * @param schedulerName the name of the scheduler, which the trigger is scheduled with
+     */
+    public CarbonAwareCronScheduleBuilder useDefaultOpenDataForcastApiClient(String schedulerName) {
+        this.carbonForecastApi = OpenDataForecastClient.forScheduler(schedulerName);
+        this.schedulerName = schedulerName;
+        return this;
+    }
+
+    /**
+     * Use the planning of the given scheduler, e.g. its forecast planner and the decorators of the forecast client.
+     * It is required, if several carbon-aware schedulers run in the JVM.
+     *
+     * @param schedulerName the name of the scheduler, which the trigger is scheduled with
+     */
+    public CarbonAwareCronScheduleBuilder withSchedulerName(String schedulerName) {
+        this.schedulerName = schedulerName;
+        return this;
+    }
+
     public CarbonAwareCronScheduleBuilder withCarbonForecastApi(CarbonForecastApi carbonForecastApi) {
         this.carbonForecastApi = carbonForecastApi;
         return this;
@@ -19,12 +19,15 @@
 package com.esentri.quartz.carbonaware.triggers.impl;
 
 import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
 import com.esentri.quartz.carbonaware.entity.EmissionData;
-import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.planning.ExecutionPlan;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.PlanningRequest;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
 import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
 import com.esentri.quartz.carbonaware.triggers.builders.CarbonAwareCronScheduleBuilder;
 import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
-import com.esentri.quartz.carbonaware.util.Functions;
 import org.quartz.*;
 import org.quartz.impl.triggers.AbstractTrigger;
 import org.quartz.impl.triggers.CoreTrigger;
@@ -33,8 +36,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serial;
 import java.text.ParseException;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
 import java.util.Calendar;
 
@@ -78,6 +79,8 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
     private TimeZone timeZone = TimeZone.getDefault();
 
     private CarbonForecastApi carbonForecastApi;
+    private String carbonForecastApiKey;
+    private String schedulerName;
     private int jobDurationInMinutes = 1;
     private CronExpression deadlineCronExpression;
 
@@ -87,6 +90,21 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
     private String carbonForecastLocation = "";
     private EmissionData currentForecast;
 
+    // plan of the execution, at which the trigger fired last, read by the trigger listeners of the fire
+    private transient CarbonAwareExecutionState firedExecutionState;
+    private transient Date firedConfiguredExecutionTime;
+    private transient Date firedOptimalExecutionTime;
+    private transient EmissionData firedEmissionData;
+
+    private transient CronFireTimeBuffer fireTimes;
+    private transient CronFireTimeBuffer deadlines;
+    // planning of the scheduler, resolved on first use and again after the scheduler has been shut down
+    private transient volatile SchedulerPlanning planning;
+    // number of plannings bound to a scheduler, when the planning has been resolved
+    private transient volatile long resolvedAtBindings;
+    // plans of the executions, which are not planned by the planner of the scheduler
+    private transient PendingPlans pendingPlans;
+
     /**
      * <p>
      * Create a plain CarbonAwareCronTriggerImpl, with a start time
@@ -100,9 +118,13 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
     @Override
     public Object clone() { //NOSONAR
         CarbonAwareCronTriggerImpl copy = (CarbonAwareCronTriggerImpl) super.clone();
+        copy.fireTimes = null;
+        copy.deadlines = null;
+        copy.pendingPlans = null;
         if (cronEx != null) {
             copy.setCronExpression(new CronExpression(cronEx));
             copy.setCarbonForecastApi(carbonForecastApi);
+            copy.setCarbonForecastApiKey(carbonForecastApiKey);
             copy.setDeadlineCronExpression(deadlineCronExpression.getCronExpression());
             copy.setJobDurationInMinutes(jobDurationInMinutes);
             copy.setCarbonAwareTriggerState(carbonAwareExecutionState);
@@ -110,6 +132,15 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
         return copy;
     }
 
+    /**
+     * Replaces the trigger with its compact {@link SerializedCarbonAwareCronTrigger serialized form}. Subclasses are
+     * serialized with the default serialization.
+     */
+    @Serial
+    private Object writeReplace() {
+        return new SerializedCarbonAwareCronTrigger(this);
+    }
+
     public void setCronExpression(String cronExpression) throws ParseException {
         TimeZone origTz = getTimeZone();
         this.cronEx = new CronExpression(cronExpression);
@@ -286,6 +317,29 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
      */
     @Override
     public Date getFireTimeAfter(Date afterTime) {
+        return getFireTimeAfter(afterTime, null);
+    }
+
+    /**
+     * Returns the next time at which the trigger will fire after the given time, taking the calendar into account.
+     * Configured execution times excluded by the calendar are skipped without requesting a forecast, and the execution
+     * is only shifted to times the calendar includes. So the forecast is requested at most once, however many
+     * configured execution times the calendar excludes.
+     *
+     * @param afterTime The time after which the trigger fires next, or null for now
+     * @param calendar  The calendar of the trigger, may be null
+     * @return the next fire time, or null if the trigger will not fire again
+     */
+    private Date getFireTimeAfter(Date afterTime, org.quartz.Calendar calendar) {
+        afterTime = toSearchStart(afterTime);
+        Date pot = getConfiguredTimeAfter(afterTime, calendar);
+        if (pot == null) {
+            return null;
+        }
+        return planFireTime(afterTime, pot, calendar);
+    }
+
+    private Date toSearchStart(Date afterTime) {
         if (afterTime == null) {
             afterTime = new Date();
         }
@@ -293,97 +347,222 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
         if (getStartTime().after(afterTime)) {
             afterTime = new Date(getStartTime().getTime() - 1000L);
         }
+        return afterTime;
+    }
 
-        if (getEndTime() != null && (afterTime.compareTo(getEndTime()) >= 0)) {
-            return null;
+    /**
+     * @return the next configured execution time after the given time, which the calendar includes, or null if there
+     * is none before the end time
+     */
+    private Date getConfiguredTimeAfter(Date afterTime, org.quartz.Calendar calendar) {
+        Date pot = afterTime;
+        while (true) {
+            if (getEndTime() != null && (pot.compareTo(getEndTime()) >= 0)) {
+                return null;
+            }
+
+            pot = getTimeAfter(pot);
+            if (pot == null || (getEndTime() != null && pot.after(getEndTime()))) {
+                return null;
+            }
+            if (calendar == null || calendar.isTimeIncluded(pot.getTime())) {
+                return pot;
+            }
+
+            //avoid infinite loop
+            // Use gregorian only because the constant is based on Gregorian
+            Calendar c = new java.util.GregorianCalendar();
+            c.setTime(pot);
+            if (c.get(Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
+                return null;
+            }
         }
+    }
 
-        Date pot = getTimeAfter(afterTime);
-        if (getEndTime() != null && pot != null && pot.after(getEndTime())) {
-            return null;
+    /**
+     * Resolves the planning of the scheduler once. If the defaults have been resolved, the planning is only resolved
+     * again, after a planning has been bound to a scheduler, since it may be bound after the trigger has been created.
+     */
+    private SchedulerPlanning planning() {
+        SchedulerPlanning resolved = planning;
+        if (resolved == null
+                || resolved.isShutdown()
+                || resolved == SchedulerPlanning.defaults() && resolvedAtBindings != SchedulerPlanning.bindings()) {
+            long bindings = SchedulerPlanning.bindings();
+            resolved = SchedulerPlanning.ofScheduler(schedulerName);
+            resolvedAtBindings = bindings;
+            planning = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Determines the fire time of the given configured execution time and updates the state of the trigger.
+     */
+    private Date planFireTime(Date afterTime, Date pot, org.quartz.Calendar calendar) {
+        SchedulerPlanning planning = planning();
+        if (planning.isPlanAhead()) {
+            return getPlannedFireTimeAfter(afterTime, pot, calendar, planning);
         }
         configuredExecutionTime = pot;
 
         if (carbonAwareExecutionState == CarbonAwareExecutionState.PENDING) {
             carbonAwareExecutionState = CarbonAwareExecutionState.READY;
+            prepareNextPlan(pot, calendar, planning);
             return pot;
         }
 
         if (carbonAwareExecutionState == CarbonAwareExecutionState.READY) {
-            LOGGER.info("--- {} is about to determine better execution time... ---", getName());
-            List<EmissionForecast> emissionForecasts = fetchCurrentForecast(
-                    carbonForecastLocation,
-                    pot,
-                    deadlineCronExpression.getTimeAfter(pot),
-                    jobDurationInMinutes);
-
-            if(emissionForecasts == null || emissionForecasts.isEmpty()) {
-                carbonAwareExecutionState = CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE;
-                LOGGER.warn("Execution of Job won't be time shifted, because of missing carbon forecast.");
-                return pot;
-            }
+            ExecutionPlan plan = resolvePlan(pot, calendar, planning);
 
-            EmissionData emissionData = emissionForecasts.stream()
-                    .filter(forecast -> carbonForecastLocation.equals(forecast.location()))
-                    .map(EmissionForecast::optimalDataPoints)
-                    .filter(Objects::nonNull)
-                    .flatMap(Collection::stream)
-                    .filter(Objects::nonNull)
-                    .filter(data -> data.value() != null)
-                    .min(Comparator.comparingDouble(EmissionData::value))
-                    .orElse(null);
-
-            if(emissionData == null) {
+            if (plan == null || !plan.isDetermined()) {
                 carbonAwareExecutionState = CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE;
-                LOGGER.warn("Execution of Job won't be time shifted. " +
-                        "Either the current forecast received from the API does not match the configured location {}," +
-                        " or there is no optimal data point.", carbonForecastLocation);
                 return pot;
             }
 
             // store the current forecast for statistics
-            this.currentForecast = emissionData;
-            this.optimalExecutionTime = convertToDate(emissionData.timestamp(), timeZone);
+            this.currentForecast = plan.emissionData();
+            this.optimalExecutionTime = plan.optimalExecutionTime();
             this.carbonAwareExecutionState = CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME;
 
-            LOGGER.info("--- {} determined better execution time at {} ---", getName(), optimalExecutionTime);
-
             return optimalExecutionTime;
         }
 
         if (carbonAwareExecutionState == CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE
                 || carbonAwareExecutionState == CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME) {
             carbonAwareExecutionState = CarbonAwareExecutionState.READY;
+            prepareNextPlan(pot, calendar, planning);
             return pot;
         }
 
         return pot;
     }
 
-    private List<EmissionForecast> fetchCurrentForecast(String location, Date startTime, Date deadline, int durationInMinutes) {
-        LocalDateTime startDate = convertToLocalDate(startTime, timeZone);
-        LocalDateTime endDate = convertToLocalDate(deadline, timeZone);
+    /**
+     * Plans the next configured execution ahead, so the trigger fires at its optimal execution time. If no plan is
+     * ready or the planned time is not after the given time, the trigger fires at the configured execution time in
+     * state {@link CarbonAwareExecutionState#AWAITING_PLAN} and plans the execution again. Only if a better execution
+     * time is determined then, the execution is vetoed and the trigger fires again at the better time.
+     *
+     * @param afterTime The time after which the trigger fires next
+     * @param pot       The next configured execution time after the given time
+     * @param calendar  The calendar of the trigger, may be null
+     * @param planning  The planning of the scheduler of the trigger
+     * @return the optimal or the configured execution time
+     */
+    private Date getPlannedFireTimeAfter(Date afterTime,
+                                         Date pot,
+                                         org.quartz.Calendar calendar,
+                                         SchedulerPlanning planning) {
+        if (carbonAwareExecutionState == CarbonAwareExecutionState.AWAITING_PLAN
+                && afterTime.equals(configuredExecutionTime)) {
+            ExecutionPlan plan = resolvePlan(configuredExecutionTime, calendar, planning);
+            if (plan != null && plan.isDetermined() && plan.optimalExecutionTime().after(afterTime)) {
+                this.currentForecast = plan.emissionData();
+                this.optimalExecutionTime = plan.optimalExecutionTime();
+                this.carbonAwareExecutionState = CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME;
+                return optimalExecutionTime;
+            }
+        }
+
+        configuredExecutionTime = pot;
+        ExecutionPlan plan = resolvePlan(pot, calendar, planning);
+        prepareNextPlan(pot, calendar, planning);
+        // a plan, which is not after the last fire time, would fire the trigger in the past
+        if (plan == null || !plan.isDetermined() || !plan.optimalExecutionTime().after(afterTime)) {
+            this.optimalExecutionTime = null;
+            this.currentForecast = null;
+            this.carbonAwareExecutionState = CarbonAwareExecutionState.AWAITING_PLAN;
+            preparePlan(pot, calendar, planning);
+            return pot;
+        }
+        this.currentForecast = plan.emissionData();
+        this.optimalExecutionTime = plan.optimalExecutionTime();
+        this.carbonAwareExecutionState = CarbonAwareExecutionState.PLANNED_AHEAD;
+        return optimalExecutionTime;
+    }
+
+    /**
+     * Reads the plan for the given execution time from the {@link ForecastPlanner} of the scheduler. The plan is never
+     * computed on the calling thread, which is usually the QuartzSchedulerThread. If the scheduler has no planner or
+     * the trigger is unnamed, the execution is planned once on the {@link SchedulerPlanning#getExecutor() executor} of
+     * the scheduler, and no plan is ready until the forecast has been fetched.
+     *
+     * @return the plan or null, if no plan is ready
+     */
+    private ExecutionPlan resolvePlan(Date configuredTime, org.quartz.Calendar calendar, SchedulerPlanning planning) {
+        PlanningRequest request = createPlanningRequest(configuredTime, calendar, planning);
+        if (request == null) {
+            return null;
+        }
 
-        try{
-            return carbonForecastApi.getEmissionForecastCurrent(List.of(location), startDate, endDate, durationInMinutes);
-        } catch (Exception e) {
-            LOGGER.warn("Exception was thrown during getEmissionForecast. Continue without emission forecast!: ", e);
-            return List.of();
+        Optional<ForecastPlanner> planner = planning.getPlanner();
+        ExecutionPlan plan = planner.isEmpty() || !request.isIdentifiable()
+                ? pendingPlans().getPlan(request, planning.getExecutor())
+                : planner.get().getPlan(request).orElse(null);
+        if (plan == null) {
+            LOGGER.warn("No execution plan is ready for {}. Execution of Job won't be time shifted.", getKey());
         }
+        return plan;
     }
 
-    private static LocalDateTime convertToLocalDate(Date date, TimeZone timeZone) {
-        return Functions.convertDateToLocalDate(date, timeZone);
+    /**
+     * Announces the execution, which will be evaluated when the trigger fires at the given time, to the
+     * {@link ForecastPlanner}, so the plan is ready in time.
+     */
+    private void prepareNextPlan(Date fireTime, org.quartz.Calendar calendar, SchedulerPlanning planning) {
+        if (fireTime == null) {
+            return;
+        }
+
+        Date nextConfiguredTime = getConfiguredTimeAfter(fireTime, calendar);
+        if (nextConfiguredTime == null) {
+            return;
+        }
+        preparePlan(nextConfiguredTime, calendar, planning);
     }
 
-    private static Date convertToDate(LocalDateTime date, TimeZone timeZone) {
-        if (date == null) {
-            return null;
+    /**
+     * Announces the execution at the given configured time to the {@link ForecastPlanner}, or starts to plan it on the
+     * executor of the scheduler, if the execution can't be planned by a planner.
+     */
+    private void preparePlan(Date configuredTime, org.quartz.Calendar calendar, SchedulerPlanning planning) {
+        PlanningRequest request = createPlanningRequest(configuredTime, calendar, planning);
+        if (request == null) {
+            return;
+        }
+        Optional<ForecastPlanner> planner = planning.getPlanner();
+        if (planner.isEmpty() || !request.isIdentifiable()) {
+            pendingPlans().prepare(request, planning.getExecutor());
+        } else {
+            planner.get().prepare(request);
         }
-        ZoneOffset offset = timeZone.toZoneId().getRules().getOffset(LocalDateTime.now());
-        return Date.from(date.toInstant(offset));
     }
 
+    private PendingPlans pendingPlans() {
+        if (pendingPlans == null) {
+            pendingPlans = new PendingPlans();
+        }
+        return pendingPlans;
+    }
+
+    private PlanningRequest createPlanningRequest(Date configuredTime,
+                                                  org.quartz.Calendar calendar,
+                                                  SchedulerPlanning planning) {
+        Date deadline = getDeadlineAfter(configuredTime);
+        if (deadline == null) {
+            return null;
+        }
+        return new PlanningRequest(
+                getKey(),
+                planning.decorate(getCarbonForecastApi()),
+                carbonForecastLocation,
+                configuredTime,
+                deadline,
+                jobDurationInMinutes,
+                timeZone,
+                calendar);
+    }
 
     /**
      * <p>
@@ -454,12 +633,7 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
         }
 
         if (instr == MISFIRE_INSTRUCTION_DO_NOTHING) {
-            Date newFireTime = getFireTimeAfter(new Date());
-            while (newFireTime != null && cal != null
-                    && !cal.isTimeIncluded(newFireTime.getTime())) {
-                newFireTime = getFireTimeAfter(newFireTime);
-            }
-            setNextFireTime(newFireTime);
+            setNextFireTime(getFireTimeAfter(new Date(), cal));
         } else if (instr == MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
             setNextFireTime(new Date());
         }
@@ -473,17 +647,21 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
      * triggering (if any).
      * </p>
      *
+     * <p>
+     * The plan of the fired execution is kept, since the trigger listeners run after the next execution has been
+     * planned.
+     * </p>
+     *
      * @see #executionComplete(JobExecutionContext, JobExecutionException)
      */
     @Override
     public void triggered(org.quartz.Calendar calendar) {
+        firedExecutionState = carbonAwareExecutionState;
+        firedConfiguredExecutionTime = configuredExecutionTime;
+        firedOptimalExecutionTime = optimalExecutionTime;
+        firedEmissionData = currentForecast;
         previousFireTime = nextFireTime;
-        nextFireTime = getFireTimeAfter(nextFireTime);
-
-        while (nextFireTime != null && calendar != null
-                && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-            nextFireTime = getFireTimeAfter(nextFireTime);
-        }
+        nextFireTime = getFireTimeAfter(nextFireTime, calendar);
     }
 
     /**
@@ -491,35 +669,22 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
      */
     @Override
     public void updateWithNewCalendar(org.quartz.Calendar calendar, long misfireThreshold) {
-        nextFireTime = getFireTimeAfter(previousFireTime);
-
-        if (nextFireTime == null || calendar == null) {
-            return;
-        }
+        // the configured execution time is searched first, so the forecast is requested only once
+        Date afterTime = toSearchStart(previousFireTime);
+        Date pot = getConfiguredTimeAfter(afterTime, null);
 
         Date now = new Date();
-        while (nextFireTime != null && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-
-            nextFireTime = getFireTimeAfter(nextFireTime);
-
-            if (nextFireTime == null)
-                break;
-
-            //avoid infinite loop
-            // Use gregorian only because the constant is based on Gregorian
-            Calendar c = new java.util.GregorianCalendar();
-            c.setTime(nextFireTime);
-            if (c.get(Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                nextFireTime = null;
-            }
+        while (pot != null && calendar != null && !calendar.isTimeIncluded(pot.getTime())) {
+            afterTime = pot;
+            pot = getConfiguredTimeAfter(afterTime, null);
 
-            if (nextFireTime != null && nextFireTime.before(now)) {
-                long diff = now.getTime() - nextFireTime.getTime();
-                if (diff >= misfireThreshold) {
-                    nextFireTime = getFireTimeAfter(nextFireTime);
-                }
+            if (pot != null && pot.before(now) && now.getTime() - pot.getTime() >= misfireThreshold) {
+                afterTime = pot;
+                pot = getConfiguredTimeAfter(afterTime, null);
             }
         }
+
+        nextFireTime = pot == null ? null : planFireTime(afterTime, pot, calendar);
     }
 
     /**
@@ -540,12 +705,7 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
      */
     @Override
     public Date computeFirstFireTime(org.quartz.Calendar calendar) {
-        nextFireTime = getFireTimeAfter(new Date(getStartTime().getTime() - 1000L));
-
-        while (nextFireTime != null && calendar != null
-                && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-            nextFireTime = getFireTimeAfter(nextFireTime);
-        }
+        nextFireTime = getFireTimeAfter(new Date(getStartTime().getTime() - 1000L), calendar);
 
         return nextFireTime;
     }
@@ -604,8 +764,28 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
     //
     //--------------------------------------------------------------------------
 
+    /**
+     * Returns the time after the given time, that this <code>CarbonAwareCronTrigger</code> is configured to fire.
+     * The upcoming times are buffered, because the trigger asks for the time after the same instants repeatedly.
+     */
     protected Date getTimeAfter(Date afterTime) {
-        return (cronEx == null) ? null : cronEx.getTimeAfter(afterTime);
+        if (cronEx == null) {
+            return null;
+        }
+        if (fireTimes == null || !fireTimes.isBufferOf(cronEx)) {
+            fireTimes = new CronFireTimeBuffer(cronEx);
+        }
+        return fireTimes.timeAfter(afterTime);
+    }
+
+    /**
+     * @return the first time of the deadline cron expression after the given configured execution time
+     */
+    private Date getDeadlineAfter(Date configuredTime) {
+        if (deadlines == null || !deadlines.isBufferOf(deadlineCronExpression)) {
+            deadlines = new CronFireTimeBuffer(deadlineCronExpression);
+        }
+        return deadlines.timeAfter(configuredTime);
     }
 
     /**
@@ -625,6 +805,63 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
     @Override
     public void setCarbonForecastApi(CarbonForecastApi carbonForecastApi) {
         this.carbonForecastApi = carbonForecastApi;
+        this.carbonForecastApiKey = null;
+    }
+
+    /**
+     * @return the client of the trigger. The client of a trigger read with the key of a client is bound to the client
+     * registered with the key in the {@link CarbonForecastApiRegistry} on first use.
+     */
+    @Override
+    public CarbonForecastApi getCarbonForecastApi() {
+        if (carbonForecastApi == null && carbonForecastApiKey != null) {
+            carbonForecastApi = CarbonForecastApiRegistry.lookup(carbonForecastApiKey);
+        }
+        return carbonForecastApi;
+    }
+
+    /**
+     * Binds the trigger to the client registered with the key, e.g. when the trigger is read from a JobStore.
+     */
+    void setCarbonForecastApiKey(String carbonForecastApiKey) {
+        this.carbonForecastApiKey = carbonForecastApiKey;
+    }
+
+    /**
+     * @return the key of the client, which the trigger has been read with, or null
+     */
+    String getCarbonForecastApiKey() {
+        return carbonForecastApiKey;
+    }
+
+    /**
+     * @return the name of the scheduler, whose planning the trigger uses, or null
+     */
+    @Override
+    public String getSchedulerName() {
+        return schedulerName;
+    }
+
+    /**
+     * Binds the trigger to the {@link SchedulerPlanning} of the scheduler with the given name. It is required, if
+     * several schedulers of the JVM are carbon-aware. Without scheduler name, the trigger uses the planning of the
+     * only carbon-aware scheduler.
+     *
+     * @param schedulerName the name of the scheduler, which the trigger is scheduled with, or null
+     */
+    @Override
+    public void setSchedulerName(String schedulerName) {
+        this.schedulerName = schedulerName;
+        this.planning = null;
+    }
+
+    /**
+     * Restores the plan of the current execution, e.g. when the trigger is read from a JobStore.
+     */
+    void restorePlan(Date configuredExecutionTime, Date optimalExecutionTime, EmissionData currentForecast) {
+        this.configuredExecutionTime = configuredExecutionTime;
+        this.optimalExecutionTime = optimalExecutionTime;
+        this.currentForecast = currentForecast;
     }
 
     @Override
@@ -686,6 +923,26 @@ public class CarbonAwareCronTriggerImpl extends AbstractTrigger<CarbonAwareCronT
         return carbonForecastLocation;
     }
 
+    @Override
+    public CarbonAwareExecutionState getFiredTriggerState() {
+        return firedExecutionState;
+    }
+
+    @Override
+    public Date getFiredConfiguredExecutionTime() {
+        return firedConfiguredExecutionTime;
+    }
+
+    @Override
+    public Date getFiredOptimalExecutionTime() {
+        return firedOptimalExecutionTime;
+    }
+
+    @Override
+    public EmissionData getFiredEmissionData() {
+        return firedEmissionData;
+    }
+
     @Override
     public boolean equals(Object o) {
         return super.equals(o);
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import org.quartz.CronExpression;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Ring buffer of the upcoming times of a {@link CronExpression} in epoch milliseconds.
+ * <p>
+ * {@link CronExpression#getTimeAfter(Date)} is based on {@link java.util.Calendar} and {@link java.util.TreeSet}s and
+ * allocates heavily, but triggers ask for the time after nearly the same instant on every evaluation. The buffer
+ * holds consecutive times of the expression, starting with the first time after its origin. A lookup within the
+ * buffered range is a binary search. When a lookup reaches the last buffered time, the times before the result are
+ * dropped and the buffer is refilled lazily. A lookup outside the buffered range refills the buffer from the given
+ * time.
+ * <p>
+ * The buffer is refilled, if the time zone of the expression has been changed. It is not thread-safe, like the
+ * trigger it belongs to.
+ *
+ * @author jannisschalk
+ */
+final class CronFireTimeBuffer {
+
+    static final long NONE = Long.MIN_VALUE;
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final CronExpression cronExpression;
+    private final long[] times;
+
+    private TimeZone timeZone;
+    private long origin;
+    private int head;
+    private int count;
+    private boolean exhausted;
+
+    CronFireTimeBuffer(CronExpression cronExpression) {
+        this(cronExpression, DEFAULT_CAPACITY);
+    }
+
+    CronFireTimeBuffer(CronExpression cronExpression, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.cronExpression = cronExpression;
+        this.times = new long[capacity];
+    }
+
+    /**
+     * @return true, if the buffer holds the times of the given expression
+     */
+    boolean isBufferOf(CronExpression expression) {
+        return cronExpression == expression;
+    }
+
+    /**
+     * Returns the first time of the expression after the given time, like {@link CronExpression#getTimeAfter(Date)}.
+     *
+     * @param afterTime time in epoch milliseconds
+     * @return the time in epoch milliseconds, or {@link #NONE} if the expression has no time after the given one
+     */
+    long timeAfter(long afterTime) {
+        if (timeZone != cronExpression.getTimeZone() || afterTime < origin || count == 0) {
+            fill(afterTime);
+        } else if (afterTime >= timeAt(count - 1)) {
+            if (exhausted) {
+                return NONE;
+            }
+            fill(afterTime);
+        }
+        if (count == 0) {
+            return NONE;
+        }
+
+        int index = firstIndexAfter(afterTime);
+        long result = timeAt(index);
+        if (index == count - 1 && !exhausted) {
+            dropBefore(index);
+            append();
+        }
+        return result;
+    }
+
+    /**
+     * Convenience variant of {@link #timeAfter(long)} with dates.
+     *
+     * @return the time, or null if the expression has no time after the given one
+     */
+    Date timeAfter(Date afterTime) {
+        long result = timeAfter(afterTime.getTime());
+        return result == NONE ? null : new Date(result);
+    }
+
+    /**
+     * Binary search for the first buffered time after the given time, which is before the last buffered time.
+     */
+    private int firstIndexAfter(long afterTime) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timeAt(middle) > afterTime) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void fill(long afterTime) {
+        timeZone = cronExpression.getTimeZone();
+        origin = afterTime;
+        head = 0;
+        count = 0;
+        exhausted = false;
+        append();
+    }
+
+    /**
+     * Drops the times before the given index. The time before the index becomes the origin, so lookups of the time
+     * after it are still answered from the buffer.
+     */
+    private void dropBefore(int index) {
+        if (index == 0) {
+            return;
+        }
+        origin = timeAt(index - 1);
+        head = (head + index) % times.length;
+        count -= index;
+    }
+
+    private void append() {
+        long last = count == 0 ? origin : timeAt(count - 1);
+        while (count < times.length) {
+            Date next = cronExpression.getTimeAfter(new Date(last));
+            if (next == null) {
+                exhausted = true;
+                return;
+            }
+            last = next.getTime();
+            times[(head + count) % times.length] = last;
+            count++;
+        }
+    }
+
+    private long timeAt(int index) {
+        return times[(head + index) % times.length];
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import com.esentri.quartz.carbonaware.planning.ExecutionPlan;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.PlanningRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Plans of the executions of a trigger, which are not planned by a {@link ForecastPlanner}, because the scheduler of
+ * the trigger has none or the trigger is unnamed.
+ * <p>
+ * The plan of an execution is computed once on the given executor, when it is requested for the first time, so the
+ * forecast is never fetched on the QuartzSchedulerThread. Until the plan is ready, the trigger behaves as if the
+ * forecast was unavailable. Unlike the plans of the planner, the plans are not refreshed, only executions without
+ * optimal execution time are planned again. Plans of executions before the last requested plan, and plans of
+ * requests, which have changed since, are discarded.
+ *
+ * @author jannisschalk
+ */
+final class PendingPlans {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PendingPlans.class);
+
+    private final Map<PlanningRequest, CompletableFuture<ExecutionPlan>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Starts to plan the given execution, unless it is already planned.
+     *
+     * @param request  the execution to plan
+     * @param executor the executor fetching the forecast
+     */
+    void prepare(PlanningRequest request, Executor executor) {
+        Date configuredTime = request.configuredExecutionTime();
+        plans.keySet().removeIf(planned -> planned.configuredExecutionTime().equals(configuredTime)
+                && !planned.equals(request));
+        if (plans.containsKey(request)) {
+            return;
+        }
+        try {
+            plans.putIfAbsent(request, ForecastPlanner.planAsync(request, executor));
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Execution of {} at {} can not be planned: {}", request.triggerKey(), configuredTime,
+                    e.toString());
+        }
+    }
+
+    /**
+     * Returns the plan of the given execution, if it is ready, and starts to plan the execution otherwise. Plans of
+     * earlier executions are discarded.
+     *
+     * @param request  the execution to plan
+     * @param executor the executor fetching the forecast
+     * @return the plan or null, if no plan is ready
+     */
+    ExecutionPlan getPlan(PlanningRequest request, Executor executor) {
+        Date configuredTime = request.configuredExecutionTime();
+        plans.keySet().removeIf(planned -> planned.configuredExecutionTime().before(configuredTime));
+        prepare(request, executor);
+
+        CompletableFuture<ExecutionPlan> plan = plans.get(request);
+        if (plan == null || !plan.isDone()) {
+            return null;
+        }
+        ExecutionPlan ready = plan.isCompletedExceptionally() ? null : plan.join();
+        if (ready == null || !ready.isDetermined()) {
+            // the forecast may be available, when the execution is planned again
+            plans.remove(request, plan);
+        }
+        return ready;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.quartz.JobDataMap;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.io.Serial;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Serialized form of a {@link CarbonAwareCronTriggerImpl}, e.g. in the {@code QRTZ_BLOB_TRIGGERS} table of a JDBC
+ * JobStore.
+ * <p>
+ * The default serialization writes the class descriptors of the trigger, its cron expressions and time zones and the
+ * whole {@link CarbonForecastApi} with everything it references. The serialized form writes the fields in a
+ * versioned binary format instead: the cron expressions as strings, the time zone as id and the times as epoch
+ * milliseconds. A client registered in the {@link CarbonForecastApiRegistry} is written as its key and bound to the
+ * registered client, when the trigger is read. Only a client, which is not registered, is serialized.
+ * <p>
+ * Triggers serialized with the default serialization are still read with it.
+ *
+ * @author jannisschalk
+ */
+final class SerializedCarbonAwareCronTrigger implements Externalizable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final int VERSION = 2;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final byte NO_CLIENT = 0;
+    private static final byte REGISTERED_CLIENT = 1;
+    private static final byte SERIALIZED_CLIENT = 2;
+
+    private CarbonAwareCronTriggerImpl trigger;
+
+    /**
+     * Required by the deserialization.
+     */
+    public SerializedCarbonAwareCronTrigger() {
+    }
+
+    SerializedCarbonAwareCronTrigger(CarbonAwareCronTriggerImpl trigger) {
+        this.trigger = trigger;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+
+        writeString(out, trigger.getName());
+        writeString(out, trigger.getGroup());
+        writeString(out, trigger.getJobName());
+        writeString(out, trigger.getJobGroup());
+        writeString(out, trigger.getDescription());
+        writeString(out, trigger.getCalendarName());
+        writeString(out, trigger.getFireInstanceId());
+        out.writeInt(trigger.getMisfireInstruction());
+        out.writeInt(trigger.getPriority());
+        JobDataMap jobDataMap = trigger.getJobDataMap();
+        out.writeBoolean(!jobDataMap.isEmpty());
+        if (!jobDataMap.isEmpty()) {
+            out.writeObject(jobDataMap);
+        }
+
+        writeString(out, trigger.getTimeZone().getID());
+        writeString(out, trigger.getCronExpression());
+        writeTime(out, trigger.getStartTime());
+        writeTime(out, trigger.getEndTime());
+        writeTime(out, trigger.getNextFireTime());
+        writeTime(out, trigger.getPreviousFireTime());
+
+        writeString(out, trigger.getDeadlineCronExpression() == null
+                ? null
+                : trigger.getDeadlineCronExpression().getCronExpression());
+        out.writeInt(trigger.getJobDuration());
+        writeString(out, trigger.getLocation());
+        writeString(out, trigger.getTriggerState() == null ? null : trigger.getTriggerState().name());
+        writeTime(out, trigger.getConfiguredExecutionTime());
+        writeTime(out, trigger.getOptimalExecutionTime());
+        writeEmissionData(out, trigger.getEmissionData());
+        writeClient(out);
+        writeString(out, trigger.getSchedulerName());
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new InvalidObjectException("Unsupported version %d of a serialized trigger".formatted(version));
+        }
+        CarbonAwareCronTriggerImpl result = new CarbonAwareCronTriggerImpl();
+
+        String name = readString(in);
+        if (name != null) {
+            result.setName(name);
+        }
+        result.setGroup(readString(in));
+        String jobName = readString(in);
+        if (jobName != null) {
+            result.setJobName(jobName);
+        }
+        result.setJobGroup(readString(in));
+        result.setDescription(readString(in));
+        result.setCalendarName(readString(in));
+        result.setFireInstanceId(readString(in));
+        result.setMisfireInstruction(in.readInt());
+        result.setPriority(in.readInt());
+        if (in.readBoolean()) {
+            result.setJobDataMap((JobDataMap) in.readObject());
+        }
+
+        result.setTimeZone(TimeZone.getTimeZone(readString(in)));
+        String cronExpression = readString(in);
+        try {
+            if (cronExpression != null) {
+                result.setCronExpression(cronExpression);
+            }
+        } catch (ParseException e) {
+            throw (InvalidObjectException) new InvalidObjectException(
+                    "CronExpression '%s' is invalid!".formatted(cronExpression)).initCause(e);
+        }
+        Date startTime = readTime(in);
+        if (startTime != null) {
+            result.setStartTime(startTime);
+        }
+        result.setEndTime(readTime(in));
+        result.setNextFireTime(readTime(in));
+        result.setPreviousFireTime(readTime(in));
+
+        String deadlineCronExpression = readString(in);
+        if (deadlineCronExpression != null) {
+            result.setDeadlineCronExpression(deadlineCronExpression);
+        }
+        result.setJobDurationInMinutes(in.readInt());
+        result.setLocation(readString(in));
+        String state = readString(in);
+        result.setCarbonAwareTriggerState(state == null ? null : CarbonAwareExecutionState.valueOf(state));
+        Date configuredExecutionTime = readTime(in);
+        Date optimalExecutionTime = readTime(in);
+        result.restorePlan(configuredExecutionTime, optimalExecutionTime, readEmissionData(in));
+        readClient(in, result);
+        if (version >= 2) {
+            result.setSchedulerName(readString(in));
+        }
+
+        this.trigger = result;
+    }
+
+    @Serial
+    private Object readResolve() throws ObjectStreamException {
+        return trigger;
+    }
+
+    private void writeClient(ObjectOutput out) throws IOException {
+        String key = trigger.getCarbonForecastApiKey();
+        CarbonForecastApi carbonForecastApi = key == null ? trigger.getCarbonForecastApi() : null;
+        if (key == null) {
+            key = CarbonForecastApiRegistry.keyOf(carbonForecastApi);
+        }
+
+        if (key != null) {
+            out.writeByte(REGISTERED_CLIENT);
+            out.writeUTF(key);
+        } else if (carbonForecastApi != null) {
+            out.writeByte(SERIALIZED_CLIENT);
+            out.writeObject(carbonForecastApi);
+        } else {
+            out.writeByte(NO_CLIENT);
+        }
+    }
+
+    private static void readClient(ObjectInput in, CarbonAwareCronTriggerImpl result)
+            throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+            case NO_CLIENT -> result.setCarbonForecastApi(null);
+            case REGISTERED_CLIENT -> result.setCarbonForecastApiKey(in.readUTF());
+            case SERIALIZED_CLIENT -> result.setCarbonForecastApi((CarbonForecastApi) in.readObject());
+            default -> throw new InvalidObjectException("Unknown type %d of the client".formatted(type));
+        }
+    }
+
+    private static void writeEmissionData(ObjectOutput out, EmissionData emissionData) throws IOException {
+        out.writeBoolean(emissionData != null);
+        if (emissionData != null) {
+            writeString(out, emissionData.timestamp() == null ? null : emissionData.timestamp().toString());
+            out.writeBoolean(emissionData.value() != null);
+            if (emissionData.value() != null) {
+                out.writeDouble(emissionData.value());
+            }
+        }
+    }
+
+    private static EmissionData readEmissionData(ObjectInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String timestamp = readString(in);
+        Double value = in.readBoolean() ? in.readDouble() : null;
+        return new StoredEmissionData(timestamp == null ? null : LocalDateTime.parse(timestamp), value);
+    }
+
+    private static void writeString(ObjectOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(ObjectInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTime(ObjectOutput out, Date time) throws IOException {
+        out.writeLong(time == null ? NO_TIME : time.getTime());
+    }
+
+    private static Date readTime(ObjectInput in) throws IOException {
+        long time = in.readLong();
+        return time == NO_TIME ? null : new Date(time);
+    }
+
+    /**
+     * Emission data of the current plan of a deserialized trigger.
+     */
+    private record StoredEmissionData(LocalDateTime timestamp, Double value) implements EmissionData {
+    }
+}
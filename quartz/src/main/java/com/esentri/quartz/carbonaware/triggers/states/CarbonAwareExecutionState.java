@@ -15,5 +15,17 @@ public enum CarbonAwareExecutionState {
 
     DETERMINED_BETTER_EXECUTION_TIME,
 
-    CARBON_DATA_UNAVAILABLE
+    CARBON_DATA_UNAVAILABLE,
+
+    /**
+     * The next fire time is the optimal execution time, which has been planned ahead. The job is executed when the
+     * trigger fires.
+     */
+    PLANNED_AHEAD,
+
+    /**
+     * No plan was ready ahead of time. The trigger fires at the configured execution time and plans the execution
+     * again. If a better execution time is determined then, the execution is vetoed and shifted.
+     */
+    AWAITING_PLAN
 }
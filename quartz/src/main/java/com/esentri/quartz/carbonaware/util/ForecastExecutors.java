@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executors, which perform the I/O of the forecast clients. Forecast requests must not block the
+ * threads of Quartz, since jobs with an optimal execution time would queue behind them.
+ * <p>
+ * On Java 21 and later, every forecast request runs on its own virtual thread. Otherwise, daemon threads of a
+ * bounded pool are used. Tasks on one of these executors must never block on another task of the same executor,
+ * otherwise a bounded pool can be exhausted by tasks waiting for each other.
+ *
+ * @author jannisschalk
+ */
+public class ForecastExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForecastExecutors.class);
+    private static final int DEFAULT_PLATFORM_THREAD_COUNT = 4;
+    private static final int DEFAULT_FETCH_THREAD_COUNT = 8;
+    private static final int DEFAULT_DEADLINE_THREAD_COUNT = 16;
+    private static final int DEFAULT_DEADLINE_QUEUE_CAPACITY = 256;
+
+    private static volatile ExecutorService sharedExecutor;
+    private static volatile ExecutorService fetchExecutor;
+    private static volatile ExecutorService deadlineExecutor;
+
+    private ForecastExecutors() {
+        // hide default public constructor
+    }
+
+    /**
+     * @return executor shared by all components, which don't own a forecast executor
+     */
+    public static ExecutorService shared() {
+        if (sharedExecutor == null) {
+            synchronized (ForecastExecutors.class) {
+                if (sharedExecutor == null) {
+                    sharedExecutor = newForecastExecutor("carbon-aware-forecast", DEFAULT_PLATFORM_THREAD_COUNT);
+                }
+            }
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * @return executor shared by the forecast sources to request and parse the forecasts. Only the sources run on
+     * it, so the refreshes blocking on the sources never occupy its threads.
+     */
+    public static ExecutorService fetch() {
+        if (fetchExecutor == null) {
+            synchronized (ForecastExecutors.class) {
+                if (fetchExecutor == null) {
+                    fetchExecutor = newForecastExecutor("carbon-aware-fetch", DEFAULT_FETCH_THREAD_COUNT);
+                }
+            }
+        }
+        return fetchExecutor;
+    }
+
+    /**
+     * The executor always uses platform threads, which are interrupted when a call exceeds its deadline. If all
+     * threads are busy and the queue is full, further calls are rejected instead of queued without bound.
+     *
+     * @return bounded executor running the forecast calls, which have a deadline
+     */
+    public static ExecutorService deadlines() {
+        if (deadlineExecutor == null) {
+            synchronized (ForecastExecutors.class) {
+                if (deadlineExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            DEFAULT_DEADLINE_THREAD_COUNT, DEFAULT_DEADLINE_THREAD_COUNT,
+                            60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(DEFAULT_DEADLINE_QUEUE_CAPACITY),
+                            daemonThreadFactory("carbon-aware-deadline"));
+                    executor.allowCoreThreadTimeOut(true);
+                    deadlineExecutor = executor;
+                }
+            }
+        }
+        return deadlineExecutor;
+    }
+
+    /**
+     * @param threadNamePrefix    prefix of the names of the platform threads
+     * @param platformThreadCount number of platform threads, if virtual threads are not available
+     * @return executor running each task on a virtual thread, or a fixed pool of daemon threads
+     */
+    public static ExecutorService newForecastExecutor(String threadNamePrefix, int platformThreadCount) {
+        ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        return Executors.newFixedThreadPool(platformThreadCount, daemonThreadFactory(threadNamePrefix));
+    }
+
+    /**
+     * @return whether tasks of the forecast executors run on virtual threads
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return findVirtualThreadFactoryMethod() != null;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method factoryMethod = findVirtualThreadFactoryMethod();
+        if (factoryMethod == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Virtual threads are not available, using platform threads for forecast requests", e);
+            return null;
+        }
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param prefix prefix of the thread names, followed by a counter
+     * @return factory of daemon threads, which don't prevent the JVM from shutting down
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
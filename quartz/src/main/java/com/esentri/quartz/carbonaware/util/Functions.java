@@ -10,6 +10,7 @@ import com.esentri.quartz.carbonaware.entity.EmissionForecast;
 import com.esentri.quartz.carbonaware.exceptions.ForecastUnavailableException;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 
 public class Functions {
@@ -41,4 +42,12 @@ public class Functions {
 
         return LocalDateTime.ofInstant(date.toInstant(), timeZone.toZoneId());
     }
+
+    public static Date convertLocalDateToDate(LocalDateTime date, TimeZone timeZone) {
+        if (date == null) {
+            return null;
+        }
+        ZoneOffset offset = timeZone.toZoneId().getRules().getOffset(LocalDateTime.now());
+        return Date.from(date.toInstant(offset));
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2025 esentri AG
+ *
+ * Licensed under the MIT License. See LICENSE file in the project root for details.
+ */
+package com.esentri.quartz.carbonaware.util;
+
+import java.util.ServiceLoader;
+
+/**
+ * Looks up the implementations of the extension points, which are configured by name, e.g. in the
+ * {@code quartz.properties}.
+ *
+ * @author jannisschalk
+ */
+public class ServiceProviders {
+
+    private ServiceProviders() {
+        // hide default public constructor
+    }
+
+    /**
+     * Discovers the implementations via Java SPI ({@link ServiceLoader}) only — no reflection instantiation.
+     *
+     * @param apiType    The extension point
+     * @param nameOrFqcn The simple or fully qualified class name of the implementation. If blank, the only registered
+     *                   implementation is returned
+     * @return a new instance of the matching implementation
+     * @throws IllegalStateException if no matching implementation is registered
+     */
+    public static <T> T load(Class<T> apiType, String nameOrFqcn) {
+        ServiceLoader<T> loader = ServiceLoader.load(apiType, Thread.currentThread().getContextClassLoader());
+        for (T impl : loader) {
+            Class<?> c = impl.getClass();
+            if (c.getName().equals(nameOrFqcn) || c.getSimpleName().equals(nameOrFqcn)) {
+                return impl;
+            }
+        }
+        // If not found by an exact / simple name, but only one provider exists, return it to keep the default behavior.
+        T single = null;
+        int count = 0;
+        for (T impl : loader) {
+            single = impl;
+            count++;
+            if (count > 1) break;
+        }
+        if (count == 1 && (nameOrFqcn == null || nameOrFqcn.isBlank())) {
+            return single;
+        }
+        throw new IllegalStateException(
+                "No SPI provider for %s matching '%s'. Ensure an implementation is registered under META-INF/services/%s"
+                        .formatted(apiType.getName(), nameOrFqcn, apiType.getName()));
+    }
+}
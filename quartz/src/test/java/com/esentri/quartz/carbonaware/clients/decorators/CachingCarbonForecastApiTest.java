@@ -0,0 +1,212 @@
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProvider;
+import com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCarbonForecastApiTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 19, 10, 0);
+    private static final LocalDateTime END = START.plusHours(4);
+    private static final LocalDateTime OPTIMAL = START.plusHours(2);
+
+    @Mock
+    private CarbonForecastApi delegate;
+
+    @Test
+    void shouldServeResultFromCache_ForQueriesWithinSameBucket() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+
+        List<EmissionForecast> first = sut.getEmissionForecastCurrent(List.of("de"), START.plusMinutes(1), END, 10);
+        List<EmissionForecast> second = sut.getEmissionForecastCurrent(List.of("de"), START.plusMinutes(7), END, 10);
+
+        assertThat(second).isEqualTo(first);
+        verify(delegate, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
+        assertThat(sut.getHitCount()).isEqualTo(1);
+        assertThat(sut.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCallDelegate_ForQueriesInDifferentBuckets() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START.plusMinutes(15), END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END.plusMinutes(1), 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 30);
+
+        verify(delegate, times(4)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldNotServeResultOfLaterDeadline_ForEarlierDeadline() {
+        LocalDateTime lateOptimal = END.minusMinutes(5);
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast("de", lateOptimal))
+                .thenReturn(forecast("de", OPTIMAL));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END.plusMinutes(14), 10);
+        List<EmissionForecast> result = sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        assertThat(result.get(0).optimalDataPoints().get(0).timestamp()).isEqualTo(OPTIMAL);
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldCallDelegate_AfterTimeToLiveExpired() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMillis(20));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        Thread.sleep(50);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+        assertThat(sut.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedResult_IfCacheIsFull() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        CachingCarbonForecastApi sut = cache(2, Duration.ofMinutes(5));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 20);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 30);
+
+        assertThat(sut.size()).isEqualTo(2);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 20);
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), eq(20));
+        verify(delegate, times(1)).getEmissionForecastCurrent(any(), any(), any(), eq(10));
+    }
+
+    @Test
+    void shouldCallDelegate_AfterOpenDataForecastWasUpdated() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        EnergyChartsForecastProvider provider = new EnergyChartsForecastProvider();
+        CachingCarbonForecastApi sut = new CachingCarbonForecastApi(delegate, 10, Duration.ofMinutes(5),
+                Duration.ofMinutes(15), provider::getDataVersion);
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        publishNewOpenDataForecast(provider);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldServeCachedResult_AfterOpenDataForecastOfOtherSchedulerWasUpdated() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        EnergyChartsForecastProvider provider = new EnergyChartsForecastProvider();
+        CachingCarbonForecastApi sut = new CachingCarbonForecastApi(delegate, 10, Duration.ofMinutes(5),
+                Duration.ofMinutes(15), provider::getDataVersion);
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        publishNewOpenDataForecast(new EnergyChartsForecastProvider());
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        verify(delegate, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldNotCacheResult_WithDataPointBeforeRequestedStart() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast("de", START.minusMinutes(5)));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+        assertThat(sut.size()).isZero();
+    }
+
+    @Test
+    void shouldNotServeCachedResult_WithDataPointBeforeRequestedStart() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast("de", START.plusMinutes(5)));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START.plusMinutes(10), END, 10);
+
+        verify(delegate, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldForwardOnlyUncachedQueriesOfBatch() {
+        ForecastQuery cached = new ForecastQuery("de", START, END, 10);
+        ForecastQuery uncached = new ForecastQuery("at", START, END, 10);
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast("de", OPTIMAL));
+        when(delegate.getEmissionForecastsBatch(List.of(uncached))).thenReturn(Map.of(uncached, forecast("at", OPTIMAL)));
+        CachingCarbonForecastApi sut = cache(10, Duration.ofMinutes(5));
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(cached, uncached));
+
+        assertThat(result.keySet()).containsExactly(cached, uncached);
+        assertThat(result.get(uncached)).singleElement().extracting(EmissionForecast::location).isEqualTo("at");
+        assertThat(sut.getEmissionForecastCurrent(List.of("at"), START, END, 10)).isEqualTo(result.get(uncached));
+        verify(delegate, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldSerializeDelegate_InPlaceOfCache() throws Exception {
+        CachingCarbonForecastApi sut = new CachingCarbonForecastApi(new OpenDataForecastClient(), 10,
+                Duration.ofMinutes(5), Duration.ofMinutes(15), () -> 42L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sut);
+        }
+        Object restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = in.readObject();
+        }
+
+        assertThat(restored).isEqualTo(new OpenDataForecastClient());
+    }
+
+    private CachingCarbonForecastApi cache(int maximumEntries, Duration timeToLive) {
+        return new CachingCarbonForecastApi(delegate, maximumEntries, timeToLive, Duration.ofMinutes(15));
+    }
+
+    private static List<EmissionForecast> forecast(String location, LocalDateTime timestamp) {
+        return List.of(new EmissionForecastImpl(location, 10, List.of(new EmissionDataImpl(timestamp, 42.0))));
+    }
+
+    private static void publishNewOpenDataForecast(EnergyChartsForecastProvider provider) throws Exception {
+        Method updateCachedData = EnergyChartsForecastProvider.class.getDeclaredMethod("updateCachedData");
+        updateCachedData.setAccessible(true);
+        updateCachedData.invoke(provider);
+    }
+}
@@ -0,0 +1,197 @@
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingCarbonForecastApiTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 19, 10, 0);
+    private static final LocalDateTime END = START.plusHours(4);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldCallDelegateOnce_ForConcurrentIdenticalRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingForecastApi delegate = new CountingForecastApi(release);
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ZERO);
+
+        List<Future<List<EmissionForecast>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)));
+        }
+        awaitRequests(sut, 8);
+        release.countDown();
+
+        for (Future<List<EmissionForecast>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).singleElement()
+                    .extracting(EmissionForecast::location)
+                    .isEqualTo("de");
+        }
+        assertThat(delegate.calls).hasValue(1);
+        assertThat(sut.getDelegateCallCount()).isEqualTo(1);
+        assertThat(sut.getCoalescedCount()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldShareCompletedResult_WithinCoalescingWindow() {
+        CountingForecastApi delegate = new CountingForecastApi(null);
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ofMinutes(1));
+
+        List<EmissionForecast> first = sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        List<EmissionForecast> second = sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        assertThat(second).isSameAs(first);
+        assertThat(delegate.calls).hasValue(1);
+        assertThat(sut.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCallDelegateAgain_IfCoalescingWindowIsZero() {
+        CountingForecastApi delegate = new CountingForecastApi(null);
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ZERO);
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        assertThat(delegate.calls).hasValue(2);
+    }
+
+    @Test
+    void shouldNotCoalesce_DifferentQueries() {
+        CountingForecastApi delegate = new CountingForecastApi(null);
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ofMinutes(1));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("at"), START, END, 10);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 15);
+        sut.getEmissionForecastCurrent(List.of("de"), START, END.plusHours(1), 10);
+
+        assertThat(delegate.calls).hasValue(4);
+    }
+
+    @Test
+    void shouldPropagateFailure_AndRetryWithNextRequest() {
+        AtomicInteger calls = new AtomicInteger();
+        CarbonForecastApi delegate = (location, dataStartAt, dataEndAt, windowSize) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("forecast api is down");
+            }
+            return List.of();
+        };
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("forecast api is down");
+        assertThat(sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)).isEmpty();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldReleaseFlight_IfDelegateThrowsError() {
+        AtomicInteger calls = new AtomicInteger();
+        CarbonForecastApi delegate = (location, dataStartAt, dataEndAt, windowSize) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new StackOverflowError();
+            }
+            return List.of();
+        };
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(StackOverflowError.class);
+        assertThat(sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)).isEmpty();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldForwardBatch_AndShareResultsWithIdenticalRequests() {
+        CountingForecastApi delegate = new CountingForecastApi(null);
+        CoalescingCarbonForecastApi sut = new CoalescingCarbonForecastApi(delegate, Duration.ofMinutes(1));
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery at = new ForecastQuery("at", START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(de, at, de));
+        List<EmissionForecast> single = sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        assertThat(result).containsOnlyKeys(de, at);
+        assertThat(single).isSameAs(result.get(de));
+        assertThat(delegate.batchCalls).hasValue(1);
+        assertThat(sut.getDelegateCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareDecoratedClient_BetweenEqualClients() {
+        CarbonForecastApiDecorators decorators = new CarbonForecastApiDecorators(
+                client -> new CoalescingCarbonForecastApi(client, Duration.ofMinutes(1)));
+        CountingForecastApi client = new CountingForecastApi(null);
+
+        CarbonForecastApi first = decorators.decorate(client);
+        CarbonForecastApi second = decorators.decorate(client);
+
+        assertThat(first).isInstanceOf(CoalescingCarbonForecastApi.class).isSameAs(second);
+    }
+
+    private static void awaitRequests(CoalescingCarbonForecastApi sut, int expected) throws InterruptedException {
+        for (int i = 0; i < 250 && sut.getRequestCount() < expected; i++) {
+            Thread.sleep(20);
+        }
+        // the last caller may still be on its way to join the flight
+        Thread.sleep(50);
+    }
+
+    private static class CountingForecastApi implements CarbonForecastApi {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger batchCalls = new AtomicInteger();
+        private final CountDownLatch release;
+
+        private CountingForecastApi(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                                 LocalDateTime dataStartAt,
+                                                                 LocalDateTime dataEndAt,
+                                                                 Integer windowSize) {
+            calls.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(new EmissionForecastImpl(location.get(0), windowSize,
+                    List.of(new EmissionDataImpl(dataStartAt, 42.0))));
+        }
+
+        @Override
+        public Map<ForecastQuery, List<EmissionForecast>> getEmissionForecastsBatch(List<ForecastQuery> queries) {
+            batchCalls.incrementAndGet();
+            return CarbonForecastApi.super.getEmissionForecastsBatch(queries);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.esentri.quartz.carbonaware.clients.decorators;
+
+import com.esentri.quartz.carbonaware.clients.decorators.ResilientCarbonForecastApi.CircuitState;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientCarbonForecastApiTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 19, 10, 0);
+    private static final LocalDateTime END = START.plusHours(4);
+    private static final LocalDateTime OPTIMAL = START.plusHours(2);
+
+    @Mock
+    private CarbonForecastApi delegate;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldFail_IfDeadlineIsExceeded() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return forecast(OPTIMAL);
+        });
+        ResilientCarbonForecastApi sut = resilient(Duration.ofMillis(100), 5, Duration.ofMinutes(1));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(NoForecastException.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMillis).isLessThan(1_000);
+        assertThat(sut.getTimeoutCount()).isEqualTo(1);
+        assertThat(sut.getFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInterruptCall_IfDeadlineIsExceeded() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenAnswer(invocation -> {
+            try {
+                // e.g. a refresh waiting for its fetch
+                return new CompletableFuture<List<EmissionForecast>>().get();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        });
+        ResilientCarbonForecastApi sut = resilient(Duration.ofMillis(100), 5, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(NoForecastException.class);
+
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldNotCountMissingForecast_AsFailure() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new NoForecastException("No forecast available for location [xx]"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ofSeconds(1), 1, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("xx"), START, END, 10))
+                    .isInstanceOf(NoForecastException.class)
+                    .hasMessageContaining("xx");
+        }
+
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.CLOSED);
+        assertThat(sut.getFailureCount()).isZero();
+        verify(delegate, times(3)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldOpenCircuit_AfterConsecutiveFailures_AndRejectCalls() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 3, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.OPEN);
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(NoForecastException.class);
+        verify(delegate, times(3)).getEmissionForecastCurrent(any(), any(), any(), any());
+        assertThat(sut.getRejectedCount()).isEqualTo(1);
+        assertThat(sut.getOpenedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCloseCircuit_IfProbeSucceeds() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("forecast api is down"))
+                .thenReturn(forecast(OPTIMAL));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(IllegalStateException.class);
+        Thread.sleep(100);
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.HALF_OPEN);
+
+        assertThat(sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)).hasSize(1);
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void shouldReopenCircuit_IfProbeFails() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 2, Duration.ofMillis(50));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+        Thread.sleep(100);
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.OPEN);
+        assertThat(sut.getOpenedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldProbeAgain_IfProbeThrowsError() throws Exception {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("forecast api is down"))
+                .thenThrow(new AssertionError("unexpected"))
+                .thenReturn(forecast(OPTIMAL));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(IllegalStateException.class);
+        Thread.sleep(100);
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), START, END, 10))
+                .isInstanceOf(AssertionError.class);
+
+        assertThat(sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)).hasSize(1);
+        assertThat(sut.getCircuitState()).isEqualTo(CircuitState.CLOSED);
+        verify(delegate, times(3)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldAnswerWithLastGoodForecast_IfItIsWithinTimeWindow() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast(OPTIMAL))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 5, Duration.ofMinutes(1));
+
+        List<EmissionForecast> good = sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+        List<EmissionForecast> fallback = sut.getEmissionForecastCurrent(List.of("de"), START.plusHours(1), END, 10);
+
+        assertThat(fallback).isEqualTo(good);
+        assertThat(sut.getFallbackCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotAnswerWithLastGoodForecast_IfItIsOutsideTimeWindow() {
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast(OPTIMAL))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 5, Duration.ofMinutes(1));
+
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), OPTIMAL.plusMinutes(15), END, 10))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(sut.getFallbackCount()).isZero();
+    }
+
+    @Test
+    void shouldAnswerBatchWithLastGoodForecasts_IfCircuitIsOpen() {
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery at = new ForecastQuery("at", START, END, 10);
+        when(delegate.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(forecast(OPTIMAL));
+        when(delegate.getEmissionForecastsBatch(any())).thenThrow(new IllegalStateException("forecast api is down"));
+        ResilientCarbonForecastApi sut = resilient(Duration.ZERO, 1, Duration.ofMinutes(1));
+        sut.getEmissionForecastCurrent(List.of("de"), START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> failed = sut.getEmissionForecastsBatch(List.of(de, at));
+        Map<ForecastQuery, List<EmissionForecast>> rejected = sut.getEmissionForecastsBatch(List.of(de, at));
+
+        assertThat(failed.get(de)).hasSize(1);
+        assertThat(failed.get(at)).isEmpty();
+        assertThat(rejected).isEqualTo(failed);
+        assertThat(sut.getRejectedCount()).isEqualTo(1);
+        verify(delegate, times(1)).getEmissionForecastsBatch(any());
+    }
+
+    private ResilientCarbonForecastApi resilient(Duration timeout, int failureThreshold, Duration openDuration) {
+        return new ResilientCarbonForecastApi(delegate, timeout, failureThreshold, openDuration, executor);
+    }
+
+    private static List<EmissionForecast> forecast(LocalDateTime timestamp) {
+        return List.of(new EmissionForecastImpl("de", 10, List.of(new EmissionDataImpl(timestamp, 42.0))));
+    }
+}
@@ -0,0 +1,88 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.core.ListenerManagerImpl;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CarbonAwareTriggerTrackerTest {
+
+    private static final TriggerKey CARBON_AWARE = new TriggerKey("carbon-aware", "group");
+    private static final TriggerKey PLAIN = new TriggerKey("plain", "group");
+
+    @Mock
+    private Scheduler scheduler;
+    @Mock
+    private CarbonAwareCronTrigger carbonAwareTrigger;
+    @Mock
+    private Trigger plainTrigger;
+
+    private final SchedulerContext schedulerContext = new SchedulerContext();
+    private final ListenerManagerImpl listenerManager = new ListenerManagerImpl();
+    private final CarbonAwareTriggerTracker sut = new CarbonAwareTriggerTracker();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(scheduler.getContext()).thenReturn(schedulerContext);
+        when(scheduler.getListenerManager()).thenReturn(listenerManager);
+        when(scheduler.getTriggerKeys(any())).thenReturn(Set.of(CARBON_AWARE, PLAIN));
+        when(scheduler.getTrigger(CARBON_AWARE)).thenReturn(carbonAwareTrigger);
+        when(scheduler.getTrigger(PLAIN)).thenReturn(plainTrigger);
+        when(carbonAwareTrigger.getKey()).thenReturn(CARBON_AWARE);
+        when(plainTrigger.getKey()).thenReturn(PLAIN);
+    }
+
+    @Test
+    void shouldBeBoundToScheduler() throws Exception {
+        sut.bindTo(scheduler);
+
+        assertThat(CarbonAwareTriggerTracker.fromContext(schedulerContext)).containsSame(sut);
+        assertThat(listenerManager.getSchedulerListeners()).containsExactly(sut);
+    }
+
+    @Test
+    void shouldScanCarbonAwareTriggers_OnFirstUse() throws Exception {
+        assertThat(sut.triggerKeys(scheduler)).containsExactly(CARBON_AWARE);
+    }
+
+    @Test
+    void shouldTrackScheduledAndRemovedTriggers_WithoutScanningAgain() throws Exception {
+        TriggerKey scheduled = new TriggerKey("scheduled", "group");
+        CarbonAwareCronTrigger scheduledTrigger = mock(CarbonAwareCronTrigger.class);
+        when(scheduledTrigger.getKey()).thenReturn(scheduled);
+        sut.triggerKeys(scheduler);
+
+        sut.jobScheduled(scheduledTrigger);
+        sut.jobScheduled(plainTrigger);
+        sut.triggerUnscheduled(CARBON_AWARE);
+
+        assertThat(sut.triggerKeys(scheduler)).containsExactly(scheduled);
+        verify(scheduler, times(1)).getTriggerKeys(any());
+    }
+
+    @Test
+    void shouldForgetFinalizedTriggers() throws Exception {
+        sut.triggerKeys(scheduler);
+
+        sut.triggerFinalized(carbonAwareTrigger);
+
+        assertThat(sut.triggerKeys(scheduler)).isEmpty();
+    }
+}
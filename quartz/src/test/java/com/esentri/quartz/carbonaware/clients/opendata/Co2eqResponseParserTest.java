@@ -0,0 +1,128 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.Co2eqResponseParser.Co2eqResponse;
+import com.esentri.quartz.carbonaware.clients.opendata.Co2eqResponseParser.MalformedResponseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class Co2eqResponseParserTest {
+
+    private static final String RESPONSE = """
+            {"unix_seconds":[1626432000,1626435600,1626439200],
+             "co2eq":[300.5,null,-0.25],
+             "co2eq_forecast":[310,295.75,1.5e2],
+             "substitute":false,
+             "deprecated":{"nested":[[1,2],{"a":"b\\"]"}]}}""";
+
+    @Test
+    void shouldExtractLongValues() throws IOException {
+        Co2eqResponse result = parse("{\"unix_seconds\":[1626432000,1626435600,null,\"invalid\"]}");
+
+        assertThat(result.unixSeconds()).containsExactly(1626432000L, 1626435600L);
+    }
+
+    @Test
+    void shouldExtractDoubleValues() throws IOException {
+        Co2eqResponse result = parse("{\"co2eq\":[300.5,290.2,null,\"invalid\"]}");
+
+        assertThat(result.co2eq()).containsExactly(300.5, 290.2, Double.NaN, Double.NaN);
+    }
+
+    @Test
+    void shouldParseAllArraysAndSkipOtherFields() throws IOException {
+        Co2eqResponse result = parse(RESPONSE);
+
+        assertThat(result.unixSeconds()).containsExactly(1626432000L, 1626435600L, 1626439200L);
+        assertThat(result.co2eq()).containsExactly(300.5, Double.NaN, -0.25);
+        assertThat(result.co2eqForecast()).containsExactly(310.0, 295.75, 150.0);
+    }
+
+    @Test
+    void shouldReturnEmptyArrays_IfFieldsAreMissing() throws IOException {
+        Co2eqResponse result = parse(" { } ");
+
+        assertThat(result.unixSeconds()).isEmpty();
+        assertThat(result.co2eq()).isEmpty();
+        assertThat(result.co2eqForecast()).isEmpty();
+    }
+
+    @Test
+    void shouldParseDoublesLikeDoubleParseDouble() throws IOException {
+        String[] numbers = {"0", "-0.0", "0.1", "0.05", "123.456", "99999999999999.9", "1234567890.1234567",
+                "0.000000000000000000000001", "1e-3", "2.5E+2", "300.00000000000006", "17976931348623157"};
+
+        Co2eqResponse result = parse("{\"co2eq\":[" + String.join(",", numbers) + "]}");
+
+        double[] expected = Arrays.stream(numbers).mapToDouble(Double::parseDouble).toArray();
+        assertThat(result.co2eq()).containsExactly(expected);
+    }
+
+    @Test
+    void shouldParseResponse_ReadInSmallChunks() throws IOException {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        InputStream trickling = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+
+        Co2eqResponse result = Co2eqResponseParser.parse(trickling);
+
+        assertThat(result.co2eqForecast()).containsExactly(310.0, 295.75, 150.0);
+    }
+
+    @Test
+    void shouldRejectMalformedInput() {
+        assertThatThrownBy(() -> parse("{invalid json}")).isInstanceOf(MalformedResponseException.class);
+        assertThatThrownBy(() -> parse("")).isInstanceOf(MalformedResponseException.class);
+        assertThatThrownBy(() -> parse("[1,2]")).isInstanceOf(MalformedResponseException.class);
+        assertThatThrownBy(() -> parse("{\"co2eq\":[1,2}")).isInstanceOf(MalformedResponseException.class);
+        assertThatThrownBy(() -> parse("{\"co2eq\":[1,2]")).isInstanceOf(MalformedResponseException.class)
+                .hasMessageContaining("Unexpected end of input");
+        assertThatThrownBy(() -> parse("{\"a\":" + "[".repeat(1_000) + "]".repeat(1_000) + "}"))
+                .isInstanceOf(MalformedResponseException.class)
+                .hasMessageContaining("Nesting too deep");
+    }
+
+    @Test
+    void shouldOnlyFailWithMalformedResponseException_IfInputIsFuzzed() {
+        byte[] valid = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        byte[] alphabet = "{}[]\",:-+.eE0123456789nul \\".getBytes(StandardCharsets.US_ASCII);
+        Random random = new Random(42);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int run = 0; run < 20_000; run++) {
+                byte[] fuzzed = Arrays.copyOf(valid, random.nextInt(valid.length + 1));
+                int mutations = random.nextInt(4);
+                for (int i = 0; i < mutations && fuzzed.length > 0; i++) {
+                    int position = random.nextInt(fuzzed.length);
+                    fuzzed[position] = random.nextBoolean()
+                            ? alphabet[random.nextInt(alphabet.length)]
+                            : (byte) random.nextInt(256);
+                }
+                try {
+                    Co2eqResponse result = Co2eqResponseParser.parse(new ByteArrayInputStream(fuzzed));
+                    assertThat(result.unixSeconds()).isNotNull();
+                } catch (MalformedResponseException e) {
+                    assertThat(e).hasMessageStartingWith("Malformed co2eq response at byte");
+                }
+            }
+        });
+    }
+
+    private static Co2eqResponse parse(String json) throws IOException {
+        return Co2eqResponseParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,109 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompositeForecastSourceTest {
+
+    private static final long START = 1_752_656_400L;
+
+    private static final ForecastSeries PRIMARY = series(START, 300.0, 200.0);
+    private static final ForecastSeries SECONDARY = series(START - 900, 400.0, 350.0, 250.0, 150.0);
+
+    @Test
+    void firstHealthy_shouldUseSourceWithHighestPriority() {
+        CompositeForecastSource sut = new CompositeForecastSource(
+                List.of(succeeding(PRIMARY), succeeding(SECONDARY)), CompositeForecastSource.Strategy.FIRST_HEALTHY);
+
+        assertThat(sut.fetch(Location.DE, null).join()).isSameAs(PRIMARY);
+    }
+
+    @Test
+    void firstHealthy_shouldFallBack_whenSourceFailsOrIsEmpty() {
+        CompositeForecastSource sut = new CompositeForecastSource(
+                List.of(failing("down"), succeeding(ForecastSeries.empty()), succeeding(SECONDARY)),
+                CompositeForecastSource.Strategy.FIRST_HEALTHY);
+
+        assertThat(sut.fetch(Location.DE, null).join()).isSameAs(SECONDARY);
+    }
+
+    @Test
+    void firstHealthy_shouldFailWithAllFailures_whenNoSourceIsHealthy() {
+        CompositeForecastSource sut = new CompositeForecastSource(
+                List.of(failing("first"), failing("second")), CompositeForecastSource.Strategy.FIRST_HEALTHY);
+
+        assertThatThrownBy(() -> sut.fetch(Location.DE, null).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOf(IOException.class)
+                .hasMessage("first")
+                .satisfies(e -> assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("second"));
+    }
+
+    @Test
+    void firstHealthy_shouldReturnEmptySeries_whenNoSourceHasData() {
+        CompositeForecastSource sut = new CompositeForecastSource(
+                List.of(failing("down"), succeeding(ForecastSeries.empty())), CompositeForecastSource.Strategy.FIRST_HEALTHY);
+
+        assertThat(sut.fetch(Location.DE, null).join().isEmpty()).isTrue();
+    }
+
+    @Test
+    void merge_shouldExtendSeriesOfHighestPriority() {
+        CompositeForecastSource sut = new CompositeForecastSource(
+                List.of(succeeding(PRIMARY), failing("down"), succeeding(SECONDARY)), CompositeForecastSource.Strategy.MERGE);
+
+        ForecastSeries merged = sut.fetch(Location.DE, null).join();
+
+        assertThat(merged.size()).isEqualTo(4);
+        assertThat(merged.valueAt(0)).isEqualTo(400.0);
+        assertThat(merged.valueAt(1)).isEqualTo(300.0);
+        assertThat(merged.valueAt(2)).isEqualTo(200.0);
+        assertThat(merged.valueAt(3)).isEqualTo(150.0);
+    }
+
+    @Test
+    void registry_shouldResolveConfiguredSourcesByPriority() {
+        ForecastSourceRegistry registry = ForecastSourceRegistry.fromConfiguration(
+                "de=CsvForecastSource, EnergyChartsForecastSource", CompositeForecastSource.Strategy.MERGE);
+
+        assertThat(registry.sourcesOf(Location.DE))
+                .extracting(source -> source.getClass().getSimpleName())
+                .containsExactly("CsvForecastSource", "EnergyChartsForecastSource");
+        assertThat(registry.sourceOf(Location.DE)).isInstanceOf(CompositeForecastSource.class);
+        assertThat(registry.sourceOf(Location.FR)).isInstanceOf(EnergyChartsForecastSource.class);
+    }
+
+    @Test
+    void registry_shouldFail_whenSourceIsNotRegistered() {
+        assertThatThrownBy(() -> ForecastSourceRegistry.fromConfiguration(
+                "*=UnknownForecastSource", CompositeForecastSource.Strategy.FIRST_HEALTHY))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("UnknownForecastSource");
+    }
+
+    private static ForecastSeries series(long firstEpochSecond, double... values) {
+        long[] epochSeconds = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            epochSeconds[i] = firstEpochSecond + i * 900L;
+        }
+        return ForecastSeries.of(epochSeconds, values, 15);
+    }
+
+    private static ForecastSource succeeding(ForecastSeries series) {
+        return (location, previous) -> CompletableFuture.completedFuture(series);
+    }
+
+    private static ForecastSource failing(String message) {
+        return (location, previous) -> CompletableFuture.failedFuture(new IOException(message));
+    }
+}
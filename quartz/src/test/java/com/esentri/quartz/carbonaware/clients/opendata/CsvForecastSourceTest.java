@@ -0,0 +1,126 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvForecastSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldParseSortedDataPoints() throws IOException {
+        Path file = directory.resolve("de.csv");
+        Files.writeString(file, """
+                # forecast of Germany
+                timestamp;value
+                2025-07-16T09:30:00Z;100.0
+
+                1752656400;300.5
+                2025-07-16T09:15:00Z;200.25
+                """);
+
+        ForecastSeries series = CsvForecastSource.parse(file);
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.stepInMinutes()).isEqualTo(15);
+        assertThat(series.epochSecondAt(0)).isEqualTo(1_752_656_400L);
+        assertThat(series.valueAt(0)).isEqualTo(300.5);
+        assertThat(series.valueAt(1)).isEqualTo(200.25);
+        assertThat(series.valueAt(2)).isEqualTo(100.0);
+    }
+
+    @Test
+    void shouldFailOnInvalidLine() throws IOException {
+        Path file = directory.resolve("de.csv");
+        Files.writeString(file, """
+                2025-07-16T09:00:00Z,300.0
+                2025-07-16T09:15:00Z,n/a
+                """);
+
+        assertThatThrownBy(() -> CsvForecastSource.parse(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    void shouldFail_whenStepIsUnknown() throws IOException {
+        Path file = directory.resolve("de.csv");
+        Files.writeString(file, """
+                2025-07-16T09:00:00Z,300.0
+                """);
+
+        assertThatThrownBy(() -> CsvForecastSource.parse(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("single data point");
+    }
+
+    @Test
+    void shouldFail_whenStepIsNotPositiveNumberOfMinutes() throws IOException {
+        Path duplicates = directory.resolve("de.csv");
+        Files.writeString(duplicates, """
+                2025-07-16T09:00:00Z,300.0
+                2025-07-16T09:00:00Z,310.0
+                """);
+        Path subMinute = directory.resolve("fr.csv");
+        Files.writeString(subMinute, """
+                2025-07-16T09:00:00Z,50.0
+                2025-07-16T09:00:30Z,60.0
+                """);
+
+        assertThatThrownBy(() -> CsvForecastSource.parse(duplicates))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("0 seconds");
+        assertThatThrownBy(() -> CsvForecastSource.parse(subMinute))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("30 seconds");
+    }
+
+    @Test
+    void shouldFail_whenStepIsIrregular() throws IOException {
+        Path file = directory.resolve("de.csv");
+        Files.writeString(file, """
+                2025-07-16T09:00:00Z,300.0
+                2025-07-16T09:15:00Z,310.0
+                2025-07-16T09:45:00Z,320.0
+                """);
+
+        assertThatThrownBy(() -> CsvForecastSource.parse(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("irregular step at 2025-07-16T09:45:00Z");
+    }
+
+    @Test
+    void shouldReturnPreviousSeries_whenFileHasNotBeenModified() throws IOException {
+        Files.writeString(directory.resolve("fr.csv"), """
+                2025-07-16T09:00:00Z,50.0
+                2025-07-16T09:15:00Z,60.0
+                """);
+        CsvForecastSource sut = new CsvForecastSource(directory);
+
+        ForecastSeries first = sut.fetch(Location.FR, null).join();
+        ForecastSeries second = sut.fetch(Location.FR, first).join();
+
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void shouldFailWithIOException_whenFileIsMissing() {
+        CsvForecastSource sut = new CsvForecastSource(directory);
+
+        assertThatThrownBy(() -> sut.fetch(Location.AT, null).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+}
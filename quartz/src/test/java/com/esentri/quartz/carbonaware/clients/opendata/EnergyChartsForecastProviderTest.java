@@ -1,7 +1,10 @@
 package com.esentri.quartz.carbonaware.clients.opendata;
 
 import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
 import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.clients.opendata.model.RefreshStatistics;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.http.Fault;
@@ -9,18 +12,34 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,12 +47,15 @@ class EnergyChartsForecastProviderTest {
 
     private WireMockServer wireMockServer;
 
+    private EnergyChartsForecastProvider provider;
+
     @BeforeEach
     void setUp() {
-        // Reset static fields before each test
-        EnergyChartsForecastProvider.cachedForecasts.clear();
-        EnergyChartsForecastProvider.locations = new ArrayList<>();
-        EnergyChartsForecastProvider.initialized = false;
+        // Every test uses its own provider
+        provider = new EnergyChartsForecastProvider();
+        provider.configureRetries(3, Duration.ofMillis(10));
+        // the responses of most tests are years in the past
+        provider.configureRetention(null, 1024);
 
         // Set up WireMock server
         wireMockServer = new WireMockServer(8089);
@@ -43,11 +65,6 @@ class EnergyChartsForecastProviderTest {
 
     @AfterEach
     void tearDown() {
-        // Clean up after each test
-        EnergyChartsForecastProvider.cachedForecasts.clear();
-        EnergyChartsForecastProvider.locations = new ArrayList<>();
-        EnergyChartsForecastProvider.initialized = false;
-
         // Stop WireMock server
         if (wireMockServer != null && wireMockServer.isRunning()) {
             wireMockServer.stop();
@@ -62,10 +79,10 @@ class EnergyChartsForecastProviderTest {
                 LocalDateTime.now().plusHours(24),
                 Collections.emptyList()
         );
-        EnergyChartsForecastProvider.cachedForecasts.put(Location.DE, mockForecast);
+        provider.cachedForecasts.put(Location.DE, mockForecast);
 
         // When
-        CachedForecast result = EnergyChartsForecastProvider.getForecast(Location.DE);
+        CachedForecast result = provider.getForecast(Location.DE);
 
         // Then
         assertEquals(mockForecast, result);
@@ -74,7 +91,7 @@ class EnergyChartsForecastProviderTest {
     @Test
     void getForecast_shouldReturnNull_whenLocationNotCached() {
         // When
-        CachedForecast result = EnergyChartsForecastProvider.getForecast(Location.ALL);
+        CachedForecast result = provider.getForecast(Location.ALL);
 
         // Then
         assertNull(result);
@@ -101,23 +118,23 @@ class EnergyChartsForecastProviderTest {
                         .withBody(mockResponseFr)));
 
         // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When
-        EnergyChartsForecastProvider.initialize(locations);
+        provider.initialize(locations);
 
         // Then
-        assertTrue(EnergyChartsForecastProvider.initialized);
-        assertEquals(Arrays.asList(Location.DE, Location.FR), EnergyChartsForecastProvider.locations);
+        assertTrue(provider.initialized);
+        assertEquals(Arrays.asList(Location.DE, Location.FR), provider.locations);
         
         // Verify that the API URL template is set correctly
-        assertEquals("http://localhost:8089/co2eq?country=%s", EnergyChartsForecastProvider.apiUrlTemplate);
+        assertEquals("http://localhost:8089/co2eq?country=%s", provider.apiUrlTemplate);
         
         // Verify that the cache contains entries for the locations
         // Note: We're not verifying the actual HTTP requests because that's implementation-dependent
         // Instead, we're verifying that the provider is correctly initialized
-        assertNotNull(EnergyChartsForecastProvider.cachedForecasts.get(Location.DE));
-        assertNotNull(EnergyChartsForecastProvider.cachedForecasts.get(Location.FR));
+        assertNotNull(provider.cachedForecasts.get(Location.DE));
+        assertNotNull(provider.cachedForecasts.get(Location.FR));
     }
 
     @Test
@@ -126,8 +143,8 @@ class EnergyChartsForecastProviderTest {
         List<Location> initialLocations = Arrays.asList(Location.DE, Location.FR);
         List<String> newLocations = Arrays.asList("es", "it");
 
-        EnergyChartsForecastProvider.locations = initialLocations;
-        EnergyChartsForecastProvider.initialized = true;
+        provider.locations = initialLocations;
+        provider.initialized = true;
 
         // Set up WireMock stubs for the new locations
         // These should not be called, but we set them up just in case
@@ -146,23 +163,57 @@ class EnergyChartsForecastProviderTest {
                         .withBody(mockResponseIt)));
 
         // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When
-        EnergyChartsForecastProvider.initialize(newLocations);
+        provider.initialize(newLocations);
 
         // Then
-        assertEquals(initialLocations, EnergyChartsForecastProvider.locations);
+        assertEquals(initialLocations, provider.locations);
 
         // Verify that no requests were made
         verify(0, getRequestedFor(urlEqualTo("/co2eq?country=es")));
         verify(0, getRequestedFor(urlEqualTo("/co2eq?country=it")));
     }
 
+    @Test
+    void initialize_shouldIsolateInstances_sharingOneFetchExecutor() {
+        // Given
+        String mockResponse = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}";
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockResponse)));
+        ExecutorService fetchExecutor = Executors.newFixedThreadPool(2);
+        try {
+            EnergyChartsForecastProvider first = new EnergyChartsForecastProvider(fetchExecutor);
+            EnergyChartsForecastProvider second = new EnergyChartsForecastProvider(fetchExecutor);
+            first.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+            second.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+            // When
+            first.initialize(List.of("de"));
+            second.initialize(List.of("fr"));
+
+            // Then
+            assertTrue(first.initialized);
+            assertTrue(second.initialized);
+            assertEquals(List.of(Location.DE), first.locations);
+            assertEquals(List.of(Location.FR), second.locations);
+            assertNotNull(first.getForecast(Location.DE));
+            assertNull(first.getForecast(Location.FR));
+            assertNotNull(second.getForecast(Location.FR));
+            assertNull(second.getForecast(Location.DE));
+        } finally {
+            fetchExecutor.shutdownNow();
+        }
+    }
+
     @Test
     void updateCachedData_shouldUpdateCache() {
         // Given
-        EnergyChartsForecastProvider.locations = Arrays.asList(Location.DE, Location.FR);
+        provider.locations = Arrays.asList(Location.DE, Location.FR);
 
         // Set up WireMock stubs for each location
         String mockResponseDe = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}";
@@ -180,14 +231,14 @@ class EnergyChartsForecastProviderTest {
                         .withBody(mockResponseFr)));
 
         // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When
-        EnergyChartsForecastProvider.updateCachedData();
+        provider.updateCachedData();
 
         // Then
-        assertNotNull(EnergyChartsForecastProvider.getForecast(Location.DE));
-        assertNotNull(EnergyChartsForecastProvider.getForecast(Location.FR));
+        assertNotNull(provider.getForecast(Location.DE));
+        assertNotNull(provider.getForecast(Location.FR));
 
         // Verify that the requests were made
         verify(getRequestedFor(urlEqualTo("/co2eq?country=de"))
@@ -197,143 +248,137 @@ class EnergyChartsForecastProviderTest {
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenJsonIsInvalid() throws Exception {
+    void updateCachedData_shouldIncrementDataVersion() {
         // Given
-        String invalidJson = "{invalid json}";
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        long versionBefore = provider.getDataVersion();
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
+        // When
+        provider.updateCachedData();
+
+        // Then
+        assertTrue(provider.getDataVersion() > versionBefore);
+    }
+
+    @Test
+    void updateCachedData_shouldCacheEmptyForecast_whenJsonIsInvalid() {
+        // Given
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{invalid json}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.locations = List.of(Location.DE);
 
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, invalidJson, Location.DE);
+        provider.updateCachedData();
 
         // Then
-        assertTrue(result.isEmpty());
+        assertTrue(provider.getForecast(Location.DE).series().isEmpty());
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenArraysAreEmpty() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenArraysAreEmpty() throws Exception {
         // Given
         String emptyArraysJson = "{\"unix_seconds\":[],\"co2eq\":[],\"co2eq_forecast\":[]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, emptyArraysJson, Location.DE);
+        ForecastSeries result = buildForecastSeries(emptyArraysJson);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenArraysHaveDifferentSizes() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenArraysHaveDifferentSizes() throws Exception {
         // Given
         String differentSizesJson = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5],\"co2eq_forecast\":[null,null]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, differentSizesJson, Location.DE);
+        ForecastSeries result = buildForecastSeries(differentSizesJson);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void extractLongArrayFromJson_shouldExtractLongValues() throws Exception {
+    void buildForecastSeries_shouldBuildRecordsCorrectly() throws Exception {
         // Given
-        String json = "{\"unix_seconds\":[1626432000,1626435600,null,\"invalid\"]}";
+        long[] timestamps = {1626432000L, 1626435600L, 1626439200L};
+        double[] co2eqValues = {300.5, 290.2, 280.0};
+        double[] co2eqForecastValues = {Double.NaN, Double.NaN, Double.NaN};
 
         // Use reflection to access a private method
-        Method extractMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("extractLongArrayFromJson", String.class);
-        extractMethod.setAccessible(true);
+        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildForecastSeries", long[].class, double[].class, double[].class);
+        buildMethod.setAccessible(true);
 
         // When
-        @SuppressWarnings("unchecked")
-        List<Long> result = (List<Long>) extractMethod.invoke(null, json);
+        ForecastSeries result = (ForecastSeries) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
 
         // Then
-        assertEquals(2, result.size());
-        assertEquals(1626432000L, result.get(0));
-        assertEquals(1626435600L, result.get(1));
+        assertEquals(3, result.size());
+        // Check the first data point
+        assertEquals(300.5, result.valueAt(0));
+        // Check duration calculation
+        assertEquals(60, result.stepInMinutes()); // 3600 seconds = 60 minutes
     }
 
     @Test
-    void extractDoubleArrayFromJson_shouldExtractDoubleValues() throws Exception {
+    void buildForecastSeries_shouldHandleNullValues() throws Exception {
         // Given
-        String json = "{\"co2eq\":[300.5,290.2,null,\"invalid\"]}";
+        long[] timestamps = {1626432000L, 1626435600L};
+        double[] co2eqValues = {Double.NaN, Double.NaN};
+        double[] co2eqForecastValues = {300.5, 290.2};
 
         // Use reflection to access a private method
-        Method extractMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("extractDoubleArrayFromJson", String.class, String.class);
-        extractMethod.setAccessible(true);
+        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildForecastSeries", long[].class, double[].class, double[].class);
+        buildMethod.setAccessible(true);
 
         // When
-        @SuppressWarnings("unchecked")
-        List<Double> result = (List<Double>) extractMethod.invoke(null, json, "co2eq");
+        ForecastSeries result = (ForecastSeries) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
 
         // Then
-        assertEquals(4, result.size());
-        assertEquals(300.5, result.get(0));
-        assertEquals(290.2, result.get(1));
-        assertNull(result.get(2));
-        assertNull(result.get(3));
+        assertEquals(2, result.size());
+        // Check that forecast values are used when co2eq values are null
+        assertEquals(300.5, result.valueAt(0));
+        assertEquals(290.2, result.valueAt(1));
     }
 
     @Test
-    void buildEmissionDataRecords_shouldBuildRecordsCorrectly() throws Exception {
-        // Given
-        List<Long> timestamps = Arrays.asList(1626432000L, 1626435600L, 1626439200L);
-        List<Double> co2eqValues = Arrays.asList(300.5, 290.2, 280.0);
-        List<Double> co2eqForecastValues = Arrays.asList(null, null, null);
-
-        // Use reflection to access a private method
-        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildEmissionDataRecords", List.class, List.class, List.class);
-        buildMethod.setAccessible(true);
+    void buildForecastSeries_shouldReturnEmptySeries_whenStepIsIrregular() throws Exception {
+        // Given: the third data point follows 30 minutes after the second one instead of 15
+        String irregularJson = "{\"unix_seconds\":[1626432000,1626432900,1626434700],"
+                + "\"co2eq\":[300.5,290.2,280.0],\"co2eq_forecast\":[null,null,null]}";
 
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
+        ForecastSeries result = buildForecastSeries(irregularJson);
 
         // Then
-        assertEquals(3, result.size());
-        // Check the first data point
-        assertEquals(300.5, result.get(0).value());
-        // Check duration calculation
-        assertEquals(60, result.get(0).duration()); // 3600 seconds = 60 minutes
+        assertTrue(result.isEmpty());
     }
 
     @Test
-    void buildEmissionDataRecords_shouldHandleNullValues() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenStepIsNotAWholeMinute() throws Exception {
         // Given
-        List<Long> timestamps = Arrays.asList(1626432000L, 1626435600L);
-        List<Double> co2eqValues = Arrays.asList(null, null);
-        List<Double> co2eqForecastValues = Arrays.asList(300.5, 290.2);
-
-        // Use reflection to access a private method
-        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildEmissionDataRecords", List.class, List.class, List.class);
-        buildMethod.setAccessible(true);
+        String secondsJson = "{\"unix_seconds\":[1626432000,1626432030,1626432060],"
+                + "\"co2eq\":[300.5,290.2,280.0],\"co2eq_forecast\":[null,null,null]}";
 
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
+        ForecastSeries result = buildForecastSeries(secondsJson);
 
         // Then
-        assertEquals(2, result.size());
-        // Check that forecast values are used when co2eq values are null
-        assertEquals(300.5, result.get(0).value());
-        assertEquals(290.2, result.get(1).value());
+        assertTrue(result.isEmpty());
     }
 
     @Test
-    void fetchDataFromApi_shouldReturnJsonData_whenResponseCodeIs200() throws Exception {
+    void updateCachedData_shouldCacheParsedData_whenResponseCodeIs200() {
         // Given
         String mockResponse = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}";
         stubFor(get(urlEqualTo("/co2eq?country=de"))
@@ -341,19 +386,18 @@ class EnergyChartsForecastProviderTest {
                         .withStatus(200)
                         .withHeader("Content-Type", "application/json")
                         .withBody(mockResponse)));
-
-        // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
-
-        // Use reflection to access a private method
-        Method fetchMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("fetchDataFromApi", Location.class);
-        fetchMethod.setAccessible(true);
+        provider.locations = List.of(Location.DE);
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When
-        String result = (String) fetchMethod.invoke(null, Location.DE);
+        provider.updateCachedData();
 
         // Then
-        assertEquals(mockResponse, result);
+        ForecastSeries result = provider.getForecast(Location.DE).series();
+        assertEquals(2, result.size());
+        assertEquals(1626432000L, result.epochSecondAt(0));
+        assertEquals(300.5, result.valueAt(0));
+        assertEquals(290.2, result.valueAt(1));
 
         // Verify that the request was made
         verify(getRequestedFor(urlEqualTo("/co2eq?country=de"))
@@ -361,40 +405,65 @@ class EnergyChartsForecastProviderTest {
     }
 
     @Test
-    void fetchDataFromApi_shouldThrowException_whenResponseCodeIsNot200() throws Exception {
+    void updateCachedData_shouldFail_whenResponseCodeIsNot200() {
         // Given
         stubFor(get(urlEqualTo("/co2eq?country=fr"))
                 .willReturn(aResponse()
                         .withStatus(404)
                         .withHeader("Content-Type", "text/plain")
                         .withBody("Not Found")));
-
-        // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
-
-        // Use reflection to access a private method
-        Method fetchMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("fetchDataFromApi", Location.class);
-        fetchMethod.setAccessible(true);
+        provider.locations = List.of(Location.FR);
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When & Then
-        try {
-            fetchMethod.invoke(null, Location.FR);
-            fail("Expected an InvocationTargetException to be thrown");
-        } catch (InvocationTargetException e) {
-            // When using reflection, exceptions thrown by the method are wrapped in InvocationTargetException
-            assertInstanceOf(IOException.class, e.getCause(), "Expected cause to be IOException, but was " + e.getCause().getClass().getName());
-            assertEquals("HTTP-Fehler: 404", e.getCause().getMessage());
-        }
+        IllegalStateException exception = assertThrows(IllegalStateException.class, provider::updateCachedData);
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals("Unexpected HTTP status: 404", exception.getCause().getMessage());
+        assertNull(provider.getForecast(Location.FR));
 
         // Verify that the request was made
         verify(getRequestedFor(urlEqualTo("/co2eq?country=fr"))
                 .withHeader("Accept", equalTo("application/json")));
     }
 
+    @Test
+    void updateCachedData_shouldFallBackToCsvSource_whenEnergyChartsFails(@TempDir Path directory) throws IOException {
+        // Given
+        provider.locations = List.of(Location.DE);
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .withQueryParam("country", equalTo("de"))
+                .willReturn(aResponse().withStatus(404)));
+        Files.writeString(directory.resolve("de.csv"), """
+                timestamp,value
+                2025-07-16T09:00:00Z,300.0
+                2025-07-16T09:15:00Z,200.0
+                """);
+        provider.configureForecastSources(
+                new ForecastSourceRegistry(CompositeForecastSource.Strategy.FIRST_HEALTHY)
+                        .register(new EnergyChartsForecastSource(), 0)
+                        .register(Location.DE, new CsvForecastSource(directory), 1));
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        ForecastSeries series = provider.getForecast(Location.DE).series();
+        assertEquals(2, series.size());
+        assertEquals(15, series.stepInMinutes());
+        assertEquals(200.0, series.valueAt(1));
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")));
+
+        // an unmodified file keeps the cached forecast
+        CachedForecast forecast = provider.getForecast(Location.DE);
+        provider.updateCachedData();
+        assertSame(forecast.series(), provider.getForecast(Location.DE).series());
+    }
+
     @Test
     void updateCachedData_shouldThrowIllegalStateException_whenIOExceptionOccurs() {
         // Given
-        EnergyChartsForecastProvider.locations = List.of(Location.DE);
+        provider.locations = List.of(Location.DE);
 
         // Set up WireMock to return a connection error
         stubFor(get(urlEqualTo("/co2eq?country=de"))
@@ -402,10 +471,10 @@ class EnergyChartsForecastProviderTest {
                         .withFault(Fault.CONNECTION_RESET_BY_PEER)));
 
         // Set the apiUrlTemplate to point to the WireMock server
-        EnergyChartsForecastProvider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
 
         // When & Then
-        IllegalStateException exception = assertThrows(IllegalStateException.class, EnergyChartsForecastProvider::updateCachedData);
+        IllegalStateException exception = assertThrows(IllegalStateException.class, provider::updateCachedData);
 
         // Verify that the exception has an IOException as its cause
         assertInstanceOf(IOException.class, exception.getCause());
@@ -416,97 +485,666 @@ class EnergyChartsForecastProviderTest {
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenDataPointsAreEmpty() throws Exception {
+    void updateCachedData_shouldThrowIllegalStateException_whenReadTimeoutIsExceeded() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        provider.configureTimeouts(Duration.ofSeconds(1), Duration.ofMillis(200));
+
+        // Set up WireMock to answer slower than the read timeout
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(2_000)
+                        .withBody("{\"unix_seconds\":[],\"co2eq\":[],\"co2eq_forecast\":[]}")));
+
+        // Set the apiUrlTemplate to point to the WireMock server
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When & Then
+        long start = System.nanoTime();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, provider::updateCachedData);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+        assertTrue(elapsedMillis < 2_000, "Expected the request to be aborted, but it took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void updateCachedData_shouldThrowIllegalStateException_whenBodyStallsAfterHeaders() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        provider.configureTimeouts(Duration.ofSeconds(1), Duration.ofMillis(200));
+
+        // Set up WireMock to send the headers at once, but to dribble the body slower than the read timeout
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withChunkedDribbleDelay(5, 5_000)
+                        .withBody("{\"unix_seconds\":[],\"co2eq\":[],\"co2eq_forecast\":[]}")));
+
+        // Set the apiUrlTemplate to point to the WireMock server
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When & Then
+        long start = System.nanoTime();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, provider::updateCachedData);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+        assertTrue(elapsedMillis < 5_000, "Expected the body to be abandoned, but it took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void updateCachedData_shouldFetchLocationsInParallel() {
+        // Given
+        List<Location> slowLocations = List.of(Location.DE, Location.AT, Location.CH, Location.FR, Location.NL, Location.BE);
+        provider.locations = slowLocations;
+        for (Location location : slowLocations) {
+            stubFor(get(urlEqualTo("/co2eq?country=" + location.getCode()))
+                    .willReturn(aResponse()
+                            .withStatus(200)
+                            .withFixedDelay(location == Location.DE ? 800 : 400)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        }
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        long start = System.nanoTime();
+        provider.updateCachedData();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then the refresh takes as long as the slowest location (800ms), not the sum of all locations (2800ms)
+        assertTrue(elapsedMillis < 1_800, "Expected parallel requests, but the update took " + elapsedMillis + "ms");
+        for (Location location : slowLocations) {
+            assertNotNull(provider.getForecast(location));
+        }
+    }
+
+    @Test
+    void updateCachedData_shouldLimitParallelRequests() {
+        // Given
+        provider.configureParallelRequests(1);
+        List<Location> slowLocations = List.of(Location.DE, Location.AT, Location.CH);
+        provider.locations = slowLocations;
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(300)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        long start = System.nanoTime();
+        provider.updateCachedData();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertTrue(elapsedMillis >= 900, "Expected sequential requests, but the update took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void updateCachedData_shouldSkipUnmodifiedData() {
+        // Given
+        provider.configureIncrementalRefresh(false);
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .atPriority(1)
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse().withStatus(304)));
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .atPriority(2)
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("ETag", "\"v1\"")
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.updateCachedData();
+        CachedForecast forecast = provider.getForecast(Location.DE);
+        long versionBefore = provider.getDataVersion();
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        assertSame(forecast, provider.getForecast(Location.DE));
+        assertEquals(versionBefore, provider.getDataVersion());
+        verify(1, getRequestedFor(urlEqualTo("/co2eq?country=de")).withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+    @Test
+    void updateCachedData_shouldRequestOnlyDataAfterLastMeasuredValue() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600,1626439200],"
+                                + "\"co2eq\":[300.5,290.2,null],\"co2eq_forecast\":[null,null,280.0]}")));
+        stubFor(get(urlEqualTo("/co2eq?country=de&start=1626435600"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626435600,1626439200,1626442800],"
+                                + "\"co2eq\":[291.0,270.0,null],\"co2eq_forecast\":[null,null,260.0]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.updateCachedData();
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        ForecastSeries series = provider.getForecast(Location.DE).series();
+        assertEquals(4, series.size());
+        assertEquals(300.5, series.valueAt(0));
+        assertEquals(291.0, series.valueAt(1));
+        assertEquals(270.0, series.valueAt(2));
+        assertEquals(260.0, series.valueAt(3));
+        assertEquals(LocalDateTime.of(2021, 7, 16, 13, 40), provider.getForecast(Location.DE).maximumForecastTimestamp());
+        verify(1, getRequestedFor(urlEqualTo("/co2eq?country=de")));
+        verify(1, getRequestedFor(urlEqualTo("/co2eq?country=de&start=1626435600")));
+    }
+
+    @Test
+    void updateCachedData_shouldDropDataPointsOutsideOfRetention() {
+        // Given: 15 minute data points from two days ago until tomorrow
+        long start = Instant.now().minus(Duration.ofDays(2)).getEpochSecond() / 900 * 900;
+        StringBuilder unixSeconds = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < 288; i++) {
+            unixSeconds.append(i == 0 ? "" : ",").append(start + i * 900L);
+            values.append(i == 0 ? "" : ",").append(i);
+        }
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[" + unixSeconds + "],\"co2eq\":[" + values
+                                + "],\"co2eq_forecast\":[" + values + "]}")));
+        provider.locations = List.of(Location.DE);
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.configureIncrementalRefresh(false);
+
+        // When
+        provider.configureRetention(Duration.ofHours(6), 1024);
+        provider.updateCachedData();
+        ForecastSeries withinLookback = provider.getForecast(Location.DE).series();
+        provider.configureRetention(null, 10);
+        provider.updateCachedData();
+        ForecastSeries withinCapacity = provider.getForecast(Location.DE).series();
+
+        // Then
+        assertTrue(withinLookback.size() < 288);
+        assertTrue(withinLookback.timestampAt(0).isAfter(LocalDateTime.now(ZoneOffset.UTC).minusHours(6).minusMinutes(15)));
+        assertEquals(287.0, withinLookback.valueAt(withinLookback.size() - 1));
+        assertEquals(10, withinCapacity.size());
+        assertEquals(278.0, withinCapacity.valueAt(0));
+        assertEquals(287.0, withinCapacity.valueAt(9));
+    }
+
+    @Test
+    void updateCachedData_shouldRequestCompleteData_whenIncrementalRefreshIsDisabled() {
+        // Given
+        provider.configureIncrementalRefresh(false);
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.updateCachedData();
+        provider.updateCachedData();
+
+        // Then
+        verify(2, getRequestedFor(urlEqualTo("/co2eq?country=de")));
+    }
+
+    @Test
+    void updateCachedData_shouldKeepLastGoodForecast_whenOneLocationFails() {
+        // Given
+        provider.locations = List.of(Location.DE, Location.FR);
+        CachedForecast lastGoodForecast = new CachedForecast(
+                LocalDateTime.now().minusHours(2), LocalDateTime.now().plusHours(10), Collections.emptyList());
+        provider.cachedForecasts.put(Location.FR, lastGoodForecast);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        stubFor(get(urlEqualTo("/co2eq?country=fr"))
+                .willReturn(aResponse().withStatus(503)));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        assertEquals(2, provider.getForecast(Location.DE).series().size());
+        assertSame(lastGoodForecast, provider.getForecast(Location.FR));
+        assertTrue(provider.getStaleness(Location.FR).compareTo(Duration.ofHours(2)) >= 0);
+        assertTrue(provider.getStaleness(Location.DE).compareTo(Duration.ofMinutes(1)) < 0);
+
+        RefreshStatistics failed = provider.getRefreshStatistics(Location.FR);
+        assertEquals(1, failed.failureCount());
+        assertEquals(2, failed.retryCount());
+        assertNotNull(failed.lastFailedRefresh());
+        RefreshStatistics succeeded = provider.getRefreshStatistics(Location.DE);
+        assertEquals(1, succeeded.successCount());
+        assertNotNull(succeeded.lastLatency());
+        verify(3, getRequestedFor(urlEqualTo("/co2eq?country=fr")));
+    }
+
+    @Test
+    void updateCachedData_shouldNotPublishSnapshot_whenEveryLocationFails() {
+        // Given
+        provider.configureRetries(1, Duration.ZERO);
+        provider.locations = List.of(Location.DE);
+        CachedForecast lastGoodForecast = new CachedForecast(
+                LocalDateTime.now().minusHours(2), LocalDateTime.now().plusHours(10), Collections.emptyList());
+        provider.cachedForecasts.put(Location.DE, lastGoodForecast);
+        long versionBefore = provider.getDataVersion();
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse().withStatus(503)));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        assertThrows(IllegalStateException.class, provider::updateCachedData);
+
+        // Then
+        assertEquals(versionBefore, provider.getDataVersion());
+        assertSame(lastGoodForecast, provider.getForecast(Location.DE));
+    }
+
+    @Test
+    void updateCachedData_shouldRetryFailedRequest() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .inScenario("retry")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        assertEquals(2, provider.getForecast(Location.DE).series().size());
+        assertEquals(1, provider.getRefreshStatistics(Location.DE).retryCount());
+        verify(2, getRequestedFor(urlEqualTo("/co2eq?country=de")));
+    }
+
+    @Test
+    void updateCachedData_shouldNotRetry_whenRequestIsRejected() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse().withStatus(404)));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When & Then
+        assertThrows(IllegalStateException.class, provider::updateCachedData);
+        verify(1, getRequestedFor(urlEqualTo("/co2eq?country=de")));
+    }
+
+    @Test
+    void updateCachedData_shouldPersistSnapshot(@TempDir Path directory) throws IOException {
+        // Given
+        Path file = directory.resolve("forecasts.bin");
+        provider.configureSnapshotFile(file);
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        ForecastSnapshot persisted = SnapshotFile.read(file);
+        assertEquals(provider.getDataVersion(), persisted.version());
+        assertEquals(provider.getForecast(Location.DE).emissionData(),
+                persisted.getForecast(Location.DE).emissionData());
+    }
+
+    @Test
+    void updateCachedData_shouldArchiveActualsAndForecast(@TempDir Path directory) throws IOException {
+        // Given
+        long now = Instant.now().getEpochSecond() / 900 * 900;
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[" + (now - 900) + "," + now + "," + (now + 900) + "," + (now + 1800)
+                                + "],\"co2eq\":[100.0,110.0,null,null],\"co2eq_forecast\":[null,null,120.0,130.0]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            provider.configureArchive(archive);
+
+            // When
+            provider.updateCachedData();
+            archive.appendActuals(Location.DE, new long[]{now, now + 900, now + 1800}, new double[]{0.0, 100.0, 100.0});
+
+            // Then
+            ForecastAccuracy accuracy = archive.accuracy(Location.DE,
+                    Instant.ofEpochSecond(now - 3600), Instant.ofEpochSecond(now + 3600), ZoneOffset.UTC);
+            assertEquals(2, accuracy.overall().count());
+            assertEquals(25.0, accuracy.overall().meanError(), 1e-9);
+        }
+    }
+
+    @Test
+    void initialize_shouldRestoreSnapshot_andRefreshInBackground(@TempDir Path directory) throws Exception {
+        // Given a snapshot of the last run and a slow API
+        Path file = directory.resolve("forecasts.bin");
+        ForecastSeries restored = ForecastSeries.of(new long[]{1626432000L, 1626435600L}, new double[]{100.0, 110.0}, 60);
+        SnapshotFile.write(file, new ForecastSnapshot(1, Map.of(Location.DE, new CachedForecast(
+                LocalDateTime.now().minusHours(3), restored.timestampAt(1), restored))));
+        provider.configureSnapshotFile(file);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(500)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        long start = System.nanoTime();
+        provider.initialize(List.of("de"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then the restored forecast is available immediately
+        assertTrue(elapsedMillis < 500, "Expected a warm start, but the initialization took " + elapsedMillis + "ms");
+        assertTrue(provider.initialized);
+        assertEquals(100.0, provider.getForecast(Location.DE).series().valueAt(0));
+
+        // and is refreshed in the background
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (provider.getForecast(Location.DE).series().valueAt(0) == 100.0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(300.5, provider.getForecast(Location.DE).series().valueAt(0));
+    }
+
+    @Test
+    void initialize_shouldFetchData_whenSnapshotFileIsCorrupted(@TempDir Path directory) throws IOException {
+        // Given
+        Path file = directory.resolve("forecasts.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+        provider.configureSnapshotFile(file);
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.initialize(List.of("de"));
+
+        // Then
+        assertEquals(300.5, provider.getForecast(Location.DE).series().valueAt(0));
+        assertNotNull(SnapshotFile.read(file).getForecast(Location.DE));
+    }
+
+    @Test
+    void updateDueLocations_shouldOnlyRefreshLocationsDueForRefresh() throws InterruptedException {
+        // Given
+        provider.locations = List.of(Location.DE, Location.FR);
+        provider.configureRefreshSchedule(new RefreshSchedule(Duration.ofMillis(1), Duration.ofHours(6)));
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.updateCachedData();
+        Thread.sleep(5);
+
+        // When the forecast of DE does not cover the deadline of its trigger and FR is not used by any trigger
+        Instant now = Instant.now();
+        provider.updateDueLocations(Map.of(Location.DE,
+                new RefreshSchedule.Demand(now.plus(Duration.ofHours(1)), now.plus(Duration.ofHours(2)))));
+
+        // Then
+        verify(2, getRequestedFor(urlPathEqualTo("/co2eq")).withQueryParam("country", equalTo("de")));
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")).withQueryParam("country", equalTo("fr")));
+        assertEquals(0, provider.getRefreshStatistics(Location.DE).unmodifiedCount());
+        assertTrue(provider.getNextRefresh(Location.FR, null).isAfter(now.plus(Duration.ofHours(5))));
+    }
+
+    @Test
+    void updateDueLocations_shouldRefreshNothing_IfNoLocationIsDue() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        provider.updateCachedData();
+        long version = provider.getDataVersion();
+
+        // When
+        provider.updateDueLocations(Map.of());
+
+        // Then
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")));
+        assertEquals(version, provider.getDataVersion());
+    }
+
+    @Test
+    void requestForecast_shouldFetchUnseenLocationOnce_ForConcurrentRequests() throws Exception {
+        // Given
+        provider.configureOnDemandLoading(true, Duration.ofDays(1));
+        provider.locations = List.of(Location.DE);
+        provider.initialized = true;
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(300)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<CachedForecast>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> provider.requestForecast(
+                        provider.getSnapshot(), Location.FR)));
+            }
+            for (Future<CachedForecast> result : results) {
+                // Then every request receives the fetched forecast
+                assertEquals(300.5, result.get(5, TimeUnit.SECONDS).series().valueAt(0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // and the location joins the refreshes
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")).withQueryParam("country", equalTo("fr")));
+        assertEquals(List.of(Location.DE, Location.FR), provider.locations);
+    }
+
+    @Test
+    void requestForecast_shouldNotFetchUnseenLocation_IfOnDemandLoadingIsDisabled() {
+        // Given
+        provider.locations = List.of(Location.DE);
+        provider.initialized = true;
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        CachedForecast forecast = provider.requestForecast(
+                provider.getSnapshot(), Location.FR);
+
+        // Then
+        assertNull(forecast);
+        verify(0, getRequestedFor(urlPathEqualTo("/co2eq")));
+    }
+
+    @Test
+    void requestForecast_shouldNotFetchAgain_IfFetchHasFailedRecently() {
+        // Given
+        provider.configureOnDemandLoading(true, Duration.ofDays(1));
+        provider.locations = List.of(Location.DE);
+        provider.initialized = true;
+        stubFor(get(urlPathEqualTo("/co2eq")).willReturn(aResponse().withStatus(404)));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        CachedForecast first = provider.requestForecast(
+                provider.getSnapshot(), Location.FR);
+        CachedForecast second = provider.requestForecast(
+                provider.getSnapshot(), Location.FR);
+
+        // Then
+        assertNull(first);
+        assertNull(second);
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")));
+        assertEquals(List.of(Location.DE), provider.locations);
+    }
+
+    @Test
+    void updateCachedData_shouldEvictIdleLocationsFetchedOnFirstUse() throws InterruptedException {
+        // Given
+        provider.configureOnDemandLoading(true, Duration.ofMillis(1));
+        provider.locations = List.of(Location.DE);
+        provider.initialized = true;
+        stubFor(get(urlPathEqualTo("/co2eq"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}")));
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+        assertNotNull(provider.requestForecast(provider.getSnapshot(), Location.FR));
+        Thread.sleep(5);
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        assertNull(provider.getForecast(Location.FR));
+        assertNotNull(provider.getForecast(Location.DE));
+        assertEquals(List.of(Location.DE), provider.locations);
+        verify(1, getRequestedFor(urlPathEqualTo("/co2eq")).withQueryParam("country", equalTo("fr")));
+    }
+
+    @Test
+    void updateCachedData_shouldDecompressGzipResponse() throws IOException {
+        // Given
+        String mockResponse = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[null,null]}";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(mockResponse.getBytes(StandardCharsets.UTF_8));
+        }
+        stubFor(get(urlEqualTo("/co2eq?country=de"))
+                .withHeader("Accept-Encoding", containing("gzip"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(compressed.toByteArray())));
+        provider.locations = List.of(Location.DE);
+        provider.apiUrlTemplate = "http://localhost:8089/co2eq?country=%s";
+
+        // When
+        provider.updateCachedData();
+
+        // Then
+        ForecastSeries result = provider.getForecast(Location.DE).series();
+        assertEquals(2, result.size());
+        assertEquals(300.5, result.valueAt(0));
+        assertEquals(290.2, result.valueAt(1));
+    }
+
+    @Test
+    void buildForecastSeries_shouldReturnEmptySeries_whenDataPointsAreEmpty() throws Exception {
         // Given
         // Create a JSON where all values are null, which will result in empty dataPoints
         String jsonWithNullValues = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[null,null],\"co2eq_forecast\":[null,null]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, jsonWithNullValues, Location.DE);
+        ForecastSeries result = buildForecastSeries(jsonWithNullValues);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenExceptionOccurs() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenThereIsOnlyOneTimestamp() throws Exception {
         // Given
-        // Create a JSON that will cause an exception in the buildEmissionDataRecords method
-        // This JSON has valid arrays but will cause an ArrayIndexOutOfBoundsException when accessing timestamps[i-1]
-        // for the last element (when calculating duration)
+        // This JSON has valid arrays, but the duration of a single data point can not be calculated
         String jsonWithSingleTimestamp = "{\"unix_seconds\":[1626432000],\"co2eq\":[300.5],\"co2eq_forecast\":[400.5]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, jsonWithSingleTimestamp, Location.DE);
+        ForecastSeries result = buildForecastSeries(jsonWithSingleTimestamp);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenCo2eqValuesIsEmpty() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenCo2eqValuesIsEmpty() throws Exception {
         // Given
         // Create a JSON where timestamps is not empty but co2eqValues is empty
         // This specifically targets the co2eqValues.isEmpty() branch
         String jsonWithEmptyCo2eq = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[],\"co2eq_forecast\":[null,null]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, jsonWithEmptyCo2eq, Location.DE);
+        ForecastSeries result = buildForecastSeries(jsonWithEmptyCo2eq);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void parseJsonToEmissionForecast_shouldReturnEmptyList_whenCo2eqForecastValuesIsEmpty() throws Exception {
+    void buildForecastSeries_shouldReturnEmptySeries_whenCo2eqForecastValuesIsEmpty() throws Exception {
         // Given
         // Create a JSON where timestamps and co2eqValues are not empty but co2eqForecastValues is empty
         // This specifically targets the co2eqForecastValues.isEmpty() branch
         String jsonWithEmptyCo2eqForecast = "{\"unix_seconds\":[1626432000,1626435600],\"co2eq\":[300.5,290.2],\"co2eq_forecast\":[]}";
 
-        // Use reflection to access a private method
-        Method parseMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("parseJsonToEmissionForecast", String.class, Location.class);
-        parseMethod.setAccessible(true);
-
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) parseMethod.invoke(null, jsonWithEmptyCo2eqForecast, Location.DE);
+        ForecastSeries result = buildForecastSeries(jsonWithEmptyCo2eqForecast);
 
         // Then
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void buildEmissionDataRecords_shouldHandleAllNullValues() throws Exception {
+    void buildForecastSeries_shouldHandleAllNullValues() throws Exception {
         // Given
-        List<Long> timestamps = Arrays.asList(1626432000L, 1626435600L);
-        List<Double> co2eqValues = Arrays.asList(null, null);
-        List<Double> co2eqForecastValues = Arrays.asList(null, null);
+        long[] timestamps = {1626432000L, 1626435600L};
+        double[] co2eqValues = {Double.NaN, Double.NaN};
+        double[] co2eqForecastValues = {Double.NaN, Double.NaN};
 
         // Use reflection to access a private method
-        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildEmissionDataRecords", List.class, List.class, List.class);
+        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod("buildForecastSeries", long[].class, double[].class, double[].class);
         buildMethod.setAccessible(true);
 
         // When
-        @SuppressWarnings("unchecked")
-        List<CachedForecast.CachedEmissionData> result = (List<CachedForecast.CachedEmissionData>) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
+        ForecastSeries result = (ForecastSeries) buildMethod.invoke(null, timestamps, co2eqValues, co2eqForecastValues);
 
         // Then
         assertTrue(result.isEmpty(), "Result should be empty when all values are null");
     }
+
+    private static ForecastSeries buildForecastSeries(String json) throws Exception {
+        Co2eqResponseParser.Co2eqResponse response =
+                Co2eqResponseParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // Use reflection to access a private method
+        Method buildMethod = EnergyChartsForecastProvider.class.getDeclaredMethod(
+                "buildForecastSeries", Co2eqResponseParser.Co2eqResponse.class, Location.class);
+        buildMethod.setAccessible(true);
+        return (ForecastSeries) buildMethod.invoke(null, response, Location.DE);
+    }
+
 }
@@ -0,0 +1,148 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ForecastArchiveTest {
+
+    private static final long START = 1_752_624_000L; // 2025-07-16T00:00:00Z
+    private static final long HOUR = 3600;
+    private static final Instant FROM = Instant.ofEpochSecond(START - 24 * HOUR);
+    private static final Instant TO = Instant.ofEpochSecond(START + 24 * HOUR);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldComputeErrorsByHorizonAndHourOfDay() throws IOException {
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START),
+                    hours(0, 1, 2, 3), new double[]{110, 210, 310, 410});
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START + 2 * HOUR),
+                    hours(2, 3), new double[]{298, 398});
+            archive.appendForecast(Location.FR, Instant.ofEpochSecond(START),
+                    hours(0, 1), new double[]{0, 0});
+            archive.appendActuals(Location.DE, hours(0, 1, 2, 3), new double[]{100, 200, 300, 400});
+
+            ForecastAccuracy accuracy = archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC);
+
+            assertThat(accuracy.location()).isEqualTo(Location.DE);
+            assertThat(accuracy.overall().count()).isEqualTo(6);
+            assertThat(accuracy.overall().meanError()).isCloseTo(6.0, within(1e-9));
+            assertThat(accuracy.byHorizon()).containsOnlyKeys(0, 1, 2, 3);
+            assertThat(accuracy.byHorizon().get(0).count()).isEqualTo(2);
+            assertThat(accuracy.byHorizon().get(0).meanError()).isCloseTo(4.0, within(1e-9));
+            assertThat(accuracy.byHorizon().get(0).meanAbsoluteError()).isCloseTo(6.0, within(1e-9));
+            assertThat(accuracy.byHorizon().get(0).rootMeanSquareError()).isCloseTo(Math.sqrt(52), within(1e-9));
+            assertThat(accuracy.byHourOfDay()).containsOnlyKeys(0, 1, 2, 3);
+            assertThat(accuracy.byHourOfDay().get(2).count()).isEqualTo(2);
+            assertThat(accuracy.of(2, 2).meanError()).isCloseTo(10.0, within(1e-9));
+            assertThat(accuracy.of(5, 2).count()).isZero();
+        }
+    }
+
+    @Test
+    void shouldSkipPastDataPointsAndUnchangedForecasts() throws IOException {
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START + HOUR),
+                    hours(0, 1, 2), new double[]{999, 210, 310});
+            // fetched again an hour later without changes
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START + 2 * HOUR),
+                    hours(0, 1, 2), new double[]{999, 210, 310});
+            archive.appendActuals(Location.DE, hours(0, 1, 2), new double[]{100, 200, 300});
+
+            ForecastAccuracy accuracy = archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC);
+
+            assertThat(accuracy.overall().count()).isEqualTo(2);
+            assertThat(accuracy.byHorizon()).containsOnlyKeys(0, 1);
+        }
+    }
+
+    @Test
+    void shouldContinueArchiveAfterReopening() throws IOException {
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START), hours(0, 1), new double[]{110, 210});
+            archive.appendActuals(Location.DE, hours(0), new double[]{100});
+        }
+
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START + HOUR), hours(1), new double[]{210});
+            archive.appendActuals(Location.DE, hours(0, 1), new double[]{50, 200});
+
+            ForecastAccuracy accuracy = archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC);
+
+            assertThat(archive.getSegments()).hasSize(1);
+            assertThat(accuracy.overall().count()).isEqualTo(2);
+            assertThat(accuracy.overall().meanError()).isCloseTo(10.0, within(1e-9));
+        }
+    }
+
+    @Test
+    void shouldStartNewSegment_whenSegmentIsFull() throws IOException {
+        try (ForecastArchive archive = ForecastArchive.open(directory, 128)) {
+            for (int hour = 0; hour < 20; hour++) {
+                archive.appendForecast(Location.DE, Instant.ofEpochSecond(START + hour * HOUR),
+                        hours(hour, hour + 1), new double[]{hour + 1, hour + 2});
+                archive.appendActuals(Location.DE, hours(hour), new double[]{hour});
+            }
+
+            ForecastAccuracy accuracy = archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC);
+
+            assertThat(archive.getSegments()).hasSizeGreaterThan(1);
+            assertThat(accuracy.byHorizon().get(0).count()).isEqualTo(20);
+            assertThat(accuracy.byHorizon().get(1).count()).isEqualTo(19);
+            assertThat(accuracy.overall().meanError()).isCloseTo(1.0, within(1e-9));
+        }
+    }
+
+    @Test
+    void shouldIgnoreCorruptedRecordAndOverwriteIt() throws IOException {
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            archive.appendActuals(Location.DE, hours(0), new double[]{100});
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START), hours(0, 1), new double[]{110, 210});
+        }
+        Path segment;
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            segment = archive.getSegments().get(0);
+        }
+        // damage the last byte of the forecast, as if the record was interrupted
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            channel.read(buffer, 0);
+            int end = 8;
+            while (buffer.get(end) != 0 || buffer.get(end + 1) != 0) {
+                end += 8 + Byte.toUnsignedInt(buffer.get(end)) + (Byte.toUnsignedInt(buffer.get(end + 1)) << 8);
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (buffer.get(end - 1) ^ 0xFF)}), end - 1);
+        }
+
+        try (ForecastArchive archive = ForecastArchive.open(directory)) {
+            assertThat(archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC).overall().count()).isZero();
+
+            archive.appendForecast(Location.DE, Instant.ofEpochSecond(START), hours(0, 1), new double[]{120, 210});
+
+            assertThat(archive.accuracy(Location.DE, FROM, TO, ZoneOffset.UTC).overall().meanError())
+                    .isCloseTo(20.0, within(1e-9));
+        }
+    }
+
+    private static long[] hours(long... hours) {
+        long[] epochSeconds = new long[hours.length];
+        for (int i = 0; i < hours.length; i++) {
+            epochSeconds[i] = START + hours[i] * HOUR;
+        }
+        return epochSeconds;
+    }
+}
@@ -0,0 +1,120 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForecastSnapshotStressTest {
+
+    private static final List<Location> LOCATIONS = List.of(Location.DE, Location.AT, Location.CH, Location.FR);
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 16, 0, 0);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(5);
+    private final EnergyChartsForecastProvider provider = new EnergyChartsForecastProvider();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readersShouldNeverSeePartiallyUpdatedSnapshot() throws Exception {
+        provider.publish(generation(0));
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        List<Future<Long>> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(executor.submit(() -> {
+                long reads = 0;
+                long lastVersion = -1;
+                while (running.get()) {
+                    ForecastSnapshot snapshot = provider.getSnapshot();
+                    assertThat(snapshot.version()).isGreaterThanOrEqualTo(lastVersion);
+                    lastVersion = snapshot.version();
+
+                    LocalDateTime generation = snapshot.getForecast(LOCATIONS.get(0)).lastUpdated();
+                    for (Location location : LOCATIONS) {
+                        assertThat(snapshot.getForecast(location).lastUpdated()).isEqualTo(generation);
+                    }
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        Future<?> writer = executor.submit(() -> {
+            for (int generation = 1; generation <= 5_000; generation++) {
+                provider.publish(generation(generation));
+            }
+        });
+        writer.get(30, TimeUnit.SECONDS);
+        running.set(false);
+
+        for (Future<Long> reader : readers) {
+            assertThat(reader.get(30, TimeUnit.SECONDS)).isPositive();
+        }
+        assertThat(provider.getForecast(Location.DE).lastUpdated()).isEqualTo(START.plusMinutes(5_000));
+    }
+
+    @Test
+    void pinnedClientShouldAnswerWithPinnedSnapshot() {
+        provider.publish(generation(1));
+        OpenDataForecastClient pinned = new OpenDataForecastClient(provider, provider.getSnapshot(), null);
+        OpenDataForecastClient latest = new OpenDataForecastClient(provider, null, null);
+
+        provider.publish(generation(2));
+
+        assertThat(optimalValue(pinned)).isEqualTo(1.0);
+        assertThat(optimalValue(latest)).isEqualTo(2.0);
+        assertThat(pinned).isNotEqualTo(latest);
+    }
+
+    @Test
+    void cacheUpdateShouldPublishSingleVersion() {
+        long versionBefore = provider.getDataVersion();
+
+        provider.publish(generation(1));
+
+        assertThat(provider.getDataVersion()).isEqualTo(versionBefore + 1);
+    }
+
+    private static double optimalValue(OpenDataForecastClient client) {
+        List<EmissionForecast> forecast = client.getEmissionForecastCurrent(List.of("de"), START, START.plusHours(2), 15);
+        return forecast.get(0).optimalDataPoints().get(0).value();
+    }
+
+    /**
+     * All locations of a generation have the same values and are marked with the same update time
+     */
+    private static Map<Location, CachedForecast> generation(int generation) {
+        long start = START.toEpochSecond(ZoneOffset.UTC);
+        long[] epochSeconds = new long[16];
+        double[] values = new double[16];
+        for (int i = 0; i < epochSeconds.length; i++) {
+            epochSeconds[i] = start + i * 900L;
+            values[i] = generation;
+        }
+        ForecastSeries series = ForecastSeries.of(epochSeconds, values, 15);
+
+        Map<Location, CachedForecast> forecasts = new EnumMap<>(Location.class);
+        for (Location location : LOCATIONS) {
+            forecasts.put(location, new CachedForecast(START.plusMinutes(generation), series.timestampAt(15), series));
+        }
+        return forecasts;
+    }
+}
@@ -0,0 +1,75 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GorillaCodecTest {
+
+    @Test
+    void shouldCompressRegularForecastToFewBytesPerDataPoint() {
+        int size = 96 * 7;
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = 1_752_656_400L + i * 900L;
+            // emissions change slowly and are rounded like the values of the Energy-Charts API
+            values[i] = Math.round(300 + 100 * Math.sin(i / 16.0));
+        }
+
+        byte[] encoded = GorillaCodec.encode(epochSeconds, values, size);
+
+        assertThat(encoded.length).isLessThan(size * 3);
+        assertDecodedEquals(encoded, epochSeconds, values, size);
+    }
+
+    @Test
+    void shouldRoundTripIrregularTimestampsAndArbitraryValues() {
+        Random random = new Random(42);
+        int size = 1000;
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        long epochSecond = -1_000_000L;
+        for (int i = 0; i < size; i++) {
+            // steps of all delta of delta ranges
+            epochSecond += switch (i % 5) {
+                case 0 -> 900;
+                case 1 -> 900 + random.nextInt(100);
+                case 2 -> random.nextInt(500);
+                case 3 -> random.nextInt(4000);
+                default -> random.nextInt(Integer.MAX_VALUE);
+            };
+            epochSeconds[i] = epochSecond;
+            values[i] = switch (i % 4) {
+                case 0 -> random.nextDouble() * 1000;
+                case 1 -> values[i - 1];
+                case 2 -> -random.nextGaussian();
+                default -> Double.longBitsToDouble(random.nextLong());
+            };
+        }
+
+        assertDecodedEquals(GorillaCodec.encode(epochSeconds, values, size), epochSeconds, values, size);
+    }
+
+    @Test
+    void shouldRoundTripSpecialValues() {
+        long[] epochSeconds = {0, 1, 2, 3, 4, 5, 6};
+        double[] values = {0.0, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY, 1.0};
+
+        assertDecodedEquals(GorillaCodec.encode(epochSeconds, values, 7), epochSeconds, values, 7);
+        assertThat(GorillaCodec.encode(epochSeconds, values, 0)).isEmpty();
+    }
+
+    private static void assertDecodedEquals(byte[] encoded, long[] epochSeconds, double[] values, int size) {
+        long[] decodedEpochSeconds = new long[size];
+        double[] decodedValues = new double[size];
+        GorillaCodec.decode(ByteBuffer.wrap(encoded), size, decodedEpochSeconds, decodedValues);
+        assertThat(decodedEpochSeconds).containsExactly(epochSeconds);
+        for (int i = 0; i < size; i++) {
+            assertThat(Double.doubleToRawLongBits(decodedValues[i])).isEqualTo(Double.doubleToRawLongBits(values[i]));
+        }
+    }
+}
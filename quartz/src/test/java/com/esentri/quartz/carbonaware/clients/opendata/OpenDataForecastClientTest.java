@@ -1,7 +1,9 @@
 package com.esentri.quartz.carbonaware.clients.opendata;
 
 import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
 import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
 import com.esentri.quartz.carbonaware.entity.EmissionData;
 import com.esentri.quartz.carbonaware.entity.EmissionForecast;
 import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
@@ -11,10 +13,16 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,13 +30,15 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class OpenDataForecastClientTest {
 
+    private static final EnergyChartsForecastProvider PROVIDER = new EnergyChartsForecastProvider();
+
     private OpenDataForecastClient sut;
 
     @BeforeAll
     static void setUpBeforeClass() {
-        EnergyChartsForecastProvider.initialized = true;
+        PROVIDER.initialized = true;
         //15-minute steps
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.DE,
                 buildCachedForecast("2025-07-16T20:00",
                         buildCachedEmissionData("2025-07-16T09:00", 325.4, 15L),
@@ -80,7 +90,7 @@ class OpenDataForecastClientTest {
                 ));
 
         // For testing the case where all data points have the same value (to test optimalExecutionPoint null branch)
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.ALL,
                 buildCachedForecast("2025-07-16T13:00",
                         buildCachedEmissionData("2025-07-16T10:00", 100.0, 15L),
@@ -94,7 +104,7 @@ class OpenDataForecastClientTest {
                         buildCachedEmissionData("2025-07-16T12:00", 100.0, 15L)
                 ));
         //60-minute steps
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.CH,
                 buildCachedForecast("2025-07-16T20:00",
                         buildCachedEmissionData("2025-07-16T09:00", 28.5, 60L),
@@ -111,7 +121,7 @@ class OpenDataForecastClientTest {
                         buildCachedEmissionData("2025-07-16T20:00", 16.5, 60L)
                 ));
         //too fewer entries for 4-hour job duration
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.AT,
                 buildCachedForecast("2025-07-16T11:00",
                         buildCachedEmissionData("2025-07-16T09:00", 28.5, 60L),
@@ -119,21 +129,21 @@ class OpenDataForecastClientTest {
                         buildCachedEmissionData("2025-07-16T11:00", 29.7, 60L)
                 ));
         //the forecast is null
-        EnergyChartsForecastProvider.cachedForecasts.put(Location.FR, null);
+        PROVIDER.cachedForecasts.put(Location.FR, null);
         //the forecast is empty
-        EnergyChartsForecastProvider.cachedForecasts.put(Location.NL, buildCachedForecast("2025-07-16T09:00"));
+        PROVIDER.cachedForecasts.put(Location.NL, buildCachedForecast("2025-07-16T09:00"));
 
         // For testing when forecast.emissionData() is null
-        EnergyChartsForecastProvider.cachedForecasts.put(Location.BE, new CachedForecast(
+        PROVIDER.cachedForecasts.put(Location.BE, new CachedForecast(
                 LocalDateTime.of(2025, 7, 16, 9, 0, 0),
                 LocalDateTime.of(2025, 7, 16, 20, 0, 0),
-                null
+                (ForecastSeries) null
         ));
 
         // For testing when optimalEmissionData is present and its timestamp is before dataStartAt
         // We need to ensure the minimum value is in a data point with timestamp before the start time
         // but still included in the filtered data (after dataStartAt.minusMinutes(data.duration()))
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.UK,
                 buildCachedForecast("2025-07-16T20:00",
                         // Add data points with timestamps before the start time (09:00)
@@ -152,7 +162,7 @@ class OpenDataForecastClientTest {
                 ));
 
         // Exactly 4 data points for testing exact window size match (no sliding window)
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.ES,
                 buildCachedForecast("2025-07-16T13:00",
                         buildCachedEmissionData("2025-07-16T10:00", 100.0, 15L),
@@ -162,7 +172,7 @@ class OpenDataForecastClientTest {
                 ));
 
         // For testing when the sliding window doesn't find a better minimum
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.IT,
                 buildCachedForecast("2025-07-16T13:00",
                         buildCachedEmissionData("2025-07-16T10:00", 100.0, 15L),
@@ -174,7 +184,7 @@ class OpenDataForecastClientTest {
                 ));
 
         // For testing empty emission data range with findAbsoluteMinimumCarbonIntensity
-        EnergyChartsForecastProvider.cachedForecasts.put(
+        PROVIDER.cachedForecasts.put(
                 Location.PT,
                 buildCachedForecast("2025-07-16T13:00",
                         buildCachedEmissionData("2025-07-16T12:00", 100.0, 15L),
@@ -197,7 +207,7 @@ class OpenDataForecastClientTest {
 
     @BeforeEach
     void setUp() {
-        sut = new OpenDataForecastClient();
+        sut = new OpenDataForecastClient(PROVIDER, null, null);
     }
 
     @Nested
@@ -586,4 +596,174 @@ class OpenDataForecastClientTest {
             // We're just testing that the method doesn't throw an exception
         }
     }
+
+    @Nested
+    class WhenQueriesAreBatched {
+
+        @Test
+        void shouldAnswerEachQueryLikeSingleRequest() {
+            // Given
+            ForecastQuery de = new ForecastQuery("de", LocalDateTime.of(2025, 7, 16, 9, 0), LocalDateTime.of(2025, 7, 16, 20, 0), 60);
+            ForecastQuery ch = new ForecastQuery("ch", LocalDateTime.of(2025, 7, 16, 9, 0), LocalDateTime.of(2025, 7, 16, 20, 0), 30);
+
+            // When
+            Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(de, ch, de));
+
+            // Then
+            assertEquals(List.of(de, ch), List.copyOf(result.keySet()));
+            assertEquals(
+                    sut.getEmissionForecastCurrent(List.of("de"), de.dataStartAt(), de.dataEndAt(), de.windowSize()).get(0).optimalDataPoints(),
+                    result.get(de).get(0).optimalDataPoints());
+            assertEquals(
+                    sut.getEmissionForecastCurrent(List.of("ch"), ch.dataStartAt(), ch.dataEndAt(), ch.windowSize()).get(0).optimalDataPoints(),
+                    result.get(ch).get(0).optimalDataPoints());
+        }
+
+        @Test
+        void shouldReturnEmptyList_ForQueryWithoutForecast() {
+            // Given
+            ForecastQuery de = new ForecastQuery("de", LocalDateTime.of(2025, 7, 16, 9, 0), LocalDateTime.of(2025, 7, 16, 20, 0), 60);
+            ForecastQuery fr = new ForecastQuery("fr", LocalDateTime.of(2025, 7, 16, 9, 0), LocalDateTime.of(2025, 7, 16, 20, 0), 60);
+
+            // When
+            Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(de, fr));
+
+            // Then
+            assertEquals(1, result.get(de).size());
+            assertTrue(result.get(fr).isEmpty());
+        }
+    }
+
+    @Nested
+    class WhenForecastIsStale {
+
+        private final LocalDateTime startTime = LocalDateTime.of(2025, 7, 16, 9, 0);
+        private final LocalDateTime endTime = LocalDateTime.of(2025, 7, 16, 20, 0);
+
+        @Test
+        void shouldRejectForecast_IfMaximumStalenessIsExceeded() {
+            // Given the forecast of the location has last been refreshed on 2025-07-16
+            OpenDataForecastClient client = new OpenDataForecastClient(PROVIDER, null, Duration.ofHours(1));
+
+            // When & Then
+            assertThatThrownBy(() -> client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 60))
+                    .isInstanceOf(NoForecastException.class)
+                    .hasMessageContaining("is stale");
+            ForecastQuery query = new ForecastQuery("de", startTime, endTime, 60);
+            assertTrue(client.getEmissionForecastsBatch(List.of(query)).get(query).isEmpty());
+        }
+
+        @Test
+        void shouldServeForecast_IfItIsWithinMaximumStaleness() {
+            // Given
+            OpenDataForecastClient client = new OpenDataForecastClient(PROVIDER, null, Duration.ofDays(365_000));
+
+            // When
+            List<EmissionForecast> result = client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 60);
+
+            // Then
+            assertEquals(sut.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 60), result);
+        }
+
+        @Test
+        void shouldApplyMaximumStalenessOfProvider_IfClientHasNone() {
+            // Given
+            PROVIDER.configureMaximumStaleness(Duration.ofHours(1));
+
+            // When & Then
+            try {
+                assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 60))
+                        .isInstanceOf(NoForecastException.class);
+            } finally {
+                PROVIDER.configureMaximumStaleness(null);
+            }
+        }
+    }
+
+    @Nested
+    class WhenSeveralSchedulersAreRunning {
+
+        private final LocalDateTime startTime = LocalDateTime.of(2025, 7, 16, 9, 0);
+        private final LocalDateTime endTime = LocalDateTime.of(2025, 7, 16, 20, 0);
+
+        @Test
+        void shouldResolveProviderOfNamedScheduler() throws SchedulerException {
+            Scheduler first = scheduler("carbon-aware-first");
+            Scheduler second = scheduler("carbon-aware-second");
+            try {
+                // Given each scheduler has its own provider with a different forecast
+                EnergyChartsForecastProvider other = new EnergyChartsForecastProvider();
+                other.cachedForecasts.put(Location.DE, buildCachedForecast("2025-07-16T20:00",
+                        buildCachedEmissionData("2025-07-16T09:00", 42.0, 15L),
+                        buildCachedEmissionData("2025-07-16T09:15", 43.0, 15L)));
+                PROVIDER.bindTo(first);
+                other.bindTo(second);
+
+                // When
+                List<EmissionForecast> firstForecast = OpenDataForecastClient.forScheduler("carbon-aware-first")
+                        .getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15);
+                List<EmissionForecast> secondForecast = OpenDataForecastClient.forScheduler("carbon-aware-second")
+                        .getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15);
+
+                // Then
+                assertEquals(sut.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15), firstForecast);
+                assertEquals(42.0, secondForecast.get(0).optimalDataPoints().get(0).value());
+                assertSame(other, EnergyChartsForecastProvider.ofScheduler("carbon-aware-second"));
+                assertEquals(sut.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15),
+                        new OpenDataForecastClient().getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15));
+            } finally {
+                first.shutdown();
+                second.shutdown();
+            }
+        }
+
+        @Test
+        void shouldResolveProviderAgain_IfItHasBeenShutDown() throws SchedulerException {
+            Scheduler scheduler = scheduler("carbon-aware-restarted");
+            try {
+                // Given
+                EnergyChartsForecastProvider before = new EnergyChartsForecastProvider();
+                before.cachedForecasts.put(Location.DE, buildCachedForecast("2025-07-16T20:00",
+                        buildCachedEmissionData("2025-07-16T09:00", 42.0, 15L),
+                        buildCachedEmissionData("2025-07-16T09:15", 43.0, 15L)));
+                EnergyChartsForecastProvider after = new EnergyChartsForecastProvider();
+                after.cachedForecasts.put(Location.DE, buildCachedForecast("2025-07-16T20:00",
+                        buildCachedEmissionData("2025-07-16T09:00", 21.0, 15L),
+                        buildCachedEmissionData("2025-07-16T09:15", 22.0, 15L)));
+                before.bindTo(scheduler);
+                OpenDataForecastClient client = OpenDataForecastClient.forScheduler("carbon-aware-restarted");
+
+                // When
+                List<EmissionForecast> resolved = client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15);
+                after.bindTo(scheduler);
+                List<EmissionForecast> cached = client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15);
+                before.shutdown();
+                List<EmissionForecast> resolvedAgain = client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15);
+
+                // Then
+                assertEquals(42.0, resolved.get(0).optimalDataPoints().get(0).value());
+                assertEquals(42.0, cached.get(0).optimalDataPoints().get(0).value());
+                assertEquals(21.0, resolvedAgain.get(0).optimalDataPoints().get(0).value());
+            } finally {
+                scheduler.shutdown();
+            }
+        }
+
+        @Test
+        void shouldRejectRequest_IfSchedulerDoesNotExist() {
+            OpenDataForecastClient client = OpenDataForecastClient.forScheduler("carbon-aware-missing");
+
+            assertThatThrownBy(() -> client.getEmissionForecastCurrent(List.of("de"), startTime, endTime, 15))
+                    .isInstanceOf(NoForecastException.class)
+                    .hasMessageContaining("does not exist");
+        }
+
+        private static Scheduler scheduler(String name) throws SchedulerException {
+            Properties properties = new Properties();
+            properties.setProperty("org.quartz.scheduler.instanceName", name);
+            properties.setProperty("org.quartz.threadPool.threadCount", "1");
+            properties.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+            return new StdSchedulerFactory(properties).getScheduler();
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.RefreshStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshScheduleTest {
+
+    private static final Instant LAST_REFRESH = Instant.parse("2025-07-16T10:00:00Z");
+
+    private final RefreshSchedule schedule = new RefreshSchedule(Duration.ofMinutes(15), Duration.ofHours(6));
+
+    @Test
+    void shouldRefreshImmediately_IfNeverRefreshed() {
+        assertThat(schedule.nextRefresh(RefreshStatistics.neverRefreshed(), null, null)).isEqualTo(Instant.EPOCH);
+    }
+
+    @Test
+    void shouldRefreshWithMaximumInterval_IfNoTriggerUsesLocation() {
+        Instant next = schedule.nextRefresh(succeeded(0), forecastUntil(LAST_REFRESH.plus(Duration.ofHours(30))), null);
+
+        assertThat(next).isEqualTo(LAST_REFRESH.plus(Duration.ofHours(6)));
+    }
+
+    @Test
+    void shouldBackOff_IfDataIsNotModified() {
+        CachedForecast forecast = forecastUntil(LAST_REFRESH.plus(Duration.ofHours(30)));
+        RefreshSchedule.Demand demand = demand(Duration.ofHours(12), Duration.ofHours(14));
+
+        assertThat(schedule.nextRefresh(succeeded(0), forecast, demand)).isEqualTo(LAST_REFRESH.plus(Duration.ofMinutes(15)));
+        assertThat(schedule.nextRefresh(succeeded(2), forecast, demand)).isEqualTo(LAST_REFRESH.plus(Duration.ofHours(1)));
+        assertThat(schedule.nextRefresh(succeeded(40), forecast, demand)).isEqualTo(LAST_REFRESH.plus(Duration.ofHours(6)));
+    }
+
+    @Test
+    void shouldRefreshMoreOften_IfHorizonBarelyCoversDeadline() {
+        CachedForecast forecast = forecastUntil(LAST_REFRESH.plus(Duration.ofHours(16)));
+
+        Instant coveredForTwoHours = schedule.nextRefresh(succeeded(40), forecast,
+                demand(Duration.ofHours(12), Duration.ofHours(14)));
+        Instant notCovered = schedule.nextRefresh(succeeded(40), forecast,
+                demand(Duration.ofHours(12), Duration.ofHours(20)));
+
+        assertThat(coveredForTwoHours).isEqualTo(LAST_REFRESH.plus(Duration.ofHours(1)));
+        assertThat(notCovered).isEqualTo(LAST_REFRESH.plus(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void shouldRefreshShortlyBeforePlanning() {
+        CachedForecast forecast = forecastUntil(LAST_REFRESH.plus(Duration.ofHours(30)));
+
+        Instant next = schedule.nextRefresh(succeeded(40), forecast, demand(Duration.ofHours(2), Duration.ofHours(4)));
+
+        assertThat(next).isEqualTo(LAST_REFRESH.plus(Duration.ofHours(2)).minus(RefreshSchedule.PLANNING_LEAD));
+    }
+
+    @Test
+    void shouldNotRefreshBeforeMinimumInterval_IfPlanningIsImminent() {
+        CachedForecast forecast = forecastUntil(LAST_REFRESH.plus(Duration.ofHours(30)));
+
+        Instant next = schedule.nextRefresh(succeeded(40), forecast, demand(Duration.ofMinutes(20), Duration.ofHours(4)));
+
+        assertThat(next).isEqualTo(LAST_REFRESH.plus(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void shouldRetryWithMinimumInterval_IfLastRefreshFailed() {
+        LocalDateTime lastFailure = toLocalDateTime(LAST_REFRESH);
+        RefreshStatistics failed = new RefreshStatistics(5, 1, 2, null, null,
+                lastFailure.minusHours(1), lastFailure, 4, lastFailure.minusHours(2));
+
+        Instant next = schedule.nextRefresh(failed, forecastUntil(LAST_REFRESH.plus(Duration.ofHours(30))), null);
+
+        assertThat(next).isEqualTo(LAST_REFRESH.plus(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void shouldRejectInvalidIntervals() {
+        assertThatThrownBy(() -> new RefreshSchedule(Duration.ZERO, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RefreshSchedule(Duration.ofHours(2), Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMergeDemands() {
+        RefreshSchedule.Demand merged = demand(Duration.ofHours(1), Duration.ofHours(3))
+                .merge(demand(Duration.ofHours(2), Duration.ofHours(8)));
+
+        assertThat(merged).isEqualTo(demand(Duration.ofHours(1), Duration.ofHours(8)));
+    }
+
+    private static RefreshStatistics succeeded(long unmodifiedCount) {
+        LocalDateTime lastRefresh = toLocalDateTime(LAST_REFRESH);
+        return new RefreshStatistics(unmodifiedCount + 1, 0, 0, null, null, lastRefresh, null,
+                unmodifiedCount, lastRefresh);
+    }
+
+    private static CachedForecast forecastUntil(Instant horizon) {
+        ForecastSeries series = ForecastSeries.of(
+                new long[]{LAST_REFRESH.getEpochSecond(), horizon.getEpochSecond()}, new double[]{100, 200}, 60);
+        return new CachedForecast(toLocalDateTime(LAST_REFRESH), series.timestampAt(1), series);
+    }
+
+    private static RefreshSchedule.Demand demand(Duration planningIn, Duration deadlineIn) {
+        return new RefreshSchedule.Demand(LAST_REFRESH.plus(planningIn), LAST_REFRESH.plus(deadlineIn));
+    }
+
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
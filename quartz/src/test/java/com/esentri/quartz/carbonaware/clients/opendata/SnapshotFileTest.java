@@ -0,0 +1,89 @@
+package com.esentri.quartz.carbonaware.clients.opendata;
+
+import com.esentri.quartz.carbonaware.clients.opendata.model.CachedForecast;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSeries;
+import com.esentri.quartz.carbonaware.clients.opendata.model.ForecastSnapshot;
+import com.esentri.quartz.carbonaware.clients.opendata.model.Location;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2025, 7, 16, 8, 20);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRestoreWrittenSnapshot() throws IOException {
+        Path file = directory.resolve("forecasts.bin");
+        ForecastSnapshot snapshot = new ForecastSnapshot(7, Map.of(
+                Location.DE, forecast(1_752_652_800L, 300.5, 290.25, 280.0),
+                Location.FR, new CachedForecast(UPDATED, UPDATED, ForecastSeries.empty())));
+
+        SnapshotFile.write(file, snapshot);
+        ForecastSnapshot restored = SnapshotFile.read(file);
+
+        assertThat(restored.version()).isEqualTo(7);
+        CachedForecast de = restored.getForecast(Location.DE);
+        assertThat(de.lastUpdated()).isEqualTo(UPDATED);
+        assertThat(de.maximumForecastTimestamp()).isEqualTo(snapshot.getForecast(Location.DE).maximumForecastTimestamp());
+        assertThat(de.series().stepInMinutes()).isEqualTo(15);
+        assertThat(de.emissionData()).isEqualTo(snapshot.getForecast(Location.DE).emissionData());
+        assertThat(restored.getForecast(Location.FR).series().isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldReplaceExistingFile() throws IOException {
+        Path file = directory.resolve("forecasts.bin");
+        SnapshotFile.write(file, new ForecastSnapshot(1, Map.of(Location.DE, forecast(0, 1.0, 2.0))));
+
+        SnapshotFile.write(file, new ForecastSnapshot(2, Map.of(Location.AT, forecast(0, 3.0, 4.0))));
+
+        ForecastSnapshot restored = SnapshotFile.read(file);
+        assertThat(restored.version()).isEqualTo(2);
+        assertThat(restored.forecasts()).containsOnlyKeys(Location.AT);
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptedFile() throws IOException {
+        Path file = directory.resolve("forecasts.bin");
+        SnapshotFile.write(file, new ForecastSnapshot(1, Map.of(Location.DE, forecast(0, 1.0, 2.0))));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> SnapshotFile.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum");
+    }
+
+    @Test
+    void shouldRejectTruncatedFile() throws IOException {
+        Path file = directory.resolve("forecasts.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> SnapshotFile.read(file)).isInstanceOf(IOException.class);
+    }
+
+    private static CachedForecast forecast(long start, double... values) {
+        long[] epochSeconds = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            epochSeconds[i] = start + i * 900L;
+        }
+        ForecastSeries series = ForecastSeries.of(epochSeconds, values, 15);
+        return new CachedForecast(UPDATED, series.timestampAt(series.size() - 1), series);
+    }
+}
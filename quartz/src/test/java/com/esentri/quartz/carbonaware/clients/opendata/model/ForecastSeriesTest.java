@@ -0,0 +1,184 @@
+package com.esentri.quartz.carbonaware.clients.opendata.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ForecastSeriesTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 16, 9, 0);
+
+    private final ForecastSeries sut = ForecastSeries.of(List.of(
+            new CachedForecast.CachedEmissionData(START, 300.0, 15L),
+            new CachedForecast.CachedEmissionData(START.plusMinutes(15), 200.0, 15L),
+            new CachedForecast.CachedEmissionData(START.plusMinutes(30), 100.0, 15L)));
+
+    @Test
+    void shouldStoreDataPointsInColumns() {
+        assertThat(sut.size()).isEqualTo(3);
+        assertThat(sut.stepInMinutes()).isEqualTo(15);
+        assertThat(sut.epochSecondAt(1)).isEqualTo(START.plusMinutes(15).toEpochSecond(ZoneOffset.UTC));
+        assertThat(sut.timestampAt(2)).isEqualTo(START.plusMinutes(30));
+        assertThat(sut.valueAt(2)).isEqualTo(100.0);
+    }
+
+    @Test
+    void shouldFillDataPointsBeforeAndAfterFromOtherSeries() {
+        ForecastSeries other = ForecastSeries.of(List.of(
+                new CachedForecast.CachedEmissionData(START.minusMinutes(15), 400.0, 15L),
+                new CachedForecast.CachedEmissionData(START, 999.0, 15L),
+                new CachedForecast.CachedEmissionData(START.plusMinutes(45), 50.0, 15L)));
+
+        ForecastSeries filled = sut.fillFrom(other);
+
+        assertThat(filled.size()).isEqualTo(5);
+        assertThat(filled.timestampAt(0)).isEqualTo(START.minusMinutes(15));
+        assertThat(filled.valueAt(0)).isEqualTo(400.0);
+        assertThat(filled.valueAt(1)).isEqualTo(300.0);
+        assertThat(filled.valueAt(4)).isEqualTo(50.0);
+        assertThat(sut.fillFrom(sut)).isSameAs(sut);
+        assertThat(ForecastSeries.empty().fillFrom(sut)).isSameAs(sut);
+    }
+
+    @Test
+    void shouldRetainDataPointsWithinLookbackAndCapacity() {
+        long start = START.toEpochSecond(ZoneOffset.UTC);
+
+        ForecastSeries withinLookback = sut.retain(start + 1, 10);
+        ForecastSeries withinCapacity = sut.retain(start, 1);
+
+        assertThat(withinLookback.size()).isEqualTo(2);
+        assertThat(withinLookback.timestampAt(0)).isEqualTo(START.plusMinutes(15));
+        assertThat(withinLookback.valueAt(1)).isEqualTo(100.0);
+        assertThat(withinCapacity.size()).isEqualTo(1);
+        assertThat(withinCapacity.timestampAt(0)).isEqualTo(START.plusMinutes(30));
+        assertThat(sut.retain(start, 3)).isSameAs(sut);
+        assertThat(sut.retain(start + 3600, 3).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldFindFirstIndexAfter() {
+        assertThat(sut.firstIndexAfter(START.minusMinutes(1))).isZero();
+        assertThat(sut.firstIndexAfter(START)).isEqualTo(1);
+        assertThat(sut.firstIndexAfter(START.plusNanos(1))).isEqualTo(1);
+        assertThat(sut.firstIndexAfter(START.plusMinutes(30))).isEqualTo(3);
+    }
+
+    @Test
+    void shouldFindFirstIndexNotBefore() {
+        assertThat(sut.firstIndexNotBefore(START)).isZero();
+        assertThat(sut.firstIndexNotBefore(START.plusNanos(1))).isEqualTo(1);
+        assertThat(sut.firstIndexNotBefore(START.plusMinutes(15))).isEqualTo(1);
+        assertThat(sut.firstIndexNotBefore(START.plusHours(1))).isEqualTo(3);
+    }
+
+    @Test
+    void shouldProvideEmissionDataView() {
+        assertThat(sut.asEmissionData()).containsExactly(
+                new CachedForecast.CachedEmissionData(START, 300.0, 15L),
+                new CachedForecast.CachedEmissionData(START.plusMinutes(15), 200.0, 15L),
+                new CachedForecast.CachedEmissionData(START.plusMinutes(30), 100.0, 15L));
+    }
+
+    @Test
+    void shouldMergeNewerData_AndKeepEarlierDataPoints() {
+        long start = START.toEpochSecond(ZoneOffset.UTC);
+        ForecastSeries newer = ForecastSeries.of(
+                new long[]{start + 30 * 60, start + 45 * 60}, new double[]{150.0, 50.0}, 15);
+
+        ForecastSeries merged = sut.merge(newer, start + 15 * 60);
+
+        assertThat(merged.size()).isEqualTo(3);
+        assertThat(merged.timestampAt(0)).isEqualTo(START.plusMinutes(15));
+        assertThat(merged.valueAt(0)).isEqualTo(200.0);
+        assertThat(merged.valueAt(1)).isEqualTo(150.0);
+        assertThat(merged.timestampAt(2)).isEqualTo(START.plusMinutes(45));
+        assertThat(merged.windowSum(0, 3)).isEqualTo(400.0);
+    }
+
+    @Test
+    void shouldReplaceSeries_IfStepOfNewerDataDiffers() {
+        long start = START.toEpochSecond(ZoneOffset.UTC);
+        ForecastSeries newer = ForecastSeries.of(new long[]{start + 60 * 60}, new double[]{42.0}, 60);
+
+        assertThat(sut.merge(newer, start)).isSameAs(newer);
+        assertThat(sut.merge(ForecastSeries.empty(), start)).isSameAs(sut);
+    }
+
+    @Test
+    void shouldFindMinimumWindow_LikeSlidingWindowScan() {
+        Random random = new Random(42);
+        int size = 96;
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = i * 900L;
+            // few distinct values to produce ties
+            values[i] = 100 + random.nextInt(8) * 12.5;
+        }
+        ForecastSeries series = ForecastSeries.of(epochSeconds, values, 15);
+
+        for (int windowLength = 1; windowLength <= 8; windowLength++) {
+            for (int firstStart = 0; firstStart + windowLength <= size; firstStart += 7) {
+                for (int lastStart = firstStart; lastStart + windowLength <= size; lastStart += 5) {
+                    assertThat(series.minimumWindowStart(windowLength, firstStart, lastStart))
+                            .as("window of %d within [%d, %d]", windowLength, firstStart, lastStart)
+                            .isEqualTo(scan(values, windowLength, firstStart, lastStart));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldPreferEarliestWindow_IfSumsAreEqual() {
+        ForecastSeries series = ForecastSeries.of(new long[]{0, 900, 1800, 2700}, new double[]{5, 5, 5, 5}, 15);
+
+        assertThat(series.minimumWindowStart(2, 0, 2)).isZero();
+        assertThat(series.minimumWindowStart(1, 1, 3)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPrepareIndexesOfWindowLengthsInUse() {
+        sut.minimumWindowStart(2, 0, 1);
+        ForecastSeries refreshed = ForecastSeries.of(new long[]{0, 900, 1800}, new double[]{1, 2, 3}, 15);
+
+        refreshed.prepareWindowIndexes(sut.windowLengthsInUse());
+
+        assertThat(refreshed.windowLengthsInUse()).isEqualTo(Set.of(2));
+    }
+
+    @Test
+    void shouldRejectWindowOutsideOfSeries() {
+        assertThatThrownBy(() -> sut.minimumWindowStart(2, 0, 2))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldRejectColumnsOfDifferentLength() {
+        assertThatThrownBy(() -> ForecastSeries.of(new long[2], new double[1], 15))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int scan(double[] values, int windowLength, int firstStart, int lastStart) {
+        int minimumStart = firstStart;
+        double minimalSum = Double.MAX_VALUE;
+        for (int start = firstStart; start <= lastStart; start++) {
+            double sum = 0;
+            for (int i = start; i < start + windowLength; i++) {
+                sum += values[i];
+            }
+            if (sum < minimalSum) {
+                minimalSum = sum;
+                minimumStart = start;
+            }
+        }
+        return minimumStart;
+    }
+}
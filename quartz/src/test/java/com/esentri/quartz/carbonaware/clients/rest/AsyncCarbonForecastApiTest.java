@@ -0,0 +1,143 @@
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCarbonForecastApiTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 19, 10, 0);
+    private static final LocalDateTime END = START.plusHours(4);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "forecast-io"));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldCallBlockingClient_OnExecutor() throws Exception {
+        AtomicReference<String> callingThread = new AtomicReference<>();
+        CarbonForecastApi blocking = (location, dataStartAt, dataEndAt, windowSize) -> {
+            callingThread.set(Thread.currentThread().getName());
+            return forecast(location.get(0));
+        };
+
+        List<EmissionForecast> result = AsyncCarbonForecastApi.fromBlocking(blocking, executor)
+                .getEmissionForecastCurrentAsync(List.of("de"), START, END, 10)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result).singleElement().extracting(EmissionForecast::location).isEqualTo("de");
+        assertThat(callingThread).hasValue("forecast-io");
+    }
+
+    @Test
+    void shouldCallBlockingClient_AfterDeserialization() throws Exception {
+        CarbonForecastApi blocking = (location, dataStartAt, dataEndAt, windowSize) -> forecast(location.get(0));
+        AsyncCarbonForecastApi sut = AsyncCarbonForecastApi.fromBlocking(blocking, executor);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sut);
+        }
+        AsyncCarbonForecastApi restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (AsyncCarbonForecastApi) in.readObject();
+        }
+
+        List<EmissionForecast> result = restored.getEmissionForecastCurrentAsync(List.of("de"), START, END, 10)
+                .get(5, TimeUnit.SECONDS);
+        assertThat(result).singleElement().extracting(EmissionForecast::location).isEqualTo("de");
+    }
+
+    @Test
+    void shouldCompleteExceptionally_IfBlockingClientFails() {
+        CarbonForecastApi blocking = (location, dataStartAt, dataEndAt, windowSize) -> {
+            throw new IllegalStateException("forecast api is down");
+        };
+
+        CompletableFuture<List<EmissionForecast>> result = AsyncCarbonForecastApi.fromBlocking(blocking, executor)
+                .getEmissionForecastCurrentAsync(List.of("de"), START, END, 10);
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldWaitForAsyncClient_AndRethrowItsFailure() {
+        AsyncCarbonForecastApi async = (location, dataStartAt, dataEndAt, windowSize) -> "de".equals(location.get(0))
+                ? CompletableFuture.supplyAsync(() -> forecast("de"), executor)
+                : CompletableFuture.failedFuture(new IllegalArgumentException("unknown location"));
+
+        CarbonForecastApi sut = AsyncCarbonForecastApi.toBlocking(async);
+
+        assertThat(sut.getEmissionForecastCurrent(List.of("de"), START, END, 10)).hasSize(1);
+        assertThatThrownBy(() -> sut.getEmissionForecastCurrent(List.of("xx"), START, END, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("unknown location");
+    }
+
+    @Test
+    void shouldAnswerBatchOfAsyncClient_WithEmptyListForQueriesWithoutForecast() {
+        AsyncCarbonForecastApi async = (location, dataStartAt, dataEndAt, windowSize) -> "de".equals(location.get(0))
+                ? CompletableFuture.completedFuture(forecast("de"))
+                : CompletableFuture.failedFuture(new NoForecastException("unknown location"));
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery xx = new ForecastQuery("xx", START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> result = AsyncCarbonForecastApi.toBlocking(async)
+                .getEmissionForecastsBatch(List.of(de, xx));
+
+        assertThat(result.keySet()).containsExactly(de, xx);
+        assertThat(result.get(de)).hasSize(1);
+        assertThat(result.get(xx)).isEmpty();
+    }
+
+    @Test
+    void shouldRethrowFailedQueryOfAsyncClientBatch() {
+        AsyncCarbonForecastApi async = (location, dataStartAt, dataEndAt, windowSize) -> "de".equals(location.get(0))
+                ? CompletableFuture.completedFuture(forecast("de"))
+                : CompletableFuture.failedFuture(new IllegalStateException("forecast api is down"));
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery at = new ForecastQuery("at", START, END, 10);
+
+        assertThatThrownBy(() -> AsyncCarbonForecastApi.toBlocking(async).getEmissionForecastsBatch(List.of(de, at)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("forecast api is down");
+    }
+
+    @Test
+    void shouldUnwrapAdapters() {
+        CarbonForecastApi blocking = (location, dataStartAt, dataEndAt, windowSize) -> List.of();
+        AsyncCarbonForecastApi async = (location, dataStartAt, dataEndAt, windowSize) ->
+                CompletableFuture.completedFuture(List.of());
+
+        assertThat(AsyncCarbonForecastApi.toBlocking(AsyncCarbonForecastApi.fromBlocking(blocking, executor)))
+                .isSameAs(blocking);
+        assertThat(AsyncCarbonForecastApi.fromBlocking(AsyncCarbonForecastApi.toBlocking(async), executor))
+                .isSameAs(async);
+    }
+
+    private static List<EmissionForecast> forecast(String location) {
+        return List.of(new EmissionForecastImpl(location, 10, List.of(new EmissionDataImpl(START.plusHours(1), 42.0))));
+    }
+}
@@ -0,0 +1,68 @@
+package com.esentri.quartz.carbonaware.clients.rest;
+
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.exceptions.NoForecastException;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CarbonForecastApiTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 19, 10, 0);
+    private static final LocalDateTime END = START.plusHours(4);
+
+    @Test
+    void shouldAnswerBatch_WithOneCallPerDistinctQuery() {
+        AtomicInteger calls = new AtomicInteger();
+        CarbonForecastApi sut = (location, dataStartAt, dataEndAt, windowSize) -> {
+            calls.incrementAndGet();
+            return List.of(new EmissionForecastImpl(location.get(0), windowSize,
+                    List.of(new EmissionDataImpl(dataStartAt, 42.0))));
+        };
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery at = new ForecastQuery("at", START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(at, de, at));
+
+        assertThat(result.keySet()).containsExactly(at, de);
+        assertThat(result.get(de)).singleElement().extracting(EmissionForecast::location).isEqualTo("de");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldAnswerQueryWithoutForecast_WithEmptyList() {
+        CarbonForecastApi sut = (location, dataStartAt, dataEndAt, windowSize) -> {
+            if ("de".equals(location.get(0))) {
+                throw new NoForecastException("no forecast");
+            }
+            return List.of(new EmissionForecastImpl(location.get(0), windowSize, List.of()));
+        };
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+        ForecastQuery at = new ForecastQuery("at", START, END, 10);
+
+        Map<ForecastQuery, List<EmissionForecast>> result = sut.getEmissionForecastsBatch(List.of(de, at));
+
+        assertThat(result.get(de)).isEmpty();
+        assertThat(result.get(at)).hasSize(1);
+    }
+
+    @Test
+    void shouldRethrowFailedQuery() {
+        CarbonForecastApi sut = (location, dataStartAt, dataEndAt, windowSize) -> {
+            throw new IllegalStateException("forecast api is down");
+        };
+        ForecastQuery de = new ForecastQuery("de", START, END, 10);
+
+        assertThatThrownBy(() -> sut.getEmissionForecastsBatch(List.of(de)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("forecast api is down");
+    }
+}
@@ -0,0 +1,236 @@
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionData;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.DailyCalendar;
+import org.quartz.impl.calendar.HolidayCalendar;
+
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FireTimePreviewTest {
+
+    private static final String LOCATION = "de";
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone(ZoneId.of("Europe/Berlin"));
+
+    @Mock
+    private CarbonForecastApi carbonForecastApi;
+    @Mock
+    private Scheduler scheduler;
+
+    private final Date from = Date.from(LocalDateTime.of(2025, 7, 16, 0, 0).atZone(TIME_ZONE.toZoneId()).toInstant());
+    private final Date to = Date.from(LocalDateTime.of(2025, 7, 23, 0, 0).atZone(TIME_ZONE.toZoneId()).toInstant());
+
+    private CarbonAwareCronTriggerImpl trigger;
+
+    @BeforeEach
+    void setUp() throws ParseException {
+        trigger = trigger("nightly", "0 0 22 ? * *");
+    }
+
+    @Test
+    void shouldPreviewOptimalFireTimes_WithSingleForecastRequest() {
+        // the optimal execution time is two hours after the configured execution time
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenAnswer(invocation -> {
+            Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+            for (ForecastQuery query : invocation.<List<ForecastQuery>>getArgument(0)) {
+                result.put(query, List.of(new EmissionForecastImpl(LOCATION, 60, List.of(
+                        new EmissionDataImpl(query.dataStartAt().plusHours(2), 120.0)))));
+            }
+            return result;
+        });
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to);
+
+        assertThat(plans).hasSize(7);
+        assertThat(plans).allMatch(ExecutionPlan::isDetermined);
+        assertThat(plans.get(0).configuredExecutionTime()).isEqualTo(at(2025, 7, 16, 22));
+        assertThat(plans.get(0).fireTime()).isEqualTo(at(2025, 7, 17, 0));
+        assertThat(plans.get(6).fireTime()).isEqualTo(at(2025, 7, 23, 0));
+        verify(carbonForecastApi, times(1)).getEmissionForecastsBatch(any());
+        verifyNoMoreInteractions(carbonForecastApi);
+    }
+
+    @Test
+    void shouldNotChangeStateOfTrigger() {
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenReturn(Map.of());
+        trigger.setNextFireTime(at(2025, 7, 16, 22));
+
+        FireTimePreview.preview(trigger, from, to);
+
+        assertThat(trigger.getTriggerState()).isEqualTo(CarbonAwareExecutionState.PENDING);
+        assertThat(trigger.getConfiguredExecutionTime()).isNull();
+        assertThat(trigger.getOptimalExecutionTime()).isNull();
+        assertThat(trigger.getNextFireTime()).isEqualTo(at(2025, 7, 16, 22));
+    }
+
+    @Test
+    void shouldFireAtConfiguredTimes_IfForecastIsUnavailable() {
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenThrow(new IllegalStateException("down"));
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to);
+
+        assertThat(plans).hasSize(7).noneMatch(ExecutionPlan::isDetermined);
+        assertThat(plans.get(0).fireTime()).isEqualTo(at(2025, 7, 16, 22));
+    }
+
+    @Test
+    void shouldPreviewManyTriggers_WithSingleForecastRequest() throws ParseException {
+        CarbonAwareCronTriggerImpl hourly = trigger("hourly", "0 0 * ? * *");
+        hourly.setEndTime(at(2025, 7, 16, 9));
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenReturn(Map.of());
+
+        Map<TriggerKey, List<ExecutionPlan>> plans =
+                FireTimePreview.preview(List.of(trigger, hourly), from, to, carbonForecastApi);
+
+        assertThat(plans.get(trigger.getKey())).hasSize(7);
+        assertThat(plans.get(hourly.getKey())).hasSize(9);
+        verify(carbonForecastApi, times(1)).getEmissionForecastsBatch(any());
+    }
+
+    @Test
+    void shouldSkipConfiguredExecutionTimes_ExcludedByCalendar() throws SchedulerException {
+        HolidayCalendar holidays = new HolidayCalendar();
+        holidays.setTimeZone(TIME_ZONE);
+        holidays.addExcludedDate(at(2025, 7, 18, 0));
+        trigger.setCalendarName("holidays");
+        when(scheduler.getContext()).thenReturn(new SchedulerContext());
+        when(scheduler.getCalendar("holidays")).thenReturn(holidays);
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenReturn(Map.of());
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to, scheduler);
+
+        assertThat(plans).hasSize(6);
+        assertThat(plans).extracting(ExecutionPlan::configuredExecutionTime).doesNotContain(at(2025, 7, 18, 22));
+    }
+
+    @Test
+    void shouldShiftExecutionsOnlyToTimesIncludedByCalendar() throws SchedulerException {
+        // the best data point at midnight is excluded, so the execution is shifted to the second best one
+        DailyCalendar nights = new DailyCalendar("00:00", "00:30");
+        nights.setTimeZone(TIME_ZONE);
+        trigger.setCalendarName("nights");
+        when(scheduler.getContext()).thenReturn(new SchedulerContext());
+        when(scheduler.getCalendar("nights")).thenReturn(nights);
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenAnswer(invocation -> {
+            Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+            for (ForecastQuery query : invocation.<List<ForecastQuery>>getArgument(0)) {
+                result.put(query, List.of(new EmissionForecastImpl(LOCATION, 60, List.of(
+                        new EmissionDataImpl(query.dataStartAt().plusHours(2), 120.0),
+                        new EmissionDataImpl(query.dataStartAt().plusHours(3), 150.0)))));
+            }
+            return result;
+        });
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to, scheduler);
+
+        assertThat(plans).hasSize(7).allMatch(ExecutionPlan::isDetermined);
+        assertThat(plans.get(0).fireTime()).isEqualTo(at(2025, 7, 17, 1));
+        verify(carbonForecastApi, times(1)).getEmissionForecastsBatch(any());
+    }
+
+    @Test
+    void shouldSliceForecastOfHorizon_IfClientRequestsForecastPerQuery() {
+        PerQueryForecastApi perQueryApi = new PerQueryForecastApi(true);
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to, perQueryApi);
+
+        assertThat(plans).hasSize(7).allMatch(ExecutionPlan::isDetermined);
+        assertThat(plans.get(0).fireTime()).isEqualTo(at(2025, 7, 17, 1));
+        assertThat(plans.get(6).fireTime()).isEqualTo(at(2025, 7, 23, 1));
+        assertThat(perQueryApi.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldRequestForecastPerExecution_IfHorizonHasNoForecastData() {
+        PerQueryForecastApi perQueryApi = new PerQueryForecastApi(false);
+
+        List<ExecutionPlan> plans = FireTimePreview.preview(trigger, from, to, perQueryApi);
+
+        assertThat(plans).hasSize(7).allMatch(ExecutionPlan::isDetermined);
+        assertThat(plans.get(0).fireTime()).isEqualTo(at(2025, 7, 17, 1));
+        assertThat(perQueryApi.calls).hasValue(1 + 7);
+    }
+
+    private CarbonAwareCronTriggerImpl trigger(String name, String cronExpression) throws ParseException {
+        CarbonAwareCronTriggerImpl result = new CarbonAwareCronTriggerImpl();
+        result.setKey(new TriggerKey(name, "preview"));
+        result.setTimeZone(TIME_ZONE);
+        result.setCronExpression(cronExpression);
+        result.setDeadlineCronExpression("0 0 4 ? * *");
+        result.setStartTime(from);
+        result.setCarbonForecastApi(carbonForecastApi);
+        result.setLocation(LOCATION);
+        result.setJobDurationInMinutes(60);
+        return result;
+    }
+
+    private static Date at(int year, int month, int day, int hour) {
+        return Date.from(LocalDateTime.of(year, month, day, hour, 0).atZone(TIME_ZONE.toZoneId()).toInstant());
+    }
+
+    /**
+     * Client without batch request, whose forecast has the lowest carbon intensity at 1 am.
+     */
+    private static final class PerQueryForecastApi implements CarbonForecastApi {
+
+        private final boolean withForecastData;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private PerQueryForecastApi(boolean withForecastData) {
+            this.withForecastData = withForecastData;
+        }
+
+        @Override
+        public List<EmissionForecast> getEmissionForecastCurrent(List<String> location,
+                                                                 LocalDateTime dataStartAt,
+                                                                 LocalDateTime dataEndAt,
+                                                                 Integer windowSize) {
+            calls.incrementAndGet();
+            List<EmissionData> forecastData = new ArrayList<>();
+            for (LocalDateTime time = dataStartAt;
+                 !time.plusMinutes(windowSize).isAfter(dataEndAt);
+                 time = time.plusHours(1)) {
+                forecastData.add(new EmissionDataImpl(time, time.getHour() == 1 ? 100.0 : 200.0));
+            }
+            List<EmissionData> optimalDataPoints = forecastData.stream()
+                    .filter(data -> data.value() == 100.0)
+                    .limit(1)
+                    .toList();
+            return List.of(new EmissionForecastImpl(LOCATION, windowSize, optimalDataPoints) {
+                @Override
+                public List<EmissionData> forecastData() {
+                    return withForecastData ? forecastData : List.of();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.esentri.quartz.carbonaware.planning;
+
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.BaseCalendar;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ForecastPlannerTest {
+
+    private static final String LOCATION = "de";
+
+    @Mock
+    private CarbonForecastApi carbonForecastApi;
+
+    private final Date configuredTime = Date.from(new Date().toInstant().plus(1, ChronoUnit.HOURS));
+    private final Date deadline = Date.from(configuredTime.toInstant().plus(4, ChronoUnit.HOURS));
+    private final LocalDateTime optimalTime = LocalDateTime.ofInstant(
+            configuredTime.toInstant().plus(2, ChronoUnit.HOURS), ZoneId.systemDefault());
+
+    private ForecastPlanner sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ForecastPlanner(1, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.shutdown();
+    }
+
+    @Test
+    void shouldNotProvidePlan_IfExecutionWasNotPrepared() {
+        assertThat(sut.getPlan(request())).isEmpty();
+        verifyNoInteractions(carbonForecastApi);
+    }
+
+    @Test
+    void shouldNotPlanAhead_IfTriggerIsUnnamed() throws Exception {
+        PlanningRequest unnamed = new PlanningRequest(null, carbonForecastApi, LOCATION, configuredTime, deadline, 10,
+                TimeZone.getDefault());
+
+        sut.prepare(unnamed);
+        Thread.sleep(100);
+
+        assertThat(sut.getPlan(unnamed)).isEmpty();
+        assertThat(sut.getPendingPlanCount()).isZero();
+        verifyNoInteractions(carbonForecastApi);
+    }
+
+    @Test
+    void shouldComputePlanInBackground_AfterExecutionWasPrepared() throws Exception {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(optimalTime, 22.7)))));
+        sut.prepare(request());
+
+        ExecutionPlan plan = awaitPlan(sut);
+        assertThat(plan.isDetermined()).isTrue();
+        assertThat(plan.emissionData().value()).isEqualTo(22.7);
+        assertThat(plan.configuredExecutionTime()).isEqualTo(configuredTime);
+    }
+
+    @Test
+    void shouldNotPlanBeforeConfiguredTime_IfForecastProposesImmediateExecution() {
+        // the open data client proposes one minute from now, if the window active at the start is the greenest one
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(LocalDateTime.now().plusMinutes(1), 22.7)))));
+
+        ExecutionPlan plan = ForecastPlanner.planNow(request());
+
+        assertThat(plan.isDetermined()).isTrue();
+        assertThat(plan.optimalExecutionTime()).isEqualTo(configuredTime);
+    }
+
+    @Test
+    void shouldProvideUnavailablePlan_IfForecastClientFails() throws Exception {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        sut.prepare(request());
+
+        ExecutionPlan plan = awaitPlan(sut);
+        assertThat(plan.isDetermined()).isFalse();
+    }
+
+    @Test
+    void shouldKeepLastGoodPlan_IfForecastBecomesUnavailable() throws Exception {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(optimalTime, 22.7)))))
+                .thenThrow(new IllegalStateException("forecast api is down"));
+        sut.shutdown();
+        sut = new ForecastPlanner(1, Duration.ofMillis(200));
+        sut.prepare(request());
+        awaitPlan(sut);
+
+        for (int i = 0; i < 100 && currentForecastCalls() < 2; i++) {
+            sut.prepare(request());
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+
+        ExecutionPlan plan = sut.getPlan(request()).orElseThrow();
+        assertThat(plan.isDetermined()).isTrue();
+        assertThat(plan.emissionData().value()).isEqualTo(22.7);
+        verify(carbonForecastApi, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldNotFetchForecastAgain_IfPlanIsUpToDate() throws Exception {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(optimalTime, 22.7)))));
+        sut.prepare(request());
+        awaitPlan(sut);
+
+        sut.prepare(request());
+        sut.prepare(request());
+        Thread.sleep(100);
+
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldReplanExecution_IfRequestHasChanged() throws Exception {
+        LocalDateTime laterOptimalTime = optimalTime.plusHours(3);
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(optimalTime, 22.7)))))
+                .thenReturn(List.of(new EmissionForecastImpl("fr", 10, List.of(
+                        new EmissionDataImpl(laterOptimalTime, 12.3)))));
+        sut.prepare(request());
+        awaitPlan(sut);
+
+        // the trigger has been rescheduled under the same key with another location and a later deadline
+        Date laterDeadline = Date.from(deadline.toInstant().plus(4, ChronoUnit.HOURS));
+        PlanningRequest changed = new PlanningRequest(new TriggerKey("trigger", "group"), carbonForecastApi, "fr",
+                configuredTime, laterDeadline, 10, TimeZone.getDefault());
+        sut.prepare(changed);
+        ExecutionPlan plan = awaitPlan(sut, changed, p -> p.emissionData() != null && p.emissionData().value() == 12.3);
+
+        assertThat(plan.optimalExecutionTime()).isEqualTo(toDate(laterOptimalTime));
+        assertThat(sut.getPendingPlanCount()).isEqualTo(1);
+        verify(carbonForecastApi, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+        verify(carbonForecastApi).getEmissionForecastCurrent(eq(List.of("fr")), any(), any(), any());
+    }
+
+    @Test
+    void shouldDiscardPlans_IfTriggerIsRemoved() throws Exception {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        new EmissionDataImpl(optimalTime, 22.7)))));
+        sut.prepare(request());
+        awaitPlan(sut);
+
+        sut.discard(new TriggerKey("trigger", "group"));
+
+        assertThat(sut.getPlan(request())).isEmpty();
+        assertThat(sut.getPendingPlanCount()).isZero();
+
+        // a new trigger under the same key is planned from scratch
+        sut.prepare(request());
+        awaitPlan(sut);
+        verify(carbonForecastApi, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldNotBlockCaller_WhileForecastClientIsSlow() {
+        // the worker may not reach the client before the planner is shut down
+        lenient().when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(2_000);
+                    return List.of();
+                });
+        long start = System.nanoTime();
+        sut.prepare(request());
+        sut.getPlan(request());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMillis).isLessThan(500);
+    }
+
+    @Test
+    void shouldPlanAllExecutions_WithOneBatchRequestPerClient() {
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenAnswer(invocation -> {
+            List<ForecastQuery> queries = invocation.getArgument(0);
+            return Map.of(queries.get(0), List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                    new EmissionDataImpl(optimalTime, 22.7)))));
+        });
+        PlanningRequest other = new PlanningRequest(new TriggerKey("other", "group"), carbonForecastApi, LOCATION,
+                configuredTime, deadline, 10, TimeZone.getDefault());
+
+        List<ExecutionPlan> plans = ForecastPlanner.planAll(List.of(request(), other));
+
+        assertThat(plans).hasSize(2).allMatch(ExecutionPlan::isDetermined);
+        verify(carbonForecastApi, times(1)).getEmissionForecastsBatch(any());
+        verify(carbonForecastApi, never()).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRequestIncludedIntervals_OnlyIfCalendarExcludesOptimalExecutionTime() {
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenAnswer(invocation -> {
+            Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+            for (ForecastQuery query : invocation.<List<ForecastQuery>>getArgument(0)) {
+                result.put(query, List.of(new EmissionForecastImpl(LOCATION, 10, List.of(
+                        query.dataStartAt().isEqual(toLocalDateTime(configuredTime))
+                                ? new EmissionDataImpl(optimalTime, 22.7)
+                                : new EmissionDataImpl(query.dataStartAt(), 30.0)))));
+            }
+            return result;
+        });
+        // excludes the hour around the optimal execution time
+        long excludedFrom = configuredTime.getTime() + Duration.ofMinutes(90).toMillis();
+        long excludedTo = configuredTime.getTime() + Duration.ofMinutes(150).toMillis();
+        BaseCalendar calendar = new BaseCalendar() {
+            @Override
+            public boolean isTimeIncluded(long timeStamp) {
+                return timeStamp < excludedFrom || timeStamp >= excludedTo;
+            }
+
+            @Override
+            public long getNextIncludedTime(long timeStamp) {
+                return isTimeIncluded(timeStamp) ? timeStamp : excludedTo;
+            }
+        };
+        PlanningRequest withCalendar = new PlanningRequest(new TriggerKey("calendar", "group"), carbonForecastApi,
+                LOCATION, configuredTime, deadline, 10, TimeZone.getDefault(), calendar);
+
+        List<ExecutionPlan> plans = ForecastPlanner.planAll(List.of(request(), withCalendar));
+
+        assertThat(plans.get(0).optimalExecutionTime()).isEqualTo(toDate(optimalTime));
+        assertThat(plans.get(1).optimalExecutionTime()).isEqualTo(new Date(excludedTo));
+        verify(carbonForecastApi, times(2)).getEmissionForecastsBatch(any());
+        verify(carbonForecastApi, never()).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldDiscardPendingPlans_AfterShutdown() {
+        sut.prepare(request());
+
+        sut.shutdown();
+        sut.prepare(request());
+
+        assertThat(sut.getPlan(request())).isEmpty();
+    }
+
+    private PlanningRequest request() {
+        return new PlanningRequest(
+                new TriggerKey("trigger", "group"),
+                carbonForecastApi,
+                LOCATION,
+                configuredTime,
+                deadline,
+                10,
+                TimeZone.getDefault());
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private long currentForecastCalls() {
+        return mockingDetails(carbonForecastApi).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("getEmissionForecastCurrent"))
+                .count();
+    }
+
+    private ExecutionPlan awaitPlan(ForecastPlanner planner) throws InterruptedException {
+        return awaitPlan(planner, request(), plan -> true);
+    }
+
+    private ExecutionPlan awaitPlan(ForecastPlanner planner, PlanningRequest request, Predicate<ExecutionPlan> expected)
+            throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var plan = planner.getPlan(request).filter(expected);
+            if (plan.isPresent()) {
+                return plan.get();
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Plan was not computed in time");
+    }
+}
@@ -1,8 +1,16 @@
 package com.esentri.quartz.carbonaware.plugins;
 
+import com.esentri.quartz.carbonaware.clients.decorators.CachingCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.decorators.CoalescingCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.decorators.ResilientCarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.opendata.CarbonAwareTriggerTracker;
 import com.esentri.quartz.carbonaware.clients.opendata.EnergyChartsForecastProvider;
 import com.esentri.quartz.carbonaware.clients.opendata.OpenDataUpdateJob;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
+import com.esentri.quartz.carbonaware.testsupport.CarbonForecastClient;
 import com.esentri.quartz.carbonaware.plugins.listeners.CarbonStatisticsTriggerListener;
+import com.esentri.quartz.carbonaware.plugins.listeners.PlanDiscardingSchedulerListener;
 import com.esentri.quartz.carbonaware.plugins.listeners.TimeShiftingTriggerListener;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
@@ -17,6 +25,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.quartz.JobDetail;
 import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
 import org.quartz.core.ListenerManagerImpl;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
@@ -36,6 +45,8 @@ class CarbonAwarePluginTest {
 
     private final ListenerManagerImpl listenerManager = new ListenerManagerImpl();
 
+    private final SchedulerContext schedulerContext = new SchedulerContext();
+
     private CarbonAwarePlugin sut;
 
     private WireMockServer wireMockServer;
@@ -43,10 +54,14 @@ class CarbonAwarePluginTest {
     @BeforeEach
     void setUp() throws Exception {
         when(scheduler.getListenerManager()).thenReturn(listenerManager);
+        when(scheduler.getContext()).thenReturn(schedulerContext);
     }
 
     @AfterEach
     void tearDown() {
+        if (sut != null) {
+            sut.shutdown();
+        }
         if (wireMockServer != null && wireMockServer.isRunning()) {
             wireMockServer.stop();
         }
@@ -124,13 +139,15 @@ class CarbonAwarePluginTest {
                         .withHeader("Content-Type", "application/json")
                         .withBody(mockResponseFr)));
 
-        // Use reflection to set the apiUrlTemplate field in EnergyChartsForecastProvider
+        // When
+        sut.initialize("name", scheduler, null);
+
+        // Use reflection to set the apiUrlTemplate field of the EnergyChartsForecastProvider bound to the scheduler
+        EnergyChartsForecastProvider provider = EnergyChartsForecastProvider.fromContext(schedulerContext);
         java.lang.reflect.Field apiUrlTemplateField = EnergyChartsForecastProvider.class.getDeclaredField("apiUrlTemplate");
         apiUrlTemplateField.setAccessible(true);
-        apiUrlTemplateField.set(null, "http://localhost:8089/co2eq?country=%s");
+        apiUrlTemplateField.set(provider, "http://localhost:8089/co2eq?country=%s");
 
-        // When
-        sut.initialize("name", scheduler, null);
         sut.start(); // Need to call start() as the job scheduling happens in the start() method
 
         // Then
@@ -144,6 +161,8 @@ class CarbonAwarePluginTest {
         assertThat(capturedJobDetail.getKey().getName()).isEqualTo(OpenDataUpdateJob.JOB_NAME);
         assertThat(capturedJobDetail.getKey().getGroup()).isEqualTo(OpenDataUpdateJob.JOB_GROUP_NAME);
         assertThat(capturedJobDetail.getJobClass()).isEqualTo(OpenDataUpdateJob.class);
+        assertThat(capturedJobDetail.isConcurrentExectionDisallowed()).isTrue();
+        assertThat(CarbonAwareTriggerTracker.fromContext(schedulerContext)).isPresent();
     }
 
     @Test
@@ -167,4 +186,110 @@ class CarbonAwarePluginTest {
         // Verify that dryRun is set to true
         assertThat(dryRunValue).isTrue();
     }
+
+    @Test
+    void shouldVetoConfiguredExecutionTimes_InDryrun() throws Exception {
+        sut = new CarbonAwarePlugin();
+        sut.setDryrun(true);
+
+        sut.initialize("name", scheduler, null);
+
+        assertThat(SchedulerPlanning.fromContext(schedulerContext).isPlanAhead()).isFalse();
+        sut.shutdown();
+    }
+
+    @Test
+    void shouldStartForecastPlannerByDefault() throws Exception {
+        sut = new CarbonAwarePlugin();
+
+        sut.initialize("name", scheduler, null);
+
+        assertThat(SchedulerPlanning.fromContext(schedulerContext).getPlanner()).isPresent();
+        assertThat(listenerManager.getSchedulerListeners())
+                .hasAtLeastOneElementOfType(PlanDiscardingSchedulerListener.class);
+    }
+
+    @Test
+    void shouldNotStartForecastPlanner_IfAsyncPlanningIsDisabled() throws Exception {
+        sut = new CarbonAwarePlugin();
+        sut.setAsyncPlanning(false);
+
+        sut.initialize("name", scheduler, null);
+
+        assertThat(SchedulerPlanning.fromContext(schedulerContext).getPlanner()).isEmpty();
+        assertThat(listenerManager.getSchedulerListeners())
+                .noneMatch(PlanDiscardingSchedulerListener.class::isInstance);
+    }
+
+    @Test
+    void shouldStopForecastPlanner_OnShutdown() throws Exception {
+        sut = new CarbonAwarePlugin();
+        sut.initialize("name", scheduler, null);
+        ForecastPlanner planner = SchedulerPlanning.fromContext(schedulerContext).getPlanner().orElseThrow();
+
+        sut.shutdown();
+
+        assertThat(planner.isRunning()).isFalse();
+    }
+
+    @Test
+    void shouldKeepPlanningOfOtherScheduler_OnShutdown() throws Exception {
+        Scheduler otherScheduler = mock(Scheduler.class);
+        SchedulerContext otherContext = new SchedulerContext();
+        when(otherScheduler.getListenerManager()).thenReturn(new ListenerManagerImpl());
+        when(otherScheduler.getContext()).thenReturn(otherContext);
+        sut = new CarbonAwarePlugin();
+        sut.initialize("name", scheduler, null);
+        CarbonAwarePlugin other = new CarbonAwarePlugin();
+        other.initialize("other", otherScheduler, null);
+        CarbonForecastClient client = new CarbonForecastClient();
+
+        other.shutdown();
+
+        SchedulerPlanning planning = SchedulerPlanning.fromContext(schedulerContext);
+        assertThat(planning.getPlanner()).hasValueSatisfying(planner -> assertThat(planner.isRunning()).isTrue());
+        assertThat(planning.decorate(client)).isInstanceOf(CachingCarbonForecastApi.class);
+        assertThat(planning.decorate(client))
+                .isNotSameAs(SchedulerPlanning.fromContext(otherContext).decorate(client));
+    }
+
+    @Test
+    void shouldCacheAndCoalesceForecastRequestsByDefault() throws Exception {
+        sut = new CarbonAwarePlugin();
+
+        sut.initialize("name", scheduler, null);
+
+        assertThat(SchedulerPlanning.fromContext(schedulerContext).decorate(new CarbonForecastClient()))
+                .isInstanceOfSatisfying(CachingCarbonForecastApi.class, cache ->
+                        assertThat(cache.getDelegate()).isInstanceOf(CoalescingCarbonForecastApi.class));
+    }
+
+    @Test
+    void shouldGuardForecastClientWithCircuitBreaker_BelowCacheAndCoalescing() throws Exception {
+        sut = new CarbonAwarePlugin();
+        CarbonForecastClient client = new CarbonForecastClient();
+
+        sut.initialize("name", scheduler, null);
+
+        CachingCarbonForecastApi cache =
+                (CachingCarbonForecastApi) SchedulerPlanning.fromContext(schedulerContext).decorate(client);
+        CoalescingCarbonForecastApi coalescing = (CoalescingCarbonForecastApi) cache.getDelegate();
+        assertThat(coalescing.getDelegate())
+                .isInstanceOfSatisfying(ResilientCarbonForecastApi.class, resilient ->
+                        assertThat(resilient.getDelegate()).isSameAs(client));
+    }
+
+    @Test
+    void shouldNotDecorateForecastClient_IfAllDecoratorsAreDisabled() throws Exception {
+        sut = new CarbonAwarePlugin();
+        sut.setEnableForecastCoalescing(false);
+        sut.setEnableForecastCache(false);
+        sut.setEnableForecastResilience(false);
+        CarbonForecastClient client = new CarbonForecastClient();
+
+        sut.initialize("name", scheduler, null);
+
+        assertThat(SchedulerPlanning.fromContext(schedulerContext).decorate(client)).isSameAs(client);
+    }
+
 }
@@ -1,9 +1,15 @@
 package com.esentri.quartz.carbonaware.plugins.listeners;
 
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
 import com.esentri.quartz.carbonaware.testsupport.CarbonForecastClient;
 import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
 import com.esentri.quartz.carbonaware.testsupport.PersistenceClient;
 import com.esentri.quartz.carbonaware.triggers.CarbonAwareCronTrigger;
+import com.esentri.quartz.carbonaware.triggers.impl.CarbonAwareCronTriggerImpl;
 import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,9 +18,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.quartz.CronExpression;
 import org.quartz.JobExecutionContext;
 import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
 import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.StdSchedulerFactory;
 import org.quartz.impl.triggers.CronTriggerImpl;
 
 import java.time.Clock;
@@ -22,10 +31,14 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Properties;
 import java.util.TimeZone;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +56,8 @@ class CarbonStatisticsTriggerListenerTest {
     private JobExecutionContext context;
     @Mock
     private CarbonAwareCronTrigger trigger;
+    @Mock
+    private CarbonForecastApi carbonForecastApi;
 
     private CarbonStatisticsTriggerListener sut;
 
@@ -71,7 +86,8 @@ class CarbonStatisticsTriggerListenerTest {
         sut = new CarbonStatisticsTriggerListener(
                 PERSISTENCE_CLIENT_REF,
                 REST_CLIENT_REF,
-                false);
+                false,
+                Runnable::run);
     }
 
     private static JobDetailImpl createJobDetail() {
@@ -129,5 +145,73 @@ class CarbonStatisticsTriggerListenerTest {
                 .hasFieldOrPropertyWithValue("dryRun", false);
     }
 
+    @Test
+    void shouldFetchForecastAndPersistData_OnExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+        sut = new CarbonStatisticsTriggerListener(PERSISTENCE_CLIENT_REF, REST_CLIENT_REF, false, tasks::add);
+
+        sut.triggerFired(trigger, context);
+
+        PersistenceClient persistenceClient = (PersistenceClient) sut.getPersistenceClient();
+        assertThat(persistenceClient.persistedObjects).isEmpty();
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(persistenceClient.persistedObjects).hasSize(1);
+    }
+
+    @Test
+    void shouldPersistFiredExecution_IfTriggerPlannedAhead() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, getClass().getSimpleName());
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        Scheduler scheduler = new StdSchedulerFactory(properties).getScheduler();
+        try {
+            // without planner, the trigger plans each execution on the executor of the planning
+            new SchedulerPlanning(CarbonForecastApiDecorators.none(), null, true, Runnable::run).bindTo(scheduler);
+            persistFiredExecutionOfPlannedAheadTrigger();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void persistFiredExecutionOfPlannedAheadTrigger() throws Exception {
+        CarbonAwareCronTriggerImpl plannedAhead = new CarbonAwareCronTriggerImpl();
+        plannedAhead.setKey(new TriggerKey("trigger", "group"));
+        plannedAhead.setSchedulerName(getClass().getSimpleName());
+        plannedAhead.setCarbonForecastApi(carbonForecastApi);
+        plannedAhead.setCronExpression("20 0/1 * ? * *");
+        plannedAhead.setDeadlineCronExpression("50 0/1 * ? * *");
+        plannedAhead.setTimeZone(timeZone);
+        plannedAhead.setLocation(location);
+        plannedAhead.setJobDurationInMinutes(duration);
+
+        Date startDate = new Date();
+        Date firstConfiguredTime = new CronExpression("20 0/1 * ? * *").getTimeAfter(startDate);
+        Date firstOptimalTime = Date.from(firstConfiguredTime.toInstant().plus(5, ChronoUnit.SECONDS));
+        Date secondOptimalTime = Date.from(firstConfiguredTime.toInstant().plus(65, ChronoUnit.SECONDS));
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(forecast(firstOptimalTime, 22.7))
+                .thenReturn(forecast(secondOptimalTime, 42.0));
+        plannedAhead.setNextFireTime(plannedAhead.getFireTimeAfter(startDate));
+        assertThat(plannedAhead.getTriggerState()).isEqualTo(CarbonAwareExecutionState.PLANNED_AHEAD);
+
+        // Quartz plans the next execution before the listeners are called
+        plannedAhead.triggered(null);
+        assertThat(plannedAhead.getOptimalExecutionTime()).isEqualTo(secondOptimalTime);
+        sut.triggerFired(plannedAhead, context);
 
-}
\ No newline at end of file
+        PersistenceClient persistenceClient = (PersistenceClient) sut.getPersistenceClient();
+        assertThat(persistenceClient.persistedObjects)
+                .singleElement()
+                .hasFieldOrPropertyWithValue("jobExecutionId", "0000_fire-instance_ID")
+                .hasFieldOrPropertyWithValue("configuredTimestamp", firstConfiguredTime.toInstant())
+                .hasFieldOrPropertyWithValue("executionTimestamp", firstOptimalTime.toInstant())
+                .hasFieldOrPropertyWithValue("carbonIntensityForRescheduledTimestamp", 22.7);
+    }
+
+    private static List<EmissionForecast> forecast(Date optimalTime, double carbonIntensity) {
+        return List.of(new EmissionForecastImpl("de", 10, List.of(new EmissionDataImpl(
+                LocalDateTime.ofInstant(optimalTime.toInstant(), ZoneId.systemDefault()), carbonIntensity))));
+    }
+}
@@ -1,26 +1,49 @@
 package com.esentri.quartz.carbonaware.triggers.impl;
 
+import com.esentri.quartz.carbonaware.clients.decorators.CarbonForecastApiDecorators;
 import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.ForecastQuery;
+import com.esentri.quartz.carbonaware.entity.EmissionForecast;
+import com.esentri.quartz.carbonaware.planning.ExecutionPlan;
+import com.esentri.quartz.carbonaware.planning.ForecastPlanner;
+import com.esentri.quartz.carbonaware.planning.PlanningRequest;
+import com.esentri.quartz.carbonaware.planning.SchedulerPlanning;
+import com.esentri.quartz.carbonaware.plugins.listeners.TimeShiftingTriggerListener;
 import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
 import com.esentri.quartz.carbonaware.testsupport.EmissionForecastImpl;
 import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.quartz.CronExpression;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.calendar.DailyCalendar;
+import org.quartz.impl.calendar.HolidayCalendar;
 
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -39,21 +62,60 @@ class CarbonAwareCronTriggerImplTest {
 
     private CarbonAwareCronTriggerImpl sut;
 
+    private Scheduler scheduler;
+
     private final Calendar calendar = Calendar.getInstance();
 
+    private final HolidayCalendar holidays = new HolidayCalendar();
+
     private CronExpression startCronExpression;
     private CronExpression deadlineCronExpression;
+    // plans the executions, which are not planned by a planner, on the calling thread by default
+    private Executor executor = Runnable::run;
 
     @BeforeEach
      void setUp() throws Exception {
         initSut();
+        // most tests cover the veto of the configured execution times
+        bindPlanning(null, false);
 
         this.startCronExpression = new CronExpression(sut.getCronExpression());
         this.deadlineCronExpression = sut.getDeadlineCronExpression();
     }
 
+    @AfterEach
+    void tearDown() throws SchedulerException {
+        if (scheduler != null) {
+            SchedulerPlanning.fromContext(scheduler.getContext()).shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Binds the trigger to a scheduler with a running {@link ForecastPlanner}.
+     */
+    private ForecastPlanner startPlanner() throws SchedulerException {
+        return bindPlanning(new ForecastPlanner(1, Duration.ofHours(1)), false);
+    }
+
+    /**
+     * Binds the trigger to a scheduler with the given planning, replacing the planning bound before.
+     */
+    private ForecastPlanner bindPlanning(ForecastPlanner planner, boolean planAhead) throws SchedulerException {
+        if (scheduler == null) {
+            Properties properties = new Properties();
+            properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, getClass().getSimpleName());
+            properties.setProperty("org.quartz.threadPool.threadCount", "1");
+            scheduler = new StdSchedulerFactory(properties).getScheduler();
+        }
+        new SchedulerPlanning(CarbonForecastApiDecorators.none(), planner, planAhead, executor).bindTo(scheduler);
+        sut.setSchedulerName(scheduler.getSchedulerName());
+        return planner;
+    }
+
     private void initSut() throws ParseException {
         sut = new CarbonAwareCronTriggerImpl();
+        sut.setKey(new TriggerKey("trigger", "group"));
         sut.setCarbonForecastApi(carbonForecastApi);
         sut.setCronExpression("20 0/1 * ? * *");
         sut.setDeadlineCronExpression("50 0/1 * ? * *");
@@ -80,7 +142,10 @@ class CarbonAwareCronTriggerImplTest {
     }
 
     @Test
-     void shouldReturnDateFromStartCronExpression_WhenTriggerStateIsPending() {
+     void shouldReturnDateFromStartCronExpression_WhenTriggerStateIsPending() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        executor = tasks::add;
+        bindPlanning(null, false);
         sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.PENDING);
         Date cronStartTime = calendar.getTime();
 
@@ -88,7 +153,38 @@ class CarbonAwareCronTriggerImplTest {
 
         assertThat(result).isEqualTo(startCronExpression.getTimeAfter(cronStartTime));
 
+        // the next execution is planned in the background
+        assertThat(tasks).hasSize(1);
+        verifyNoInteractions(carbonForecastApi);
+    }
+
+    @Test
+    void shouldNotFetchForecastOnCallingThread_IfSchedulerHasNoPlanner() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        executor = tasks::add;
+        bindPlanning(null, false);
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                configuredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+        sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.READY);
+
+        Date unplannedResult = sut.getFireTimeAfter(startDate);
+        CarbonAwareExecutionState unplannedState = sut.getTriggerState();
         verifyNoInteractions(carbonForecastApi);
+        tasks.forEach(Runnable::run);
+        sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.READY);
+        Date plannedResult = sut.getFireTimeAfter(startDate);
+
+        assertThat(unplannedResult).isEqualTo(configuredTime);
+        assertThat(unplannedState).isEqualTo(CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE);
+        assertThat(plannedResult.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME);
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
     }
 
     @Test
@@ -230,7 +326,8 @@ class CarbonAwareCronTriggerImplTest {
     @Test
      void shouldReturnOptimalExecutionTimeFromForecast_WhenStateIsReady_AndReturnedCarbonForecastIsPresent() {
         Date startDate = calendar.getTime();
-        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(startDate.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                startCronExpression.getTimeAfter(startDate).toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
 
         when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
                 .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
@@ -247,7 +344,8 @@ class CarbonAwareCronTriggerImplTest {
     @Test
      void shouldChangeTriggerStateToDeterminedBetterExecutionTime_WhenStateIsReady_AndReturnedCarbonForecastIsPresent() {
         Date startDate = calendar.getTime();
-        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(startDate.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                startCronExpression.getTimeAfter(startDate).toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
 
         when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
                 .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
@@ -264,7 +362,8 @@ class CarbonAwareCronTriggerImplTest {
     @Test
      void shouldReturnCronStartDate_WhenStateIsReady_AndReturnedCarbonForecastIsPresentForWrongLocation() {
         Date startDate = calendar.getTime();
-        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(startDate.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                startCronExpression.getTimeAfter(startDate).toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
 
         when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
                 .thenReturn(list(new EmissionForecastImpl("fr", JOB_DURATION, list(
@@ -281,7 +380,8 @@ class CarbonAwareCronTriggerImplTest {
     @Test
      void shouldReturnStartDateFromOptimalExecutionPoint_withMinimalCarbonIntensityValue_WhenStateIsReady_AndReturnedCarbonForecastIsPresent() {
         Date startDate = calendar.getTime();
-        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(startDate.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                startCronExpression.getTimeAfter(startDate).toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
 
         when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
                 .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
@@ -297,4 +397,364 @@ class CarbonAwareCronTriggerImplTest {
         assertThat(result.toInstant()).isEqualTo(optimalExecutionDate.plusSeconds(2).toInstant(ZONE_OFFSET));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldNotCallCarbonForecastApi_WhenStateIsReady_AndPlannerIsRunning() throws Exception {
+        startPlanner();
+        sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.READY);
+
+        Date result = sut.getFireTimeAfter(calendar.getTime());
+
+        assertThat(result).isEqualTo(startCronExpression.getTimeAfter(calendar.getTime()));
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.CARBON_DATA_UNAVAILABLE);
+        verifyNoInteractions(carbonForecastApi);
+    }
+
+    @Test
+    void shouldReturnPlannedExecutionTime_WhenPlanWasPreparedByPlanner() throws Exception {
+        Date startDate = calendar.getTime();
+        Date firstFireTime = startCronExpression.getTimeAfter(startDate);
+        Date plannedFireTime = startCronExpression.getTimeAfter(firstFireTime);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                plannedFireTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+        ForecastPlanner planner = startPlanner();
+
+        // PENDING -> READY announces the execution after the first fire time
+        sut.getFireTimeAfter(startDate);
+        assertThat(planner.getPendingPlanCount()).isEqualTo(1);
+        for (int i = 0; i < 100 && !hasPlan(planner, plannedFireTime); i++) {
+            Thread.sleep(20);
+        }
+
+        Date result = sut.getFireTimeAfter(firstFireTime);
+
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME);
+        assertThat(result.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+    }
+
+    @Test
+    void shouldRunShiftedExecution_InDryrun_IfPlanningOfUnnamedTriggerCanNotBeResolved() throws Exception {
+        // two dryrun schedulers, so the planning of a trigger without scheduler name can't be resolved
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "dryrun");
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        Scheduler other = new StdSchedulerFactory(properties).getScheduler();
+        try {
+            new SchedulerPlanning(CarbonForecastApiDecorators.none(), null, false).bindTo(other);
+            sut.setSchedulerName(null);
+            TimeShiftingTriggerListener dryrun = new TimeShiftingTriggerListener(true);
+            Date startDate = calendar.getTime();
+            Date firstConfiguredTime = startCronExpression.getTimeAfter(startDate);
+            Date secondConfiguredTime = startCronExpression.getTimeAfter(firstConfiguredTime);
+            LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                    secondConfiguredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+            when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                    .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                            new EmissionDataImpl(optimalExecutionDate, 22.7)
+                    ))));
+
+            Date configuredFireTime = sut.getFireTimeAfter(startDate);
+            boolean configuredExecutionVetoed = dryrun.vetoJobExecution(sut, null);
+            // the defaults plan the execution in the background
+            Date shiftedFireTime = sut.getFireTimeAfter(configuredFireTime);
+            for (int i = 0; i < 100 && sut.getTriggerState() != CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME; i++) {
+                Thread.sleep(20);
+                sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.READY);
+                shiftedFireTime = sut.getFireTimeAfter(configuredFireTime);
+            }
+            boolean shiftedExecutionVetoed = dryrun.vetoJobExecution(sut, null);
+
+            assertThat(configuredFireTime).isEqualTo(firstConfiguredTime);
+            assertThat(configuredExecutionVetoed).isTrue();
+            assertThat(shiftedFireTime.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+            assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME);
+            assertThat(shiftedExecutionVetoed).isFalse();
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFireAtOptimalExecutionTime_WhenPlanningAhead() throws Exception {
+        bindPlanning(null, true);
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                configuredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+
+        Date result = sut.getFireTimeAfter(startDate);
+
+        assertThat(result.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+        assertThat(sut.getConfiguredExecutionTime()).isEqualTo(configuredTime);
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.PLANNED_AHEAD);
+    }
+
+    @Test
+    void shouldResolvePlanningAgain_IfSchedulerHasBeenShutDown() throws Exception {
+        bindPlanning(null, true);
+        SchedulerPlanning planningAhead = SchedulerPlanning.fromContext(scheduler.getContext());
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                configuredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+        sut.getFireTimeAfter(startDate);
+
+        // the trigger keeps the planning it has resolved, until the scheduler is shut down
+        new SchedulerPlanning(CarbonForecastApiDecorators.none(), null, false, executor).bindTo(scheduler);
+        sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.PENDING);
+        sut.getFireTimeAfter(startDate);
+        CarbonAwareExecutionState stateWithResolvedPlanning = sut.getTriggerState();
+        planningAhead.shutdown();
+        sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.PENDING);
+        Date result = sut.getFireTimeAfter(startDate);
+
+        assertThat(stateWithResolvedPlanning).isEqualTo(CarbonAwareExecutionState.PLANNED_AHEAD);
+        assertThat(result).isEqualTo(configuredTime);
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.READY);
+    }
+
+    @Test
+    void shouldKeepDefaults_UntilPlanningIsBoundToScheduler() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "late");
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        sut.setSchedulerName("late");
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                configuredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+        // the scheduler doesn't exist yet, the defaults veto the executions
+        sut.getFireTimeAfter(startDate);
+        CarbonAwareExecutionState stateWithDefaults = sut.getTriggerState();
+
+        Scheduler late = new StdSchedulerFactory(properties).getScheduler();
+        try {
+            SchedulerPlanning planningAhead = new SchedulerPlanning(
+                    CarbonForecastApiDecorators.none(), null, true, executor);
+            // the defaults are kept, as long as no planning is bound
+            late.getContext().put(SchedulerPlanning.CONTEXT_KEY, planningAhead);
+            sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.PENDING);
+            sut.getFireTimeAfter(startDate);
+            CarbonAwareExecutionState stateWithUnboundPlanning = sut.getTriggerState();
+            planningAhead.bindTo(late);
+            sut.setCarbonAwareTriggerState(CarbonAwareExecutionState.PENDING);
+            Date result = sut.getFireTimeAfter(startDate);
+
+            assertThat(stateWithDefaults).isEqualTo(CarbonAwareExecutionState.READY);
+            assertThat(stateWithUnboundPlanning).isEqualTo(CarbonAwareExecutionState.READY);
+            assertThat(result.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+            assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.PLANNED_AHEAD);
+        } finally {
+            late.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFireAtConfiguredTime_WhenPlanningAhead_AndNoPlanIsReady() throws Exception {
+        bindPlanning(null, true);
+        Date startDate = calendar.getTime();
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any())).thenReturn(list());
+
+        Date result = sut.getFireTimeAfter(startDate);
+
+        assertThat(result).isEqualTo(startCronExpression.getTimeAfter(startDate));
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.AWAITING_PLAN);
+    }
+
+    @Test
+    void shouldFireAtConfiguredTime_WhenPlanningAhead_AndRefreshedPlanIsInThePast() throws Exception {
+        ForecastPlanner planner = bindPlanning(mock(ForecastPlanner.class), true);
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        when(planner.getPlan(any())).thenReturn(Optional.of(new ExecutionPlan(configuredTime,
+                Date.from(startDate.toInstant().minus(1, ChronoUnit.MINUTES)),
+                new EmissionDataImpl(LocalDateTime.now(), 22.7), Instant.now())));
+
+        Date result = sut.getFireTimeAfter(startDate);
+
+        assertThat(result).isEqualTo(configuredTime);
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.AWAITING_PLAN);
+    }
+
+    @Test
+    void shouldShiftAwaitedExecution_WhenPlanIsReadyAtConfiguredTime() throws Exception {
+        bindPlanning(null, true);
+        Date startDate = calendar.getTime();
+        Date configuredTime = startCronExpression.getTimeAfter(startDate);
+        LocalDateTime optimalExecutionDate = LocalDateTime.ofInstant(
+                configuredTime.toInstant().plus(5, ChronoUnit.SECONDS), ZoneId.systemDefault());
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any()))
+                .thenReturn(list())
+                .thenReturn(list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(optimalExecutionDate, 22.7)
+                ))));
+        sut.getFireTimeAfter(startDate);
+
+        // the trigger fires at the configured time, the execution is vetoed and shifted
+        Date result = sut.getFireTimeAfter(configuredTime);
+
+        assertThat(result.toInstant()).isEqualTo(optimalExecutionDate.toInstant(ZONE_OFFSET));
+        assertThat(sut.getConfiguredExecutionTime()).isEqualTo(configuredTime);
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME);
+    }
+
+    @Test
+    void shouldAnnounceUpcomingExecutions_WhenPlanningAhead_AndPlannerIsRunning() throws Exception {
+        ForecastPlanner planner = bindPlanning(new ForecastPlanner(1, Duration.ofHours(1)), true);
+        Date startDate = calendar.getTime();
+
+        Date result = sut.getFireTimeAfter(startDate);
+
+        assertThat(result).isEqualTo(startCronExpression.getTimeAfter(startDate));
+        assertThat(sut.getTriggerState()).isEqualTo(CarbonAwareExecutionState.AWAITING_PLAN);
+        assertThat(planner.getPendingPlanCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRequestForecastOnce_WhenCalendarExcludesManyConfiguredExecutionTimes() throws Exception {
+        bindPlanning(null, true);
+        CarbonAwareCronTriggerImpl trigger = dailyTrigger();
+        excludeDays(trigger, 0, 9);
+        Date firstIncludedTime = configuredTime(trigger, 10);
+        stubOptimalExecutionTwoHoursAfterStart();
+
+        Date result = trigger.computeFirstFireTime(holidays);
+
+        assertThat(result).isEqualTo(Date.from(firstIncludedTime.toInstant().plus(2, ChronoUnit.HOURS)));
+        assertThat(trigger.getConfiguredExecutionTime()).isEqualTo(firstIncludedTime);
+        // besides the first included execution, only the next execution is planned ahead
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(any(), eq(toLocalDateTime(firstIncludedTime)), any(), any());
+        verify(carbonForecastApi, times(2)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRequestForecastOnce_WhenTriggeredWithCalendarExcludingManyConfiguredExecutionTimes() throws Exception {
+        CarbonAwareCronTriggerImpl trigger = dailyTrigger();
+        excludeDays(trigger, 0, 9);
+        excludeDays(trigger, 11, 20);
+        stubOptimalExecutionTwoHoursAfterStart();
+
+        assertThat(trigger.computeFirstFireTime(holidays)).isEqualTo(configuredTime(trigger, 10));
+        trigger.triggered(holidays);
+
+        Date nextIncludedTime = configuredTime(trigger, 21);
+        assertThat(trigger.getTriggerState()).isEqualTo(CarbonAwareExecutionState.DETERMINED_BETTER_EXECUTION_TIME);
+        assertThat(trigger.getConfiguredExecutionTime()).isEqualTo(nextIncludedTime);
+        assertThat(trigger.getNextFireTime()).isEqualTo(Date.from(nextIncludedTime.toInstant().plus(2, ChronoUnit.HOURS)));
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldShiftExecutionToTimeIncludedByCalendar_WithSingleForecastRequest() throws Exception {
+        bindPlanning(null, true);
+        CarbonAwareCronTriggerImpl trigger = dailyTrigger();
+        DailyCalendar nights = new DailyCalendar("00:00", "02:00");
+        // the greenest data point of the window from 10pm to 4am is allowed by the calendar
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any())).thenAnswer(invocation ->
+                list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(invocation.<LocalDateTime>getArgument(1).plusHours(5), 100.0)))));
+
+        Date result = trigger.computeFirstFireTime(nights);
+
+        assertThat(result).isEqualTo(Date.from(trigger.getConfiguredExecutionTime().toInstant().plus(5, ChronoUnit.HOURS)));
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(
+                any(), eq(toLocalDateTime(trigger.getConfiguredExecutionTime())), any(), any());
+        verify(carbonForecastApi, never()).getEmissionForecastsBatch(any());
+    }
+
+    @Test
+    void shouldShiftExecutionOnlyToTimesIncludedByCalendar_WithSingleFallbackBatchRequest() throws Exception {
+        bindPlanning(null, true);
+        CarbonAwareCronTriggerImpl trigger = dailyTrigger();
+        // excludes the greenest hours after midnight of the window from 10pm to 4am
+        DailyCalendar nights = new DailyCalendar("00:00", "02:00");
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any())).thenAnswer(invocation ->
+                list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(invocation.<LocalDateTime>getArgument(1).plusHours(3), 50.0)))));
+        when(carbonForecastApi.getEmissionForecastsBatch(any())).thenAnswer(invocation -> {
+            Map<ForecastQuery, List<EmissionForecast>> result = new LinkedHashMap<>();
+            for (ForecastQuery query : invocation.<List<ForecastQuery>>getArgument(0)) {
+                result.put(query, list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(query.dataStartAt(), query.dataStartAt().getHour() == 22 ? 300.0 : 100.0)))));
+            }
+            return result;
+        });
+
+        Date result = trigger.computeFirstFireTime(nights);
+
+        LocalDateTime fireTime = LocalDateTime.ofInstant(result.toInstant(), ZoneId.systemDefault());
+        assertThat(fireTime.toLocalDate())
+                .isEqualTo(LocalDateTime.ofInstant(trigger.getConfiguredExecutionTime().toInstant(), ZoneId.systemDefault())
+                        .toLocalDate().plusDays(1));
+        assertThat(fireTime.truncatedTo(ChronoUnit.MINUTES).toLocalTime()).isEqualTo(LocalTime.of(2, 0));
+        assertThat(nights.isTimeIncluded(result.getTime())).isTrue();
+        LocalDateTime configuredTime = toLocalDateTime(trigger.getConfiguredExecutionTime());
+        verify(carbonForecastApi, times(1)).getEmissionForecastCurrent(any(), eq(configuredTime), any(), any());
+        verify(carbonForecastApi, times(1)).getEmissionForecastsBatch(
+                argThat(queries -> queries.get(0).dataStartAt().equals(configuredTime)));
+    }
+
+    private CarbonAwareCronTriggerImpl dailyTrigger() throws ParseException, SchedulerException {
+        CarbonAwareCronTriggerImpl trigger = new CarbonAwareCronTriggerImpl();
+        trigger.setCarbonForecastApi(carbonForecastApi);
+        trigger.setCronExpression("0 0 22 ? * *");
+        trigger.setDeadlineCronExpression("0 0 4 ? * *");
+        trigger.setTimeZone(TimeZone.getDefault());
+        trigger.setLocation(FORECAST_LOCATION);
+        trigger.setJobDurationInMinutes(JOB_DURATION);
+        trigger.setStartTime(calendar.getTime());
+        trigger.setSchedulerName(scheduler.getSchedulerName());
+        return trigger;
+    }
+
+    /**
+     * Excludes the days of the configured execution times with the given indexes from the holidays.
+     */
+    private void excludeDays(CarbonAwareCronTriggerImpl trigger, int first, int last) throws ParseException {
+        for (int i = first; i <= last; i++) {
+            holidays.addExcludedDate(configuredTime(trigger, i));
+        }
+    }
+
+    private Date configuredTime(CarbonAwareCronTriggerImpl trigger, int index) throws ParseException {
+        CronExpression daily = new CronExpression(trigger.getCronExpression());
+        Date time = daily.getTimeAfter(new Date(trigger.getStartTime().getTime() - 1000L));
+        for (int i = 0; i < index; i++) {
+            time = daily.getTimeAfter(time);
+        }
+        return time;
+    }
+
+    private void stubOptimalExecutionTwoHoursAfterStart() {
+        when(carbonForecastApi.getEmissionForecastCurrent(any(), any(), any(), any())).thenAnswer(invocation ->
+                list(new EmissionForecastImpl(FORECAST_LOCATION, JOB_DURATION, list(
+                        new EmissionDataImpl(invocation.<LocalDateTime>getArgument(1).plusHours(2), 22.7)))));
+    }
+
+    private boolean hasPlan(ForecastPlanner planner, Date configuredTime) {
+        return planner.getPlan(new PlanningRequest(
+                sut.getKey(), carbonForecastApi, FORECAST_LOCATION, configuredTime,
+                deadlineCronExpression.getTimeAfter(configuredTime), JOB_DURATION, TimeZone.getDefault()))
+                .filter(ExecutionPlan::isDetermined)
+                .isPresent();
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,78 @@
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CronFireTimeBufferTest {
+
+    private static final long START = 1_752_624_000_000L; // 2025-07-16T00:00:00Z
+
+    @Test
+    void shouldReturnSameTimesAsCronExpression_ForConsecutiveLookups() throws ParseException {
+        CronExpression cronExpression = cronExpression("20 0/7 * ? * *");
+        CronFireTimeBuffer sut = new CronFireTimeBuffer(cronExpression, 4);
+
+        Date time = new Date(START);
+        for (int i = 0; i < 50; i++) {
+            Date expected = cronExpression.getTimeAfter(time);
+            // the trigger asks for the same time again, e.g. for the next plan
+            assertThat(sut.timeAfter(time)).isEqualTo(expected);
+            assertThat(sut.timeAfter(time)).isEqualTo(expected);
+            time = expected;
+        }
+    }
+
+    @Test
+    void shouldReturnSameTimesAsCronExpression_ForArbitraryLookups() throws ParseException {
+        CronExpression cronExpression = cronExpression("0 15 10,22 ? * MON-FRI");
+        CronFireTimeBuffer sut = new CronFireTimeBuffer(cronExpression, 8);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            // mostly small steps forward and back, sometimes jumps of up to a year
+            long afterTime = START + (i % 10 == 0
+                    ? (long) (random.nextDouble() * 365 * 86_400_000L)
+                    : i * 3_600_000L + random.nextInt(7_200_000) - 3_600_000);
+            assertThat(sut.timeAfter(new Date(afterTime))).isEqualTo(cronExpression.getTimeAfter(new Date(afterTime)));
+        }
+    }
+
+    @Test
+    void shouldReturnNone_AfterLastTimeOfExpression() throws ParseException {
+        CronExpression cronExpression = cronExpression("0 0 12 1 1 ? 2026-2027");
+        CronFireTimeBuffer sut = new CronFireTimeBuffer(cronExpression, 4);
+
+        long first = sut.timeAfter(START);
+        long second = sut.timeAfter(first);
+
+        assertThat(new Date(first)).isEqualTo(cronExpression.getTimeAfter(new Date(START)));
+        assertThat(new Date(second)).isEqualTo(cronExpression.getTimeAfter(new Date(first)));
+        assertThat(sut.timeAfter(second)).isEqualTo(CronFireTimeBuffer.NONE);
+        assertThat(sut.timeAfter(new Date(second))).isNull();
+        assertThat(sut.timeAfter(START)).isEqualTo(first);
+    }
+
+    @Test
+    void shouldRefillBuffer_WhenTimeZoneOfExpressionChanges() throws ParseException {
+        CronExpression cronExpression = cronExpression("0 0 22 ? * *");
+        CronFireTimeBuffer sut = new CronFireTimeBuffer(cronExpression);
+        sut.timeAfter(START);
+
+        cronExpression.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+
+        assertThat(sut.timeAfter(new Date(START))).isEqualTo(cronExpression.getTimeAfter(new Date(START)));
+    }
+
+    private static CronExpression cronExpression(String expression) throws ParseException {
+        CronExpression cronExpression = new CronExpression(expression);
+        cronExpression.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        return cronExpression;
+    }
+}
@@ -0,0 +1,177 @@
+package com.esentri.quartz.carbonaware.triggers.impl;
+
+import com.esentri.quartz.carbonaware.clients.opendata.OpenDataForecastClient;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApi;
+import com.esentri.quartz.carbonaware.clients.rest.CarbonForecastApiRegistry;
+import com.esentri.quartz.carbonaware.testsupport.EmissionDataImpl;
+import com.esentri.quartz.carbonaware.triggers.states.CarbonAwareExecutionState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SerializedCarbonAwareCronTriggerTest {
+
+    private static final Date START = new Date(1_752_624_000_000L); // 2025-07-16T00:00:00Z
+
+    private CarbonAwareCronTriggerImpl trigger;
+
+    @BeforeEach
+    void setUp() throws ParseException {
+        trigger = new CarbonAwareCronTriggerImpl();
+        trigger.setKey(new TriggerKey("CarbonAwareTrigger", "carbon-aware"));
+        trigger.setJobKey(new JobKey("LoggingJob", "carbon-aware"));
+        trigger.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        trigger.setCronExpression("0 0/1 * ? * * *");
+        trigger.setDeadlineCronExpression("0 0 23 ? * * *");
+        trigger.setLocation("de");
+        trigger.setJobDurationInMinutes(7);
+        trigger.setStartTime(START);
+        trigger.setNextFireTime(new Date(START.getTime() + 60_000));
+        trigger.setCarbonForecastApi(new OpenDataForecastClient());
+    }
+
+    @AfterEach
+    void tearDown() {
+        CarbonForecastApiRegistry.clear();
+    }
+
+    @Test
+    void shouldRestoreAllFields() throws Exception {
+        trigger.setDescription("logs every minute");
+        trigger.setCalendarName("holidays");
+        trigger.setFireInstanceId("instance-1");
+        trigger.setPriority(7);
+        trigger.setMisfireInstruction(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+        trigger.getJobDataMap().put("answer", 42);
+        trigger.setEndTime(new Date(START.getTime() + 86_400_000));
+        trigger.setPreviousFireTime(START);
+        trigger.setCarbonAwareTriggerState(CarbonAwareExecutionState.PLANNED_AHEAD);
+        trigger.restorePlan(new Date(START.getTime() + 60_000), new Date(START.getTime() + 3_600_000),
+                new EmissionDataImpl(LocalDateTime.of(2025, 7, 16, 3, 0), 120.5));
+
+        CarbonAwareCronTriggerImpl result = roundTrip(trigger);
+
+        assertThat(result).isNotSameAs(trigger);
+        assertThat(result.getKey()).isEqualTo(trigger.getKey());
+        assertThat(result.getJobKey()).isEqualTo(trigger.getJobKey());
+        assertThat(result.getDescription()).isEqualTo("logs every minute");
+        assertThat(result.getCalendarName()).isEqualTo("holidays");
+        assertThat(result.getFireInstanceId()).isEqualTo("instance-1");
+        assertThat(result.getPriority()).isEqualTo(7);
+        assertThat(result.getMisfireInstruction()).isEqualTo(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+        assertThat(result.getJobDataMap()).containsEntry("answer", 42);
+        assertThat(result.getTimeZone().getID()).isEqualTo("Europe/Berlin");
+        assertThat(result.getCronExpression()).isEqualTo("0 0/1 * ? * * *");
+        assertThat(result.getDeadlineCronExpression().getCronExpression()).isEqualTo("0 0 23 ? * * *");
+        assertThat(result.getDeadlineCronExpression().getTimeZone().getID()).isEqualTo("Europe/Berlin");
+        assertThat(result.getStartTime()).isEqualTo(trigger.getStartTime());
+        assertThat(result.getEndTime()).isEqualTo(trigger.getEndTime());
+        assertThat(result.getNextFireTime()).isEqualTo(trigger.getNextFireTime());
+        assertThat(result.getPreviousFireTime()).isEqualTo(START);
+        assertThat(result.getLocation()).isEqualTo("de");
+        assertThat(result.getJobDuration()).isEqualTo(7);
+        assertThat(result.getTriggerState()).isEqualTo(CarbonAwareExecutionState.PLANNED_AHEAD);
+        assertThat(result.getConfiguredExecutionTime()).isEqualTo(trigger.getConfiguredExecutionTime());
+        assertThat(result.getOptimalExecutionTime()).isEqualTo(trigger.getOptimalExecutionTime());
+        assertThat(result.getEmissionData().timestamp()).isEqualTo(LocalDateTime.of(2025, 7, 16, 3, 0));
+        assertThat(result.getEmissionData().value()).isEqualTo(120.5);
+        assertThat(result.getFireTimeAfter(START)).isEqualTo(trigger.getFireTimeAfter(START));
+    }
+
+    @Test
+    void shouldWriteKeyOfRegisteredClient_AndRebindClientOnLoad() throws Exception {
+        CarbonForecastApi registered = new OpenDataForecastClient();
+        CarbonForecastApiRegistry.register(registered);
+
+        byte[] serialized = serialize(trigger);
+        CarbonAwareCronTriggerImpl result = deserialize(serialized);
+
+        assertThat(result.getCarbonForecastApi()).isSameAs(registered);
+        assertThat(new String(serialized, StandardCharsets.ISO_8859_1))
+                .doesNotContain("org.quartz.CronExpression")
+                .doesNotContain("maximumStaleness");
+    }
+
+    @Test
+    void shouldBindClient_RegisteredAfterLoad() throws Exception {
+        CarbonForecastApiRegistry.register(new OpenDataForecastClient());
+        byte[] serialized = serialize(trigger);
+        CarbonForecastApiRegistry.clear();
+
+        CarbonAwareCronTriggerImpl result = deserialize(serialized);
+        CarbonForecastApi registered = new OpenDataForecastClient();
+        CarbonForecastApiRegistry.register(registered);
+
+        assertThat(result.getCarbonForecastApi()).isSameAs(registered);
+        // the key is kept, until the trigger is bound to another client
+        assertThat(roundTrip(result).getCarbonForecastApi()).isSameAs(registered);
+    }
+
+    @Test
+    void shouldSerializeClient_IfClientIsNotRegistered() throws Exception {
+        CarbonAwareCronTriggerImpl result = roundTrip(trigger);
+
+        assertThat(result.getCarbonForecastApi())
+                .isInstanceOf(OpenDataForecastClient.class)
+                .isEqualTo(trigger.getCarbonForecastApi());
+    }
+
+    @Test
+    void shouldBeSmallerThanDefaultSerialization() throws Exception {
+        CarbonForecastApiRegistry.register(new OpenDataForecastClient());
+
+        byte[] legacy = legacyTrigger();
+        byte[] compact = serialize(trigger);
+
+        assertThat(compact.length).isLessThan(legacy.length / 4);
+    }
+
+    @Test
+    void shouldReadTriggerOfDefaultSerialization() throws Exception {
+        CarbonAwareCronTriggerImpl result = deserialize(legacyTrigger());
+
+        assertThat(result.getKey()).isEqualTo(new TriggerKey("CarbonAwareTrigger-WithOpenDataClient", "carbon-aware"));
+        assertThat(result.getCronExpression()).isEqualTo("0 0/1 * ? * * *");
+        assertThat(result.getTimeZone().getID()).isEqualTo("Europe/Berlin");
+        assertThat(result.getNextFireTime()).isEqualTo(new Date(START.getTime() + 60_000));
+        assertThat(result.getCarbonForecastApi()).isInstanceOf(OpenDataForecastClient.class);
+    }
+
+    private static byte[] legacyTrigger() throws IOException {
+        try (InputStream in = SerializedCarbonAwareCronTriggerTest.class
+                .getResourceAsStream("legacy-carbon-aware-cron-trigger.ser")) {
+            assertThat(in).isNotNull();
+            return in.readAllBytes();
+        }
+    }
+
+    private static CarbonAwareCronTriggerImpl roundTrip(CarbonAwareCronTriggerImpl trigger) throws Exception {
+        return deserialize(serialize(trigger));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CarbonAwareCronTriggerImpl deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (CarbonAwareCronTriggerImpl) in.readObject();
+        }
+    }
+}